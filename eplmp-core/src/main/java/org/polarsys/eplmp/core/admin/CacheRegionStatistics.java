@@ -0,0 +1,48 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.admin;
+
+import java.io.Serializable;
+
+/**
+ * Lookups of the entities of a shared cache region since the start of the server:
+ * a hit is a lookup of an entity which was in the cache, a miss a lookup which read the database.
+ *
+ * @since V2.5
+ */
+public class CacheRegionStatistics implements Serializable {
+
+    private String region;
+    private long hits;
+    private long misses;
+
+    public CacheRegionStatistics() {
+    }
+
+    public CacheRegionStatistics(String region, long hits, long misses) {
+        this.region = region;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -32,7 +32,8 @@ import java.util.*;
 @Table(name = "DOCUMENTITERATION", indexes = {@Index(name = "INDEX_DOC_WKS_ID_VERSION", columnList = "WORKSPACE_ID, DOCUMENTMASTER_ID, DOCUMENTREVISION_VERSION")})
 @javax.persistence.IdClass(org.polarsys.eplmp.core.document.DocumentIterationKey.class)
 @NamedQueries ({
-    @NamedQuery(name="DocumentIteration.findByBinaryResource", query = "SELECT d FROM DocumentIteration d WHERE :binaryResource member of d.attachedFiles")
+    @NamedQuery(name="DocumentIteration.findByBinaryResource", query = "SELECT d FROM DocumentIteration d WHERE :binaryResource member of d.attachedFiles"),
+    @NamedQuery(name="DocumentIteration.findByDocumentMasterIds", query = "SELECT d FROM DocumentIteration d WHERE d.documentRevision.documentMasterWorkspaceId = :workspaceId AND d.documentRevision.documentMasterId IN :documentMasterIds")
 })
 @javax.persistence.Entity
 public class DocumentIteration implements Serializable, FileHolder, Comparable<DocumentIteration>, Cloneable {
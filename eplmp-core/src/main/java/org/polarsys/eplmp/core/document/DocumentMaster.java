@@ -34,7 +34,7 @@ import java.util.List;
 @IdClass(org.polarsys.eplmp.core.document.DocumentMasterKey.class)
 @Entity
 @NamedQueries ({
-    @NamedQuery(name="DocumentMaster.findByWorkspace", query="SELECT dm FROM DocumentMaster dm WHERE dm.workspace.id = :workspaceId ORDER BY dm.creationDate DESC")
+    @NamedQuery(name="DocumentMaster.findIdsByWorkspace", query="SELECT dm.id FROM DocumentMaster dm WHERE dm.workspace.id = :workspaceId AND dm.id > :afterId ORDER BY dm.id")
 })
 public class DocumentMaster implements Serializable, Comparable<DocumentMaster> {
 
@@ -14,6 +14,8 @@ package org.polarsys.eplmp.core.product;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * A class that stores the result of a conversion process.
@@ -22,6 +24,9 @@ import java.util.Date;
  * @version 2.5, 11/05/17
  * @since   V2.5
  */
+@NamedQueries({
+        @NamedQuery(name = "Conversion.findSucceededBySource", query = "SELECT c FROM Conversion c WHERE c.succeed = true AND c.pending = false AND c.sourceDigest = :sourceDigest AND c.converterVersion = :converterVersion AND c.partIteration.partRevision.partMasterWorkspaceId = :workspaceId ORDER BY c.endDate DESC")
+})
 @Entity
 @IdClass(PartIterationKey.class)
 public class Conversion implements Serializable {
@@ -40,6 +45,25 @@ public class Conversion implements Serializable {
 
     private boolean succeed;
 
+    /**
+     * SHA-256 digest of the native CAD file content that has been converted.
+     */
+    @Column(length = 64)
+    private String sourceDigest;
+
+    /**
+     * Identifies the converter (and conversion pipeline) that produced the result.
+     */
+    private String converterVersion;
+
+    /**
+     * Names of the material files attached to the part iteration by the conversion.
+     */
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "CONVERSION_MATERIAL")
+    @Column(name = "MATERIAL")
+    private Set<String> materials = new HashSet<>();
+
     public Conversion() {
     }
 
@@ -94,4 +118,28 @@ public class Conversion implements Serializable {
     public void setEndDate(Date endDate) {
         this.endDate = endDate;
     }
+
+    public String getSourceDigest() {
+        return sourceDigest;
+    }
+
+    public void setSourceDigest(String sourceDigest) {
+        this.sourceDigest = sourceDigest;
+    }
+
+    public String getConverterVersion() {
+        return converterVersion;
+    }
+
+    public void setConverterVersion(String converterVersion) {
+        this.converterVersion = converterVersion;
+    }
+
+    public Set<String> getMaterials() {
+        return materials;
+    }
+
+    public void setMaterials(Set<String> materials) {
+        this.materials = materials;
+    }
 }
@@ -0,0 +1,68 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.product;
+
+import java.io.Serializable;
+
+/**
+ * Value object that describes a step of the conversion of a native CAD file.
+ *
+ * Instances of this class are not persisted, they are published while the conversion runs
+ * so that the user who requested it can follow its progress without polling.
+ *
+ * @see Conversion
+ */
+public class ConversionProgress implements Serializable {
+
+    public enum Step {
+        QUEUED, STARTED, DECIMATING, FINISHED
+    }
+
+    private PartIterationKey partIterationKey;
+    private Step step;
+    private boolean succeed;
+    private String userLogin;
+
+    public ConversionProgress(PartIterationKey partIterationKey, Step step, boolean succeed, String userLogin) {
+        this.partIterationKey = partIterationKey;
+        this.step = step;
+        this.succeed = succeed;
+        this.userLogin = userLogin;
+    }
+
+    public PartIterationKey getPartIterationKey() {
+        return partIterationKey;
+    }
+
+    public Step getStep() {
+        return step;
+    }
+
+    /**
+     * Only meaningful for the {@link Step#FINISHED} step.
+     */
+    public boolean isSucceed() {
+        return succeed;
+    }
+
+    /**
+     * Login of the user who requested the conversion.
+     */
+    public String getUserLogin() {
+        return userLogin;
+    }
+
+    @Override
+    public String toString() {
+        return partIterationKey + " " + step;
+    }
+}
@@ -34,6 +34,12 @@ import java.util.Date;
 @Entity
 public class Geometry extends BinaryResource{
 
+    /**
+     * Extension of the quantized binary mesh (glTF binary) variant of a level of detail,
+     * stored alongside the OBJ file of the same quality.
+     */
+    public static final String BINARY_MESH_EXTENSION = ".glb";
+
     /**
      * Starts at 0, smaller is greater.
      */
@@ -75,6 +81,10 @@ public class Geometry extends BinaryResource{
         this.quality = quality;
     }
 
+    public boolean isBinaryMesh() {
+        return fullName != null && fullName.endsWith(BINARY_MESH_EXTENSION);
+    }
+
     public void setBox(double x1, double y1, double z1, double x2, double y2, double z2) {
         xMin = Math.min(x1, x2);
         xMax = Math.max(x1, x2);
@@ -37,8 +37,19 @@ import java.util.*;
         @NamedQuery(name="PartIteration.findUsedByAsSubstitute", query="SELECT p FROM PartIteration p JOIN p.components l JOIN l.substitutes s WHERE s.substitute = :partMaster"),
         @NamedQuery(name="PartIteration.findUsedByAsComponent", query="SELECT p FROM PartIteration p JOIN p.components l WHERE l.component = :partMaster"),
         @NamedQuery(name="PartIteration.findDistinctInstanceAttributes", query="SELECT DISTINCT p.instanceAttributes FROM PartIteration p WHERE p.partRevision.partMaster.workspace.id = :workspaceId"),
+        @NamedQuery(name="PartIteration.findByPartMasterNumbers", query="SELECT p FROM PartIteration p WHERE p.partRevision.partMasterWorkspaceId = :workspaceId AND p.partRevision.partMasterNumber IN :partNumbers"),
         @NamedQuery(name="PartIteration.findWhereLOV", query="SELECT p FROM PartIteration p WHERE EXISTS ( SELECT i FROM InstanceAttributeTemplate i, ListOfValuesAttributeTemplate il WHERE i member of p.instanceAttributeTemplates AND i = il AND il.lov.name = :lovName AND il.lov.workspaceId = :workspace_id)")
 })
+@NamedEntityGraphs({
+        @NamedEntityGraph(name="PartIteration.detail", attributeNodes={
+                @NamedAttributeNode("instanceAttributes"), @NamedAttributeNode("instanceAttributeTemplates"),
+                @NamedAttributeNode("geometries"), @NamedAttributeNode("attachedFiles"),
+                @NamedAttributeNode("linkedDocuments"), @NamedAttributeNode("components")
+        }),
+        @NamedEntityGraph(name="PartIteration.indexing", attributeNodes={
+                @NamedAttributeNode("instanceAttributes"), @NamedAttributeNode("attachedFiles")
+        })
+})
 @Entity
 public class PartIteration implements Serializable, FileHolder, Comparable<PartIteration>, Cloneable {
 
@@ -57,7 +68,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @Id
     private int iteration;
 
-    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade = {CascadeType.REMOVE, CascadeType.REFRESH}, fetch = FetchType.LAZY)
     @JoinTable(name="PARTITERATION_GEOMETRY", inverseJoinColumns = {
         @JoinColumn(name = "GEOMETRY_FULLNAME", referencedColumnName = "FULLNAME")
     },
@@ -118,7 +129,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     @Temporal(TemporalType.TIMESTAMP)
     private Date checkInDate;
 
-    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @OrderColumn(name="ATTRIBUTE_ORDER")
     @JoinTable(name="PARTITERATION_ATTRIBUTE",
     inverseJoinColumns={
@@ -132,7 +143,7 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     })
     private List<InstanceAttribute> instanceAttributes=new ArrayList<>();
 
-    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToMany(orphanRemoval=true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     @OrderColumn(name="ATTRIBUTE_ORDER")
     @JoinTable(name="PARTITERATION_PATHDATA_ATTR",
             inverseJoinColumns={
@@ -201,8 +212,28 @@ public class PartIteration implements Serializable, FileHolder, Comparable<PartI
     public Set<Geometry> getGeometries() {
         return geometries;
     }
+    /**
+     * Gets the OBJ levels of detail, from the highest quality to the lowest.
+     * Binary mesh variants are excluded, see {@link #getSortedBinaryMeshes()}.
+     */
     public List<Geometry> getSortedGeometries() {
-        List<Geometry> geometriesList = new ArrayList<>(geometries);
+        return getSortedGeometries(false);
+    }
+
+    /**
+     * Gets the quantized binary mesh variants of the levels of detail, from the highest quality to the lowest.
+     */
+    public List<Geometry> getSortedBinaryMeshes() {
+        return getSortedGeometries(true);
+    }
+
+    private List<Geometry> getSortedGeometries(boolean binaryMesh) {
+        List<Geometry> geometriesList = new ArrayList<>();
+        for (Geometry geometry : geometries) {
+            if (geometry.isBinaryMesh() == binaryMesh) {
+                geometriesList.add(geometry);
+            }
+        }
         Collections.sort(geometriesList);
         return geometriesList;
     }
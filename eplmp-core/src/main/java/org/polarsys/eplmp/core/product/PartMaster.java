@@ -27,6 +27,11 @@ import java.util.List;
  * a collection of part iterations which wrap the subsequent changes
  * operated on the part.
  *
+ * The revisions are loaded lazily, the DAOs fetch them with the entity graph
+ * of their use case. The graphs don't go beyond the collections read for every
+ * revision or iteration: the components, the ACL or the iterations of the few
+ * retained revisions are loaded on access.
+ *
  * @author Florent Garin
  * @version 1.1, 18/05/11
  * @since V1.1
@@ -35,8 +40,17 @@ import java.util.List;
 @IdClass(PartMasterKey.class)
 @Entity
 @NamedQueries({
-        @NamedQuery(name = "PartMaster.findByNameOrNumber", query = "SELECT pm FROM PartMaster pm WHERE (pm.name LIKE :partName OR pm.number LIKE :partNumber) AND pm.workspace.id = :workspaceId"),
-        @NamedQuery(name = "PartMaster.findByWorkspace", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId ORDER BY pm.creationDate DESC")
+        @NamedQuery(name = "PartMaster.findByNameOrNumber", query = "SELECT pm FROM PartMaster pm WHERE (pm.name LIKE :partName ESCAPE '\\' OR pm.number LIKE :partNumber ESCAPE '\\') AND pm.workspace.id = :workspaceId"),
+        @NamedQuery(name = "PartMaster.findNumbersByWorkspace", query = "SELECT pm.number FROM PartMaster pm WHERE pm.workspace.id = :workspaceId AND pm.number > :afterNumber ORDER BY pm.number"),
+        @NamedQuery(name = "PartMaster.findNumbersAndNamesByWorkspace", query = "SELECT pm.number, pm.name FROM PartMaster pm WHERE pm.workspace.id = :workspaceId"),
+        @NamedQuery(name = "PartMaster.findByNumbers", query = "SELECT pm FROM PartMaster pm WHERE pm.workspace.id = :workspaceId AND pm.number IN :numbers")
+})
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = "PartMaster.structure",
+                attributeNodes = @NamedAttributeNode(value = "partRevisions", subgraph = "revisions"),
+                subgraphs = @NamedSubgraph(name = "revisions", attributeNodes = @NamedAttributeNode("partIterations"))),
+        @NamedEntityGraph(name = "PartMaster.bomRow",
+                attributeNodes = @NamedAttributeNode("partRevisions"))
 })
 public class PartMaster implements Serializable {
 
@@ -73,7 +87,7 @@ public class PartMaster implements Serializable {
     private String type;
 
 
-    @OneToMany(mappedBy = "partMaster", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "partMaster", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("version ASC")
     private List<PartRevision> partRevisions = new ArrayList<>();
 
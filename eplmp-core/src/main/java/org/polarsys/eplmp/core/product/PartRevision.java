@@ -37,11 +37,19 @@ import java.util.*;
 @NamedQueries({
         @NamedQuery(name="PartRevision.findByWorkspace", query="SELECT pr FROM PartRevision pr WHERE pr.partMaster.workspace.id = :workspaceId ORDER BY pr.partMaster.number ASC"),
         @NamedQuery(name="PartRevision.countByWorkspace", query="SELECT count(pr) FROM PartRevision pr WHERE pr.partMasterWorkspaceId = :workspaceId"),
-        @NamedQuery(name="PartRevision.findByReferenceOrName", query="SELECT pr FROM PartRevision pr WHERE (pr.partMaster.number LIKE :partNumber OR pr.partMaster.name LIKE :partName) AND pr.partMaster.workspace.id = :workspaceId"),
+        @NamedQuery(name="PartRevision.findByReferenceOrName", query="SELECT pr FROM PartRevision pr WHERE (pr.partMaster.number LIKE :partNumber ESCAPE '\\' OR pr.partMaster.name LIKE :partName ESCAPE '\\') AND pr.partMaster.workspace.id = :workspaceId"),
         @NamedQuery(name="PartRevision.findByWorkflow", query="SELECT p FROM PartRevision p WHERE p.workflow = :workflow"),
+        @NamedQuery(name="PartRevision.findByPartMasterNumbers", query="SELECT p FROM PartRevision p WHERE p.partMasterWorkspaceId = :workspaceId AND p.partMasterNumber IN :partNumbers"),
         @NamedQuery(name="PartRevision.findWithAssignedTasksForUser", query="SELECT p FROM PartRevision p, Task t LEFT JOIN t.assignedUsers au LEFT JOIN t.assignedGroups ag LEFT JOIN ag.users agu WHERE t.activity.workflow = p.workflow AND p.workflow IS NOT NULL AND p.partMasterWorkspaceId = :workspaceId AND ((au.login = :login AND au.workspaceId = :workspaceId) OR (agu.login = :login AND agu.workspaceId = :workspaceId))"),
         @NamedQuery(name="PartRevision.findWithOpenedTasksForUser", query="SELECT p FROM PartRevision p, Task t LEFT JOIN t.assignedUsers au LEFT JOIN t.assignedGroups ag LEFT JOIN ag.users agu WHERE t.activity.workflow = p.workflow AND p.workflow IS NOT NULL AND p.partMasterWorkspaceId = :workspaceId AND ((au.login = :login AND au.workspaceId = :workspaceId) OR (agu.login = :login AND agu.workspaceId = :workspaceId)) AND t.status = org.polarsys.eplmp.core.workflow.Task.Status.IN_PROGRESS")
 })
+@NamedEntityGraph(name="PartRevision.detail",
+        attributeNodes={@NamedAttributeNode("acl"), @NamedAttributeNode(value="partIterations", subgraph="iterations")},
+        subgraphs=@NamedSubgraph(name="iterations", attributeNodes={
+                @NamedAttributeNode("instanceAttributes"), @NamedAttributeNode("instanceAttributeTemplates"),
+                @NamedAttributeNode("geometries"), @NamedAttributeNode("attachedFiles"),
+                @NamedAttributeNode("linkedDocuments"), @NamedAttributeNode("components")
+        }))
 public class PartRevision implements Serializable, Comparable<PartRevision> {
 
 
@@ -83,7 +91,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     private Set<Effectivity> effectivities = new HashSet<>();
     
     
-    @OneToMany(mappedBy = "partRevision", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "partRevision", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @OrderBy("iteration ASC")
     private List<PartIteration> partIterations = new ArrayList<>();
    
@@ -120,7 +128,7 @@ public class PartRevision implements Serializable, Comparable<PartRevision> {
     @Column(name = "WORKSPACE_ID", nullable = false, insertable = false, updatable = false)
     private String partMasterWorkspaceId="";
 
-    @OneToOne(orphanRemoval = true, cascade=CascadeType.ALL, fetch=FetchType.EAGER)
+    @OneToOne(orphanRemoval = true, cascade=CascadeType.ALL, fetch=FetchType.LAZY)
     private ACL acl;
 
     @ManyToMany(fetch=FetchType.EAGER)
@@ -12,6 +12,7 @@
 package org.polarsys.eplmp.core.query;
 
 import org.polarsys.eplmp.core.configuration.PathDataIteration;
+import org.polarsys.eplmp.core.meta.InstanceAttribute;
 import org.polarsys.eplmp.core.product.PartLink;
 import org.polarsys.eplmp.core.product.PartLinkList;
 import org.polarsys.eplmp.core.product.PartRevision;
@@ -26,6 +27,9 @@ import java.util.Map;
  *
  * Instances of this class are not persisted.
  *
+ * A row either holds the matching part revision, or only the values of the selected fields when the
+ * query has been run as a projection, see {@link #isProjected()}.
+ *
  * @author Morgan Guimard
  */
 public class QueryResultRow {
@@ -39,6 +43,8 @@ public class QueryResultRow {
     private QueryContext context;
     private double amount;
     private String path;
+    private Map<String, Object> values;
+    private List<InstanceAttribute> instanceAttributes = new ArrayList<>();
 
     public QueryResultRow() {
     }
@@ -47,6 +53,10 @@ public class QueryResultRow {
         this.partRevision = partRevision;
     }
 
+    public QueryResultRow(Map<String, Object> values) {
+        this.values = values;
+    }
+
     public QueryResultRow(PartRevision partRevision, int depth, double[] results) {
         this.partRevision = partRevision;
         this.depth = depth;
@@ -136,4 +146,37 @@ public class QueryResultRow {
     public void setPath(String path) {
         this.path = path;
     }
+
+    /**
+     * @return true if the row holds the selected values instead of a part revision
+     */
+    public boolean isProjected() {
+        return values != null;
+    }
+
+    /**
+     * @param select a selected field, see {@link QueryField}
+     * @return the value of the field in a projected row
+     */
+    public Object getValue(String select) {
+        return values.get(select);
+    }
+
+    /**
+     * @return the values of the selected fields of a projected row, null for a row holding a part revision
+     */
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    /**
+     * @return the selected instance attributes of a projected row
+     */
+    public List<InstanceAttribute> getInstanceAttributes() {
+        return instanceAttributes;
+    }
+
+    public void setInstanceAttributes(List<InstanceAttribute> instanceAttributes) {
+        this.instanceAttributes = instanceAttributes;
+    }
 }
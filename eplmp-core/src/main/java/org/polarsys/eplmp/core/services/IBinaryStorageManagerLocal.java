@@ -18,6 +18,7 @@ import org.polarsys.eplmp.core.exceptions.StorageException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.List;
 
 public interface IBinaryStorageManagerLocal {
     InputStream getBinaryResourceInputStream(BinaryResource binaryResource) throws StorageException;
@@ -26,6 +27,8 @@ public interface IBinaryStorageManagerLocal {
     Date getLastModified(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     InputStream getGeneratedFileInputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     OutputStream getGeneratedFileOutputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
+    List<String> getGeneratedFileNames(BinaryResource binaryResource) throws StorageException;
+    void deleteGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws StorageException;
     void copyData(BinaryResource source, BinaryResource destination) throws StorageException;
     void deleteData(BinaryResource binaryResource) throws StorageException;
     void renameFile(BinaryResource binaryResource, String pNewName) throws StorageException, FileNotFoundException;
@@ -0,0 +1,30 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.services;
+
+import org.polarsys.eplmp.core.admin.CacheRegionStatistics;
+
+import java.util.List;
+
+/**
+ * Shared cache of the read-mostly reference data: workspaces, accounts, users, groups,
+ * memberships, lists of values, templates and workflow models.
+ *
+ * @since V2.5
+ */
+public interface ICacheManagerLocal {
+
+    /**
+     * @return the hits and misses of each cache region
+     */
+    List<CacheRegionStatistics> getCacheStatistics();
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.core.services;
+
+import org.polarsys.eplmp.core.product.ConversionProgress;
+
+import java.util.function.Consumer;
+
+/**
+ * Dispatches the progress of CAD conversions to the registered listeners (web sockets...).
+ */
+public interface IConversionProgressManagerLocal {
+    void addListener(Consumer<ConversionProgress> listener);
+    void removeListener(Consumer<ConversionProgress> listener);
+    void publish(ConversionProgress conversionProgress);
+}
@@ -18,6 +18,7 @@ import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
 import org.polarsys.eplmp.core.query.PartSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 
 import java.util.List;
 
@@ -43,6 +44,10 @@ public interface IIndexerManagerLocal {
 
     List<PartRevision> searchPartRevisions(PartSearchQuery partSearchQuery, int from, int size) throws AccountNotFoundException, IndexerNotAvailableException, IndexerRequestException;
 
+    List<SearchHitSummary> searchDocumentSummaries(DocumentSearchQuery documentSearchQuery, String login, int from, int size) throws IndexerNotAvailableException, IndexerRequestException;
+
+    List<SearchHitSummary> searchPartSummaries(PartSearchQuery partSearchQuery, int from, int size) throws IndexerNotAvailableException, IndexerRequestException;
+
     void indexAllWorkspacesData() throws AccountNotFoundException;
 
     void indexWorkspaceData(String workspaceId) throws WorkspaceNotFoundException, AccountNotFoundException, AccessRightException;
@@ -23,10 +23,12 @@ import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.query.PartSearchQuery;
 import org.polarsys.eplmp.core.query.Query;
 import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.core.sharing.SharedEntityKey;
 import org.polarsys.eplmp.core.sharing.SharedPart;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 
 /**
@@ -83,7 +85,7 @@ public interface IProductManagerLocal {
 
     void deleteMarker(int pLayerId, int pMarkerId) throws WorkspaceNotFoundException, UserNotActiveException, LayerNotFoundException, UserNotFoundException, AccessRightException, MarkerNotFoundException, WorkspaceNotEnabledException;
 
-    List<PartMaster> findPartMasters(String pWorkspaceId, String pPartNumber, String pPartName, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
+    List<PartMaster> findPartMasters(String pWorkspaceId, String pText, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
 
     PartRevision getPartRevision(PartRevisionKey pPartRPK) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartRevisionNotFoundException, AccessRightException, WorkspaceNotEnabledException;
     PartIteration getPartIteration(PartIterationKey pPartIPK) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, NotAllowedException, WorkspaceNotEnabledException;
@@ -147,6 +149,8 @@ public interface IProductManagerLocal {
 
     List<PartRevision> searchPartRevisions(PartSearchQuery partSearchQuery, int from, int size) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, AccountNotFoundException, NotAllowedException, IndexerRequestException, IndexerNotAvailableException;
 
+    List<SearchHitSummary> searchPartRevisionSummaries(PartSearchQuery partSearchQuery, int from, int size) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, AccountNotFoundException, NotAllowedException, IndexerRequestException, IndexerNotAvailableException;
+
     List<ProductBaseline> findBaselinesWherePartRevisionHasIterations(PartRevisionKey partRevisionKey) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartRevisionNotFoundException, WorkspaceNotEnabledException;
 
     PartMaster findPartMasterByCADFileName(String workspaceId, String cadFileName) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
@@ -179,6 +183,10 @@ public interface IProductManagerLocal {
 
     void endConversion(PartIterationKey partIterationKey, boolean succeed) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, WorkspaceNotEnabledException;
 
+    void endConversion(PartIterationKey partIterationKey, boolean succeed, String sourceDigest, String converterVersion, Set<String> materials) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, WorkspaceNotEnabledException;
+
+    Conversion findReusableConversion(String workspaceId, String sourceDigest, String converterVersion) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
+
     Import createImport(String workspaceId, String fileName) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, CreationException, WorkspaceNotEnabledException;
     List<Import> getImports(String workspaceId, String filename) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
     Import getImport(String workspaceId, String id) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, AccessRightException, WorkspaceNotEnabledException;
@@ -245,6 +253,29 @@ public interface IProductManagerLocal {
 
     List<QueryResultRow> filterProductBreakdownStructure(String workspaceId, Query query) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException;
 
+    /**
+     * Check that a query can be run by the current user: read access to the workspace, existing products and
+     * product instances for its contexts and valid rules. To be called before its rows are streamed, so that
+     * these errors are reported before a response starts.
+     *
+     * @param workspaceId the workspace of the query
+     * @param query the query to check
+     */
+    void checkQuery(String workspaceId, Query query) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException;
+
+    /**
+     * Run a query and hand over its result rows one at a time, without keeping large results in memory.
+     * The rows are produced within a transaction of their own, which only reads, and their revisions may be
+     * detached once consumed.
+     * The rows of smaller results are kept, the same query run again by the same user is served from memory
+     * until a part of the workspace changes.
+     *
+     * @param workspaceId the workspace of the query
+     * @param query the query to run
+     * @param consumer called for each result row
+     */
+    void streamQueryResultRows(String workspaceId, Query query, Consumer<QueryResultRow> consumer) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException;
+
     Query loadQuery(String workspaceId, int queryId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException;
 
     Map<String, Set<BinaryResource>> getBinariesInTree(Integer baselineId, String workspaceId, ConfigurationItemKey configurationItemKey, ProductStructureFilter psFilter, boolean exportNativeCADFiles, boolean exportDocumentLinks) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, WorkspaceNotEnabledException;
@@ -42,6 +42,17 @@ public class HashUtils {
      */
     public static String digest(String pText, String pAlgorithm) throws NoSuchAlgorithmException, UnsupportedEncodingException {
         byte[] digest = MessageDigest.getInstance(pAlgorithm).digest(pText.getBytes("UTF-8"));
+        return toHex(digest);
+    }
+
+    /**
+     * Encodes the given digest as a lower case hexadecimal string.
+     *
+     * @param digest
+     *
+     * @return hex string representation of the digest.
+     */
+    public static String toHex(byte[] digest) {
         StringBuilder hexString = new StringBuilder();
         for (byte aDigest : digest) {
             String hex = Integer.toHexString(0xFF & aDigest);
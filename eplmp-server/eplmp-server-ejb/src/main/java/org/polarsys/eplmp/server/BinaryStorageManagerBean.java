@@ -27,6 +27,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.List;
 
 
 @DeclareRoles(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -83,6 +84,16 @@ public class BinaryStorageManagerBean implements IBinaryStorageManagerLocal {
         return defaultStorageProvider.getGeneratedFileOutputStream(binaryResource, generatedFileName);
     }
 
+    @Override
+    public List<String> getGeneratedFileNames(BinaryResource binaryResource) throws StorageException {
+        return defaultStorageProvider.getGeneratedFileNames(binaryResource);
+    }
+
+    @Override
+    public void deleteGeneratedFile(BinaryResource binaryResource, String generatedFileName) throws StorageException {
+        defaultStorageProvider.delGeneratedFile(binaryResource, generatedFileName);
+    }
+
     @Override
     public boolean exists(BinaryResource binaryResource, String generatedFileName) throws StorageException {
         if (defaultStorageProvider.exists(binaryResource, generatedFileName)) {
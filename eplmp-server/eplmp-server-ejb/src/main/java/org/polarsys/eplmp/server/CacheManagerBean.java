@@ -0,0 +1,127 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server;
+
+import org.polarsys.eplmp.core.admin.CacheRegionStatistics;
+import org.polarsys.eplmp.core.common.*;
+import org.polarsys.eplmp.core.document.DocumentMasterTemplate;
+import org.polarsys.eplmp.core.meta.ListOfValues;
+import org.polarsys.eplmp.core.product.PartMasterTemplate;
+import org.polarsys.eplmp.core.security.UserGroupMapping;
+import org.polarsys.eplmp.core.security.WorkspaceUserGroupMembership;
+import org.polarsys.eplmp.core.security.WorkspaceUserGroupMembershipKey;
+import org.polarsys.eplmp.core.security.WorkspaceUserMembership;
+import org.polarsys.eplmp.core.security.WorkspaceUserMembershipKey;
+import org.polarsys.eplmp.core.services.ICacheManagerLocal;
+import org.polarsys.eplmp.core.workflow.WorkflowModel;
+import org.polarsys.eplmp.server.events.*;
+
+import javax.annotation.security.DeclareRoles;
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.*;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the lookups of the reference data in the shared cache, and evicts the entries which may be
+ * out of date once a transaction removing or changing them outside of the persistence context is committed.
+ *
+ * The regions are configured in META-INF/eclipselink-orm.xml. Entities changed through the persistence
+ * context are refreshed in the cache, and invalidated on the other nodes by the cache coordination.
+ */
+@DeclareRoles(UserGroupMapping.ADMIN_ROLE_ID)
+@LocalBean
+@Local(ICacheManagerLocal.class)
+@Singleton(name = "CacheManagerBean")
+@Lock(LockType.READ)
+public class CacheManagerBean implements ICacheManagerLocal {
+
+    static final List<Class<?>> REGIONS = Arrays.asList(
+            Workspace.class, Account.class, User.class, UserGroup.class,
+            WorkspaceUserMembership.class, WorkspaceUserGroupMembership.class,
+            ListOfValues.class, PartMasterTemplate.class, DocumentMasterTemplate.class, WorkflowModel.class);
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final AtomicLong[] hits = createCounters();
+    private final AtomicLong[] misses = createCounters();
+
+    /**
+     * Find an entity by primary key, counting the lookup as a hit if the entity is in the shared cache
+     */
+    public <T> T find(EntityManager em, Class<T> entityClass, Object primaryKey) {
+        int region = REGIONS.indexOf(entityClass);
+        if (region >= 0) {
+            if (emf.getCache().contains(entityClass, primaryKey)) {
+                hits[region].incrementAndGet();
+            } else {
+                misses[region].incrementAndGet();
+            }
+        }
+        return em.find(entityClass, primaryKey);
+    }
+
+    @RolesAllowed(UserGroupMapping.ADMIN_ROLE_ID)
+    @Override
+    public List<CacheRegionStatistics> getCacheStatistics() {
+        List<CacheRegionStatistics> statistics = new ArrayList<>();
+        for (int i = 0; i < REGIONS.size(); i++) {
+            statistics.add(new CacheRegionStatistics(REGIONS.get(i).getSimpleName(), hits[i].get(), misses[i].get()));
+        }
+        return statistics;
+    }
+
+    public void onWorkspaceChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Write WorkspaceEvent event) {
+        emf.getCache().evict(Workspace.class, event.getObservedWorkspace().getId());
+    }
+
+    /**
+     * The content of a removed workspace is deleted by bulk queries, which are not seen by the cache
+     */
+    public void onWorkspaceRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed WorkspaceEvent event) {
+        Cache cache = emf.getCache();
+        for (Class<?> region : REGIONS) {
+            cache.evict(region);
+        }
+    }
+
+    public void onUserRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserEvent event) {
+        User user = event.getObservedUser();
+        Cache cache = emf.getCache();
+        cache.evict(User.class, user.getKey());
+        cache.evict(WorkspaceUserMembership.class, new WorkspaceUserMembershipKey(user.getWorkspaceId(), user.getWorkspaceId(), user.getLogin()));
+    }
+
+    public void onUserGroupRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserGroupEvent event) {
+        UserGroup group = event.getObservedUserGroup();
+        Cache cache = emf.getCache();
+        cache.evict(UserGroup.class, new UserGroupKey(group.getWorkspaceId(), group.getId()));
+        cache.evict(WorkspaceUserGroupMembership.class, new WorkspaceUserGroupMembershipKey(group.getWorkspaceId(), group.getWorkspaceId(), group.getId()));
+    }
+
+    private static AtomicLong[] createCounters() {
+        AtomicLong[] counters = new AtomicLong[REGIONS.size()];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicLong();
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server;
+
+import org.polarsys.eplmp.core.product.ConversionProgress;
+import org.polarsys.eplmp.core.security.UserGroupMapping;
+import org.polarsys.eplmp.core.services.IConversionProgressManagerLocal;
+
+import javax.annotation.security.PermitAll;
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the listeners of conversions progress, conversions publish their steps through this bean.
+ *
+ * Listeners are called in the conversion thread, they must not block.
+ */
+@Local(IConversionProgressManagerLocal.class)
+@Singleton(name = "ConversionProgressManagerBean")
+@Lock(LockType.READ)
+public class ConversionProgressManagerBean implements IConversionProgressManagerLocal {
+
+    private static final Logger LOGGER = Logger.getLogger(ConversionProgressManagerBean.class.getName());
+
+    private final List<Consumer<ConversionProgress>> listeners = new CopyOnWriteArrayList<>();
+
+    @PermitAll
+    @Override
+    public void addListener(Consumer<ConversionProgress> listener) {
+        listeners.add(listener);
+    }
+
+    @PermitAll
+    @Override
+    public void removeListener(Consumer<ConversionProgress> listener) {
+        listeners.remove(listener);
+    }
+
+    @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
+    @Override
+    public void publish(ConversionProgress conversionProgress) {
+        LOGGER.log(Level.FINE, "Conversion progress: {0}", conversionProgress);
+        for (Consumer<ConversionProgress> listener : listeners) {
+            try {
+                listener.accept(conversionProgress);
+            } catch (RuntimeException e) {
+                // A failing listener must not break the conversion
+                LOGGER.log(Level.WARNING, "Cannot notify conversion progress", e);
+            }
+        }
+    }
+}
@@ -15,29 +15,41 @@ import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+import org.polarsys.eplmp.core.services.IContextManagerLocal;
+import org.polarsys.eplmp.core.services.IConversionProgressManagerLocal;
 import org.polarsys.eplmp.core.services.IConverterManagerLocal;
 import org.polarsys.eplmp.core.services.IProductManagerLocal;
 import org.polarsys.eplmp.core.util.FileIO;
+import org.polarsys.eplmp.core.util.HashUtils;
 import org.polarsys.eplmp.server.converters.CADConverter;
 import org.polarsys.eplmp.server.converters.CADConverter.ConversionException;
 import org.polarsys.eplmp.server.converters.ConversionResult;
 import org.polarsys.eplmp.server.converters.ConverterUtils;
 import org.polarsys.eplmp.server.geometry.GeometryParser;
+import org.polarsys.eplmp.server.geometry.MeshEncoder;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.Asynchronous;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.DoubleStream;
@@ -65,21 +77,69 @@ public class ConverterBean implements IConverterManagerLocal {
     @Inject
     private BeanLocator beanLocator;
 
+    @Inject
+    private IConversionProgressManagerLocal conversionProgressManager;
+
+    @Inject
+    private IContextManagerLocal contextManager;
+
     @Inject
     private GeometryParser geometryParser;
 
+    @Inject
+    private MeshEncoder meshEncoder;
+
+    @Resource
+    private ManagedExecutorService executorService;
+
     private static final String CONF_PROPERTIES = "/org/polarsys/eplmp/server/converters/utils/conf.properties";
     private static final Properties CONF = new Properties();
     private static final float[] RATIO = new float[]{1f, 0.6f, 0.2f};
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    /**
+     * Version of the post conversion processing (decimation...), must be increased when it changes
+     * so that results produced by a previous pipeline are not reused.
+     */
+    private static final String PIPELINE_VERSION = "2";
+
+    private static final long DECIMATION_POLL_INTERVAL = 200;
 
     private static final Logger LOGGER = Logger.getLogger(ConverterBean.class.getName());
 
+    private static final long CONVERSION_TIMEOUT;
+    private static final Path SCRATCH_DIR;
+
+    /**
+     * Shared by all conversions, limits the number of decimater processes running at the same time.
+     */
+    private static final Semaphore DECIMATER_PERMITS;
+
     static {
         try (InputStream inputStream = ConverterBean.class.getResourceAsStream(CONF_PROPERTIES)) {
             CONF.load(inputStream);
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, null, e);
         }
+        CONVERSION_TIMEOUT = TimeUnit.SECONDS.toMillis(getIntProperty("conversion.timeout", 1800));
+        DECIMATER_PERMITS = new Semaphore(getIntProperty("decimater.parallelism",
+                Runtime.getRuntime().availableProcessors()), true);
+        String scratchDir = CONF.getProperty("conversion.scratchDir");
+        SCRATCH_DIR = Paths.get(scratchDir != null && !scratchDir.trim().isEmpty() ?
+                scratchDir.trim() : System.getProperty("java.io.tmpdir"));
+    }
+
+    private static int getIntProperty(String key, int defaultValue) {
+        String value = CONF.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Invalid value for " + key + ", using " + defaultValue, e);
+            return defaultValue;
+        }
     }
 
     @PostConstruct
@@ -97,13 +157,13 @@ public class ConverterBean implements IConverterManagerLocal {
 
             Conversion existingConversion = productService.getConversion(partIterationKey);
 
-            // Don't try to convert if any conversion pending
-            if (existingConversion != null && existingConversion.isPending()) {
+            // Don't try to convert if any conversion pending, unless it has timed out
+            if (existingConversion != null && existingConversion.isPending() && !isTimedOut(existingConversion)) {
                 LOGGER.log(Level.SEVERE, "Conversion already running for part iteration {0}", partIterationKey);
                 return;
             }
 
-            // Clean old non pending conversions
+            // Clean old non pending or timed out conversions
             if (existingConversion != null) {
                 LOGGER.log(Level.FINE, "Cleaning previous ended conversion");
                 productService.removeConversion(partIterationKey);
@@ -123,14 +183,31 @@ public class ConverterBean implements IConverterManagerLocal {
             LOGGER.log(Level.SEVERE, null, e);
             return;
         }
+        publishProgress(partIterationKey, ConversionProgress.Step.QUEUED, false);
 
         CADConverter selectedConverter = selectConverter(cadBinaryResource);
 
         boolean succeed = false;
+        String sourceDigest = null;
+        String converterVersion = null;
+        Set<String> materials = new HashSet<>();
+        AtomicBoolean assembly = new AtomicBoolean();
 
         if (selectedConverter != null) {
+            long deadline = System.currentTimeMillis() + CONVERSION_TIMEOUT;
+            publishProgress(partIterationKey, ConversionProgress.Step.STARTED, false);
             try {
-                succeed = doConversion(cadBinaryResource, selectedConverter, partIterationKey);
+                converterVersion = getConverterVersion(selectedConverter);
+                Path tempDir = Files.createTempDirectory(Files.createDirectories(SCRATCH_DIR), "docdoku-");
+                try {
+                    Path tmpCadFile = tempDir.resolve(cadBinaryResource.getName().trim());
+                    sourceDigest = copyToTempFile(cadBinaryResource, tmpCadFile);
+                    succeed = reuseConversion(partIterationKey, sourceDigest, converterVersion, materials)
+                            || doConversion(tmpCadFile, tempDir, selectedConverter, partIterationKey, materials, assembly, deadline);
+                } finally {
+                    deleteTempDirectory(tempDir);
+                    Files.deleteIfExists(tempDir);
+                }
             } catch (StorageException e) {
                 LOGGER.log(Level.WARNING, "Unable to read from storage", e);
             } catch (IOException e) {
@@ -144,45 +221,153 @@ public class ConverterBean implements IConverterManagerLocal {
 
         try {
             LOGGER.log(Level.FINE, "Conversion ended");
-            productService.endConversion(partIterationKey, succeed);
+            // The components of an assembly are synchronized from the converter output, which is not kept:
+            // its conversion is not recorded as reusable
+            productService.endConversion(partIterationKey, succeed, assembly.get() ? null : sourceDigest, converterVersion, materials);
         } catch (ApplicationException e) {
             LOGGER.log(Level.SEVERE, null, e);
         }
+        publishProgress(partIterationKey, ConversionProgress.Step.FINISHED, succeed);
 
     }
 
-    private boolean doConversion(BinaryResource cadBinaryResource, CADConverter selectedConverter,
-                                 PartIterationKey pPartIPK) throws IOException, StorageException, ConversionException {
+    private boolean isTimedOut(Conversion conversion) {
+        Date startDate = conversion.getStartDate();
+        return startDate != null && startDate.getTime() + CONVERSION_TIMEOUT < System.currentTimeMillis();
+    }
 
-        boolean result = false;
+    private void publishProgress(PartIterationKey partIterationKey, ConversionProgress.Step step, boolean succeed) {
+        conversionProgressManager.publish(new ConversionProgress(partIterationKey, step, succeed,
+                contextManager.getCallerPrincipalLogin()));
+    }
 
-        UUID uuid = UUID.randomUUID();
-        Path tempDir = Files.createDirectory(Paths.get("docdoku-" + uuid));
-        Path tmpCadFile = tempDir.resolve(cadBinaryResource.getName().trim());
+    private String getConverterVersion(CADConverter converter) {
+        return converter.getConverterVersion() + "@" + PIPELINE_VERSION;
+    }
 
-        // copy resource content to temp directory
-        try (InputStream in = storageManager.getBinaryResourceInputStream(cadBinaryResource)) {
+    /**
+     * Copy the native CAD file to the given temporary file, computing its content digest on the fly
+     *
+     * @return the hex encoded SHA-256 digest of the native CAD file
+     */
+    private String copyToTempFile(BinaryResource cadBinaryResource, Path tmpCadFile) throws StorageException, IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        try (InputStream in = new DigestInputStream(storageManager.getBinaryResourceInputStream(cadBinaryResource), messageDigest)) {
             Files.copy(in, tmpCadFile);
-            // convert file
-            try (ConversionResult conversionResult = selectedConverter.convert(tmpCadFile.toUri(), tempDir.toUri())) {
-                Map<String, List<ConversionResult.Position>> componentPositionMap = conversionResult.getComponentPositionMap();
-                if (componentPositionMap != null) {
-                    result = syncAssembly(componentPositionMap, productService.getPartIteration(pPartIPK));
-                }
-                if (conversionResult.getConvertedFile() != null) {
-                    result = handleConvertedFile(conversionResult, pPartIPK, tempDir);
+        }
+        return HashUtils.toHex(messageDigest.digest());
+    }
+
+    /**
+     * Look for a previous successful conversion of the same native CAD content, and link its results
+     * (geometries, bounding box and materials) to the given part iteration.
+     *
+     * Only the conversions of leaf parts are reused: the component positions of an assembly are read
+     * from the converter output and synchronized with the part masters of the workspace on each conversion.
+     *
+     * @return true if a previous conversion result has been reused
+     */
+    private boolean reuseConversion(PartIterationKey pPartIPK, String sourceDigest, String converterVersion, Set<String> materials) {
+
+        Conversion previousConversion;
+        try {
+            previousConversion = productService.findReusableConversion(pPartIPK.getWorkspaceId(), sourceDigest, converterVersion);
+        } catch (ApplicationException e) {
+            LOGGER.log(Level.WARNING, "Cannot look for a previous conversion", e);
+            return false;
+        }
+
+        if (previousConversion == null) {
+            return false;
+        }
+
+        PartIteration source = previousConversion.getPartIteration();
+        if (source.getKey().equals(pPartIPK) || source.getGeometries().isEmpty() || !source.getComponents().isEmpty()) {
+            return false;
+        }
+
+        LOGGER.log(Level.INFO, "Reusing conversion of part iteration {0} for {1}", new Object[]{source.getKey(), pPartIPK});
+
+        try {
+            for (Geometry geometry : source.getGeometries()) {
+                double[] box = new double[]{geometry.getxMin(), geometry.getyMin(), geometry.getzMin(),
+                        geometry.getxMax(), geometry.getyMax(), geometry.getzMax()};
+                BinaryResource lod = productService.saveGeometryInPartIteration(pPartIPK, geometry.getName(),
+                        geometry.getQuality(), geometry.getContentLength(), box);
+                storageManager.copyData(geometry, lod);
+            }
+            for (BinaryResource attachedFile : source.getAttachedFiles()) {
+                if (previousConversion.getMaterials().contains(attachedFile.getName())) {
+                    BinaryResource material = productService.saveFileInPartIteration(pPartIPK, attachedFile.getName(),
+                            PartIteration.ATTACHED_FILES_SUBTYPE, attachedFile.getContentLength());
+                    storageManager.copyData(attachedFile, material);
+                    materials.add(attachedFile.getName());
                 }
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, e.getMessage(), e);
-            } finally {
-                deleteTempDirectory(tempDir);
             }
-        } finally {
-            Files.deleteIfExists(tempDir);
+            return true;
+        } catch (ApplicationException | StorageException e) {
+            LOGGER.log(Level.WARNING, "Cannot reuse previous conversion, converting again", e);
+            materials.clear();
+            return false;
+        }
+    }
+
+    private boolean doConversion(Path tmpCadFile, Path tempDir, CADConverter selectedConverter,
+                                 PartIterationKey pPartIPK, Set<String> materials, AtomicBoolean assembly, long deadline)
+            throws ConversionException {
+
+        boolean result = false;
+
+        // convert file, the converter runs on the managed executor so that it can be stopped at the deadline
+        Future<ConversionResult> conversion = executorService.submit(() -> selectedConverter.convert(tmpCadFile.toUri(), tempDir.toUri()));
+        ConversionResult convertedResult;
+        try {
+            convertedResult = conversion.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            stopConversion(conversion, tempDir);
+            throw new ConversionException("Conversion of " + tmpCadFile.getFileName() + " timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopConversion(conversion, tempDir);
+            throw new ConversionException("Conversion of " + tmpCadFile.getFileName() + " interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConversionException) {
+                throw (ConversionException) e.getCause();
+            }
+            LOGGER.log(Level.WARNING, e.getCause().getMessage(), e.getCause());
+            return false;
+        }
+
+        try (ConversionResult conversionResult = convertedResult) {
+            Map<String, List<ConversionResult.Position>> componentPositionMap = conversionResult.getComponentPositionMap();
+            if (componentPositionMap != null) {
+                assembly.set(true);
+                result = syncAssembly(componentPositionMap, productService.getPartIteration(pPartIPK));
+            }
+            if (conversionResult.getConvertedFile() != null) {
+                result = handleConvertedFile(conversionResult, pPartIPK, tempDir, materials, deadline);
+            }
+        } catch (ConversionException e) {
+            throw e;
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, e.getMessage(), e);
         }
         return result;
     }
 
+    /**
+     * Interrupt the converter, and kill the processes it started on the files of the conversion directory
+     */
+    private void stopConversion(Future<ConversionResult> conversion, Path tempDir) {
+        conversion.cancel(true);
+        ConverterUtils.destroyProcessesUsing(tempDir);
+    }
+
     private void deleteTempDirectory(Path tempDir) {
         try (Stream<Path> s = Files.list(tempDir)) {
             s.forEach((path) -> {
@@ -197,27 +382,32 @@ public class ConverterBean implements IConverterManagerLocal {
         }
     }
 
-    private boolean handleConvertedFile(ConversionResult conversionResult, PartIterationKey pPartIPK, Path tempDir) {
+    private boolean handleConvertedFile(ConversionResult conversionResult, PartIterationKey pPartIPK, Path tempDir,
+                                        Set<String> materials, long deadline) throws ConversionException {
 
         // manage converted file
         Path convertedFile = conversionResult.getConvertedFile();
         double[] box = geometryParser.calculateBox(convertedFile);
 
-        if (decimate(convertedFile, tempDir, RATIO)) {
+        publishProgress(pPartIPK, ConversionProgress.Step.DECIMATING, false);
+        if (decimate(convertedFile, tempDir, RATIO, deadline)) {
             String fileName = convertedFile.getFileName().toString();
             for (int i = 0; i < RATIO.length; i++) {
                 Path geometryFile = tempDir
                         .resolve(fileName.replaceAll("\\.obj$", Math.round((RATIO[i] * 100)) + ".obj"));
                 saveGeometryFile(pPartIPK, i, geometryFile, box);
+                saveBinaryMesh(pPartIPK, i, geometryFile, box);
             }
         } else {
             // Copy the converted file if decimation failed,
             saveGeometryFile(pPartIPK, 0, convertedFile, box);
+            saveBinaryMesh(pPartIPK, 0, convertedFile, box);
         }
 
         // manage materials
         for (Path material : conversionResult.getMaterials()) {
             saveAttachedFile(pPartIPK, material);
+            materials.add(material.getFileName().toString());
         }
 
         return true;
@@ -310,9 +500,16 @@ public class ConverterBean implements IConverterManagerLocal {
         return null;
     }
 
-    private boolean decimate(Path file, Path tempDir, float[] ratio) {
+    /**
+     * Decimate the given file, running one decimater process per level of detail.
+     * Processes run in parallel within the limit of the decimater permits.
+     *
+     * @return true if all levels of detail have been produced
+     * @throws ConversionException if the conversion deadline has been reached
+     */
+    private boolean decimate(Path file, Path tempDir, float[] ratio, long deadline) throws ConversionException {
 
-        LOGGER.log(Level.INFO, "Decimate file in progress : {0}", ratio);
+        LOGGER.log(Level.INFO, "Decimate file in progress : {0}", Arrays.toString(ratio));
 
         // sanity checks
         String decimater = CONF.getProperty("decimater");
@@ -328,37 +525,93 @@ public class ConverterBean implements IConverterManagerLocal {
             return false;
         }
 
-        boolean decimateSucceed = false;
+        boolean decimateSucceed = true;
+        Map<Process, Path> running = new LinkedHashMap<>();
+        int next = 0;
 
         try {
-            String[] args = {decimater, "-i", file.toAbsolutePath().toString(), "-o",
-                    tempDir.toAbsolutePath().toString(), String.valueOf(ratio[0]), String.valueOf(ratio[1]),
-                    String.valueOf(ratio[2])};
-
-            LOGGER.log(Level.INFO, "Decimate command\n{0}", args);
+            while (next < ratio.length || !running.isEmpty()) {
 
-            // Add redirectErrorStream, fix process hang up
-            ProcessBuilder pb = new ProcessBuilder(args).redirectErrorStream(true);
-
-            Process proc = pb.start();
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new ConversionException("Decimation of " + file.getFileName() + " timed out");
+                }
 
-            String stdOutput = ConverterUtils.inputStreamToString(proc.getInputStream());
+                if (next < ratio.length && DECIMATER_PERMITS.tryAcquire()) {
+                    try {
+                        Path log = tempDir.resolve("decimater-" + Math.round(ratio[next] * 100) + ".log");
+                        running.put(startDecimater(decimater, file, tempDir, ratio[next], log), log);
+                        next++;
+                    } catch (IOException e) {
+                        DECIMATER_PERMITS.release();
+                        throw e;
+                    }
+                    continue;
+                }
 
-            proc.waitFor();
+                // Wait for a process to end, or for a permit to be released by another conversion
+                long wait = Math.min(remaining, DECIMATION_POLL_INTERVAL);
+                if (running.isEmpty()) {
+                    Thread.sleep(wait);
+                } else {
+                    running.keySet().iterator().next().waitFor(wait, TimeUnit.MILLISECONDS);
+                }
 
-            if (proc.exitValue() == 0) {
-                LOGGER.log(Level.INFO, "Decimation done");
-                decimateSucceed = true;
-            } else {
-                LOGGER.log(Level.SEVERE, "Decimation failed with code = {0} {1}", new Object[]{proc.exitValue(), stdOutput});
+                Iterator<Map.Entry<Process, Path>> iterator = running.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<Process, Path> entry = iterator.next();
+                    Process proc = entry.getKey();
+                    if (!proc.isAlive()) {
+                        iterator.remove();
+                        DECIMATER_PERMITS.release();
+                        if (proc.exitValue() != 0) {
+                            LOGGER.log(Level.SEVERE, "Decimation failed with code = {0} {1}",
+                                    new Object[]{proc.exitValue(), readLog(entry.getValue())});
+                            decimateSucceed = false;
+                        }
+                    }
+                }
             }
 
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Decimation failed for " + file.toAbsolutePath(), e);
+            decimateSucceed = false;
+        } catch (InterruptedException e) {
+            LOGGER.log(Level.SEVERE, "Decimation interrupted for " + file.toAbsolutePath(), e);
+            Thread.currentThread().interrupt();
+            decimateSucceed = false;
+        } finally {
+            for (Process proc : running.keySet()) {
+                ConverterUtils.destroyProcessTree(proc);
+                DECIMATER_PERMITS.release();
+            }
+        }
+
+        if (decimateSucceed) {
+            LOGGER.log(Level.INFO, "Decimation done");
         }
         return decimateSucceed;
     }
 
+    private Process startDecimater(String decimater, Path file, Path tempDir, float ratio, Path log) throws IOException {
+        String[] args = {decimater, "-i", file.toAbsolutePath().toString(), "-o",
+                tempDir.toAbsolutePath().toString(), String.valueOf(ratio)};
+
+        LOGGER.log(Level.INFO, "Decimate command\n{0}", String.join(" ", args));
+
+        // Redirect output to a file, fix process hang up
+        ProcessBuilder pb = new ProcessBuilder(args).redirectErrorStream(true).redirectOutput(log.toFile());
+        return pb.start();
+    }
+
+    private String readLog(Path log) {
+        try {
+            return new String(Files.readAllBytes(log), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
     private void saveGeometryFile(PartIterationKey partIPK, int quality, Path file, double[] box) {
         try {
             Geometry lod = (Geometry) productService.saveGeometryInPartIteration(partIPK, file.getFileName().toString(),
@@ -378,6 +631,18 @@ public class ConverterBean implements IConverterManagerLocal {
         }
     }
 
+    /**
+     * The binary mesh is an optional variant of the level of detail, the OBJ file remains the reference.
+     */
+    private void saveBinaryMesh(PartIterationKey partIPK, int quality, Path objFile, double[] box) {
+        Path binaryMeshFile = meshEncoder.encode(objFile);
+        if (binaryMeshFile != null) {
+            saveGeometryFile(partIPK, quality, binaryMeshFile, box);
+        } else {
+            LOGGER.log(Level.WARNING, "No binary mesh for " + objFile.getFileName());
+        }
+    }
+
     private void saveAttachedFile(PartIterationKey partIPK, Path file) {
         try {
             BinaryResource binaryResource = productService.saveFileInPartIteration(partIPK,
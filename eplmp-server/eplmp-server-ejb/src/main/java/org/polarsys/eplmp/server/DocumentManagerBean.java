@@ -19,6 +19,7 @@ import org.polarsys.eplmp.core.log.DocumentLog;
 import org.polarsys.eplmp.core.meta.*;
 import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.core.security.ACL;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.*;
@@ -566,6 +567,35 @@ public class DocumentManagerBean implements IDocumentManagerLocal {
         return new DocumentRevision[0];
     }
 
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<SearchHitSummary> searchDocumentRevisionSummaries(DocumentSearchQuery pQuery, int from, int size)
+            throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, WorkspaceNotEnabledException, AccountNotFoundException, NotAllowedException, IndexerRequestException, IndexerNotAvailableException {
+        User user = userManager.checkWorkspaceReadAccess(pQuery.getWorkspaceId());
+
+        // Administrators are not restricted by ACLs, the index is enough to list what they can read
+        if (user.isAdministrator() && !pQuery.isFetchHeadOnly()) {
+            return indexerManager.searchDocumentSummaries(pQuery, user.getLogin(), from, size);
+        }
+
+        List<SearchHitSummary> summaries = new ArrayList<>();
+        for (DocumentRevision docR : searchDocumentRevisions(pQuery, from, size)) {
+            SearchHitSummary summary = new SearchHitSummary(docR.getWorkspaceId(), docR.getDocumentMasterId(), docR.getVersion(), 0);
+            summary.setTitle(docR.getTitle());
+            summary.setType(docR.getDocumentMaster().getType());
+            summary.setAuthorLogin(docR.getAuthor().getLogin());
+            summary.setAuthorName(docR.getAuthor().getName());
+            summary.setCreationDate(docR.getCreationDate());
+            DocumentIteration lastIteration = docR.getLastIteration();
+            if (lastIteration != null) {
+                summary.setIteration(lastIteration.getIteration());
+                summary.setModificationDate(lastIteration.getModificationDate());
+            }
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public DocumentMasterTemplate[] getDocumentMasterTemplates(String pWorkspaceId) throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
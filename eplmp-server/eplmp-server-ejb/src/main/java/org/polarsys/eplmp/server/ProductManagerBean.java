@@ -38,10 +38,14 @@ import org.polarsys.eplmp.server.configuration.filter.WIPPSFilter;
 import org.polarsys.eplmp.server.dao.*;
 import org.polarsys.eplmp.server.events.*;
 import org.polarsys.eplmp.server.factory.ACLFactory;
+import org.polarsys.eplmp.server.lookup.PartLookupIndexBean;
+import org.polarsys.eplmp.server.products.QueryContextEvaluatorBean;
+import org.polarsys.eplmp.server.products.QueryResultCacheBean;
 import org.polarsys.eplmp.server.validation.AttributesConsistencyUtils;
 
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
+import javax.ejb.EJBException;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
@@ -53,6 +57,11 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -110,6 +119,9 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Inject
     private ModificationNotificationDAO modificationNotificationDAO;
 
+    @Inject
+    private PartAttributeValueDAO partAttributeValueDAO;
+
     @Inject
     private PartIterationDAO partIterationDAO;
 
@@ -128,15 +140,9 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Inject
     private PartUsageLinkDAO partUsageLinkDAO;
 
-    @Inject
-    private PathDataIterationDAO pathDataIterationDAO;
-
     @Inject
     private PathDataMasterDAO pathDataMasterDAO;
 
-    @Inject
-    private PathDataQueryDAO pathDataQueryDAO;
-
     @Inject
     private PathToPathLinkDAO pathToPathLinkDAO;
 
@@ -200,11 +206,30 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Inject
     private Event<PartRevisionEvent> partRevisionEvent;
 
+    @Inject
+    private Event<PartMasterEvent> partMasterEvent;
+
+    @Inject
+    private PartLookupIndexBean partLookupIndex;
+
     @Inject
     private PSFilterVisitor psFilterVisitor;
 
+    @Inject
+    private QueryContextEvaluatorBean queryContextEvaluator;
+
+    @Inject
+    private QueryResultCacheBean queryResultCache;
+
     private static final Logger LOGGER = Logger.getLogger(ProductManagerBean.class.getName());
 
+    private static final int QUERY_BATCH_SIZE = 500;
+
+    /**
+     * Maximum number of query contexts evaluated at the same time by a request
+     */
+    private static final int QUERY_CONTEXTS_PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public List<PartLink[]> findPartUsages(ConfigurationItemKey pKey, ProductStructureFilter filter, String search) throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
@@ -234,9 +259,20 @@ public class ProductManagerBean implements IProductManagerLocal {
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
-    public List<PartMaster> findPartMasters(String pWorkspaceId, String pPartNumber, String pPartName, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+    public List<PartMaster> findPartMasters(String pWorkspaceId, String pText, int pMaxResults) throws UserNotFoundException, AccessRightException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         userManager.checkWorkspaceWriteAccess(pWorkspaceId);
-        return partMasterDAO.findPartMasters(pWorkspaceId, pPartNumber, pPartName, pMaxResults);
+        List<String> numbers = partLookupIndex.findPartNumbers(pWorkspaceId, pText, pMaxResults);
+        if (numbers == null) {
+            // Wildcards typed by the user are matched literally
+            String pattern = "%" + pText.replace("\\", "\\\\").replace("_", "\\_").replace("%", "\\%") + "%";
+            return partMasterDAO.findPartMasters(pWorkspaceId, pattern, pattern, pMaxResults);
+        }
+        if (numbers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<PartMaster> partMasters = partMasterDAO.findPartMsByNumbers(pWorkspaceId, numbers);
+        partMasters.sort(Comparator.comparing(PartMaster::getNumber));
+        return partMasters;
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -365,6 +401,8 @@ public class ProductManagerBean implements IProductManagerLocal {
         }
 
         partMasterDAO.createPartM(pm);
+        partMasterEvent.select(new AnnotationLiteral<Created>() {
+        }).fire(new PartMasterEvent(pm));
 
         if (runningTasks != null) {
             mailer.sendApproval(newRevision.getWorkspaceId(), runningTasks, newRevision);
@@ -552,6 +590,8 @@ public class ProductManagerBean implements IProductManagerLocal {
 
         }
 
+        partRevisionEvent.select(new AnnotationLiteral<Write>() {
+        }).fire(new PartRevisionEvent(partR));
         return partR;
     }
 
@@ -582,6 +622,7 @@ public class ProductManagerBean implements IProductManagerLocal {
             lastIteration.setCheckInDate(new Date());
 
             indexerManager.indexPartIteration(lastIteration);
+            partAttributeValueDAO.createValues(lastIteration);
 
             partIterationEvent.select(new AnnotationLiteral<CheckedIn>() {
             }).fire(new PartIterationEvent(lastIteration));
@@ -883,6 +924,9 @@ public class ProductManagerBean implements IProductManagerLocal {
             partIte.setModificationDate(new Date());
             partIte.setSource(source);
 
+            partIterationEvent.select(new AnnotationLiteral<Write>() {
+            }).fire(new PartIterationEvent(partIte));
+
         } else {
             throw new NotAllowedException("NotAllowedException25", partIte.getPartNumber());
         }
@@ -942,7 +986,7 @@ public class ProductManagerBean implements IProductManagerLocal {
 
         User user = checkPartRevisionReadAccess(pPartRPK);
 
-        PartRevision partR = partRevisionDAO.loadPartR(pPartRPK);
+        PartRevision partR = partRevisionDAO.loadPartR(pPartRPK, "PartRevision.detail");
 
         if (isCheckoutByAnotherUser(user, partR)) {
             em.detach(partR);
@@ -1037,7 +1081,7 @@ public class ProductManagerBean implements IProductManagerLocal {
         PartRevisionKey partRevisionKey = pPartIPK.getPartRevision();
         User user = checkPartRevisionReadAccess(partRevisionKey);
 
-        PartIteration partI = partIterationDAO.loadPartI(pPartIPK);
+        PartIteration partI = partIterationDAO.loadPartI(pPartIPK, "PartIteration.detail");
         PartRevision partR = partI.getPartRevision();
         partR.getIteration(pPartIPK.getIteration());
         PartIteration lastIteration = partR.getLastIteration();
@@ -1065,6 +1109,8 @@ public class ProductManagerBean implements IProductManagerLocal {
             } else {
                 aclFactory.updateACL(workspaceId, partRevision.getACL(), pACLUserEntries, pACLUserGroupEntries);
             }
+            partRevisionEvent.select(new AnnotationLiteral<Write>() {
+            }).fire(new PartRevisionEvent(partRevision));
         } else {
             throw new AccessRightException(user);
         }
@@ -1084,6 +1130,8 @@ public class ProductManagerBean implements IProductManagerLocal {
             if (acl != null) {
                 aclDAO.removeACLEntries(acl);
                 partRevision.setACL(null);
+                partRevisionEvent.select(new AnnotationLiteral<Write>() {
+                }).fire(new PartRevisionEvent(partRevision));
             }
         } else {
             throw new AccessRightException(user);
@@ -1116,6 +1164,35 @@ public class ProductManagerBean implements IProductManagerLocal {
         return new ArrayList<>(fetchedPartRs);
     }
 
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public List<SearchHitSummary> searchPartRevisionSummaries(PartSearchQuery pQuery, int from, int size)
+            throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException, AccountNotFoundException, NotAllowedException, IndexerRequestException, IndexerNotAvailableException {
+        User user = userManager.checkWorkspaceReadAccess(pQuery.getWorkspaceId());
+
+        // Administrators are not restricted by ACLs, the index is enough to list what they can read
+        if (user.isAdministrator() && !pQuery.isFetchHeadOnly()) {
+            return indexerManager.searchPartSummaries(pQuery, from, size);
+        }
+
+        List<SearchHitSummary> summaries = new ArrayList<>();
+        for (PartRevision partR : searchPartRevisions(pQuery, from, size)) {
+            SearchHitSummary summary = new SearchHitSummary(partR.getWorkspaceId(), partR.getPartNumber(), partR.getVersion(), 0);
+            summary.setTitle(partR.getPartName());
+            summary.setType(partR.getPartMaster().getType());
+            summary.setAuthorLogin(partR.getAuthor().getLogin());
+            summary.setAuthorName(partR.getAuthor().getName());
+            summary.setCreationDate(partR.getCreationDate());
+            PartIteration lastIteration = partR.getLastIteration();
+            if (lastIteration != null) {
+                summary.setIteration(lastIteration.getIteration());
+                summary.setModificationDate(lastIteration.getModificationDate());
+            }
+            summaries.add(summary);
+        }
+        return summaries;
+    }
+
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
     @Override
     public PartMaster findPartMasterByCADFileName(String workspaceId, String cadFileName) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
@@ -1168,12 +1245,37 @@ public class ProductManagerBean implements IProductManagerLocal {
     @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
     @Override
     public void endConversion(PartIterationKey partIterationKey, boolean succeed) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, WorkspaceNotEnabledException {
+        endConversion(partIterationKey, succeed, null, null, null);
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public void endConversion(PartIterationKey partIterationKey, boolean succeed, String sourceDigest, String converterVersion, Set<String> materials) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, WorkspaceNotEnabledException {
         checkPartRevisionWriteAccess(partIterationKey.getPartRevision());
         PartIteration partIteration = partIterationDAO.loadPartI(partIterationKey);
         Conversion conversion = conversionDAO.findConversion(partIteration);
         conversion.setPending(false);
         conversion.setSucceed(succeed);
         conversion.setEndDate(new Date());
+        // Only successful conversions can be reused later on
+        if (succeed) {
+            conversion.setSourceDigest(sourceDigest);
+            conversion.setConverterVersion(converterVersion);
+            if (materials != null) {
+                conversion.setMaterials(new HashSet<>(materials));
+            }
+        }
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public Conversion findReusableConversion(String workspaceId, String sourceDigest, String converterVersion) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
+        userManager.checkWorkspaceReadAccess(workspaceId);
+        if (sourceDigest == null || converterVersion == null) {
+            return null;
+        }
+        return conversionDAO.findSucceededConversion(workspaceId, sourceDigest, converterVersion);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -1380,8 +1482,18 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Override
     public PartRevision[] getPartRevisionsWithReferenceOrName(String pWorkspaceId, String reference, int maxResults) throws WorkspaceNotFoundException, UserNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
         userManager.checkWorkspaceReadAccess(pWorkspaceId);
-        List<PartRevision> partRs = partRevisionDAO.findPartsRevisionsWithReferenceOrNameLike(pWorkspaceId, reference, maxResults);
-        return partRs.toArray(new PartRevision[partRs.size()]);
+        List<String> numbers = partLookupIndex.findPartNumbers(pWorkspaceId, reference, maxResults);
+        if (numbers == null) {
+            List<PartRevision> partRs = partRevisionDAO.findPartsRevisionsWithReferenceOrNameLike(pWorkspaceId, reference, maxResults);
+            return partRs.toArray(new PartRevision[partRs.size()]);
+        }
+        if (numbers.isEmpty()) {
+            return new PartRevision[0];
+        }
+        return partRevisionDAO.findPartRsByPartMasterNumbers(pWorkspaceId, numbers).stream()
+                .sorted(Comparator.comparing(PartRevision::getPartNumber).thenComparing(PartRevision::getVersion))
+                .limit(maxResults)
+                .toArray(PartRevision[]::new);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -1404,6 +1516,9 @@ public class ProductManagerBean implements IProductManagerLocal {
         }
 
         partRevision.release(user);
+
+        partRevisionEvent.select(new AnnotationLiteral<Write>() {
+        }).fire(new PartRevisionEvent(partRevision));
         return partRevision;
     }
 
@@ -1419,6 +1534,9 @@ public class ProductManagerBean implements IProductManagerLocal {
         }
 
         partRevision.markAsObsolete(user);
+
+        partRevisionEvent.select(new AnnotationLiteral<Write>() {
+        }).fire(new PartRevisionEvent(partRevision));
         return partRevision;
     }
 
@@ -1628,12 +1746,14 @@ public class ProductManagerBean implements IProductManagerLocal {
     @Override
     public PartMaster getPartMaster(PartMasterKey pPartMPK) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartMasterNotFoundException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(pPartMPK.getWorkspace());
-        PartMaster partM = partMasterDAO.loadPartM(pPartMPK);
+        PartMaster partM = partMasterDAO.loadPartM(pPartMPK, "PartMaster.bomRow");
 
         partM.getPartRevisions()
                 .stream()
                 .filter(partR -> isCheckoutByAnotherUser(user, partR))
                 .forEach(partR -> {
+                    // The iterations are not in the graph, they are read before the revision is detached
+                    partR.getPartIterations().size();
                     em.detach(partR);
                     partR.removeLastIteration();
                 });
@@ -2035,7 +2155,11 @@ public class ProductManagerBean implements IProductManagerLocal {
         partRevisionEvent.select(new AnnotationLiteral<Removed>() {
         }).fire(new PartRevisionEvent(partR));
 
+        partAttributeValueDAO.removeValues(partRevisionKey);
+
         if (isLastRevision) {
+            partMasterEvent.select(new AnnotationLiteral<Removed>() {
+            }).fire(new PartMasterEvent(partMaster));
             partMasterDAO.removePartM(partMaster);
         } else {
             partMaster.removeRevision(partR);
@@ -2699,22 +2823,20 @@ public class ProductManagerBean implements IProductManagerLocal {
 
         List<PartRevision> parts = partRevisionQueryDAO.runQuery(user.getTimeZone(), workspace, query);
 
-        ListIterator<PartRevision> ite = parts.listIterator();
+        parts.removeIf(partR -> !isQueryResultReadable(user, partR));
 
-        while (ite.hasNext()) {
-            PartRevision partR = ite.next();
-
-            if (isCheckoutByAnotherUser(user, partR)) {
-                em.detach(partR);
-                partR.removeLastIteration();
-            }
+        return parts;
+    }
 
-            if (partR.getLastIteration() != null && !hasPartRevisionReadAccess(user, partR)) {
-                ite.remove();
-            }
+    /**
+     * Hide the iteration being worked on by another user, then check the read access on the revision
+     */
+    private boolean isQueryResultReadable(User user, PartRevision partR) {
+        if (isCheckoutByAnotherUser(user, partR)) {
+            em.detach(partR);
+            partR.removeLastIteration();
         }
-
-        return parts;
+        return partR.getLastIteration() == null || hasPartRevisionReadAccess(user, partR);
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -2922,10 +3044,151 @@ public class ProductManagerBean implements IProductManagerLocal {
     public List<QueryResultRow> filterProductBreakdownStructure(String workspaceId, Query query) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
         User user = userManager.checkWorkspaceReadAccess(workspaceId);
         List<QueryResultRow> rows = new ArrayList<>();
+        evaluateQueryContexts(workspaceId, query, user, rows::addAll);
+        return rows;
+    }
+
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Override
+    public void checkQuery(String workspaceId, Query query) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(workspaceId);
+        workspaceDAO.loadWorkspace(workspaceId);
         for (QueryContext queryContext : query.getContexts()) {
-            rows.addAll(filterPBS(query, workspaceId, queryContext, user));
+            ConfigurationItemKey ciKey = new ConfigurationItemKey(workspaceId, queryContext.getConfigurationItemId());
+            configurationItemDAO.loadConfigurationItem(ciKey);
+            if (queryContext.getSerialNumber() != null) {
+                productInstanceMasterDAO.loadProductInstanceMaster(new ProductInstanceMasterKey(queryContext.getSerialNumber(), ciKey));
+            }
+        }
+        partRevisionQueryDAO.checkQuery(user.getTimeZone(), query);
+    }
+
+    /**
+     * The persistence context is cleared between the batches of revisions, so the rows are read in a transaction
+     * of their own rather than in the one of the caller
+     */
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
+    @Override
+    public void streamQueryResultRows(String workspaceId, Query query, Consumer<QueryResultRow> consumer) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
+        User user = userManager.checkWorkspaceReadAccess(workspaceId);
+
+        if (!QueryResultCacheBean.isCacheable(query)) {
+            streamQueryResultRows(user, workspaceId, query, consumer);
+            return;
+        }
+
+        // The counter is read first, rows read while a change is committed are not kept
+        long version = queryResultCache.getVersion(workspaceId);
+        List<QueryResultRow> cachedRows = queryResultCache.getRows(workspaceId, user.getLogin(), query);
+        if (cachedRows != null) {
+            cachedRows.forEach(consumer);
+            return;
+        }
+
+        List<QueryResultRow> rows = new ArrayList<>();
+        streamQueryResultRows(user, workspaceId, query, row -> {
+            if (rows.size() <= QueryResultCacheBean.MAX_CACHED_ROWS) {
+                rows.add(QueryResultCacheBean.copyRow(row));
+            }
+            consumer.accept(row);
+        });
+        queryResultCache.putRows(workspaceId, user.getLogin(), query, version, rows);
+    }
+
+    private void streamQueryResultRows(User user, String workspaceId, Query query, Consumer<QueryResultRow> consumer) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
+        Workspace workspace = workspaceDAO.loadWorkspace(workspaceId);
+
+        if (!query.hasContext() && PartRevisionQueryDAO.isProjectable(query.getSelects())) {
+            partRevisionQueryDAO.streamProjection(user.getTimeZone(), workspace, user, query, QUERY_BATCH_SIZE,
+                    acl -> user.isAdministrator() || acl == null || acl.hasReadAccess(user), consumer);
+            return;
+        }
+
+        if (!query.hasContext()) {
+            partRevisionQueryDAO.streamQuery(user.getTimeZone(), workspace, query, QUERY_BATCH_SIZE, partR -> {
+                if (isQueryResultReadable(user, partR)) {
+                    consumer.accept(new QueryResultRow(partR));
+                }
+            });
+            return;
+        }
+
+        // Only the keys of the matching revisions are kept to filter the rows of the contexts
+        Set<PartRevisionKey> matchingKeys = new HashSet<>();
+        partRevisionQueryDAO.streamQuery(user.getTimeZone(), workspace, query, QUERY_BATCH_SIZE, partR -> {
+            if (isQueryResultReadable(user, partR)) {
+                matchingKeys.add(partR.getKey());
+            }
+        });
+
+        evaluateQueryContexts(workspaceId, query, user, contextRows -> {
+            for (QueryResultRow row : contextRows) {
+                if (matchingKeys.contains(row.getPartRevision().getKey())) {
+                    consumer.accept(row);
+                }
+            }
+        });
+    }
+
+    /**
+     * Evaluate the contexts of a query, several at the same time when there are more than one.
+     * The rows of each context are given to the consumer in the order of the contexts.
+     */
+    private void evaluateQueryContexts(String workspaceId, Query query, User user, Consumer<List<QueryResultRow>> consumer) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
+        List<QueryContext> queryContexts = query.getContexts();
+        ConcurrentMap<String, List<PartIterationKey>> resolvedIterations = new ConcurrentHashMap<>();
+
+        if (queryContexts.size() == 1) {
+            consumer.accept(queryContextEvaluator.evaluate(workspaceId, query, queryContexts.get(0), user.getTimeZone(), resolvedIterations));
+            return;
+        }
+
+        Deque<Future<List<QueryResultRow>>> evaluations = new ArrayDeque<>();
+        try {
+            for (QueryContext queryContext : queryContexts) {
+                if (evaluations.size() >= QUERY_CONTEXTS_PARALLELISM) {
+                    consumer.accept(getQueryContextRows(evaluations.poll()));
+                }
+                evaluations.add(queryContextEvaluator.evaluateAsync(workspaceId, query, queryContext, user.getTimeZone(), resolvedIterations));
+            }
+            while (!evaluations.isEmpty()) {
+                consumer.accept(getQueryContextRows(evaluations.poll()));
+            }
+        } finally {
+            for (Future<List<QueryResultRow>> evaluation : evaluations) {
+                evaluation.cancel(false);
+            }
+        }
+    }
+
+    private List<QueryResultRow> getQueryContextRows(Future<List<QueryResultRow>> evaluation) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, PartMasterNotFoundException, EntityConstraintException, WorkspaceNotEnabledException {
+        try {
+            return evaluation.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EJBException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            rethrowIfInstance(cause, UserNotFoundException.class);
+            rethrowIfInstance(cause, UserNotActiveException.class);
+            rethrowIfInstance(cause, WorkspaceNotFoundException.class);
+            rethrowIfInstance(cause, BaselineNotFoundException.class);
+            rethrowIfInstance(cause, ProductInstanceMasterNotFoundException.class);
+            rethrowIfInstance(cause, ConfigurationItemNotFoundException.class);
+            rethrowIfInstance(cause, NotAllowedException.class);
+            rethrowIfInstance(cause, PartMasterNotFoundException.class);
+            rethrowIfInstance(cause, EntityConstraintException.class);
+            rethrowIfInstance(cause, WorkspaceNotEnabledException.class);
+            rethrowIfInstance(cause, RuntimeException.class);
+            throw new EJBException(e);
+        }
+    }
+
+    private static <E extends Exception> void rethrowIfInstance(Throwable throwable, Class<E> type) throws E {
+        if (type.isInstance(throwable)) {
+            throw type.cast(throwable);
         }
-        return rows;
     }
 
     @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
@@ -3039,107 +3302,6 @@ public class ProductManagerBean implements IProductManagerLocal {
         return queryDAO.loadQuery(queryId);
     }
 
-    private List<QueryResultRow> filterPBS(Query query, String workspaceId, QueryContext queryContext, User user) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, WorkspaceNotEnabledException {
-
-        String configurationItemId = queryContext.getConfigurationItemId();
-        String serialNumber = queryContext.getSerialNumber();
-
-        ConfigurationItemKey ciKey = new ConfigurationItemKey(workspaceId, configurationItemId);
-
-
-        List<QueryResultRow> rows = new ArrayList<>();
-
-        ProductStructureFilter filter = serialNumber != null ? psFilterManager.getPSFilter(ciKey, "pi-" + serialNumber, false) : psFilterManager.getPSFilter(ciKey, "latest", false);
-
-        ProductInstanceIteration productInstanceIteration = null;
-        if (serialNumber != null) {
-            ProductInstanceMaster productIM = productInstanceMasterDAO.loadProductInstanceMaster(new ProductInstanceMasterKey(serialNumber, ciKey));
-            productInstanceIteration = productIM.getLastIteration();
-        }
-
-        ConfigurationItem ci = configurationItemDAO.loadConfigurationItem(ciKey);
-        PartMaster root = ci.getDesignItem();
-
-        List<PathToPathLink> pathToPathLinks = ci.getPathToPathLinks();
-
-        List<PathDataIteration> lastPathDataIterations = pathDataIterationDAO.getLastPathDataIterations(productInstanceIteration);
-        Map<String, PathDataIteration> lastPathDataIterationsMap = new HashMap<>();
-
-        for (PathDataIteration iteration : lastPathDataIterations) {
-            lastPathDataIterationsMap.put(iteration.getPathDataMaster().getPath(), iteration);
-        }
-
-        final ProductInstanceIteration finalProductInstanceIteration = productInstanceIteration;
-
-        List<String> filteredPathsFromQuery = null;
-        QueryRule pathDataQueryRule = query.getPathDataQueryRule();
-
-        boolean shouldFilterPathDataWithCriteriaBuilder = finalProductInstanceIteration != null && pathDataQueryRule != null;
-
-        if (shouldFilterPathDataWithCriteriaBuilder) {
-            filteredPathsFromQuery = pathDataQueryDAO.runQuery(user.getTimeZone(), finalProductInstanceIteration, query);
-        }
-
-        final List<String> finalFilteredPathsFromQuery = filteredPathsFromQuery;
-
-        PSFilterVisitorCallbacks callbacks = new PSFilterVisitorCallbacks() {
-
-            @Override
-            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
-                QueryResultRow row = new QueryResultRow();
-                double totalAmount = 1;
-                for (PartLink pl : path) {
-                    if (pl.getUnit() == null) {
-                        totalAmount *= pl.getAmount();
-                    }
-                }
-                String pathAsString = Tools.getPathAsString(path);
-                row.setPath(pathAsString);
-                int depth = parts.size() - 1;
-                PartMaster part = parts.get(parts.size() - 1);
-                List<PartIteration> partIterations = filter.filter(part);
-                if (!partIterations.isEmpty()) {
-                    PartRevision partRevision = partIterations.get(0).getPartRevision();
-                    row.setPartRevision(partRevision);
-                    row.setDepth(depth);
-                    row.setContext(queryContext);
-                    row.setAmount(totalAmount);
-
-                    // try block and decodePath method are time consuming (db access) May need refactor
-                    for (PathToPathLink pathToPathLink : pathToPathLinks) {
-                        try {
-                            if (pathToPathLink.getSourcePath().equals(pathAsString)) {
-                                row.addSource(pathToPathLink.getType(), decodePath(ciKey, pathToPathLink.getTargetPath()));
-                            }
-                            if (pathToPathLink.getTargetPath().equals(pathAsString)) {
-                                row.addTarget(pathToPathLink.getType(), decodePath(ciKey, pathToPathLink.getTargetPath()));
-                            }
-                        } catch (WorkspaceNotFoundException | WorkspaceNotEnabledException | UserNotFoundException | ConfigurationItemNotFoundException | PartUsageLinkNotFoundException | UserNotActiveException e) {
-                            LOGGER.log(Level.SEVERE, null, e);
-                        }
-                    }
-
-                    if (finalProductInstanceIteration != null) {
-                        row.setPathDataIteration(lastPathDataIterationsMap.get(pathAsString));
-                    }
-
-                    if (shouldFilterPathDataWithCriteriaBuilder) {
-                        if (finalFilteredPathsFromQuery.contains(pathAsString)) {
-                            rows.add(row);
-                        }
-                    } else {
-                        rows.add(row);
-                    }
-                }
-                return true;
-            }
-        };
-
-        psFilterVisitor.visit(workspaceId, filter, root, -1, callbacks);
-
-        return rows;
-    }
-
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     @Override
     public List<PartIteration> getInversePartsLink(DocumentRevisionKey docKey) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, DocumentRevisionNotFoundException, PartIterationNotFoundException, PartRevisionNotFoundException, WorkspaceNotEnabledException {
@@ -59,6 +59,12 @@ public class UserManagerBean implements IUserManagerLocal {
     @Inject
     private Event<UserGroupEvent> groupEvent;
 
+    @Inject
+    private Event<WorkspaceEvent> workspaceEvent;
+
+    @Inject
+    private WorkspaceAccessCacheBean workspaceAccessCache;
+
     @Inject
     private IContextManagerLocal contextManager;
 
@@ -86,6 +92,7 @@ public class UserManagerBean implements IUserManagerLocal {
 
         userDAO.removeUserMembership(new WorkspaceUserMembershipKey(pGroupKey.getWorkspaceId(), pGroupKey.getWorkspaceId(), pLogin));
         group.addUser(userToAdd);
+        fireMembershipsChanged(pGroupKey.getWorkspaceId());
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -100,6 +107,7 @@ public class UserManagerBean implements IUserManagerLocal {
             userDAO.createUser(userToAdd);
         }
         userDAO.addUserMembership(workspace, userToAdd);
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -127,6 +135,7 @@ public class UserManagerBean implements IUserManagerLocal {
             User userToRemove = em.getReference(User.class, new UserKey(pGroupKey.getWorkspaceId(), login));
             group.removeUser(userToRemove);
         }
+        fireMembershipsChanged(pGroupKey.getWorkspaceId());
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -136,6 +145,7 @@ public class UserManagerBean implements IUserManagerLocal {
         UserGroup group = userGroupDAO.loadUserGroup(pGroupKey);
         User userToRemove = em.getReference(User.class, new UserKey(pGroupKey.getWorkspaceId(), login));
         group.removeUser(userToRemove);
+        fireMembershipsChanged(pGroupKey.getWorkspaceId());
         return group;
     }
 
@@ -233,6 +243,7 @@ public class UserManagerBean implements IUserManagerLocal {
                 ms.setReadOnly(pReadOnly);
             }
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -243,6 +254,7 @@ public class UserManagerBean implements IUserManagerLocal {
         if (ms != null) {
             ms.setReadOnly(pReadOnly);
         }
+        fireMembershipsChanged(pWorkspaceId);
         return ms;
     }
 
@@ -255,7 +267,7 @@ public class UserManagerBean implements IUserManagerLocal {
         if (ms != null) {
             ms.setReadOnly(pReadOnly);
         }
-
+        fireMembershipsChanged(pWorkspaceId);
         return ms;
     }
 
@@ -269,6 +281,7 @@ public class UserManagerBean implements IUserManagerLocal {
                 ms.setReadOnly(pReadOnly);
             }
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -280,6 +293,7 @@ public class UserManagerBean implements IUserManagerLocal {
             User member = em.getReference(User.class, new UserKey(pWorkspaceId, login));
             userDAO.addUserMembership(workspace, member);
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -291,6 +305,7 @@ public class UserManagerBean implements IUserManagerLocal {
             UserGroup member = em.getReference(UserGroup.class, new UserGroupKey(pWorkspaceId, id));
             userGroupDAO.addUserGroupMembership(workspace, member);
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -300,7 +315,7 @@ public class UserManagerBean implements IUserManagerLocal {
         Workspace workspace = em.getReference(Workspace.class, pWorkspaceId);
         User member = em.getReference(User.class, new UserKey(pWorkspaceId, login));
         userDAO.addUserMembership(workspace, member);
-
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -310,7 +325,7 @@ public class UserManagerBean implements IUserManagerLocal {
         Workspace workspace = em.getReference(Workspace.class, pWorkspaceId);
         UserGroup member = em.getReference(UserGroup.class, new UserGroupKey(pWorkspaceId, groupId));
         userGroupDAO.addUserGroupMembership(workspace, member);
-
+        fireMembershipsChanged(pWorkspaceId);
     }
 
 
@@ -321,6 +336,7 @@ public class UserManagerBean implements IUserManagerLocal {
         for (String id : pGroupIds) {
             userGroupDAO.removeUserGroupMembership(new WorkspaceUserGroupMembershipKey(pWorkspaceId, pWorkspaceId, id));
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -330,6 +346,7 @@ public class UserManagerBean implements IUserManagerLocal {
         for (String login : pLogins) {
             userDAO.removeUserMembership(new WorkspaceUserMembershipKey(pWorkspaceId, pWorkspaceId, login));
         }
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -337,7 +354,7 @@ public class UserManagerBean implements IUserManagerLocal {
     public void passivateUserGroup(String pWorkspaceId, String groupId) throws AccessRightException, AccountNotFoundException, WorkspaceNotFoundException {
         checkAdmin(pWorkspaceId);
         userGroupDAO.removeUserGroupMembership(new WorkspaceUserGroupMembershipKey(pWorkspaceId, pWorkspaceId, groupId));
-
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -358,7 +375,7 @@ public class UserManagerBean implements IUserManagerLocal {
     public void passivateUser(String pWorkspaceId, String login) throws AccessRightException, AccountNotFoundException, WorkspaceNotFoundException {
         checkAdmin(pWorkspaceId);
         userDAO.removeUserMembership(new WorkspaceUserMembershipKey(pWorkspaceId, pWorkspaceId, login));
-
+        fireMembershipsChanged(pWorkspaceId);
     }
 
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
@@ -397,6 +414,14 @@ public class UserManagerBean implements IUserManagerLocal {
     @Override
     public User checkWorkspaceReadAccess(String pWorkspaceId) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, WorkspaceNotEnabledException {
         String login = contextManager.getCallerPrincipalLogin();
+        if (workspaceAccessCache.hasReadAccess(pWorkspaceId, login)) {
+            User user = userDAO.loadUser(new UserKey(pWorkspaceId, login));
+            workspaceAccessEvent.select(new AnnotationLiteral<Read>() {
+            }).fire(new WorkspaceAccessEvent(user));
+            return user;
+        }
+
+        long accessVersion = workspaceAccessCache.getVersion(pWorkspaceId);
         WorkspaceUserMembership userMS = userDAO.loadUserMembership(new WorkspaceUserMembershipKey(pWorkspaceId, pWorkspaceId, login));
         Workspace wks = workspaceDAO.loadWorkspace(pWorkspaceId);
         User user = userDAO.loadUser(new UserKey(pWorkspaceId, login));
@@ -411,6 +436,7 @@ public class UserManagerBean implements IUserManagerLocal {
                 throw new UserNotActiveException(login);
             }
         }
+        workspaceAccessCache.putReadAccess(pWorkspaceId, login, accessVersion);
 
         workspaceAccessEvent.select(new AnnotationLiteral<Read>() {
         }).fire(new WorkspaceAccessEvent(user));
@@ -438,14 +464,25 @@ public class UserManagerBean implements IUserManagerLocal {
     public boolean hasWorkspaceWriteAccess(User user, String pWorkspaceId) throws WorkspaceNotFoundException, WorkspaceNotEnabledException {
         String login = contextManager.getCallerPrincipalLogin();
 
+        // Only the access of the caller to its own workspace is kept
+        boolean cacheable = user != null && login.equals(user.getLogin()) && pWorkspaceId.equals(user.getWorkspaceId());
+        if (cacheable) {
+            Boolean writeAccess = workspaceAccessCache.getWriteAccess(pWorkspaceId, login);
+            if (writeAccess != null) {
+                return writeAccess;
+            }
+        }
+
+        long accessVersion = workspaceAccessCache.getVersion(pWorkspaceId);
         Workspace wks = workspaceDAO.loadWorkspace(pWorkspaceId);
         if (!wks.isEnabled()) {
             throw new WorkspaceNotEnabledException(pWorkspaceId);
         }
+        boolean writeAccess = true;
         if (!wks.getAdmin().getLogin().equals(login)) {
             WorkspaceUserMembership userMS = userDAO.loadUserMembership(new WorkspaceUserMembershipKey(pWorkspaceId, pWorkspaceId, login));
             if (userMS != null) {
-                return !userMS.isReadOnly();
+                writeAccess = !userMS.isReadOnly();
             } else {
                 WorkspaceUserGroupMembership[] groupMS = userGroupDAO.getUserGroupMemberships(pWorkspaceId, user);
                 boolean readOnly = true;
@@ -455,12 +492,19 @@ public class UserManagerBean implements IUserManagerLocal {
                         break;
                     }
                 }
-                return !readOnly;
+                writeAccess = !readOnly;
             }
         }
-        return true;
+        if (cacheable) {
+            workspaceAccessCache.putWriteAccess(pWorkspaceId, login, accessVersion, writeAccess);
+        }
+        return writeAccess;
     }
 
+    private void fireMembershipsChanged(String pWorkspaceId) {
+        workspaceEvent.select(new AnnotationLiteral<Write>() {
+        }).fire(new WorkspaceEvent(new Workspace(pWorkspaceId)));
+    }
 
     /*
     * Don't expose this method on remote.
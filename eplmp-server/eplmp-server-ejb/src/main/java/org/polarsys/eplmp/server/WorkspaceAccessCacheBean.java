@@ -0,0 +1,179 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server;
+
+import org.polarsys.eplmp.server.events.*;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the workspace access granted to the users for a short time, so that the access checks done by
+ * each service call don't read the memberships again.
+ *
+ * Only granted read accesses and resolved write access levels are kept. Each workspace has a change counter
+ * which is incremented once a transaction changing its memberships, enabling, disabling or removing it is committed:
+ * accesses resolved before the last change of their workspace are not served. The changes made on other
+ * nodes of a cluster are only seen once the accesses expire.
+ */
+@Singleton(name = "WorkspaceAccessCacheBean")
+@Lock(LockType.READ)
+public class WorkspaceAccessCacheBean {
+
+    private static final int MAX_ENTRIES = 10000;
+
+    private static final long MAX_AGE = 30 * 1000;
+
+    private final ConcurrentMap<String, AtomicLong> workspaceVersions = new ConcurrentHashMap<>();
+
+    private final Map<String, WorkspaceAccess> entries = Collections.synchronizedMap(
+            new LinkedHashMap<String, WorkspaceAccess>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, WorkspaceAccess> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    /**
+     * Get the change counter of a workspace, to be read before resolving an access which is to be kept
+     *
+     * @param workspaceId the workspace id
+     * @return the number of access changes of the workspace since the start of the server
+     */
+    public long getVersion(String workspaceId) {
+        return getCounter(workspaceId).get();
+    }
+
+    /**
+     * Tell if a read access to a workspace has been granted to a user
+     *
+     * @param workspaceId the workspace id
+     * @param login the user login
+     * @return true if the access is kept, false if it has to be checked
+     */
+    public boolean hasReadAccess(String workspaceId, String login) {
+        WorkspaceAccess access = getAccess(workspaceId, login);
+        return access != null && access.readAccess;
+    }
+
+    /**
+     * Get the write access level resolved for a user in a workspace
+     *
+     * @param workspaceId the workspace id
+     * @param login the user login
+     * @return the write access, or null if it has to be resolved
+     */
+    public Boolean getWriteAccess(String workspaceId, String login) {
+        WorkspaceAccess access = getAccess(workspaceId, login);
+        return access == null ? null : access.writeAccess;
+    }
+
+    /**
+     * Keep a granted read access, unless the workspace has changed since it was checked
+     */
+    public void putReadAccess(String workspaceId, String login, long version) {
+        putAccess(workspaceId, login, version, true, null);
+    }
+
+    /**
+     * Keep a resolved write access level, unless the workspace has changed since it was resolved
+     */
+    public void putWriteAccess(String workspaceId, String login, long version, boolean writeAccess) {
+        putAccess(workspaceId, login, version, false, writeAccess);
+    }
+
+    /**
+     * Mark the accesses of all the users of a workspace as out of date
+     *
+     * @param workspaceId the workspace id
+     */
+    public void invalidate(String workspaceId) {
+        getCounter(workspaceId).incrementAndGet();
+    }
+
+    public void onWorkspaceChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Write WorkspaceEvent event) {
+        invalidate(event.getObservedWorkspace().getId());
+    }
+
+    public void onWorkspaceRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed WorkspaceEvent event) {
+        invalidate(event.getObservedWorkspace().getId());
+    }
+
+    public void onUserRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserEvent event) {
+        invalidate(event.getObservedUser().getWorkspaceId());
+    }
+
+    public void onUserGroupRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserGroupEvent event) {
+        invalidate(event.getObservedUserGroup().getWorkspaceId());
+    }
+
+    private WorkspaceAccess getAccess(String workspaceId, String login) {
+        String key = getKey(workspaceId, login);
+        WorkspaceAccess access = entries.get(key);
+        if (access == null) {
+            return null;
+        }
+        if (access.version != getVersion(workspaceId) || System.currentTimeMillis() - access.creationTime > MAX_AGE) {
+            entries.remove(key, access);
+            return null;
+        }
+        return access;
+    }
+
+    private void putAccess(String workspaceId, String login, long version, boolean readAccess, Boolean writeAccess) {
+        if (version != getVersion(workspaceId)) {
+            return;
+        }
+        long creationTime = System.currentTimeMillis();
+        WorkspaceAccess previous = getAccess(workspaceId, login);
+        if (previous != null && previous.version == version) {
+            // Keep the age of the access already resolved, so that it is checked again after MAX_AGE
+            creationTime = previous.creationTime;
+            readAccess = readAccess || previous.readAccess;
+            writeAccess = writeAccess != null ? writeAccess : previous.writeAccess;
+        }
+        entries.put(getKey(workspaceId, login),
+                new WorkspaceAccess(version, creationTime, readAccess, writeAccess));
+    }
+
+    private AtomicLong getCounter(String workspaceId) {
+        return workspaceVersions.computeIfAbsent(workspaceId, k -> new AtomicLong());
+    }
+
+    private static String getKey(String workspaceId, String login) {
+        return workspaceId + '\n' + login;
+    }
+
+    private static class WorkspaceAccess {
+
+        private final long version;
+        private final long creationTime;
+        private final boolean readAccess;
+        private final Boolean writeAccess;
+
+        private WorkspaceAccess(long version, long creationTime, boolean readAccess, Boolean writeAccess) {
+            this.version = version;
+            this.creationTime = creationTime;
+            this.readAccess = readAccess;
+            this.writeAccess = writeAccess;
+        }
+    }
+}
@@ -24,12 +24,17 @@ import org.polarsys.eplmp.core.util.NamingConvention;
 import org.polarsys.eplmp.server.dao.AccountDAO;
 import org.polarsys.eplmp.server.dao.UserDAO;
 import org.polarsys.eplmp.server.dao.WorkspaceDAO;
+import org.polarsys.eplmp.server.events.Removed;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+import org.polarsys.eplmp.server.events.Write;
 
 import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.Asynchronous;
 import javax.ejb.Local;
 import javax.ejb.Stateless;
+import javax.enterprise.event.Event;
+import javax.enterprise.util.AnnotationLiteral;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.util.Arrays;
@@ -71,6 +76,9 @@ public class WorkspaceManagerBean implements IWorkspaceManagerLocal {
     @Inject
     private IBinaryStorageManagerLocal storageManager;
 
+    @Inject
+    private Event<WorkspaceEvent> workspaceEvent;
+
     private static final Logger LOGGER = Logger.getLogger(WorkspaceManagerBean.class.getName());
 
     @RolesAllowed(UserGroupMapping.ADMIN_ROLE_ID)
@@ -98,6 +106,8 @@ public class WorkspaceManagerBean implements IWorkspaceManagerLocal {
         Account admin = workspace.getAdmin();
         try {
             workspaceDAO.removeWorkspace(workspace);
+            workspaceEvent.select(new AnnotationLiteral<Removed>() {
+            }).fire(new WorkspaceEvent(workspace));
             storageManager.deleteWorkspaceFolder(workspaceId);
             indexerManager.deleteWorkspaceIndex(workspaceId);
             mailerManager.sendWorkspaceDeletionNotification(admin, workspaceId);
@@ -126,6 +136,8 @@ public class WorkspaceManagerBean implements IWorkspaceManagerLocal {
                 throw new NotAllowedException("NotAllowedException70");
             }
             workspace.setAdmin(account);
+            workspaceEvent.select(new AnnotationLiteral<Write>() {
+            }).fire(new WorkspaceEvent(workspace));
         } else {
             User user = userManager.whoAmI(workspaceId);
             throw new AccessRightException(user);
@@ -139,6 +151,8 @@ public class WorkspaceManagerBean implements IWorkspaceManagerLocal {
     public Workspace enableWorkspace(String workspaceId, boolean enabled) throws WorkspaceNotFoundException {
         Workspace workspace = workspaceDAO.loadWorkspace(workspaceId);
         workspace.setEnabled(enabled);
+        workspaceEvent.select(new AnnotationLiteral<Write>() {
+        }).fire(new WorkspaceEvent(workspace));
         return workspace;
     }
 
@@ -203,7 +203,7 @@ public class PSFilterVisitor {
 
 
     private PartMaster loadPartMaster(String partNumber) throws PartMasterNotFoundException {
-        return partMasterDAO.loadPartM(new PartMasterKey(workspaceId, partNumber));
+        return partMasterDAO.loadPartM(new PartMasterKey(workspaceId, partNumber), "PartMaster.structure");
     }
 
     private PartLink createVirtualRootLink(PartMaster pNodeFrom) {
@@ -0,0 +1,96 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration.filter;
+
+import org.polarsys.eplmp.core.configuration.ProductStructureFilter;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartLink;
+import org.polarsys.eplmp.core.product.PartMaster;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A {@link org.polarsys.eplmp.core.configuration.ProductStructureFilter} decorator
+ * which remembers the iterations selected for each part master.
+ *
+ * The keys of the selected iterations may be shared by several filters, possibly used from different threads
+ * and persistence contexts: they are stored under the given filter key and the part number, so filters selecting
+ * the same iterations have to use the same key. Each filter loads the iterations selected by the others in its
+ * own persistence context, and keeps the ones it has selected or loaded. Usage links are filtered by the
+ * decorated filter.
+ *
+ * The cache is meant to live as long as a single request, it does not see later changes of the parts.
+ */
+public class CachedPSFilter implements ProductStructureFilter {
+
+    private final ProductStructureFilter filter;
+    private final String filterKey;
+    private final ConcurrentMap<String, List<PartIterationKey>> resolvedIterations;
+    private final Function<PartIterationKey, PartIteration> loader;
+    private final Map<String, List<PartIteration>> iterations = new HashMap<>();
+
+    /**
+     * @param resolvedIterations the keys of the iterations selected for each part, shared with the other filters
+     * @param loader loads an iteration in the persistence context of this filter, null if it does not exist
+     */
+    public CachedPSFilter(ProductStructureFilter filter, String filterKey, ConcurrentMap<String, List<PartIterationKey>> resolvedIterations,
+                          Function<PartIterationKey, PartIteration> loader) {
+        this.filter = filter;
+        this.filterKey = filterKey;
+        this.resolvedIterations = resolvedIterations;
+        this.loader = loader;
+    }
+
+    @Override
+    public List<PartIteration> filter(PartMaster partMaster) {
+        return iterations.computeIfAbsent(filterKey + "/" + partMaster.getNumber(), k -> {
+            List<PartIterationKey> keys = resolvedIterations.get(k);
+            if (keys != null) {
+                List<PartIteration> loaded = load(keys);
+                if (loaded != null) {
+                    return loaded;
+                }
+            }
+            List<PartIteration> selected = Collections.unmodifiableList(filter.filter(partMaster));
+            List<PartIterationKey> selectedKeys = new ArrayList<>();
+            for (PartIteration partIteration : selected) {
+                selectedKeys.add(partIteration.getKey());
+            }
+            resolvedIterations.putIfAbsent(k, selectedKeys);
+            return selected;
+        });
+    }
+
+    @Override
+    public List<PartLink> filter(List<PartLink> path) {
+        return filter.filter(path);
+    }
+
+    /**
+     * @return the iterations of the given keys, null if one of them has been removed since it was selected
+     */
+    private List<PartIteration> load(List<PartIterationKey> keys) {
+        List<PartIteration> loaded = new ArrayList<>();
+        for (PartIterationKey key : keys) {
+            PartIteration partIteration = loader.apply(key);
+            if (partIteration == null) {
+                return null;
+            }
+            loaded.add(partIteration);
+        }
+        return Collections.unmodifiableList(loaded);
+    }
+
+}
@@ -17,6 +17,7 @@ import org.polarsys.eplmp.core.exceptions.AccountAlreadyExistsException;
 import org.polarsys.eplmp.core.exceptions.AccountNotFoundException;
 import org.polarsys.eplmp.core.security.Credential;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -31,6 +32,9 @@ public class AccountDAO {
 
     @Inject
     private EntityManager em;
+
+    @Inject
+    private CacheManagerBean cacheManager;
     //private EntityManager em;
 
     public AccountDAO() {
@@ -58,7 +62,7 @@ public class AccountDAO {
     }
 
     public Account loadAccount(String pLogin) throws AccountNotFoundException {
-        Account account = em.find(Account.class, pLogin);
+        Account account = cacheManager.find(em, Account.class, pLogin);
         if (account == null) {
             throw new AccountNotFoundException(pLogin);
         } else {
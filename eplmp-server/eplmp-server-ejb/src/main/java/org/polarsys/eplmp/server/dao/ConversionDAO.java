@@ -22,6 +22,7 @@ import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
+import java.util.List;
 
 
 @RequestScoped
@@ -56,6 +57,16 @@ public class ConversionDAO {
         }
     }
 
+    public Conversion findSucceededConversion(String workspaceId, String sourceDigest, String converterVersion) {
+        List<Conversion> conversions = em.createNamedQuery("Conversion.findSucceededBySource", Conversion.class)
+                .setParameter("workspaceId", workspaceId)
+                .setParameter("sourceDigest", sourceDigest)
+                .setParameter("converterVersion", converterVersion)
+                .setMaxResults(1)
+                .getResultList();
+        return conversions.isEmpty() ? null : conversions.get(0);
+    }
+
     public void deleteConversion(Conversion conversion) {
         em.remove(conversion);
         em.flush();
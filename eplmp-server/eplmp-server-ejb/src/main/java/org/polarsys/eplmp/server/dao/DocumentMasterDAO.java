@@ -67,10 +67,14 @@ public class DocumentMasterDAO {
         em.remove(pDocM);
     }
 
-    public List<DocumentMaster> getPaginatedByWorkspace(String workspaceId, int limit, int offset) {
-        return em.createNamedQuery("DocumentMaster.findByWorkspace",DocumentMaster.class)
-                .setParameter("workspaceId",workspaceId)
-                .setFirstResult(offset)
+    /**
+     * Returns the next document master ids of the workspace, in order, following the given one.
+     * Seeking on the primary key keeps the cost of each page constant, whatever its position.
+     */
+    public List<String> getIdsByWorkspace(String workspaceId, String afterId, int limit) {
+        return em.createNamedQuery("DocumentMaster.findIdsByWorkspace", String.class)
+                .setParameter("workspaceId", workspaceId)
+                .setParameter("afterId", afterId == null ? "" : afterId)
                 .setMaxResults(limit)
                 .getResultList();
     }
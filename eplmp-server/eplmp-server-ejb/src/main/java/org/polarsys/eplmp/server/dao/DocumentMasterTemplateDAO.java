@@ -16,6 +16,7 @@ import org.polarsys.eplmp.core.exceptions.CreationException;
 import org.polarsys.eplmp.core.exceptions.DocumentMasterTemplateAlreadyExistsException;
 import org.polarsys.eplmp.core.exceptions.DocumentMasterTemplateNotFoundException;
 import org.polarsys.eplmp.core.meta.ListOfValuesKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -32,6 +33,9 @@ public class DocumentMasterTemplateDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     public DocumentMasterTemplateDAO() {
     }
 
@@ -48,7 +52,7 @@ public class DocumentMasterTemplateDAO {
 
     public DocumentMasterTemplate loadDocMTemplate(DocumentMasterTemplateKey pKey)
             throws DocumentMasterTemplateNotFoundException {
-        DocumentMasterTemplate template = em.find(DocumentMasterTemplate.class, pKey);
+        DocumentMasterTemplate template = cacheManager.find(em, DocumentMasterTemplate.class, pKey);
         if (template == null) {
             throw new DocumentMasterTemplateNotFoundException(pKey.getId());
         } else {
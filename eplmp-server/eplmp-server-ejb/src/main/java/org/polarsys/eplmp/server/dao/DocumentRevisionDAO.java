@@ -23,6 +23,7 @@ import org.polarsys.eplmp.core.workflow.Workflow;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.persistence.*;
+import java.util.Collection;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -109,6 +110,33 @@ public class DocumentRevisionDAO {
         }
     }
 
+    public List<DocumentIteration> findDocIsByDocumentMasterIds(String pWorkspaceId, List<String> pDocumentMasterIds) {
+        return em.createNamedQuery("DocumentIteration.findByDocumentMasterIds", DocumentIteration.class)
+                .setParameter(WORKSPACE_ID, pWorkspaceId)
+                .setParameter("documentMasterIds", pDocumentMasterIds)
+                .getResultList();
+    }
+
+    /**
+     * Load the given revisions of a workspace with a single query
+     */
+    public List<DocumentRevision> findDocRsByKeys(String pWorkspaceId, Collection<DocumentRevisionKey> pKeys) {
+        StringBuilder jpql = new StringBuilder("SELECT d FROM DocumentRevision d WHERE d.documentMasterWorkspaceId = :workspaceId AND (");
+        int i = 0;
+        for (DocumentRevisionKey key : pKeys) {
+            jpql.append(i == 0 ? "" : " OR ").append("(d.documentMasterId = :id").append(i).append(" AND d.version = :version").append(i).append(')');
+            i++;
+        }
+        TypedQuery<DocumentRevision> query = em.createQuery(jpql.append(')').toString(), DocumentRevision.class)
+                .setParameter(WORKSPACE_ID, pWorkspaceId);
+        i = 0;
+        for (DocumentRevisionKey key : pKeys) {
+            query.setParameter("id" + i, key.getDocumentMasterId()).setParameter("version" + i, key.getVersion());
+            i++;
+        }
+        return query.getResultList();
+    }
+
     public DocumentRevision getDocRRef(DocumentRevisionKey pKey) throws DocumentRevisionNotFoundException {
         try {
             return em.getReference(DocumentRevision.class, pKey);
@@ -0,0 +1,38 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.server.indexer.ExtractedText;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+
+@RequestScoped
+public class ExtractedTextDAO {
+
+    @Inject
+    private EntityManager em;
+
+    public ExtractedTextDAO() {
+    }
+
+    public ExtractedText findExtractedText(String contentDigest) {
+        return em.find(ExtractedText.class, contentDigest);
+    }
+
+    public void storeExtractedText(ExtractedText extractedText) {
+        em.merge(extractedText);
+        em.flush();
+    }
+}
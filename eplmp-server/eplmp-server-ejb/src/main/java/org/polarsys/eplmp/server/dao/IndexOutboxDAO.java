@@ -0,0 +1,59 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.server.indexer.IndexOutboxEntry;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+
+@RequestScoped
+public class IndexOutboxDAO {
+
+    @Inject
+    private EntityManager em;
+
+    public IndexOutboxDAO() {
+    }
+
+    public void createEntry(IndexOutboxEntry entry) {
+        em.persist(entry);
+    }
+
+    /**
+     * Get the entries ready to be sent, oldest first. Rows are locked so that concurrent
+     * workers (cluster nodes) don't send the same entries.
+     */
+    public List<IndexOutboxEntry> findReadyEntries(Date now, int maxResults) {
+        return em.createNamedQuery("IndexOutboxEntry.findReady", IndexOutboxEntry.class)
+                .setParameter("now", now)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    public long countEntries() {
+        return em.createNamedQuery("IndexOutboxEntry.count", Long.class).getSingleResult();
+    }
+
+    public void removeEntries(Collection<IndexOutboxEntry> entries) {
+        for (IndexOutboxEntry entry : entries) {
+            em.remove(entry);
+        }
+    }
+}
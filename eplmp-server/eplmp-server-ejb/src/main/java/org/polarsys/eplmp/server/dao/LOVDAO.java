@@ -15,6 +15,7 @@ import org.polarsys.eplmp.core.exceptions.ListOfValuesAlreadyExistsException;
 import org.polarsys.eplmp.core.exceptions.ListOfValuesNotFoundException;
 import org.polarsys.eplmp.core.meta.ListOfValues;
 import org.polarsys.eplmp.core.meta.ListOfValuesKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -31,11 +32,14 @@ public class LOVDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     public LOVDAO() {
     }
 
     public ListOfValues loadLOV(ListOfValuesKey pLovKey) throws ListOfValuesNotFoundException {
-        ListOfValues lov = em.find(ListOfValues.class, pLovKey);
+        ListOfValues lov = cacheManager.find(em, ListOfValues.class, pLovKey);
         if (lov == null) {
             throw new ListOfValuesNotFoundException(pLovKey.getName());
         } else {
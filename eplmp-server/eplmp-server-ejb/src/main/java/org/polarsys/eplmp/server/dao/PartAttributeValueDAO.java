@@ -0,0 +1,79 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.meta.InstanceAttribute;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartRevisionKey;
+import org.polarsys.eplmp.server.products.PartAttributeValue;
+import org.polarsys.eplmp.server.products.PartAttributeValueBackfill;
+
+import javax.enterprise.context.RequestScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.Date;
+import java.util.List;
+
+
+@RequestScoped
+public class PartAttributeValueDAO {
+
+    @Inject
+    private EntityManager em;
+
+    public PartAttributeValueDAO() {
+    }
+
+    /**
+     * Copy the instance attributes of a checked in iteration, except the long text ones
+     */
+    public void createValues(PartIteration partIteration) {
+        for (InstanceAttribute attribute : partIteration.getInstanceAttributes()) {
+            if (PartAttributeValue.isCopied(attribute)) {
+                em.persist(new PartAttributeValue(partIteration.getKey(), attribute));
+            }
+        }
+    }
+
+    public void removeValues(PartRevisionKey partRevisionKey) {
+        em.createNamedQuery("PartAttributeValue.removeByRevision")
+                .setParameter("workspaceId", partRevisionKey.getWorkspaceId())
+                .setParameter("partNumber", partRevisionKey.getPartMasterNumber())
+                .setParameter("version", partRevisionKey.getVersion())
+                .executeUpdate();
+    }
+
+    /**
+     * Get the checked in iterations having attributes to copy which have not been copied yet
+     */
+    public List<PartIteration> findIterationsToCopy(int maxResults) {
+        return em.createNamedQuery("PartAttributeValue.findIterationsToCopy", PartIteration.class)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * @return true if the attributes of the iterations checked in before they were maintained have been copied
+     */
+    public boolean isBackfillComplete() {
+        return em.find(PartAttributeValueBackfill.class, PartAttributeValueBackfill.ID) != null;
+    }
+
+    /**
+     * Record that the attributes of all the checked in iterations have been copied
+     */
+    public void setBackfillComplete() {
+        if (!isBackfillComplete()) {
+            em.persist(new PartAttributeValueBackfill(new Date()));
+        }
+    }
+}
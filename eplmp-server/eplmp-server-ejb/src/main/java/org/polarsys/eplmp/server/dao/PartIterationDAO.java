@@ -18,12 +18,15 @@ import org.polarsys.eplmp.core.product.*;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import java.util.Collections;
 import java.util.List;
 
 
 @RequestScoped
 public class PartIterationDAO {
 
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
     @Inject
     private EntityManager em;
 
@@ -42,6 +45,18 @@ public class PartIterationDAO {
         }
     }
 
+    /**
+     * Load a part iteration and the associations of the given entity graph, see {@link PartIteration}
+     */
+    public PartIteration loadPartI(PartIterationKey pKey, String graphName) throws PartIterationNotFoundException {
+        PartIteration partI = em.find(PartIteration.class, pKey, Collections.singletonMap(LOAD_GRAPH, em.getEntityGraph(graphName)));
+        if (partI == null) {
+            throw new PartIterationNotFoundException(pKey);
+        } else {
+            return partI;
+        }
+    }
+
     public void removeIteration(PartIteration pPartI) {
         conversionDAO.removePartIterationConversion(pPartI);
         for (PartUsageLink partUsageLink : pPartI.getComponents()) {
@@ -86,4 +101,12 @@ public class PartIterationDAO {
                 .setParameter("workspace_id", lovKey.getWorkspaceId())
                 .getResultList();
     }
+
+    public List<PartIteration> findByPartMasterNumbers(String workspaceId, List<String> partNumbers) {
+        return em.createNamedQuery("PartIteration.findByPartMasterNumbers", PartIteration.class)
+                .setParameter("workspaceId", workspaceId)
+                .setParameter("partNumbers", partNumbers)
+                .setHint(LOAD_GRAPH, em.getEntityGraph("PartIteration.indexing"))
+                .getResultList();
+    }
 }
@@ -24,7 +24,11 @@ import javax.persistence.*;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,6 +36,7 @@ import java.util.logging.Logger;
 public class PartMasterDAO {
 
     public static final String WORKSPACE_ID = "workspaceId";
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
 
     @Inject
     private EntityManager em;
@@ -56,6 +61,18 @@ public class PartMasterDAO {
         }
     }
 
+    /**
+     * Load a part master and the associations of the given entity graph, see {@link PartMaster}
+     */
+    public PartMaster loadPartM(PartMasterKey pKey, String graphName) throws PartMasterNotFoundException {
+        PartMaster partM = em.find(PartMaster.class, pKey, Collections.singletonMap(LOAD_GRAPH, em.getEntityGraph(graphName)));
+        if (partM == null) {
+            throw new PartMasterNotFoundException(pKey.getNumber());
+        } else {
+            return partM;
+        }
+    }
+
     public PartMaster getPartMRef(PartMasterKey pKey) throws PartMasterNotFoundException {
         try {
             return em.getReference(PartMaster.class, pKey);
@@ -102,6 +119,27 @@ public class PartMasterDAO {
             .getResultList();
     }
 
+    public List<PartMaster> findPartMsByNumbers(String workspaceId, Collection<String> numbers) {
+        return em.createNamedQuery("PartMaster.findByNumbers", PartMaster.class)
+                .setParameter(WORKSPACE_ID, workspaceId)
+                .setParameter("numbers", numbers)
+                .getResultList();
+    }
+
+    /**
+     * @return the name of each part master of the workspace, by number
+     */
+    public Map<String, String> getNamesByNumber(String workspaceId) {
+        List<Object[]> rows = em.createNamedQuery("PartMaster.findNumbersAndNamesByWorkspace", Object[].class)
+                .setParameter(WORKSPACE_ID, workspaceId)
+                .getResultList();
+        Map<String, String> names = new HashMap<>(rows.size());
+        for (Object[] row : rows) {
+            names.put((String) row[0], (String) row[1]);
+        }
+        return names;
+    }
+
     public String findLatestPartMId(String pWorkspaceId, String pType) {
         String partMId;
         TypedQuery<String> query = em.createQuery("SELECT m.number FROM PartMaster m "
@@ -142,10 +180,14 @@ public class PartMasterDAO {
         return result != null ? result.longValue() : 0L;
     }
 
-    public List<PartMaster> getPaginatedByWorkspace(String workspaceId, int limit, int offset) {
-        return em.createNamedQuery("PartMaster.findByWorkspace",PartMaster.class)
-                .setParameter(WORKSPACE_ID,workspaceId)
-                .setFirstResult(offset)
+    /**
+     * Returns the next part numbers of the workspace, in order, following the given one.
+     * Seeking on the primary key keeps the cost of each page constant, whatever its position.
+     */
+    public List<String> getNumbersByWorkspace(String workspaceId, String afterNumber, int limit) {
+        return em.createNamedQuery("PartMaster.findNumbersByWorkspace", String.class)
+                .setParameter(WORKSPACE_ID, workspaceId)
+                .setParameter("afterNumber", afterNumber == null ? "" : afterNumber)
                 .setMaxResults(limit)
                 .getResultList();
     }
@@ -16,6 +16,7 @@ import org.polarsys.eplmp.core.exceptions.PartMasterTemplateNotFoundException;
 import org.polarsys.eplmp.core.meta.ListOfValuesKey;
 import org.polarsys.eplmp.core.product.PartMasterTemplate;
 import org.polarsys.eplmp.core.product.PartMasterTemplateKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -32,6 +33,9 @@ public class PartMasterTemplateDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     public PartMasterTemplateDAO() {
     }
 
@@ -48,7 +52,7 @@ public class PartMasterTemplateDAO {
 
     public PartMasterTemplate loadPartMTemplate(PartMasterTemplateKey pKey)
             throws PartMasterTemplateNotFoundException {
-        PartMasterTemplate template = em.find(PartMasterTemplate.class, pKey);
+        PartMasterTemplate template = cacheManager.find(em, PartMasterTemplate.class, pKey);
         if (template == null) {
             throw new PartMasterTemplateNotFoundException(pKey.getId());
         } else {
@@ -22,6 +22,8 @@ import org.polarsys.eplmp.core.workflow.Workflow;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.persistence.*;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -29,6 +31,8 @@ import java.util.List;
 public class PartRevisionDAO {
 
     public static final String WORKSPACE_ID = "workspaceId";
+    private static final String LOAD_GRAPH = "javax.persistence.loadgraph";
+
     @Inject
     private EntityManager em;
 
@@ -51,6 +55,13 @@ public class PartRevisionDAO {
         return em.find(PartRevision.class, pKey);
     }
 
+    /**
+     * Load a part revision and the associations of the given entity graph, see {@link PartRevision}
+     */
+    public PartRevision loadPartR(PartRevisionKey pKey, String graphName) {
+        return em.find(PartRevision.class, pKey, Collections.singletonMap(LOAD_GRAPH, em.getEntityGraph(graphName)));
+    }
+
     public void updateRevision(PartRevision pPartR) {
         em.merge(pPartR);
     }
@@ -126,14 +137,43 @@ public class PartRevisionDAO {
     }
 
     public List<PartRevision> findPartsRevisionsWithReferenceOrNameLike(String pWorkspaceId, String reference, int maxResults) {
+        // Wildcards typed by the user are matched literally
+        String pattern = "%" + reference.replace("\\", "\\\\").replace("_", "\\_").replace("%", "\\%") + "%";
         return em.createNamedQuery("PartRevision.findByReferenceOrName", PartRevision.class)
                 .setParameter(WORKSPACE_ID, pWorkspaceId)
-                .setParameter("partNumber", "%" + reference + "%")
-                .setParameter("partName", "%" + reference + "%")
+                .setParameter("partNumber", pattern)
+                .setParameter("partName", pattern)
                 .setMaxResults(maxResults)
                 .getResultList();
     }
 
+    public List<PartRevision> findPartRsByPartMasterNumbers(String pWorkspaceId, Collection<String> pPartNumbers) {
+        return em.createNamedQuery("PartRevision.findByPartMasterNumbers", PartRevision.class)
+                .setParameter(WORKSPACE_ID, pWorkspaceId)
+                .setParameter("partNumbers", pPartNumbers)
+                .getResultList();
+    }
+
+    /**
+     * Load the given revisions of a workspace with a single query
+     */
+    public List<PartRevision> findPartRsByKeys(String pWorkspaceId, Collection<PartRevisionKey> pKeys) {
+        StringBuilder jpql = new StringBuilder("SELECT p FROM PartRevision p WHERE p.partMasterWorkspaceId = :workspaceId AND (");
+        int i = 0;
+        for (PartRevisionKey key : pKeys) {
+            jpql.append(i == 0 ? "" : " OR ").append("(p.partMasterNumber = :number").append(i).append(" AND p.version = :version").append(i).append(')');
+            i++;
+        }
+        TypedQuery<PartRevision> query = em.createQuery(jpql.append(')').toString(), PartRevision.class)
+                .setParameter(WORKSPACE_ID, pWorkspaceId);
+        i = 0;
+        for (PartRevisionKey key : pKeys) {
+            query.setParameter("number" + i, key.getPartMasterNumber()).setParameter("version" + i, key.getVersion());
+            i++;
+        }
+        return query.getResultList();
+    }
+
     public boolean isCheckedOutIteration(PartIterationKey partIKey) throws PartRevisionNotFoundException {
         PartRevision partR = loadPartR(partIKey.getPartRevision());
         return partR.isCheckedOut() && (partIKey.getIteration() == partR.getLastIterationNumber());
@@ -11,29 +11,40 @@
 
 package org.polarsys.eplmp.server.dao;
 
+import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.common.Workspace;
-import org.polarsys.eplmp.core.meta.*;
-import org.polarsys.eplmp.core.product.InstancePartNumberAttribute;
-import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.meta.InstanceAttribute;
 import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.query.Query;
-import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.core.query.QueryField;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.security.ACL;
+import org.polarsys.eplmp.core.workflow.Workflow;
+import org.polarsys.eplmp.server.products.PartAttributeValueWorker;
+import org.polarsys.eplmp.server.products.QueryPlanCacheBean;
 
-import javax.annotation.PostConstruct;
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
 import javax.persistence.TypedQuery;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
+ * Evaluates custom part queries.
+ *
+ * Each revision is joined to its last checked-in iteration only, so the query returns one row per
+ * revision. Attribute and tag rules are evaluated with correlated EXISTS subqueries on that iteration
+ * and revision, instead of adding a root per attribute type to the main query.
+ *
+ * The rules are compiled once to a JPQL condition with bind parameters, see {@link PartRevisionQueryPlan},
+ * and the plans are kept by the {@link QueryPlanCacheBean}: running a saved query again only binds its values.
+ *
+ * Queries selecting only revision fields and attributes can be read as projections, without loading
+ * the revisions and their associations.
+ *
  * @author Morgan Guimard on 09/04/15.
  */
 
@@ -41,267 +52,269 @@ import java.util.stream.Collectors;
 public class PartRevisionQueryDAO {
 
     public static final String STRING = "string";
-    public static final String INSTANCE_ATTRIBUTES = "instanceAttributes";
+
+    private static final String FROM_REVISIONS = " FROM PartRevision pr JOIN pr.partIterations pi";
+
+    /**
+     * Retain the last iteration of the revision, or the one before if the revision is checked out.
+     * Revisions without checked-in iteration are excluded.
+     */
+    private static final String LAST_CHECKED_IN_ITERATION = "((pr.checkOutUser IS NULL AND pi.iteration = SIZE(pr.partIterations))"
+            + " OR (pr.checkOutUser IS NOT NULL AND pi.iteration = SIZE(pr.partIterations) - 1))";
+
+    /**
+     * Retain the iteration <code>vi</code> if it is the last one of the revision, or the one before if the
+     * revision is checked out by another user than the <code>user</code> parameter.
+     */
+    private static final String VISIBLE_ITERATION = "(((pr.checkOutUser IS NULL OR pr.checkOutUser = :user) AND vi.iteration = SIZE(pr.partIterations))"
+            + " OR (pr.checkOutUser IS NOT NULL AND pr.checkOutUser <> :user AND vi.iteration = SIZE(pr.partIterations) - 1))";
+
+    private static final String AFTER_LAST_REVISION = "(pr.partMasterNumber > :lastNumber"
+            + " OR (pr.partMasterNumber = :lastNumber AND pr.version > :lastVersion))";
+
+    private static final Set<String> PROJECTABLE_FIELDS = new HashSet<>(Arrays.asList(
+            QueryField.PART_MASTER_NUMBER, QueryField.PART_MASTER_NAME, QueryField.PART_MASTER_TYPE,
+            QueryField.PART_MASTER_IS_STANDARD, QueryField.PART_REVISION_VERSION,
+            QueryField.PART_REVISION_MODIFICATION_DATE, QueryField.PART_REVISION_CHECKIN_DATE,
+            QueryField.PART_REVISION_CHECKOUT_DATE, QueryField.PART_REVISION_CREATION_DATE,
+            QueryField.PART_REVISION_LIFECYCLE_STATE, QueryField.PART_REVISION_STATUS,
+            QueryField.AUTHOR_LOGIN, QueryField.AUTHOR_NAME));
 
     @Inject
     private EntityManager em;
 
-    private CriteriaBuilder cb;
-    private CriteriaQuery<PartRevision> cq;
-
-    private Root<PartRevision> pr;
-    private Root<PartIteration> pi;
-    private Root<Tag> tag;
-    private Root<InstanceURLAttribute> iua;
-    private Root<InstanceBooleanAttribute> iba;
-    private Root<InstanceNumberAttribute> ina;
-    private Root<InstanceListOfValuesAttribute> ila;
-    private Root<InstanceDateAttribute> ida;
-    private Root<InstanceTextAttribute> ita;
-    private Root<InstanceLongTextAttribute> ilta;
-    private Root<InstancePartNumberAttribute> ipna;
-
-    @PostConstruct
-    private void setup() {
-        cb = em.getCriteriaBuilder();
-
-        cq = cb.createQuery(PartRevision.class);
-        pr = cq.from(PartRevision.class);
-        pi = cq.from(PartIteration.class);
-        tag = cq.from(Tag.class);
-
-        iua = cq.from(InstanceURLAttribute.class);
-        iba = cq.from(InstanceBooleanAttribute.class);
-        ina = cq.from(InstanceNumberAttribute.class);
-        ila = cq.from(InstanceListOfValuesAttribute.class);
-        ida = cq.from(InstanceDateAttribute.class);
-        ilta = cq.from(InstanceLongTextAttribute.class);
-        ipna = cq.from(InstancePartNumberAttribute.class);
-        ita = cq.from(InstanceTextAttribute.class);
+    @Inject
+    private PartAttributeValueWorker partAttributeValueWorker;
+
+    @Inject
+    private QueryPlanCacheBean queryPlanCache;
+
+    /**
+     * @param selects the fields selected by a query
+     * @return true if the fields can be read with {@link #streamProjection}
+     */
+    public static boolean isProjectable(List<String> selects) {
+        return selects.stream().allMatch(select -> PROJECTABLE_FIELDS.contains(select)
+                || select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX));
     }
 
     public List<PartRevision> runQuery(String pTimeZone, Workspace workspace, Query query) {
+        PartRevisionQueryPlan plan = getPlan(pTimeZone, query);
 
-        cq.select(pr);
-
-        Predicate prJoinPredicate = cb.and(
-                cb.equal(pi.get("partRevision"), pr),
-                cb.equal(pr.get("partMaster").get("workspace"), workspace)
-        );
-
-        Predicate rulesPredicate = getPredicate(pTimeZone, query.getQueryRule());
-
-        cq.where(cb.and(
-                prJoinPredicate,
-                rulesPredicate
-        ));
-
-        TypedQuery<PartRevision> tp = em.createQuery(cq);
-
-        Set<PartRevision> revisions = tp.getResultList().stream()
-                .filter(part -> part.getLastCheckedInIteration() != null)
-                .collect(Collectors.toSet());
-
-        return new ArrayList<>(revisions);
+        TypedQuery<PartRevision> tp = em.createQuery("SELECT pr" + FROM_REVISIONS + " WHERE " + getQueryCondition(plan), PartRevision.class);
+        tp.setParameter("workspaceId", workspace.getId());
+        return plan.bind(tp).getResultList();
     }
 
-    private Predicate getPredicate(String pTimeZone, QueryRule queryRule) {
-
-        if (queryRule == null) {
-            return cb.and();
-        }
-
-        String condition = queryRule.getCondition();
-
-        List<QueryRule> subQueryRules = queryRule.getSubQueryRules();
-
-        if (subQueryRules != null && !subQueryRules.isEmpty()) {
-
-            Predicate[] predicates = new Predicate[subQueryRules.size()];
-
-            for (int i = 0; i < predicates.length; i++) {
-                Predicate predicate = getPredicate(pTimeZone, subQueryRules.get(i));
-                predicates[i] = predicate;
-            }
-
-            if ("OR".equals(condition)) {
-                return cb.or(predicates);
-            } else if ("AND".equals(condition)) {
-                return cb.and(predicates);
-            }
-
-            throw new IllegalArgumentException("Cannot parse rule or sub rule condition: " + condition + " ");
-
-        } else {
-            return getRulePredicate(pTimeZone, queryRule);
-        }
+    /**
+     * Run the query by batches of revisions ordered by part number and version, seeking each batch
+     * after the last revision of the previous one.
+     *
+     * The persistence context is cleared after each batch has been consumed, so the revisions must not
+     * be kept by the consumer if their lazy associations are needed later.
+     *
+     * @param batchSize number of revisions loaded at a time
+     * @param consumer called for each revision matching the query
+     */
+    public void streamQuery(String pTimeZone, Workspace workspace, Query query, int batchSize, Consumer<PartRevision> consumer) {
+        PartRevisionQueryPlan plan = getPlan(pTimeZone, query);
+
+        TypedQuery<PartRevision> tp = em.createQuery("SELECT pr" + FROM_REVISIONS
+                + " WHERE " + getQueryCondition(plan) + getSeekClause(), PartRevision.class);
+        tp.setParameter("workspaceId", workspace.getId());
+        plan.bind(tp);
+
+        seekByBatches(tp, batchSize,
+                revision -> new String[]{revision.getPartNumber(), revision.getVersion()},
+                revisions -> revisions.forEach(consumer));
     }
 
-    private Predicate getRulePredicate(String pTimeZone, QueryRule queryRule) {
-
-        String field = queryRule.getField();
-
-        if (field == null) {
-            return cb.and();
-        }
-
-        String operator = queryRule.getOperator();
-        List<String> values = queryRule.getValues();
-        String type = queryRule.getType();
-
-        if (field.startsWith("pm.")) {
-            return getPartMasterPredicate(pTimeZone, field.substring(3), operator, values, type);
-        }
-
-        if (field.startsWith("pr.")) {
-            return getPartRevisionPredicate(pTimeZone, field.substring(3), operator, values, type);
-        }
-
-        if (field.startsWith("author.")) {
-            return getAuthorPredicate(pTimeZone, field.substring(7), operator, values, type);
-        }
-
-        if (field.startsWith("attr-TEXT.")) {
-            return getInstanceTextAttributePredicate(pTimeZone, field.substring(10), operator, values);
-        }
-
-        if (field.startsWith("attr-LONG_TEXT.")) {
-            return getInstanceLongTextAttributePredicate(pTimeZone, field.substring(15), operator, values);
-        }
-
-        if (field.startsWith("attr-DATE.")) {
-            return getInstanceDateAttributePredicate(pTimeZone, field.substring(10), operator, values);
-        }
-
-        if (field.startsWith("attr-BOOLEAN.")) {
-            return getInstanceBooleanAttributePredicate(field.substring(13), operator, values);
-        }
-
-        if (field.startsWith("attr-URL.")) {
-            return getInstanceURLAttributePredicate(pTimeZone, field.substring(9), operator, values);
+    /**
+     * Run the query as a projection, reading only the selected fields of the matching revisions instead
+     * of loading them, see {@link #isProjectable}.
+     *
+     * Iteration fields and attributes are read on the last iteration of the revision, unless it is
+     * checked out by another user than the given one.
+     *
+     * @param user the user running the query
+     * @param batchSize number of revisions read at a time
+     * @param readAccess tells if the user can read a revision with the given ACL, null if none
+     * @param consumer called for each readable row
+     */
+    public void streamProjection(String pTimeZone, Workspace workspace, User user, Query query, int batchSize, java.util.function.Predicate<ACL> readAccess, Consumer<QueryResultRow> consumer) {
+        PartRevisionQueryPlan plan = getPlan(pTimeZone, query);
+
+        List<String> selects = new ArrayList<>();
+        Set<String> attributeNames = new HashSet<>();
+        for (String select : query.getSelects()) {
+            if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
+                attributeNames.add(select.substring(select.indexOf('.') + 1));
+            } else if (!selects.contains(select)) {
+                selects.add(select);
+            }
         }
 
-        if (field.startsWith("attr-NUMBER.")) {
-            return getInstanceNumberAttributePredicate(pTimeZone, field.substring(12), operator, values);
+        StringBuilder from = new StringBuilder(FROM_REVISIONS).append(" LEFT JOIN pr.acl racl");
+        String condition = getQueryCondition(plan);
+        boolean visibleIteration = selects.contains(QueryField.PART_REVISION_MODIFICATION_DATE);
+        if (visibleIteration) {
+            from.append(" JOIN pr.partIterations vi");
+            condition += " AND " + VISIBLE_ITERATION;
         }
 
-        if (field.startsWith("attr-LOV.")) {
-            return getInstanceLovAttributePredicate(field.substring(9), operator, values);
+        StringJoiner selections = new StringJoiner(", ", "SELECT ", "");
+        selections.add("pr.partMasterNumber").add("pr.version").add("racl");
+        for (String select : selects) {
+            selections.add(getProjectionSelection(select, from));
         }
 
-        if (field.startsWith("attr-PART_NUMBER.")) {
-            return getInstancePartNumberAttributePredicate(pTimeZone, field.substring(17), operator, values);
+        TypedQuery<Object[]> tp = em.createQuery(selections + from.toString()
+                + " WHERE " + condition + getSeekClause(), Object[].class);
+        tp.setParameter("workspaceId", workspace.getId());
+        if (visibleIteration) {
+            tp.setParameter("user", user);
         }
-
-        throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
+        plan.bind(tp);
+
+        seekByBatches(tp, batchSize,
+                tuple -> new String[]{(String) tuple[0], (String) tuple[1]},
+                tuples -> {
+                    Map<String, QueryResultRow> rows = new LinkedHashMap<>();
+                    for (Object[] tuple : tuples) {
+                        if (readAccess.test((ACL) tuple[2])) {
+                            Map<String, Object> values = new HashMap<>();
+                            values.put(QueryField.PART_REVISION_PART_KEY, tuple[0] + "-" + tuple[1]);
+                            for (int i = 0; i < selects.size(); i++) {
+                                values.put(selects.get(i), getProjectionValue(selects.get(i), tuple[i + 3]));
+                            }
+                            rows.put(tuple[0] + "/" + tuple[1], new QueryResultRow(values));
+                        }
+                    }
+                    if (!attributeNames.isEmpty() && !rows.isEmpty()) {
+                        setInstanceAttributes(workspace, user, rows, attributeNames);
+                    }
+                    rows.values().forEach(consumer);
+                });
     }
 
-    private Predicate getAuthorPredicate(String pTimeZone, String field, String operator, List<String> values, String type) {
-        return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get("author").get("account").get(field), operator, values, type, pTimeZone);
+    /**
+     * Build the plan of the query ahead of running it, so that invalid rules are rejected early
+     */
+    public void checkQuery(String pTimeZone, Query query) {
+        getPlan(pTimeZone, query);
     }
 
-    private Predicate getPartRevisionPredicate(String pTimeZone, String field, String operator, List<String> values, String type) {
-        if ("checkInDate".equals(field)) {
-            Predicate lastIterationPredicate = cb.equal(cb.size(pr.get("partIterations")), pi.get("iteration"));
-            return cb.and(lastIterationPredicate, QueryPredicateBuilder.getExpressionPredicate(cb, pi.get("checkInDate"), operator, values, type, pTimeZone));
-        }
-        else if ("modificationDate".equals(field)) {
-            Predicate lastIterationPredicate = cb.equal(cb.size(pr.get("partIterations")), pi.get("iteration"));
-            return cb.and(lastIterationPredicate, QueryPredicateBuilder.getExpressionPredicate(cb, pi.get("modificationDate"), operator, values, type, pTimeZone));
-        } else if ("status".equals(field)) {
-            if (values.size() == 1) {
-                return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get(field), operator, values, "status", pTimeZone);
-            }
-        } else if ("tags".equals(field)) {
-            return getTagsPredicate(values);
-        } else if ("linkedDocuments".equals(field)) {
-            // should be ignored, returning always true for the moment
-            return cb.and();
-        }
-        return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get(field), operator, values, type, pTimeZone);
+    private PartRevisionQueryPlan getPlan(String pTimeZone, Query query) {
+        return queryPlanCache.getPlan(query.getQueryRule(), pTimeZone, partAttributeValueWorker.isComplete());
     }
 
-    private Predicate getTagsPredicate(List<String> values) {
-        Predicate prPredicate = tag.in(pr.get("tags"));
-        Predicate valuesPredicate = cb.equal(tag.get("label"), values);
-        return cb.and(prPredicate, valuesPredicate);
+    /**
+     * Condition on the revisions of the workspace, their last checked-in iteration and the rules of the query
+     */
+    private String getQueryCondition(PartRevisionQueryPlan plan) {
+        return "pr.partMasterWorkspaceId = :workspaceId AND " + LAST_CHECKED_IN_ITERATION + " AND (" + plan.getCondition() + ")";
     }
 
-    private Predicate getPartMasterPredicate(String pTimeZone, String field, String operator, List<String> values, String type) {
-        return QueryPredicateBuilder.getExpressionPredicate(cb, pr.get("partMaster").get(field), operator, values, type, pTimeZone);
+    private String getSeekClause() {
+        return " AND " + AFTER_LAST_REVISION + " ORDER BY pr.partMasterNumber, pr.version";
     }
 
-    // Instances Attributes
-    private Predicate getInstanceURLAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
+    /**
+     * Run a query on revisions by batches ordered by part number and version, each batch seeking after
+     * the last revision of the previous one. The persistence context is cleared between batches.
+     *
+     * @param tp the query, ending with the seek clause
+     * @param key gives the part number and version of a result
+     */
+    private <T> void seekByBatches(TypedQuery<T> tp, int batchSize, Function<T, String[]> key, Consumer<List<T>> batchConsumer) {
 
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, iua.get("urlValue"), operator, values, STRING, pTimeZone);
-        Predicate memberPredicate = iua.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(iua.get("name"), field), valuesPredicate, memberPredicate);
-    }
+        // Nothing is written while streaming, no need to flush before each batch
+        tp.setMaxResults(batchSize).setFlushMode(FlushModeType.COMMIT);
 
-    private Predicate getInstanceBooleanAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(iba.get("booleanValue"), Boolean.parseBoolean(values.get(0)));
-            Predicate memberPredicate = iba.in(pi.get(INSTANCE_ATTRIBUTES));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(iba.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
-            }
-        }
+        String lastNumberValue = "";
+        String lastVersionValue = "";
 
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
-    }
+        while (true) {
+            List<T> results = tp.setParameter("lastNumber", lastNumberValue)
+                    .setParameter("lastVersion", lastVersionValue)
+                    .getResultList();
 
-    private Predicate getInstanceNumberAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ina.get("numberValue"), operator, values, "double", pTimeZone);
-        Predicate memberPredicate = ina.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(ina.get("name"), field), valuesPredicate, memberPredicate);
-    }
+            batchConsumer.accept(results);
 
-    private Predicate getInstanceLovAttributePredicate(String field, String operator, List<String> values) {
-        if (values.size() == 1) {
-            Predicate valuesPredicate = cb.equal(ila.get("indexValue"), Integer.parseInt(values.get(0)));
-            Predicate memberPredicate = ila.in(pi.get(INSTANCE_ATTRIBUTES));
-            switch (operator) {
-                case "equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate, memberPredicate);
-                case "not_equal":
-                    return cb.and(cb.equal(ila.get("name"), field), valuesPredicate.not(), memberPredicate);
-                default:
-                    break;
+            if (results.size() < batchSize) {
+                break;
             }
-        }
 
-        throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
+            String[] last = key.apply(results.get(results.size() - 1));
+            lastNumberValue = last[0];
+            lastVersionValue = last[1];
+            em.clear();
+        }
     }
 
-    private Predicate getInstanceDateAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ida.get("dateValue"), operator, values, "date", pTimeZone);
-        Predicate memberPredicate = ida.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(ida.get("name"), field), valuesPredicate, memberPredicate);
+    /**
+     * @param from the from clause, completed with the joins needed by the selection
+     */
+    private String getProjectionSelection(String select, StringBuilder from) {
+        switch (select) {
+            case QueryField.PART_MASTER_NUMBER:
+                return "pr.partMasterNumber";
+            case QueryField.PART_MASTER_NAME:
+            case QueryField.PART_MASTER_TYPE:
+            case QueryField.PART_MASTER_IS_STANDARD:
+                return "pr.partMaster." + select.substring(3);
+            case QueryField.PART_REVISION_MODIFICATION_DATE:
+                return "vi.modificationDate";
+            case QueryField.PART_REVISION_CHECKIN_DATE:
+                return "pi.checkInDate";
+            case QueryField.PART_REVISION_LIFECYCLE_STATE:
+                from.append(" LEFT JOIN pr.workflow wf");
+                return "wf";
+            case QueryField.AUTHOR_LOGIN:
+                return "pr.author.login";
+            case QueryField.AUTHOR_NAME:
+                from.append(" JOIN pr.author au LEFT JOIN au.account ac");
+                return "ac.name";
+            default:
+                // pr.version, pr.checkOutDate, pr.creationDate and pr.status
+                return "pr." + select.substring(3);
+        }
     }
 
-    private Predicate getInstanceLongTextAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ilta.get("longTextValue"), operator, values, STRING, pTimeZone);
-        Predicate memberPredicate = ilta.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
+    private Object getProjectionValue(String select, Object value) {
+        if (QueryField.PART_REVISION_LIFECYCLE_STATE.equals(select)) {
+            return value != null ? ((Workflow) value).getLifeCycleState() : null;
+        }
+        return value;
     }
 
-    private Predicate getInstancePartNumberAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ipna.get("partMasterValue").get("number"), operator, values, STRING, pTimeZone);
-        Predicate memberPredicate = ipna.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
-    }
+    /**
+     * Read the selected attributes of the visible iterations of a batch of rows, in one query
+     *
+     * @param rows the rows by part number and version
+     */
+    private void setInstanceAttributes(Workspace workspace, User user, Map<String, QueryResultRow> rows, Set<String> attributeNames) {
+        Set<String> numbers = new HashSet<>();
+        for (String key : rows.keySet()) {
+            numbers.add(key.substring(0, key.lastIndexOf('/')));
+        }
 
-    private Predicate getInstanceTextAttributePredicate(String pTimeZone, String field, String operator, List<String> values) {
-        Predicate valuesPredicate = QueryPredicateBuilder.getExpressionPredicate(cb, ita.get("textValue"), operator, values, STRING, pTimeZone);
-        Predicate memberPredicate = ita.in(pi.get(INSTANCE_ATTRIBUTES));
-        return cb.and(cb.equal(ita.get("name"), field), valuesPredicate, memberPredicate);
+        List<Object[]> tuples = em.createQuery("SELECT pr.partMasterNumber, pr.version, a, INDEX(a) AS attributeIndex"
+                + " FROM PartRevision pr JOIN pr.partIterations vi JOIN vi.instanceAttributes a"
+                + " WHERE pr.partMasterWorkspaceId = :workspaceId AND pr.partMasterNumber IN :numbers"
+                + " AND " + VISIBLE_ITERATION + " AND a.name IN :names"
+                + " ORDER BY attributeIndex", Object[].class)
+                .setParameter("workspaceId", workspace.getId())
+                .setParameter("numbers", numbers)
+                .setParameter("user", user)
+                .setParameter("names", attributeNames)
+                .getResultList();
+
+        for (Object[] tuple : tuples) {
+            QueryResultRow row = rows.get(tuple[0] + "/" + tuple[1]);
+            if (row != null) {
+                row.getInstanceAttributes().add((InstanceAttribute) tuple[2]);
+            }
+        }
     }
 }
-
-
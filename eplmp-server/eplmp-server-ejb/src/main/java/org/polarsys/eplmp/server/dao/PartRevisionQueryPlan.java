@@ -0,0 +1,356 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.polarsys.eplmp.core.meta.*;
+import org.polarsys.eplmp.core.product.InstancePartNumberAttribute;
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.server.products.PartAttributeValue;
+
+import javax.persistence.TypedQuery;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Rules of a part query compiled to a JPQL condition on the revision <code>pr</code> and its retained
+ * iteration <code>pi</code>, with the values of the rules as named parameters.
+ *
+ * A plan is immutable and can be shared between executions: the queries sharing the same rules are
+ * run with the same JPQL string, which is parsed once by the persistence provider, and their values
+ * are bound to the prepared statements instead of being written in the SQL.
+ *
+ * @see PartRevisionQueryDAO
+ */
+public class PartRevisionQueryPlan {
+
+    private static final String ALWAYS_TRUE = "1 = 1";
+    private static final String PARAMETER_PREFIX = "p";
+
+    /**
+     * Fields of the rules written in the conditions, the field names being sent by the clients
+     */
+    private static final Set<String> PART_MASTER_FIELDS = new HashSet<>(Arrays.asList("number", "name", "type", "standardPart"));
+    private static final Set<String> PART_REVISION_FIELDS = new HashSet<>(Arrays.asList("version", "creationDate", "checkOutDate", "status"));
+    private static final Set<String> AUTHOR_FIELDS = new HashSet<>(Arrays.asList("login", "name"));
+
+    private final String condition;
+    private final Map<String, Object> parameters;
+
+    private PartRevisionQueryPlan(String condition, Map<String, Object> parameters) {
+        this.condition = condition;
+        this.parameters = Collections.unmodifiableMap(parameters);
+    }
+
+    /**
+     * Compile the rules of a query
+     *
+     * @param queryRule the root rule, null for a query without rules
+     * @param timeZone the time zone of the dates of the rules
+     * @param attributeValues true to match the attributes on the values copied on check in,
+     *                        see {@link PartAttributeValue}, false to match the instance attributes
+     * @return the plan of the rules
+     */
+    public static PartRevisionQueryPlan compile(QueryRule queryRule, String timeZone, boolean attributeValues) {
+        Compiler compiler = new Compiler(timeZone, attributeValues);
+        String condition = compiler.getCondition(queryRule);
+        return new PartRevisionQueryPlan(condition, compiler.parameters);
+    }
+
+    public String getCondition() {
+        return condition;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Bind the values of the rules to a query built on the condition of the plan
+     */
+    public <T> TypedQuery<T> bind(TypedQuery<T> query) {
+        parameters.forEach(query::setParameter);
+        return query;
+    }
+
+    /**
+     * @return the column holding the copied values of the type, null for the long texts which are not copied
+     */
+    private static String getValueColumn(PartAttributeValue.Type valueType) {
+        switch (valueType) {
+            case TEXT:
+            case URL:
+            case PART_NUMBER:
+                return "textValue";
+            case NUMBER:
+                return "numberValue";
+            case DATE:
+                return "dateValue";
+            case BOOLEAN:
+                return "booleanValue";
+            case LOV:
+                return "indexValue";
+            default:
+                return null;
+        }
+    }
+
+    private static class Compiler {
+
+        private final String timeZone;
+        private final boolean attributeValues;
+        private final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        private Compiler(String timeZone, boolean attributeValues) {
+            this.timeZone = timeZone;
+            this.attributeValues = attributeValues;
+        }
+
+        private String getCondition(QueryRule queryRule) {
+
+            if (queryRule == null) {
+                return ALWAYS_TRUE;
+            }
+
+            String condition = queryRule.getCondition();
+
+            if (queryRule.hasSubRules()) {
+
+                StringJoiner conditions;
+                if ("OR".equals(condition)) {
+                    conditions = new StringJoiner(" OR ", "(", ")");
+                } else if ("AND".equals(condition)) {
+                    conditions = new StringJoiner(" AND ", "(", ")");
+                } else {
+                    throw new IllegalArgumentException("Cannot parse rule or sub rule condition: " + condition + " ");
+                }
+
+                for (QueryRule subQueryRule : queryRule.getSubQueryRules()) {
+                    conditions.add(getCondition(subQueryRule));
+                }
+                return conditions.toString();
+
+            } else {
+                return getRuleCondition(queryRule);
+            }
+        }
+
+        private String getRuleCondition(QueryRule queryRule) {
+
+            String field = queryRule.getField();
+
+            if (field == null) {
+                return ALWAYS_TRUE;
+            }
+
+            String operator = queryRule.getOperator();
+            List<String> values = queryRule.getValues();
+            String type = queryRule.getType();
+
+            if (field.startsWith("pm.")) {
+                return getExpressionCondition("pr.partMaster." + checkField(PART_MASTER_FIELDS, field, 3), operator, values, type);
+            }
+
+            if (field.startsWith("pr.")) {
+                return getPartRevisionCondition(field, operator, values, type);
+            }
+
+            if (field.startsWith("author.")) {
+                return getExpressionCondition("pr.author.account." + checkField(AUTHOR_FIELDS, field, 7), operator, values, type);
+            }
+
+            if (field.startsWith("attr-TEXT.")) {
+                return getInstanceAttributeCondition(InstanceTextAttribute.class, PartAttributeValue.Type.TEXT, field.substring(10), "textValue",
+                        value -> getExpressionCondition(value, operator, values, PartRevisionQueryDAO.STRING));
+            }
+
+            if (field.startsWith("attr-LONG_TEXT.")) {
+                return getInstanceAttributeCondition(InstanceLongTextAttribute.class, PartAttributeValue.Type.LONG_TEXT, field.substring(15), "longTextValue",
+                        value -> getExpressionCondition(value, operator, values, PartRevisionQueryDAO.STRING));
+            }
+
+            if (field.startsWith("attr-DATE.")) {
+                return getInstanceAttributeCondition(InstanceDateAttribute.class, PartAttributeValue.Type.DATE, field.substring(10), "dateValue",
+                        value -> getExpressionCondition(value, operator, values, "date"));
+            }
+
+            if (field.startsWith("attr-BOOLEAN.")) {
+                return getEqualityAttributeCondition(InstanceBooleanAttribute.class, PartAttributeValue.Type.BOOLEAN, field.substring(13), "booleanValue",
+                        operator, values, Boolean::parseBoolean);
+            }
+
+            if (field.startsWith("attr-URL.")) {
+                return getInstanceAttributeCondition(InstanceURLAttribute.class, PartAttributeValue.Type.URL, field.substring(9), "urlValue",
+                        value -> getExpressionCondition(value, operator, values, PartRevisionQueryDAO.STRING));
+            }
+
+            if (field.startsWith("attr-NUMBER.")) {
+                return getInstanceAttributeCondition(InstanceNumberAttribute.class, PartAttributeValue.Type.NUMBER, field.substring(12), "numberValue",
+                        value -> getExpressionCondition(value, operator, values, QueryPredicateBuilder.DOUBLE));
+            }
+
+            if (field.startsWith("attr-LOV.")) {
+                return getEqualityAttributeCondition(InstanceListOfValuesAttribute.class, PartAttributeValue.Type.LOV, field.substring(9), "indexValue",
+                        operator, values, Integer::parseInt);
+            }
+
+            if (field.startsWith("attr-PART_NUMBER.")) {
+                return getInstanceAttributeCondition(InstancePartNumberAttribute.class, PartAttributeValue.Type.PART_NUMBER, field.substring(17), "partMasterValue.number",
+                        value -> getExpressionCondition(value, operator, values, PartRevisionQueryDAO.STRING));
+            }
+
+            throw new IllegalArgumentException("Unhandled attribute: [" + field + ", " + operator + ", " + values + "]");
+        }
+
+        private String getPartRevisionCondition(String ruleField, String operator, List<String> values, String type) {
+            String field = ruleField.substring(3);
+            if ("checkInDate".equals(field) || "modificationDate".equals(field)) {
+                return getExpressionCondition("pi." + field, operator, values, type);
+            } else if ("status".equals(field)) {
+                if (values.size() == 1) {
+                    return getExpressionCondition("pr." + field, operator, values, "status");
+                }
+            } else if ("tags".equals(field)) {
+                return "EXISTS (SELECT t FROM PartRevision spr JOIN spr.tags t WHERE spr = pr AND t.label IN "
+                        + addParameter(new ArrayList<>(values)) + ")";
+            } else if ("linkedDocuments".equals(field)) {
+                // should be ignored, returning always true for the moment
+                return ALWAYS_TRUE;
+            }
+            return getExpressionCondition("pr." + checkField(PART_REVISION_FIELDS, ruleField, 3), operator, values, type);
+        }
+
+        /**
+         * @return the name of the entity field of a rule field, which must be one of the given fields
+         */
+        private String checkField(Set<String> fields, String ruleField, int prefixLength) {
+            String field = ruleField.substring(prefixLength);
+            if (!fields.contains(field)) {
+                throw new IllegalArgumentException("Unhandled field: " + ruleField);
+            }
+            return field;
+        }
+
+        /**
+         * Match an attribute of the given type and name of the retained iteration, on the copied values
+         * when they are used and have a column for the type, or else on the instance attributes.
+         */
+        private String getInstanceAttributeCondition(Class<? extends InstanceAttribute> attributeType, PartAttributeValue.Type valueType, String field, String valuePath, Function<String, String> valueCondition) {
+            String valueColumn = getValueColumn(valueType);
+
+            if (valueColumn != null && attributeValues) {
+                return "EXISTS (SELECT v FROM PartAttributeValue v WHERE v.workspaceId = pr.partMasterWorkspaceId"
+                        + " AND v.partNumber = pr.partMasterNumber AND v.version = pr.version AND v.iteration = pi.iteration"
+                        + " AND v.name = " + addParameter(field)
+                        + " AND v.attributeType = " + addParameter(valueType)
+                        + " AND " + valueCondition.apply("v." + valueColumn) + ")";
+            }
+
+            return "EXISTS (SELECT a FROM " + attributeType.getSimpleName() + " a WHERE a MEMBER OF pi.instanceAttributes"
+                    + " AND a.name = " + addParameter(field)
+                    + " AND " + valueCondition.apply("a." + valuePath) + ")";
+        }
+
+        private String getEqualityAttributeCondition(Class<? extends InstanceAttribute> attributeType, PartAttributeValue.Type valueType, String field, String valuePath, String operator, List<String> values, Function<String, Object> parse) {
+            if (values.size() == 1) {
+                Object value = parse.apply(values.get(0));
+                switch (operator) {
+                    case "equal":
+                        return getInstanceAttributeCondition(attributeType, valueType, field, valuePath,
+                                path -> path + " = " + addParameter(value));
+                    case "not_equal":
+                        return getInstanceAttributeCondition(attributeType, valueType, field, valuePath,
+                                path -> "NOT (" + path + " = " + addParameter(value) + ")");
+                    default:
+                        break;
+                }
+            }
+
+            throw new IllegalArgumentException("Cannot handle such operator [" + operator + "] on field " + field + "]");
+        }
+
+        /**
+         * JPQL counterpart of {@link QueryPredicateBuilder#getExpressionPredicate}
+         */
+        private String getExpressionCondition(String path, String operator, List<String> values, String type) {
+
+            List<?> operands = QueryPredicateBuilder.getOperands(values, type, operator, timeZone);
+            boolean comparable = "date".equals(type) || QueryPredicateBuilder.DOUBLE.equals(type);
+
+            switch (operator) {
+                case "between":
+                    if (operands.size() == 2 && comparable) {
+                        return path + " BETWEEN " + addParameter(operands.get(0)) + " AND " + addParameter(operands.get(1));
+                    }
+                    break;
+                case "equal":
+                    if ("date".equals(type)) {
+                        Date date = (Date) operands.get(0);
+                        return path + " BETWEEN " + addParameter(date) + " AND " + addParameter(QueryPredicateBuilder.getNextDay(date));
+                    } else {
+                        return path + " = " + addParameter(operands.get(0));
+                    }
+                case "not_equal":
+                    return "NOT (" + path + " = " + addParameter(operands.get(0)) + ")";
+
+                case "contains":
+                    return path + " LIKE " + addParameter("%" + operands.get(0) + "%");
+                case "not_contains":
+                    return "NOT (" + path + " LIKE " + addParameter("%" + operands.get(0) + "%") + ")";
+
+                case "begins_with":
+                    return path + " LIKE " + addParameter(operands.get(0) + "%");
+                case "not_begins_with":
+                    return "NOT (" + path + " LIKE " + addParameter(operands.get(0) + "%") + ")";
+
+                case "ends_with":
+                    return path + " LIKE " + addParameter("%" + operands.get(0));
+                case "not_ends_with":
+                    return "NOT (" + path + " LIKE " + addParameter("%" + operands.get(0)) + ")";
+
+                case "less":
+                    if (comparable) {
+                        return path + " < " + addParameter(operands.get(0));
+                    }
+                    break;
+                case "less_or_equal":
+                    if (comparable) {
+                        return path + " <= " + addParameter(operands.get(0));
+                    }
+                    break;
+                case "greater":
+                    if (comparable) {
+                        return path + " > " + addParameter(operands.get(0));
+                    }
+                    break;
+                case "greater_or_equal":
+                    if (comparable) {
+                        return path + " >= " + addParameter(operands.get(0));
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            // Should have return a value
+            throw new IllegalArgumentException("Parsing exception " + type + " with values" + values + QueryPredicateBuilder.AND_OPERATOR + operator);
+        }
+
+        /**
+         * @return the name of the parameter, as written in the condition
+         */
+        private String addParameter(Object value) {
+            String name = PARAMETER_PREFIX + (parameters.size() + 1);
+            parameters.put(name, value);
+            return ":" + name;
+        }
+    }
+}
@@ -34,45 +34,7 @@ public class QueryPredicateBuilder {
     @SuppressWarnings("unchecked")
     public static Predicate getExpressionPredicate(CriteriaBuilder cb, Expression fieldExp, String operator, List<String> values, String type, String timeZone) {
 
-        List<?> operands;
-
-        switch (type) {
-            case "string":
-                operands = values;
-                break;
-            case "date":
-                try {
-                    List<Date> temp = new ArrayList<>();
-                    for (String string : values) {
-                        temp.add(DateUtils.parse(string, timeZone));
-                    }
-                    operands = temp;
-                } catch (ParseException e) {
-                    throw new IllegalArgumentException("Parsing exception for dates " + values + AND_OPERATOR + operator);
-                }
-                break;
-            case DOUBLE:
-                try {
-                    List<Double> operandValues = new ArrayList<>();
-                    for(String value:values){
-                        operandValues.add(Double.parseDouble(value));
-                    }
-                    operands = operandValues;
-                } catch (NumberFormatException e) {
-                    throw new IllegalArgumentException("Parsing exception for double " + values + AND_OPERATOR + operator);
-                }
-                break;
-            case "status":
-                List<RevisionStatus> operandValues = new ArrayList<>();
-                for(String value:values){
-                    operandValues.add(RevisionStatus.valueOf(value));
-                }
-                operands = operandValues;
-                break;
-            default:
-                operands = values;
-                break;
-        }
+        List<?> operands = getOperands(values, type, operator, timeZone);
 
         switch (operator) {
             case "between":
@@ -88,12 +50,7 @@ public class QueryPredicateBuilder {
             case "equal":
                 if ("date".equals(type)) {
                     Date date1 = (Date) operands.get(0);
-                    Calendar c = Calendar.getInstance();
-                    c.setTime(date1);
-                    c.add(Calendar.DATE, 1);
-                    Date date2 = c.getTime();
-
-                    return cb.between(fieldExp, date1, date2);
+                    return cb.between(fieldExp, date1, getNextDay(date1));
 
                 } else {
                     return cb.equal(fieldExp, operands.get(0));
@@ -151,4 +108,52 @@ public class QueryPredicateBuilder {
         // Should have return a value
         throw new IllegalArgumentException("Parsing exception " + type + " with values" + values + AND_OPERATOR + operator);
     }
+
+    /**
+     * Parse the values of a rule according to its type
+     */
+    static List<?> getOperands(List<String> values, String type, String operator, String timeZone) {
+        switch (type) {
+            case "string":
+                return values;
+            case "date":
+                try {
+                    List<Date> temp = new ArrayList<>();
+                    for (String string : values) {
+                        temp.add(DateUtils.parse(string, timeZone));
+                    }
+                    return temp;
+                } catch (ParseException e) {
+                    throw new IllegalArgumentException("Parsing exception for dates " + values + AND_OPERATOR + operator);
+                }
+            case DOUBLE:
+                try {
+                    List<Double> operandValues = new ArrayList<>();
+                    for(String value:values){
+                        operandValues.add(Double.parseDouble(value));
+                    }
+                    return operandValues;
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Parsing exception for double " + values + AND_OPERATOR + operator);
+                }
+            case "status":
+                List<RevisionStatus> operandValues = new ArrayList<>();
+                for(String value:values){
+                    operandValues.add(RevisionStatus.valueOf(value));
+                }
+                return operandValues;
+            default:
+                return values;
+        }
+    }
+
+    /**
+     * Dates are compared as days on equality
+     */
+    static Date getNextDay(Date date) {
+        Calendar c = Calendar.getInstance();
+        c.setTime(date);
+        c.add(Calendar.DATE, 1);
+        return c.getTime();
+    }
 }
@@ -17,6 +17,7 @@ import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.meta.Folder;
 import org.polarsys.eplmp.core.security.WorkspaceUserMembership;
 import org.polarsys.eplmp.core.security.WorkspaceUserMembershipKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -34,6 +35,9 @@ public class UserDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     @Inject
     private ACLDAO aclDAO;
 
@@ -47,7 +51,7 @@ public class UserDAO {
     }
 
     public User loadUser(UserKey pUserKey) throws UserNotFoundException {
-        User user = em.find(User.class, pUserKey);
+        User user = cacheManager.find(em, User.class, pUserKey);
         if (user == null) {
             throw new UserNotFoundException(pUserKey.getAccount());
         } else {
@@ -56,7 +60,7 @@ public class UserDAO {
     }
 
     public WorkspaceUserMembership loadUserMembership(WorkspaceUserMembershipKey pKey) {
-        return em.find(WorkspaceUserMembership.class, pKey);
+        return cacheManager.find(em, WorkspaceUserMembership.class, pKey);
     }
 
     public void addUserMembership(Workspace pWorkspace, User pMember) {
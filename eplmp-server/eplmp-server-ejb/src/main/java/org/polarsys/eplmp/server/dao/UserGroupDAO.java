@@ -20,6 +20,7 @@ import org.polarsys.eplmp.core.exceptions.UserGroupAlreadyExistsException;
 import org.polarsys.eplmp.core.exceptions.UserGroupNotFoundException;
 import org.polarsys.eplmp.core.security.WorkspaceUserGroupMembership;
 import org.polarsys.eplmp.core.security.WorkspaceUserGroupMembershipKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -35,11 +36,14 @@ public class UserGroupDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     public UserGroupDAO() {
     }
 
     public UserGroup loadUserGroup(UserGroupKey pKey) throws UserGroupNotFoundException {
-        UserGroup group = em.find(UserGroup.class, pKey);
+        UserGroup group = cacheManager.find(em, UserGroup.class, pKey);
         if (group == null) {
             throw new UserGroupNotFoundException(pKey);
         } else {
@@ -72,7 +76,7 @@ public class UserGroupDAO {
     }
 
     public WorkspaceUserGroupMembership loadUserGroupMembership(WorkspaceUserGroupMembershipKey pKey) throws UserGroupNotFoundException {
-        WorkspaceUserGroupMembership workspaceUserGroupMembership = em.find(WorkspaceUserGroupMembership.class, pKey);
+        WorkspaceUserGroupMembership workspaceUserGroupMembership = cacheManager.find(em, WorkspaceUserGroupMembership.class, pKey);
         if (workspaceUserGroupMembership == null) {
             throw new UserGroupNotFoundException(new UserGroupKey(pKey.getWorkspaceId(), pKey.getMemberId()));
         } else {
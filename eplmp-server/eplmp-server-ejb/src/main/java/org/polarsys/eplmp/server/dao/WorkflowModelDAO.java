@@ -19,6 +19,7 @@ import org.polarsys.eplmp.core.workflow.ActivityModel;
 import org.polarsys.eplmp.core.workflow.TaskModel;
 import org.polarsys.eplmp.core.workflow.WorkflowModel;
 import org.polarsys.eplmp.core.workflow.WorkflowModelKey;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -41,6 +42,9 @@ public class WorkflowModelDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     public WorkflowModelDAO(){
     }
 
@@ -107,7 +111,7 @@ public class WorkflowModelDAO {
     }
 
     public WorkflowModel loadWorkflowModel(WorkflowModelKey pKey) throws WorkflowModelNotFoundException {
-        WorkflowModel model = em.find(WorkflowModel.class, pKey);
+        WorkflowModel model = cacheManager.find(em, WorkflowModel.class, pKey);
         if (model == null) {
             throw new WorkflowModelNotFoundException(pKey.getId());
         } else {
@@ -28,6 +28,7 @@ import org.polarsys.eplmp.core.product.PartMaster;
 import org.polarsys.eplmp.core.product.PartUsageLink;
 import org.polarsys.eplmp.core.workflow.WorkflowModel;
 import org.polarsys.eplmp.core.workflow.WorkspaceWorkflow;
+import org.polarsys.eplmp.server.CacheManagerBean;
 
 import javax.enterprise.context.RequestScoped;
 import javax.inject.Inject;
@@ -47,6 +48,9 @@ public class WorkspaceDAO {
     @Inject
     private EntityManager em;
 
+    @Inject
+    private CacheManagerBean cacheManager;
+
     @Inject
     private EffectivityDAO effectivityDAO;
 
@@ -93,7 +97,7 @@ public class WorkspaceDAO {
     }
 
     public Workspace loadWorkspace(String pID) throws WorkspaceNotFoundException {
-        Workspace workspace = em.find(Workspace.class, pID);
+        Workspace workspace = cacheManager.find(em, Workspace.class, pID);
         if (workspace == null) {
             throw new WorkspaceNotFoundException(pID);
         } else {
@@ -225,6 +229,10 @@ public class WorkspaceDAO {
         em.createQuery("DELETE FROM Conversion c where c.partIteration.partRevision.partMaster.workspace = :workspace")
                 .setParameter(WORKSPACE, workspace).executeUpdate();
 
+        // Part attribute values
+        em.createNamedQuery("PartAttributeValue.removeByWorkspace")
+                .setParameter(WORKSPACE_ID, workspaceId).executeUpdate();
+
         // Notifications
         em.createQuery("DELETE FROM ModificationNotification m where m.impactedPart.partRevision.partMaster.workspace = :workspace or m.modifiedPart.partRevision.partMaster.workspace = :workspace")
                 .setParameter(WORKSPACE, workspace).executeUpdate();
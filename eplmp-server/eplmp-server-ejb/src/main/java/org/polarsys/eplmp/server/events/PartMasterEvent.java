@@ -0,0 +1,30 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.events;
+
+import org.polarsys.eplmp.core.product.PartMaster;
+
+public class PartMasterEvent {
+
+    private PartMaster observedPartMaster;
+
+    public PartMasterEvent(PartMaster observedPartMaster) {
+        this.observedPartMaster = observedPartMaster;
+    }
+
+    public PartMaster getObservedPartMaster() {
+        return observedPartMaster;
+    }
+
+    public void setObservedPartMaster(PartMaster observedPartMaster) {
+        this.observedPartMaster = observedPartMaster;
+    }
+}
@@ -0,0 +1,391 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.geometry;
+
+import org.polarsys.eplmp.core.product.Geometry;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This MeshEncoder class converts OBJ files to compact binary meshes.
+ *
+ * The output is a glTF 2.0 binary file holding one indexed mesh. Positions are quantized to 16 bits
+ * relatively to the bounding box and normals to 8 bits (KHR_mesh_quantization), the node transform
+ * restores the original coordinates. Faces are split in one primitive per "usemtl" group, the material
+ * name being kept in the primitive extras.
+ */
+@Singleton
+@Lock(LockType.READ)
+public class MeshEncoder {
+
+    private static final Logger LOGGER = Logger.getLogger(MeshEncoder.class.getName());
+
+    private static final int GLB_MAGIC = 0x46546C67;
+    private static final int GLB_VERSION = 2;
+    private static final int CHUNK_JSON = 0x4E4F534A;
+    private static final int CHUNK_BIN = 0x004E4942;
+
+    private static final int BYTE = 5120;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int UNSIGNED_INT = 5125;
+    private static final int ARRAY_BUFFER = 34962;
+    private static final int ELEMENT_ARRAY_BUFFER = 34963;
+    private static final int TRIANGLES = 4;
+
+    private static final int POSITION_STRIDE = 8;
+    private static final int NORMAL_STRIDE = 4;
+    private static final String QUANTIZATION_EXTENSION = "KHR_mesh_quantization";
+
+    public MeshEncoder() {
+    }
+
+    /**
+     * Encodes given OBJ file to a binary mesh written next to it, with the same base name.
+     *
+     * @param objFile path to the OBJ file
+     * @return the path of the binary mesh, or null if the OBJ file cannot be encoded
+     */
+    public Path encode(Path objFile) {
+        String fileName = objFile.getFileName().toString();
+        Path binaryMeshFile = objFile.resolveSibling(fileName.replaceAll("\\.obj$", "") + Geometry.BINARY_MESH_EXTENSION);
+
+        try {
+            Mesh mesh = parse(objFile);
+            if (mesh.vertexCount == 0) {
+                LOGGER.log(Level.WARNING, "No face found in " + fileName);
+                return null;
+            }
+            try (OutputStream os = Files.newOutputStream(binaryMeshFile)) {
+                write(mesh, os);
+            }
+            return binaryMeshFile;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot encode binary mesh from obj", e);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            LOGGER.log(Level.SEVERE, "Cannot parse obj " + fileName, e);
+        }
+        return null;
+    }
+
+    private Mesh parse(Path objFile) throws IOException {
+        FloatList positions = new FloatList();
+        FloatList normals = new FloatList();
+        Mesh mesh = new Mesh();
+        Map<Long, Integer> vertexIndices = new HashMap<>();
+        IntList indices = mesh.group("");
+
+        try (BufferedReader br = Files.newBufferedReader(objFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] tokens = line.trim().split("\\s+");
+                switch (tokens[0]) {
+                    case "v":
+                        positions.add(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3]));
+                        break;
+                    case "vn":
+                        normals.add(Float.parseFloat(tokens[1]), Float.parseFloat(tokens[2]), Float.parseFloat(tokens[3]));
+                        break;
+                    case "usemtl":
+                        indices = mesh.group(tokens.length > 1 ? tokens[1] : "");
+                        break;
+                    case "f":
+                        int first = -1;
+                        int previous = -1;
+                        // Polygons are triangulated as a fan
+                        for (int i = 1; i < tokens.length; i++) {
+                            String[] references = tokens[i].split("/");
+                            int position = resolve(references[0], positions.size / 3);
+                            int normal = references.length > 2 && !references[2].isEmpty() ?
+                                    resolve(references[2], normals.size / 3) : -1;
+
+                            long key = ((long) position << 32) | (normal + 1);
+                            Integer index = vertexIndices.get(key);
+                            if (index == null) {
+                                index = mesh.vertexCount++;
+                                vertexIndices.put(key, index);
+                                mesh.positions.add(positions.get(position * 3), positions.get(position * 3 + 1),
+                                        positions.get(position * 3 + 2));
+                                if (normal >= 0) {
+                                    mesh.normals.add(normals.get(normal * 3), normals.get(normal * 3 + 1),
+                                            normals.get(normal * 3 + 2));
+                                    mesh.hasNormals = true;
+                                } else {
+                                    mesh.normals.add(0, 0, 0);
+                                }
+                            }
+                            if (first < 0) {
+                                first = index;
+                            } else if (previous >= 0) {
+                                indices.add(first);
+                                indices.add(previous);
+                                indices.add(index);
+                            }
+                            if (i > 1) {
+                                previous = index;
+                            }
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return mesh;
+    }
+
+    /**
+     * OBJ indices start at 1, negative values are relative to the end of the list.
+     */
+    private int resolve(String reference, int count) {
+        int index = Integer.parseInt(reference);
+        int resolved = index < 0 ? count + index : index - 1;
+        if (resolved < 0 || resolved >= count) {
+            throw new IndexOutOfBoundsException("Invalid vertex reference " + reference);
+        }
+        return resolved;
+    }
+
+    private void write(Mesh mesh, OutputStream os) throws IOException {
+        float[] min = new float[]{Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = new float[]{-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = 0; i < mesh.positions.size; i++) {
+            min[i % 3] = Math.min(min[i % 3], mesh.positions.get(i));
+            max[i % 3] = Math.max(max[i % 3], mesh.positions.get(i));
+        }
+
+        // Uniform scale, so that dequantization keeps normals directions
+        float extent = Math.max(max[0] - min[0], Math.max(max[1] - min[1], max[2] - min[2]));
+        if (extent <= 0) {
+            extent = 1;
+        }
+
+        boolean shortIndices = mesh.vertexCount <= 0xFFFF;
+        int indexSize = shortIndices ? 2 : 4;
+
+        int positionsLength = mesh.vertexCount * POSITION_STRIDE;
+        int normalsLength = mesh.hasNormals ? mesh.vertexCount * NORMAL_STRIDE : 0;
+        int indicesLength = 0;
+        for (IntList indices : mesh.groups.values()) {
+            indicesLength += align(indices.size * indexSize);
+        }
+
+        ByteBuffer bin = ByteBuffer.allocate(positionsLength + normalsLength + indicesLength)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        int[] quantizedMin = new int[]{0xFFFF, 0xFFFF, 0xFFFF};
+        int[] quantizedMax = new int[3];
+        for (int v = 0; v < mesh.vertexCount; v++) {
+            for (int c = 0; c < 3; c++) {
+                int q = Math.round((mesh.positions.get(v * 3 + c) - min[c]) / extent * 0xFFFF);
+                q = Math.max(0, Math.min(0xFFFF, q));
+                quantizedMin[c] = Math.min(quantizedMin[c], q);
+                quantizedMax[c] = Math.max(quantizedMax[c], q);
+                bin.putShort((short) q);
+            }
+            bin.putShort((short) 0);
+        }
+
+        if (mesh.hasNormals) {
+            for (int v = 0; v < mesh.vertexCount; v++) {
+                float x = mesh.normals.get(v * 3);
+                float y = mesh.normals.get(v * 3 + 1);
+                float z = mesh.normals.get(v * 3 + 2);
+                float length = (float) Math.sqrt(x * x + y * y + z * z);
+                if (length > 0) {
+                    x /= length;
+                    y /= length;
+                    z /= length;
+                }
+                bin.put((byte) Math.round(x * 127));
+                bin.put((byte) Math.round(y * 127));
+                bin.put((byte) Math.round(z * 127));
+                bin.put((byte) 0);
+            }
+        }
+
+        JsonArrayBuilder bufferViews = Json.createArrayBuilder()
+                .add(bufferView(0, positionsLength, ARRAY_BUFFER).add("byteStride", POSITION_STRIDE));
+        JsonArrayBuilder accessors = Json.createArrayBuilder()
+                .add(Json.createObjectBuilder()
+                        .add("bufferView", 0)
+                        .add("componentType", UNSIGNED_SHORT)
+                        .add("normalized", true)
+                        .add("count", mesh.vertexCount)
+                        .add("type", "VEC3")
+                        .add("min", Json.createArrayBuilder().add(quantizedMin[0]).add(quantizedMin[1]).add(quantizedMin[2]))
+                        .add("max", Json.createArrayBuilder().add(quantizedMax[0]).add(quantizedMax[1]).add(quantizedMax[2])));
+
+        JsonObjectBuilder attributes = Json.createObjectBuilder().add("POSITION", 0);
+        int indicesBufferView = 1;
+        if (mesh.hasNormals) {
+            bufferViews.add(bufferView(positionsLength, normalsLength, ARRAY_BUFFER).add("byteStride", NORMAL_STRIDE));
+            accessors.add(Json.createObjectBuilder()
+                    .add("bufferView", 1)
+                    .add("componentType", BYTE)
+                    .add("normalized", true)
+                    .add("count", mesh.vertexCount)
+                    .add("type", "VEC3"));
+            attributes.add("NORMAL", 1);
+            indicesBufferView = 2;
+        }
+        bufferViews.add(bufferView(positionsLength + normalsLength, indicesLength, ELEMENT_ARRAY_BUFFER));
+
+        JsonArrayBuilder primitives = Json.createArrayBuilder();
+        int accessor = mesh.hasNormals ? 2 : 1;
+        int offset = 0;
+        for (Map.Entry<String, IntList> group : mesh.groups.entrySet()) {
+            IntList indices = group.getValue();
+            if (indices.size == 0) {
+                continue;
+            }
+            for (int i = 0; i < indices.size; i++) {
+                if (shortIndices) {
+                    bin.putShort((short) indices.get(i));
+                } else {
+                    bin.putInt(indices.get(i));
+                }
+            }
+            while (bin.position() % 4 != 0) {
+                bin.put((byte) 0);
+            }
+
+            accessors.add(Json.createObjectBuilder()
+                    .add("bufferView", indicesBufferView)
+                    .add("byteOffset", offset)
+                    .add("componentType", shortIndices ? UNSIGNED_SHORT : UNSIGNED_INT)
+                    .add("count", indices.size)
+                    .add("type", "SCALAR"));
+            primitives.add(Json.createObjectBuilder()
+                    .add("attributes", attributes)
+                    .add("indices", accessor++)
+                    .add("mode", TRIANGLES)
+                    .add("extras", Json.createObjectBuilder().add("material", group.getKey())));
+            offset += align(indices.size * indexSize);
+        }
+
+        String json = Json.createObjectBuilder()
+                .add("asset", Json.createObjectBuilder().add("version", "2.0").add("generator", "DocDokuPLM"))
+                .add("extensionsUsed", Json.createArrayBuilder().add(QUANTIZATION_EXTENSION))
+                .add("extensionsRequired", Json.createArrayBuilder().add(QUANTIZATION_EXTENSION))
+                .add("scene", 0)
+                .add("scenes", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                        .add("nodes", Json.createArrayBuilder().add(0))))
+                .add("nodes", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                        .add("mesh", 0)
+                        .add("translation", Json.createArrayBuilder().add(min[0]).add(min[1]).add(min[2]))
+                        .add("scale", Json.createArrayBuilder().add(extent).add(extent).add(extent))))
+                .add("meshes", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                        .add("primitives", primitives)))
+                .add("buffers", Json.createArrayBuilder().add(Json.createObjectBuilder()
+                        .add("byteLength", bin.capacity())))
+                .add("bufferViews", bufferViews)
+                .add("accessors", accessors)
+                .build()
+                .toString();
+
+        byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+        int jsonLength = align(jsonBytes.length);
+        int totalLength = 12 + 8 + jsonLength + 8 + bin.capacity();
+
+        ByteBuffer header = ByteBuffer.allocate(12 + 8).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(GLB_MAGIC).putInt(GLB_VERSION).putInt(totalLength);
+        header.putInt(jsonLength).putInt(CHUNK_JSON);
+        os.write(header.array());
+        os.write(jsonBytes);
+        // JSON chunk is padded with spaces
+        for (int i = jsonBytes.length; i < jsonLength; i++) {
+            os.write(' ');
+        }
+
+        ByteBuffer binHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        binHeader.putInt(bin.capacity()).putInt(CHUNK_BIN);
+        os.write(binHeader.array());
+        os.write(bin.array());
+    }
+
+    private static JsonObjectBuilder bufferView(int byteOffset, int byteLength, int target) {
+        return Json.createObjectBuilder()
+                .add("buffer", 0)
+                .add("byteOffset", byteOffset)
+                .add("byteLength", byteLength)
+                .add("target", target);
+    }
+
+    private static int align(int length) {
+        return (length + 3) & ~3;
+    }
+
+    private static class Mesh {
+        private int vertexCount;
+        private boolean hasNormals;
+        private final FloatList positions = new FloatList();
+        private final FloatList normals = new FloatList();
+        private final Map<String, IntList> groups = new LinkedHashMap<>();
+
+        private IntList group(String material) {
+            return groups.computeIfAbsent(material, k -> new IntList());
+        }
+    }
+
+    private static class FloatList {
+        private float[] values = new float[1024];
+        private int size;
+
+        private void add(float x, float y, float z) {
+            if (size + 3 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = x;
+            values[size++] = y;
+            values[size++] = z;
+        }
+
+        private float get(int i) {
+            return values[i];
+        }
+    }
+
+    private static class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int get(int i) {
+            return values[i];
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Text extracted from an attached file, shared by all the files with the same type and content.
+ *
+ * The key is a digest of the file extension, of the extractor version and of the content, so the text of a file copied from
+ * an iteration to the next one, or indexed again, is read back instead of being parsed again.
+ */
+@Table(name = "EXTRACTED_TEXT")
+@Entity
+public class ExtractedText implements Serializable {
+
+    @Column(length = 64)
+    @Id
+    private String contentDigest;
+
+    /**
+     * Version of the extractor which produced the text, entries from a previous version are ignored
+     */
+    private int extractorVersion;
+
+    @Lob
+    private String text;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date creationDate;
+
+    public ExtractedText() {
+    }
+
+    public ExtractedText(String contentDigest, int extractorVersion, String text) {
+        this.contentDigest = contentDigest;
+        this.extractorVersion = extractorVersion;
+        this.text = text;
+        this.creationDate = new Date();
+    }
+
+    public String getContentDigest() {
+        return contentDigest;
+    }
+
+    public int getExtractorVersion() {
+        return extractorVersion;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+}
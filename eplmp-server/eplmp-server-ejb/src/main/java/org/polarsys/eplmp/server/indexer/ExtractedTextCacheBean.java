@@ -0,0 +1,69 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import org.polarsys.eplmp.server.dao.ExtractedTextDAO;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import javax.persistence.PersistenceException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Store of the text extracted from attached files, keyed by content digest
+ *
+ * @see ExtractedText
+ */
+@Stateless(name = "ExtractedTextCacheBean")
+public class ExtractedTextCacheBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ExtractedTextCacheBean.class.getName());
+
+    @Inject
+    private ExtractedTextDAO extractedTextDAO;
+
+    /**
+     * Get the text previously extracted from a content
+     *
+     * @param contentDigest digest of the file type and content
+     * @param extractorVersion current version of the extractor
+     * @return the text, or null if it has never been extracted by this version of the extractor
+     */
+    @TransactionAttribute(TransactionAttributeType.SUPPORTS)
+    public String getText(String contentDigest, int extractorVersion) {
+        ExtractedText extractedText = extractedTextDAO.findExtractedText(contentDigest);
+        if (extractedText == null || extractedText.getExtractorVersion() != extractorVersion) {
+            return null;
+        }
+        return extractedText.getText();
+    }
+
+    /**
+     * Store the text extracted from a content.
+     * Runs in its own transaction: a concurrent extraction of the same content must not fail the caller.
+     *
+     * @param contentDigest digest of the file type and content
+     * @param extractorVersion current version of the extractor
+     * @param text extracted text
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void storeText(String contentDigest, int extractorVersion, String text) {
+        try {
+            extractedTextDAO.storeExtractedText(new ExtractedText(contentDigest, extractorVersion, text));
+        } catch (PersistenceException e) {
+            LOGGER.log(Level.FINE, "Extracted text already stored for " + contentDigest, e);
+        }
+    }
+}
@@ -12,15 +12,19 @@
 
 package org.polarsys.eplmp.server.indexer;
 
+import com.google.gson.JsonElement;
 import io.searchbox.client.JestClient;
 import io.searchbox.client.JestResult;
 import io.searchbox.core.*;
 import io.searchbox.indices.CreateIndex;
 import io.searchbox.indices.IndicesExists;
+import io.searchbox.indices.aliases.*;
 import io.searchbox.indices.template.PutTemplate;
 import io.searchbox.params.SearchType;
 import org.apache.commons.io.IOUtils;
-import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.polarsys.eplmp.core.exceptions.IndexerNotAvailableException;
@@ -35,6 +39,7 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,6 +62,8 @@ public class IndexManagerBean {
 
     private static final Logger LOGGER = Logger.getLogger(IndexManagerBean.class.getName());
 
+    private static final String[] INDEX_TYPES = {IndexerMapping.INDEX_DOCUMENTS, IndexerMapping.INDEX_PARTS};
+
     public IndexManagerBean() {
     }
 
@@ -72,27 +79,120 @@ public class IndexManagerBean {
     }
 
     /**
-     * Create documents and parts indexes
+     * Create documents and parts indexes.
+     * Physical indices are versioned, and reached through their read alias.
      *
      * @param workspaceId
      * @throws IndexerRequestException
      * @throws IndexerNotAvailableException
      */
     public void createIndices(String workspaceId) throws IndexerRequestException, IndexerNotAvailableException {
-        createIndex(indicesUtils.getIndexName(workspaceId, IndexerMapping.INDEX_DOCUMENTS));
-        createIndex(indicesUtils.getIndexName(workspaceId, IndexerMapping.INDEX_PARTS));
+        String version = newIndexVersion();
+        for (String type : INDEX_TYPES) {
+            createIndex(indicesUtils.getVersionedIndexName(workspaceId, type, version),
+                    indicesUtils.getIndexName(workspaceId, type));
+        }
+    }
+
+    /**
+     * Create new documents and parts indexes for a workspace being reindexed.
+     * They are only reached through the pending aliases until {@link #swapIndices(String, Map)} is called.
+     *
+     * @param workspaceId
+     * @return the names of the created indices, by type
+     * @throws IndexerRequestException
+     * @throws IndexerNotAvailableException
+     */
+    public Map<String, String> createPendingIndices(String workspaceId) throws IndexerRequestException, IndexerNotAvailableException {
+        String version = newIndexVersion();
+        Map<String, String> indices = new HashMap<>();
+        for (String type : INDEX_TYPES) {
+            String indexName = indicesUtils.getVersionedIndexName(workspaceId, type, version);
+            createIndex(indexName, indicesUtils.getPendingAliasName(indicesUtils.getIndexName(workspaceId, type)));
+            indices.put(type, indexName);
+        }
+        return indices;
+    }
+
+    /**
+     * Point the read aliases of a workspace to the given indices in a single atomic request, then delete
+     * the indices they replace
+     *
+     * @param workspaceId
+     * @param indices the new indices, by type
+     * @throws IndexerNotAvailableException
+     * @throws IndexerRequestException
+     */
+    public void swapIndices(String workspaceId, Map<String, String> indices) throws IndexerNotAvailableException, IndexerRequestException {
+        List<AliasMapping> mappings = new ArrayList<>();
+        List<String> previousIndices = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : indices.entrySet()) {
+            String alias = indicesUtils.getIndexName(workspaceId, entry.getKey());
+            for (String previousIndex : getAliasedIndices(alias)) {
+                if (previousIndex.equals(alias)) {
+                    // Index created before versioning, it has to be removed to create the alias
+                    mappings.add(new RemoveIndexMapping(previousIndex));
+                } else {
+                    mappings.add(new RemoveAliasMapping.Builder(previousIndex, alias).build());
+                    previousIndices.add(previousIndex);
+                }
+            }
+            mappings.add(new AddAliasMapping.Builder(entry.getValue(), alias).build());
+            mappings.add(new RemoveAliasMapping.Builder(entry.getValue(), indicesUtils.getPendingAliasName(alias)).build());
+        }
+
+        JestResult result;
+        try {
+            result = esClient.execute(new ModifyAliases.Builder(mappings).build());
+        } catch (IOException e) {
+            throw new IndexerNotAvailableException();
+        }
+        if (!result.isSucceeded()) {
+            LOGGER.log(Level.WARNING, "Cannot swap indices of workspace [" + workspaceId + "]: " + result.getErrorMessage());
+            throw new IndexerRequestException(result.getErrorMessage());
+        }
+
+        deleteIndices(previousIndices);
     }
 
     /**
-     *  Delete documents and parts indexes
+     *  Delete documents and parts indexes, including the ones being rebuilt
      *
      * @param workspaceId
      * @throws IndexerNotAvailableException
      * @throws IndexerRequestException
      */
     public void deleteIndices(String workspaceId) throws IndexerNotAvailableException, IndexerRequestException {
-        deleteIndex(indicesUtils.getIndexName(workspaceId, IndexerMapping.INDEX_DOCUMENTS));
-        deleteIndex(indicesUtils.getIndexName(workspaceId, IndexerMapping.INDEX_PARTS));
+        for (String type : INDEX_TYPES) {
+            String alias = indicesUtils.getIndexName(workspaceId, type);
+            deleteIndices(getAliasedIndices(alias));
+            deleteIndices(getPendingIndices(alias));
+        }
+    }
+
+    /**
+     * Delete the given physical indices
+     *
+     * @param indexNames
+     * @throws IndexerNotAvailableException
+     * @throws IndexerRequestException
+     */
+    public void deleteIndices(Collection<String> indexNames) throws IndexerNotAvailableException, IndexerRequestException {
+        for (String indexName : indexNames) {
+            deleteIndex(indexName);
+        }
+    }
+
+    /**
+     * Get the indices being rebuilt behind the given alias, which must receive the same writes
+     *
+     * @param indexName the alias name
+     * @return the physical index names, empty if no index is being rebuilt
+     * @throws IndexerNotAvailableException
+     */
+    public List<String> getPendingIndices(String indexName) throws IndexerNotAvailableException {
+        return getAliasedIndices(indicesUtils.getPendingAliasName(indexName));
     }
 
     /**
@@ -245,12 +345,36 @@ public class IndexManagerBean {
         }
     }
 
-    private void createIndex(String indexName) throws IndexerNotAvailableException, IndexerRequestException {
-        Settings settings = Settings.builder().build();
+    private List<String> getAliasedIndices(String alias) throws IndexerNotAvailableException {
         JestResult result;
-
         try {
-            result = esClient.execute(new CreateIndex.Builder(indexName).settings(settings.toString()).build());
+            result = esClient.execute(new GetAliases.Builder().addIndex(alias).build());
+        } catch (IOException e) {
+            throw new IndexerNotAvailableException();
+        }
+        List<String> indices = new ArrayList<>();
+        if (result.isSucceeded()) {
+            for (Map.Entry<String, JsonElement> entry : result.getJsonObject().entrySet()) {
+                indices.add(entry.getKey());
+            }
+        }
+        return indices;
+    }
+
+    private String newIndexVersion() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    private void createIndex(String indexName, String alias) throws IndexerNotAvailableException, IndexerRequestException {
+        JestResult result;
+
+        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
+            xcb.startObject()
+                    .startObject("aliases")
+                    .startObject(alias).endObject()
+                    .endObject()
+                    .endObject();
+            result = esClient.execute(new CreateIndex.Builder(indexName).payload(Strings.toString(xcb)).build());
         } catch (IOException e) {
             throw new IndexerNotAvailableException();
         }
@@ -277,4 +401,27 @@ public class IndexManagerBean {
         }
     }
 
+    /**
+     * Removal of a physical index, within an atomic aliases request
+     */
+    private static class RemoveIndexMapping extends AliasMapping {
+
+        RemoveIndexMapping(String indexName) {
+            indices = Collections.singletonList(indexName);
+        }
+
+        @Override
+        public String getType() {
+            return "remove_index";
+        }
+
+        @Override
+        public List<Map<String, Object>> getData() {
+            Map<String, Object> parameters = new HashMap<>();
+            parameters.put("index", indices.get(0));
+            Map<String, Object> action = new HashMap<>();
+            action.put(getType(), parameters);
+            return Collections.singletonList(action);
+        }
+    }
 }
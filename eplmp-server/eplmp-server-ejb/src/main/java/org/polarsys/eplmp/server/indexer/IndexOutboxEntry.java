@@ -0,0 +1,158 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import org.polarsys.eplmp.core.document.DocumentIterationKey;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Pending index operation, recorded in the same transaction as the change of the indexed item
+ * and drained by the {@link IndexOutboxWorker}.
+ *
+ * Several entries may exist for the same item, only the last operation is sent to the indexer.
+ */
+@Table(name = "INDEX_OUTBOX", indexes = {
+        @Index(name = "INDEX_OUTBOX_NEXT_ATTEMPT", columnList = "NEXTATTEMPTDATE")
+})
+@Entity
+@NamedQueries({
+        @NamedQuery(name = "IndexOutboxEntry.findReady", query = "SELECT e FROM IndexOutboxEntry e WHERE e.nextAttemptDate <= :now ORDER BY e.id"),
+        @NamedQuery(name = "IndexOutboxEntry.count", query = "SELECT COUNT(e) FROM IndexOutboxEntry e")
+})
+public class IndexOutboxEntry implements Serializable {
+
+    public enum ItemType {DOCUMENT, PART}
+
+    public enum Operation {INDEX, REMOVE}
+
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    private long id;
+
+    @Enumerated(EnumType.STRING)
+    private ItemType itemType;
+
+    @Enumerated(EnumType.STRING)
+    private Operation operation;
+
+    private String workspaceId;
+
+    /**
+     * Document master id or part number
+     */
+    private String itemId;
+
+    private String version;
+
+    private int iteration;
+
+    private int attempts;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date creationDate;
+
+    @Column(name = "NEXTATTEMPTDATE")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date nextAttemptDate;
+
+    public IndexOutboxEntry() {
+    }
+
+    public IndexOutboxEntry(DocumentIterationKey key, Operation operation) {
+        this(ItemType.DOCUMENT, operation, key.getWorkspaceId(), key.getDocumentMasterId(),
+                key.getDocumentRevisionVersion(), key.getIteration());
+    }
+
+    public IndexOutboxEntry(PartIterationKey key, Operation operation) {
+        this(ItemType.PART, operation, key.getWorkspaceId(), key.getPartMasterNumber(),
+                key.getPartRevisionVersion(), key.getIteration());
+    }
+
+    private IndexOutboxEntry(ItemType itemType, Operation operation, String workspaceId, String itemId,
+                             String version, int iteration) {
+        this.itemType = itemType;
+        this.operation = operation;
+        this.workspaceId = workspaceId;
+        this.itemId = itemId;
+        this.version = version;
+        this.iteration = iteration;
+        this.creationDate = new Date();
+        this.nextAttemptDate = creationDate;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ItemType getItemType() {
+        return itemType;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String getItemId() {
+        return itemId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Date nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    public DocumentIterationKey getDocumentIterationKey() {
+        return new DocumentIterationKey(workspaceId, itemId, version, iteration);
+    }
+
+    public PartIterationKey getPartIterationKey() {
+        return new PartIterationKey(workspaceId, itemId, version, iteration);
+    }
+
+    /**
+     * Entries sharing this key target the same indexed item and are coalesced
+     */
+    public String getItemKey() {
+        return itemType + "/" + workspaceId + "/" + itemId + "/" + version + "/" + iteration;
+    }
+}
@@ -0,0 +1,235 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import com.google.gson.Gson;
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Delete;
+import io.searchbox.core.Update;
+import org.polarsys.eplmp.core.exceptions.DocumentIterationNotFoundException;
+import org.polarsys.eplmp.core.exceptions.IndexerNotAvailableException;
+import org.polarsys.eplmp.core.exceptions.IndexerRequestException;
+import org.polarsys.eplmp.core.exceptions.PartIterationNotFoundException;
+import org.polarsys.eplmp.server.dao.DocumentRevisionDAO;
+import org.polarsys.eplmp.server.dao.IndexOutboxDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
+import org.polarsys.eplmp.server.indexer.util.IndicesUtils;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the pending index operations of the outbox to the indexer.
+ *
+ * Entries targeting the same item are coalesced: only the last operation is sent, built from the
+ * current state of the item. Operations are grouped in bulk requests limited by payload size.
+ * Failed operations are kept in the outbox and retried later with an exponential backoff.
+ *
+ * @see IndexOutboxWorker
+ */
+@Stateless(name = "IndexOutboxProcessor")
+public class IndexOutboxProcessor {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexOutboxProcessor.class.getName());
+
+    private static final long RETRY_BASE_DELAY = 10_000;
+    private static final long RETRY_MAX_DELAY = 3_600_000;
+
+    private static final Gson GSON = new Gson();
+
+
+    @Inject
+    private IndexOutboxDAO indexOutboxDAO;
+
+    @Inject
+    private DocumentRevisionDAO documentRevisionDAO;
+
+    @Inject
+    private PartIterationDAO partIterationDAO;
+
+    @Inject
+    private IndexerQueryBuilder indexerQueryBuilder;
+
+    @Inject
+    private IndexManagerBean indexManager;
+
+    @Inject
+    private IndicesUtils indicesUtils;
+
+    @Inject
+    private IndexerConfig config;
+
+    /**
+     * Process one batch of ready entries in its own transaction
+     *
+     * @return the number of entries read from the outbox, 0 when there is nothing left to send
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int processBatch() {
+        Date now = new Date();
+        List<IndexOutboxEntry> entries = indexOutboxDAO.findReadyEntries(now, config.getOutboxBatchSize());
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        // Coalesce entries per item, entries are sorted so the last one wins
+        Map<String, List<IndexOutboxEntry>> entriesByItem = new LinkedHashMap<>();
+        for (IndexOutboxEntry entry : entries) {
+            entriesByItem.computeIfAbsent(entry.getItemKey(), k -> new ArrayList<>()).add(entry);
+        }
+
+        Map<String, List<String>> pendingIndices = new HashMap<>();
+        Map<String, List<IndexOutboxEntry>> bulkItems = new HashMap<>();
+        Bulk.Builder bulk = new Bulk.Builder();
+        int bulkBytes = 0;
+
+        for (List<IndexOutboxEntry> itemEntries : entriesByItem.values()) {
+            IndexOutboxEntry last = itemEntries.get(itemEntries.size() - 1);
+            BulkableAction<?> action;
+            try {
+                action = createAction(last);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot build index request for " + last.getItemKey(), e);
+                retry(itemEntries, now);
+                continue;
+            }
+
+            if (action == null) {
+                // Nothing to send, the item does not exist anymore
+                indexOutboxDAO.removeEntries(itemEntries);
+                continue;
+            }
+
+            List<BulkableAction<?>> actions;
+            try {
+                actions = withPendingIndices(action, pendingIndices);
+            } catch (IndexerNotAvailableException e) {
+                LOGGER.log(Level.WARNING, "Indexer not available, operation postponed for " + last.getItemKey());
+                retry(itemEntries, now);
+                continue;
+            }
+
+            int actionBytes = actions.stream().mapToInt(IndicesUtils::getBulkActionSize).sum();
+            if (!bulkItems.isEmpty() && bulkBytes + actionBytes > config.getBulkMaxBytes()) {
+                sendBulk(bulk, bulkItems, now);
+                bulk = new Bulk.Builder();
+                bulkItems = new HashMap<>();
+                bulkBytes = 0;
+            }
+            bulk.addAction(actions);
+            bulkItems.put(getBulkItemKey(action.getIndex(), action.getId()), itemEntries);
+            bulkBytes += actionBytes;
+        }
+
+        if (!bulkItems.isEmpty()) {
+            sendBulk(bulk, bulkItems, now);
+        }
+
+        return entries.size();
+    }
+
+    private BulkableAction<?> createAction(IndexOutboxEntry entry) throws IOException {
+        boolean document = entry.getItemType() == IndexOutboxEntry.ItemType.DOCUMENT;
+        String id = indicesUtils.formatDocId(document ?
+                entry.getDocumentIterationKey().toString() : entry.getPartIterationKey().toString());
+
+        if (entry.getOperation() == IndexOutboxEntry.Operation.REMOVE) {
+            String indexName = indicesUtils.getIndexName(entry.getWorkspaceId(),
+                    document ? IndexerMapping.INDEX_DOCUMENTS : IndexerMapping.INDEX_PARTS);
+            return new Delete.Builder(id).index(indexName).type(IndexerMapping.TYPE).build();
+        }
+
+        try {
+            if (document) {
+                return indexerQueryBuilder.updateRequest(documentRevisionDAO.loadDocI(entry.getDocumentIterationKey())).build();
+            }
+            return indexerQueryBuilder.updateRequest(partIterationDAO.loadPartI(entry.getPartIterationKey(), "PartIteration.indexing")).build();
+        } catch (DocumentIterationNotFoundException | PartIterationNotFoundException e) {
+            LOGGER.log(Level.FINE, "Item removed before indexing: " + entry.getItemKey(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Apply the operation to the indices being rebuilt as well, so that they don't miss it
+     */
+    private List<BulkableAction<?>> withPendingIndices(BulkableAction<?> action, Map<String, List<String>> pendingIndices)
+            throws IndexerNotAvailableException {
+        List<String> indexNames = pendingIndices.get(action.getIndex());
+        if (indexNames == null) {
+            indexNames = indexManager.getPendingIndices(action.getIndex());
+            pendingIndices.put(action.getIndex(), indexNames);
+        }
+
+        List<BulkableAction<?>> actions = new ArrayList<>();
+        actions.add(action);
+        for (String indexName : indexNames) {
+            if (action instanceof Delete) {
+                actions.add(new Delete.Builder(action.getId()).index(indexName).type(IndexerMapping.TYPE).build());
+            } else {
+                actions.add(new Update.Builder(action.getData(GSON)).index(indexName).type(IndexerMapping.TYPE).id(action.getId()).build());
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Bulk results report the physical index, whereas actions target its alias. Both end with the type of items.
+     */
+    private String getBulkItemKey(String indexName, String id) {
+        return indexName.substring(indexName.lastIndexOf(IndexerMapping.INDEX_SEPARATOR) + 1) + "/" + id;
+    }
+
+    private void sendBulk(Bulk.Builder bulk, Map<String, List<IndexOutboxEntry>> bulkItems, Date now) {
+        BulkResult result;
+        try {
+            result = indexManager.sendBulk(bulk);
+        } catch (IndexerNotAvailableException | IndexerRequestException e) {
+            LOGGER.log(Level.WARNING, "Indexer not available, " + bulkItems.size() + " operations postponed");
+            bulkItems.values().forEach(itemEntries -> retry(itemEntries, now));
+            return;
+        }
+
+        for (BulkResult.BulkResultItem failedItem : result.getFailedItems()) {
+            List<IndexOutboxEntry> itemEntries = bulkItems.remove(getBulkItemKey(failedItem.index, failedItem.id));
+            if (itemEntries != null) {
+                LOGGER.log(Level.WARNING, "Index operation failed for " + failedItem.id + ": " + failedItem.error);
+                retry(itemEntries, now);
+            }
+        }
+
+        bulkItems.values().forEach(indexOutboxDAO::removeEntries);
+    }
+
+    /**
+     * Keep the last entry of the item only, and postpone it
+     */
+    private void retry(List<IndexOutboxEntry> itemEntries, Date now) {
+        IndexOutboxEntry last = itemEntries.get(itemEntries.size() - 1);
+        indexOutboxDAO.removeEntries(itemEntries.subList(0, itemEntries.size() - 1));
+
+        int attempts = itemEntries.stream().mapToInt(IndexOutboxEntry::getAttempts).max().orElse(0) + 1;
+        long delay = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << Math.min(attempts - 1, 20));
+        last.setAttempts(attempts);
+        last.setNextAttemptDate(new Date(now.getTime() + delay));
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import javax.ejb.*;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Drains the index outbox periodically
+ *
+ * @see IndexOutboxProcessor
+ */
+@Singleton(name = "IndexOutboxWorker")
+@Lock(LockType.READ)
+public class IndexOutboxWorker {
+
+    private static final Logger LOGGER = Logger.getLogger(IndexOutboxWorker.class.getName());
+
+    @Inject
+    private IndexOutboxProcessor indexOutboxProcessor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Schedule(hour = "*", minute = "*", second = "*/5", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void drain() {
+        // Skip this tick if the previous one is still sending
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int processed;
+            do {
+                processed = indexOutboxProcessor.processBatch();
+            } while (processed > 0);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error while draining the index outbox", e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
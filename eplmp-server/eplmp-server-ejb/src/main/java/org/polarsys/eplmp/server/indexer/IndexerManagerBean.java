@@ -19,19 +19,17 @@ import org.elasticsearch.index.query.QueryBuilder;
 import org.polarsys.eplmp.core.common.Account;
 import org.polarsys.eplmp.core.common.Workspace;
 import org.polarsys.eplmp.core.document.DocumentIteration;
-import org.polarsys.eplmp.core.document.DocumentMaster;
 import org.polarsys.eplmp.core.document.DocumentRevision;
 import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.product.PartIteration;
-import org.polarsys.eplmp.core.product.PartMaster;
 import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
 import org.polarsys.eplmp.core.query.PartSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.*;
 import org.polarsys.eplmp.i18n.PropertiesLoader;
-import org.polarsys.eplmp.server.dao.DocumentMasterDAO;
-import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.dao.IndexOutboxDAO;
 import org.polarsys.eplmp.server.dao.WorkspaceDAO;
 import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
 import org.polarsys.eplmp.server.indexer.util.IndicesUtils;
@@ -40,12 +38,10 @@ import javax.annotation.security.DeclareRoles;
 import javax.annotation.security.RolesAllowed;
 import javax.ejb.*;
 import javax.inject.Inject;
-import javax.transaction.Transactional;
 import java.io.IOException;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 /**
  * @author Morgan Guimard
@@ -59,13 +55,10 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     private JestClient esClient;
 
     @Inject
-    private DocumentMasterDAO documentMasterDAO;
-
-    @Inject
-    private PartMasterDAO partMasterDAO;
+    private WorkspaceDAO workspaceDAO;
 
     @Inject
-    private WorkspaceDAO workspaceDAO;
+    private IndexOutboxDAO indexOutboxDAO;
 
     @Inject
     private IAccountManagerLocal accountManager;
@@ -91,6 +84,9 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     @Inject
     private IndicesUtils indicesUtils;
 
+    @Inject
+    private WorkspaceIndexerBean workspaceIndexer;
+
     private static final String I18N_CONF = "/org/polarsys/eplmp/core/i18n/LocalStrings";
     private static final Logger LOGGER = Logger.getLogger(IndexerManagerBean.class.getName());
 
@@ -149,29 +145,15 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     }
 
     /**
-     * Index the given document iteration
+     * Index the given document iteration.
+     * The operation is recorded in the outbox within the current transaction, and sent later.
      *
      * @param documentIteration document to index
      */
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexDocumentIteration(DocumentIteration documentIteration) {
-        try {
-            Update.Builder update = indexerQueryBuilder.updateRequest(documentIteration);
-            DocumentResult execute = indexManager.executeUpdate(update);
-
-            if (execute.isSucceeded()) {
-                LOGGER.log(Level.INFO, "Document iteration [" + documentIteration.getKey() + "] indexed");
-            } else {
-                LOGGER.log(Level.WARNING, "The document " + documentIteration.getKey() + " cannot be indexed : \n" + execute.getErrorMessage());
-            }
-
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Cannot build request for document: " + documentIteration.getKey(), e);
-        } catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.WARNING, "The document " + documentIteration.getKey() + " cannot be indexed.", e);
-        }
+        indexOutboxDAO.createEntry(new IndexOutboxEntry(documentIteration.getKey(), IndexOutboxEntry.Operation.INDEX));
     }
 
     /**
@@ -180,44 +162,23 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
      * @param documentIterations documents to index
      */
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexDocumentIterations(List<DocumentIteration> documentIterations) {
-        Bulk.Builder bulk = new Bulk.Builder();
-
         documentIterations.stream()
                 .filter(documentIteration -> documentIteration.getCheckInDate() != null)
-                .forEach(documentIteration -> addToBulk(documentIteration, bulk));
-        try {
-            indexManager.sendBulk(bulk);
-        }  catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.FINE, null, e);
-        }
+                .forEach(this::indexDocumentIteration);
     }
 
     /**
-     * Index the given part iteration
+     * Index the given part iteration.
+     * The operation is recorded in the outbox within the current transaction, and sent later.
      *
      * @param partIteration part to index
      */
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexPartIteration(PartIteration partIteration) {
-        try {
-            Update.Builder update = indexerQueryBuilder.updateRequest(partIteration);
-            DocumentResult execute = indexManager.executeUpdate(update);
-
-            if (execute.isSucceeded()) {
-                LOGGER.log(Level.INFO, "Part iteration [" + partIteration.getKey() + "] indexed");
-            } else {
-                LOGGER.log(Level.WARNING, "The part " + partIteration.getKey() + " cannot be indexed : \n" + execute.getErrorMessage());
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Cannot build request for part: " + partIteration.getKey(), e);
-        } catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.WARNING, "The part " + partIteration.getKey() + " cannot be indexed.", e);
-        }
+        indexOutboxDAO.createEntry(new IndexOutboxEntry(partIteration.getKey(), IndexOutboxEntry.Operation.INDEX));
     }
 
     /**
@@ -226,20 +187,11 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
      * @param partIterations parts to index
      */
     @Override
-    @Asynchronous
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
     public void indexPartIterations(List<PartIteration> partIterations) {
-        Bulk.Builder bulk = new Bulk.Builder();
-
         partIterations.stream()
                 .filter(partIteration -> partIteration.getCheckInDate() != null)
-                .forEach(partIteration -> addToBulk(partIteration, bulk));
-
-        try {
-            indexManager.sendBulk(bulk);
-        } catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.FINE, null, e);
-        }
+                .forEach(this::indexPartIteration);
     }
 
     /**
@@ -249,14 +201,8 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
      */
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
-    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
     public void removeDocumentIterationFromIndex(DocumentIteration documentIteration) {
-        try {
-            String indexName = indicesUtils.getIndexName(documentIteration.getWorkspaceId(), IndexerMapping.INDEX_DOCUMENTS);
-            indexManager.executeRemove(indexName, indicesUtils.formatDocId(documentIteration.getKey().toString()));
-        } catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.WARNING, "Cannot delete document " + documentIteration + ": The Elasticsearch cluster does not seem to respond");
-        }
+        indexOutboxDAO.createEntry(new IndexOutboxEntry(documentIteration.getKey(), IndexOutboxEntry.Operation.REMOVE));
     }
 
     /**
@@ -266,14 +212,8 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
      */
     @Override
     @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
-    @TransactionAttribute(value = TransactionAttributeType.REQUIRES_NEW)
     public void removePartIterationFromIndex(PartIteration partIteration) {
-        try {
-            String indexName = indicesUtils.getIndexName(partIteration.getWorkspaceId(), IndexerMapping.INDEX_PARTS);
-            indexManager.executeRemove(indexName, indicesUtils.formatDocId(partIteration.getKey().toString()));
-        } catch (IndexerNotAvailableException | IndexerRequestException e) {
-            LOGGER.log(Level.WARNING, "Cannot delete part iteration " + partIteration + ": The Elasticsearch cluster does not seem to respond");
-        }
+        indexOutboxDAO.createEntry(new IndexOutboxEntry(partIteration.getKey(), IndexOutboxEntry.Operation.REMOVE));
     }
 
     /**
@@ -319,6 +259,49 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
         return indexerResultsMapper.processSearchResult(searchResult, partSearchQuery);
     }
 
+    /**
+     * Run search on document revisions, and build the results from the index only.
+     * Access rights on the documents are not checked, except the home folders of other users.
+     *
+     * @param documentSearchQuery
+     * @param login the login of the user running the search
+     * @param from
+     * @param size
+     * @return one summary per matching document revision
+     * @throws IndexerRequestException
+     * @throws IndexerNotAvailableException
+     */
+    @Override
+    @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
+    public List<SearchHitSummary> searchDocumentSummaries(DocumentSearchQuery documentSearchQuery, String login, int from, int size)
+            throws IndexerRequestException, IndexerNotAvailableException {
+        String indexName = indicesUtils.getIndexName(documentSearchQuery.getWorkspaceId(), IndexerMapping.INDEX_DOCUMENTS);
+        QueryBuilder query = indexerQueryBuilder.getSearchQueryBuilder(documentSearchQuery, login);
+        SearchResult searchResult = indexManager.executeSearch(indexName, query, from, size);
+        return indexerResultsMapper.processDocumentSummaries(searchResult);
+    }
+
+    /**
+     * Run search on part revisions, and build the results from the index only.
+     * Access rights on the parts are not checked.
+     *
+     * @param partSearchQuery
+     * @param from
+     * @param size
+     * @return one summary per matching part revision
+     * @throws IndexerRequestException
+     * @throws IndexerNotAvailableException
+     */
+    @Override
+    @RolesAllowed({UserGroupMapping.REGULAR_USER_ROLE_ID})
+    public List<SearchHitSummary> searchPartSummaries(PartSearchQuery partSearchQuery, int from, int size)
+            throws IndexerRequestException, IndexerNotAvailableException {
+        String indexName = indicesUtils.getIndexName(partSearchQuery.getWorkspaceId(), IndexerMapping.INDEX_PARTS);
+        QueryBuilder query = indexerQueryBuilder.getSearchQueryBuilder(partSearchQuery);
+        SearchResult searchResult = indexManager.executeSearch(indexName, query, from, size);
+        return indexerResultsMapper.processPartSummaries(searchResult);
+    }
+
     /**
      * Index all data from workspaces
      *
@@ -359,30 +342,21 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
     }
 
 
-    @Asynchronous
+    /**
+     * Rebuild the indices of a workspace. New indices are filled while searches still use the current ones,
+     * and receive the concurrent updates as well. They replace the current ones once complete.
+     */
     private void indexWorkspace(Account account, String workspaceId) {
+        Map<String, String> pendingIndices = null;
         try {
-            // force recreate
-            if(indexManager.indicesExist(workspaceId)) {
-                indexManager.deleteIndices(workspaceId);
-            }
-
-            indexManager.createIndices(workspaceId);
+            pendingIndices = indexManager.createPendingIndices(workspaceId);
 
-            List<BulkResult> bulkResults = new ArrayList<>();
+            List<String> errors = workspaceIndexer.indexWorkspace(workspaceId, pendingIndices);
 
-            bulkResults.addAll(indexWorkspaceDocuments(workspaceId));
-            bulkResults.addAll(indexWorkspaceParts(workspaceId));
+            indexManager.swapIndices(workspaceId, pendingIndices);
+            pendingIndices = null;
 
-            List<BulkResult.BulkResultItem> failedItems = bulkResults.stream().flatMap(bulkResult -> bulkResult.getFailedItems().stream())
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
-            List<String> errors = bulkResults.stream().map(JestResult::getErrorMessage)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-
-            if(failedItems.isEmpty() && errors.isEmpty()){
+            if(errors.isEmpty()){
                 mailer.sendBulkIndexationSuccess(account);
             }else{
                 String failureMessage = String.join(", ", errors);
@@ -392,73 +366,18 @@ public class IndexerManagerBean implements IIndexerManagerLocal {
 
         } catch (IndexerRequestException | IndexerNotAvailableException e) {
             LOGGER.log(Level.WARNING, "The workspace " + workspaceId + " cannot be indexed.", e);
+        } finally {
+            if (pendingIndices != null) {
+                dropPendingIndices(workspaceId, pendingIndices.values());
+            }
         }
     }
 
-
-    private List<BulkResult> indexWorkspaceParts(String workspaceId) throws IndexerRequestException, IndexerNotAvailableException {
-
-        Long countByWorkspace = partMasterDAO.getCountByWorkspace(workspaceId);
-        Integer limit = 1000;
-        int numberOfPage = (int) Math.ceil(countByWorkspace.doubleValue() / limit.doubleValue());
-
-        List<BulkResult> results = new ArrayList<>();
-        for (int pageIndex = 0; pageIndex < numberOfPage; pageIndex++) {
-            int offset = pageIndex * limit;
-
-            Bulk.Builder bulk = new Bulk.Builder();
-            List<PartMaster> paginatedByWorkspace = partMasterDAO.getPaginatedByWorkspace(workspaceId, limit, offset);
-
-            paginatedByWorkspace.stream()
-                    .flatMap(partM -> partM.getPartRevisions().stream().map(PartRevision::getPartIterations))
-                    .flatMap(Collection::stream).forEach(partIteration -> addToBulk(partIteration, bulk));
-
-            BulkResult bulkResult = indexManager.sendBulk(bulk);
-            results.add(bulkResult);
-        }
-
-        return results;
-    }
-
-    private List<BulkResult> indexWorkspaceDocuments(String workspaceId) throws IndexerRequestException, IndexerNotAvailableException {
-
-        Long countByWorkspace = documentMasterDAO.getCountByWorkspace(workspaceId);
-        Integer limit = 1000;
-        int numberOfPage = (int) Math.ceil(countByWorkspace.doubleValue() / limit.doubleValue());
-
-        List<BulkResult> results = new ArrayList<>();
-        for (int pageIndex = 0; pageIndex < numberOfPage; pageIndex++) {
-            int offset = pageIndex * limit;
-
-            Bulk.Builder bulk = new Bulk.Builder();
-            List<DocumentMaster> paginatedByWorkspace = documentMasterDAO.getPaginatedByWorkspace(workspaceId, limit, offset);
-
-            paginatedByWorkspace.stream()
-                    .flatMap(docM -> docM.getDocumentRevisions().stream().map(DocumentRevision::getDocumentIterations))
-                    .flatMap(Collection::stream).forEach(documentIteration -> addToBulk(documentIteration, bulk));
-
-            BulkResult bulkResult = indexManager.sendBulk(bulk);
-            results.add(bulkResult);
-        }
-
-        return results;
-    }
-
-    private void addToBulk(DocumentIteration documentIteration, Bulk.Builder bulk) {
-        try {
-            bulk.addAction(indexerQueryBuilder.updateRequest(documentIteration).build());
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Failed to construct update query for document: " + documentIteration.getKey() + " \n " + e.getMessage());
-            LOGGER.log(Level.FINE, null, e);
-        }
-    }
-
-    private void addToBulk(PartIteration partIteration, Bulk.Builder bulk) {
+    private void dropPendingIndices(String workspaceId, Collection<String> pendingIndices) {
         try {
-            bulk.addAction(indexerQueryBuilder.updateRequest(partIteration).build());
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Failed to construct update query for part: " + partIteration.getKey() + " \n " + e.getMessage());
-            LOGGER.log(Level.FINE, null, e);
+            indexManager.deleteIndices(pendingIndices);
+        } catch (IndexerRequestException | IndexerNotAvailableException e) {
+            LOGGER.log(Level.WARNING, "Cannot delete indices " + pendingIndices + " of workspace [" + workspaceId + "]. Consider deleting them manually.", e);
         }
     }
 
@@ -63,7 +63,18 @@ public class IndexerQueryBuilder {
      * @throws IOException
      */
     public Update.Builder updateRequest(DocumentIteration documentIteration) throws IOException {
-        Map<String, String> contentInputs = textExtractor.getContentInputs(documentIteration.getAttachedFiles());
+        return updateRequest(documentIteration, textExtractor.getContentInputs(documentIteration.getAttachedFiles()));
+    }
+
+    /**
+     * Creates an index request for given document, with the already extracted content of its files
+     *
+     * @param documentIteration
+     * @param contentInputs
+     * @return
+     * @throws IOException
+     */
+    public Update.Builder updateRequest(DocumentIteration documentIteration, Map<String, String> contentInputs) throws IOException {
         try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
             xcb.startObject()
                     .field("doc_as_upsert", true)
@@ -84,7 +95,18 @@ public class IndexerQueryBuilder {
      * @throws IOException
      */
     public Update.Builder updateRequest(PartIteration partIteration) throws IOException {
-        Map<String, String> contentInputs = textExtractor.getContentInputs(partIteration.getAttachedFiles());
+        return updateRequest(partIteration, textExtractor.getContentInputs(partIteration.getAttachedFiles()));
+    }
+
+    /**
+     * Creates an index request for given part, with the already extracted content of its files
+     *
+     * @param partIteration
+     * @param contentInputs
+     * @return
+     * @throws IOException
+     */
+    public Update.Builder updateRequest(PartIteration partIteration, Map<String, String> contentInputs) throws IOException {
         try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
             xcb.startObject()
                     .field("doc_as_upsert", true)
@@ -98,6 +120,59 @@ public class IndexerQueryBuilder {
         }
     }
 
+    /**
+     * Creates a request adding given document to the given index.
+     * An existing entry is left untouched, so that a concurrent update is not overwritten with older data.
+     *
+     * @param documentIteration
+     * @param contentInputs
+     * @param indexName
+     * @return
+     * @throws IOException
+     */
+    public Update.Builder insertRequest(DocumentIteration documentIteration, Map<String, String> contentInputs, String indexName) throws IOException {
+        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
+            startInsert(xcb);
+            EntityMapper.documentIterationToJSON(xcb, documentIteration, contentInputs);
+            xcb.endObject().endObject();
+            return new Update.Builder(Strings.toString(xcb))
+                    .index(indexName)
+                    .type(IndexerMapping.TYPE)
+                    .id(indicesUtils.formatDocId(documentIteration.getKey().toString()));
+        }
+    }
+
+    /**
+     * Creates a request adding given part to the given index.
+     * An existing entry is left untouched, so that a concurrent update is not overwritten with older data.
+     *
+     * @param partIteration
+     * @param contentInputs
+     * @param indexName
+     * @return
+     * @throws IOException
+     */
+    public Update.Builder insertRequest(PartIteration partIteration, Map<String, String> contentInputs, String indexName) throws IOException {
+        try (XContentBuilder xcb = XContentFactory.jsonBuilder()) {
+            startInsert(xcb);
+            EntityMapper.partIterationToJSON(xcb, partIteration, contentInputs);
+            xcb.endObject().endObject();
+            return new Update.Builder(Strings.toString(xcb))
+                    .index(indexName)
+                    .type(IndexerMapping.TYPE)
+                    .id(indicesUtils.formatDocId(partIteration.getKey().toString()));
+        }
+    }
+
+    private void startInsert(XContentBuilder xcb) throws IOException {
+        xcb.startObject()
+                .startObject("script")
+                .field("source", "ctx.op = 'none'")
+                .field("lang", "painless")
+                .endObject()
+                .startObject("upsert");
+    }
+
 
     /**
      * Create the search query builder from given document search query
@@ -112,6 +187,27 @@ public class IndexerQueryBuilder {
         return boolQuery;
     }
 
+    /**
+     * Create the search query builder from given document search query, excluding the documents
+     * stored in the home folder of other users. Documents indexed before the folder owner was added to the mapping
+     * are kept unless they are stored at the root of a home folder, until the workspace is reindexed.
+     *
+     * @param documentSearchQuery
+     * @param login the login of the user running the search
+     * @return
+     */
+    public QueryBuilder getSearchQueryBuilder(DocumentSearchQuery documentSearchQuery, String login) {
+        BoolQueryBuilder boolQuery = (BoolQueryBuilder) getSearchQueryBuilder(documentSearchQuery);
+        BoolQueryBuilder notIndexedOwner = QueryBuilders.boolQuery()
+                .mustNot(QueryBuilders.existsQuery(IndexerMapping.FOLDER_OWNER_KEY))
+                .mustNot(QueryBuilders.prefixQuery(IndexerMapping.FOLDER_KEY, "~"));
+        boolQuery.filter(QueryBuilders.boolQuery()
+                .should(QueryBuilders.termsQuery(IndexerMapping.FOLDER_OWNER_KEY, "", login))
+                .should(notIndexedOwner)
+                .minimumShouldMatch(1));
+        return boolQuery;
+    }
+
     /**
      * Create the search query builder from given part search query
      *
@@ -13,21 +13,24 @@
 package org.polarsys.eplmp.server.indexer;
 
 import io.searchbox.core.SearchResult;
+import org.polarsys.eplmp.core.document.DocumentIteration;
 import org.polarsys.eplmp.core.document.DocumentIterationKey;
 import org.polarsys.eplmp.core.document.DocumentRevision;
 import org.polarsys.eplmp.core.document.DocumentRevisionKey;
-import org.polarsys.eplmp.core.exceptions.DocumentRevisionNotFoundException;
+import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartIterationKey;
 import org.polarsys.eplmp.core.product.PartRevision;
 import org.polarsys.eplmp.core.product.PartRevisionKey;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
 import org.polarsys.eplmp.core.query.PartSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.server.dao.DocumentRevisionDAO;
 import org.polarsys.eplmp.server.dao.PartRevisionDAO;
 import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
 
 import javax.ejb.Stateless;
 import javax.inject.Inject;
+import javax.xml.bind.DatatypeConverter;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -52,103 +55,172 @@ public class IndexerResultsMapper {
     }
 
     /**
-     * Map results from elasticsearch to document revisions
+     * Map results from elasticsearch to document revisions, in the order of the hits
      *
      * @param searchResult
      * @param documentSearchQuery
      * @return
      */
     public List<DocumentRevision> processSearchResult(SearchResult searchResult, DocumentSearchQuery documentSearchQuery) {
-        List<SearchResult.Hit<Map, Void>> hits = searchResult.getHits(Map.class);
-        Set<DocumentIterationKey> documentIterationKeys = new HashSet<>();
-
-        if (hits != null) {
-            for (SearchResult.Hit<Map, Void> hit : hits) {
-                Map<?, ?> source = hit.source;
-                documentIterationKeys.add(getDocumentIterationKey(source));
-            }
+        List<DocumentIterationKey> documentIterationKeys = new ArrayList<>();
+        for (Map<?, ?> source : getSources(searchResult)) {
+            documentIterationKeys.add(getDocumentIterationKey(source));
         }
 
         LOGGER.log(Level.INFO, "Results: " + documentIterationKeys.size());
-        return documentIterationKeysToDocumentRevisions(documentSearchQuery.isFetchHeadOnly(), documentIterationKeys);
+        return documentIterationKeysToDocumentRevisions(documentSearchQuery.getWorkspaceId(), documentSearchQuery.isFetchHeadOnly(), documentIterationKeys);
     }
 
     /**
-     * Map results from elasticsearch to part revisions
+     * Map results from elasticsearch to part revisions, in the order of the hits
      *
      * @param searchResult
      * @param partSearchQuery
      * @return
      */
     public List<PartRevision> processSearchResult(SearchResult searchResult, PartSearchQuery partSearchQuery) {
-        List<SearchResult.Hit<Map, Void>> hits = searchResult.getHits(Map.class);
-        Set<PartIterationKey> partIterationKeys = new HashSet<>();
+        List<PartIterationKey> partIterationKeys = new ArrayList<>();
+        for (Map<?, ?> source : getSources(searchResult)) {
+            partIterationKeys.add(getPartIterationKey(source));
+        }
+
+        LOGGER.log(Level.INFO, "Results: " + partIterationKeys.size());
+        return partIterationKeysToPartRevisions(partSearchQuery.getWorkspaceId(), partSearchQuery.isFetchHeadOnly(), partIterationKeys);
+    }
+
+    /**
+     * Map results from elasticsearch to document summaries, without reading the database.
+     * One summary is returned per revision, for its best matching iteration.
+     *
+     * @param searchResult
+     * @return
+     */
+    public List<SearchHitSummary> processDocumentSummaries(SearchResult searchResult) {
+        Map<DocumentRevisionKey, SearchHitSummary> summaries = new LinkedHashMap<>();
+        for (Map<?, ?> source : getSources(searchResult)) {
+            DocumentIterationKey key = getDocumentIterationKey(source);
+            summaries.computeIfAbsent(key.getDocumentRevision(), k -> {
+                SearchHitSummary summary = new SearchHitSummary(key.getWorkspaceId(), key.getDocumentMasterId(), key.getDocumentRevisionVersion(), key.getIteration());
+                summary.setTitle(extractOptionalValue(source, IndexerMapping.TITLE_KEY));
+                fillSummary(summary, source);
+                return summary;
+            });
+        }
+        return new ArrayList<>(summaries.values());
+    }
 
+    /**
+     * Map results from elasticsearch to part summaries, without reading the database.
+     * One summary is returned per revision, for its best matching iteration.
+     *
+     * @param searchResult
+     * @return
+     */
+    public List<SearchHitSummary> processPartSummaries(SearchResult searchResult) {
+        Map<PartRevisionKey, SearchHitSummary> summaries = new LinkedHashMap<>();
+        for (Map<?, ?> source : getSources(searchResult)) {
+            PartIterationKey key = getPartIterationKey(source);
+            summaries.computeIfAbsent(key.getPartRevision(), k -> {
+                SearchHitSummary summary = new SearchHitSummary(key.getWorkspaceId(), key.getPartMasterNumber(), key.getPartRevisionVersion(), key.getIteration());
+                summary.setTitle(extractOptionalValue(source, IndexerMapping.PART_NAME_KEY));
+                fillSummary(summary, source);
+                return summary;
+            });
+        }
+        return new ArrayList<>(summaries.values());
+    }
+
+    private List<Map<?, ?>> getSources(SearchResult searchResult) {
+        List<SearchResult.Hit<Map, Void>> hits = searchResult.getHits(Map.class);
+        List<Map<?, ?>> sources = new ArrayList<>();
         if (hits != null) {
             for (SearchResult.Hit<Map, Void> hit : hits) {
-                Map<?, ?> source = hit.source;
-                partIterationKeys.add(getPartIterationKey(source));
+                sources.add(hit.source);
             }
         }
-
-        LOGGER.log(Level.INFO, "Results: " + partIterationKeys.size());
-        return partIterationKeysToPartRevisions(partSearchQuery.isFetchHeadOnly(), partIterationKeys);
+        return sources;
     }
 
-    private List<DocumentRevision> documentIterationKeysToDocumentRevisions(boolean fetchHeadOnly, Set<DocumentIterationKey> documentIterationKeys) {
-        Set<DocumentRevision> documentRevisions = new HashSet<>();
+    /**
+     * Load the revisions of the hits with a single query, and keep the order of the hits
+     */
+    private List<DocumentRevision> documentIterationKeysToDocumentRevisions(String workspaceId, boolean fetchHeadOnly, List<DocumentIterationKey> documentIterationKeys) {
+        if (documentIterationKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<DocumentRevisionKey> documentRevisionKeys = new HashSet<>();
+        for (DocumentIterationKey documentIterationKey : documentIterationKeys) {
+            documentRevisionKeys.add(documentIterationKey.getDocumentRevision());
+        }
+
+        Map<DocumentRevisionKey, DocumentRevision> loaded = new HashMap<>();
+        for (DocumentRevision documentRevision : documentRevisionDAO.findDocRsByKeys(workspaceId, documentRevisionKeys)) {
+            loaded.put(documentRevision.getKey(), documentRevision);
+        }
 
+        Map<DocumentRevisionKey, DocumentRevision> documentRevisions = new LinkedHashMap<>();
         for (DocumentIterationKey documentIterationKey : documentIterationKeys) {
-            DocumentRevision documentRevision = getDocumentRevision(documentIterationKey.getDocumentRevision());
-            if (documentRevision != null && !documentRevisions.contains(documentRevision)) {
-                if (fetchHeadOnly) {
-                    if (documentRevision.getLastCheckedInIteration().getKey().equals(documentIterationKey)) {
-                        documentRevisions.add(documentRevision);
-                    }
-                } else {
-                    documentRevisions.add(documentRevision);
-                }
+            DocumentRevisionKey documentRevisionKey = documentIterationKey.getDocumentRevision();
+            DocumentRevision documentRevision = loaded.get(documentRevisionKey);
+            if (documentRevision == null) {
+                LOGGER.log(Level.INFO, "Cannot infer document revision from key [" + documentRevisionKey + "]");
+            } else if (!documentRevisions.containsKey(documentRevisionKey)
+                    && (!fetchHeadOnly || isLastCheckedInIteration(documentRevision.getLastCheckedInIteration(), documentIterationKey))) {
+                documentRevisions.put(documentRevisionKey, documentRevision);
             }
         }
 
-        return new ArrayList<>(documentRevisions);
+        return new ArrayList<>(documentRevisions.values());
     }
 
-    private List<PartRevision> partIterationKeysToPartRevisions(boolean fetchHeadOnly, Set<PartIterationKey> partIterationKeys) {
-        Set<PartRevision> partRevisions = new HashSet<>();
+    /**
+     * Load the revisions of the hits with a single query, and keep the order of the hits
+     */
+    private List<PartRevision> partIterationKeysToPartRevisions(String workspaceId, boolean fetchHeadOnly, List<PartIterationKey> partIterationKeys) {
+        if (partIterationKeys.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<PartRevisionKey> partRevisionKeys = new HashSet<>();
+        for (PartIterationKey partIterationKey : partIterationKeys) {
+            partRevisionKeys.add(partIterationKey.getPartRevision());
+        }
+
+        Map<PartRevisionKey, PartRevision> loaded = new HashMap<>();
+        for (PartRevision partRevision : partRevisionDAO.findPartRsByKeys(workspaceId, partRevisionKeys)) {
+            loaded.put(partRevision.getKey(), partRevision);
+        }
 
+        Map<PartRevisionKey, PartRevision> partRevisions = new LinkedHashMap<>();
         for (PartIterationKey partIterationKey : partIterationKeys) {
-            PartRevision partRevision = getPartRevision(partIterationKey.getPartRevision());
-            if (partRevision != null && !partRevisions.contains(partRevision)) {
-                if (fetchHeadOnly) {
-                    if (partRevision.getLastCheckedInIteration().getKey().equals(partIterationKey)) {
-                        partRevisions.add(partRevision);
-                    }
-                } else {
-                    partRevisions.add(partRevision);
-                }
+            PartRevisionKey partRevisionKey = partIterationKey.getPartRevision();
+            PartRevision partRevision = loaded.get(partRevisionKey);
+            if (partRevision == null) {
+                LOGGER.log(Level.INFO, "Cannot infer part revision from key [" + partRevisionKey + "]");
+            } else if (!partRevisions.containsKey(partRevisionKey)
+                    && (!fetchHeadOnly || isLastCheckedInIteration(partRevision.getLastCheckedInIteration(), partIterationKey))) {
+                partRevisions.put(partRevisionKey, partRevision);
             }
         }
 
-        return new ArrayList<>(partRevisions);
+        return new ArrayList<>(partRevisions.values());
     }
 
-    private DocumentRevision getDocumentRevision(DocumentRevisionKey documentRevisionKey) {
-        try {
-            return documentRevisionDAO.loadDocR(documentRevisionKey);
-        } catch (DocumentRevisionNotFoundException e) {
-            LOGGER.log(Level.INFO, "Cannot infer document revision from key [" + documentRevisionKey + "]", e);
-            return null;
-        }
+    private boolean isLastCheckedInIteration(DocumentIteration lastCheckedInIteration, DocumentIterationKey documentIterationKey) {
+        return lastCheckedInIteration != null && lastCheckedInIteration.getKey().equals(documentIterationKey);
     }
 
-    private PartRevision getPartRevision(PartRevisionKey partRevisionKey) {
-        PartRevision partRevision = partRevisionDAO.loadPartR(partRevisionKey);
+    private boolean isLastCheckedInIteration(PartIteration lastCheckedInIteration, PartIterationKey partIterationKey) {
+        return lastCheckedInIteration != null && lastCheckedInIteration.getKey().equals(partIterationKey);
+    }
 
-        if (partRevision == null) {
-            LOGGER.log(Level.INFO, "Cannot infer part revision from key [" + partRevisionKey + "]");
-        }
-        return partRevision;
+    private void fillSummary(SearchHitSummary summary, Map<?, ?> source) {
+        summary.setType(extractOptionalValue(source, IndexerMapping.TYPE_KEY));
+        summary.setAuthorLogin(extractOptionalValue(source, IndexerMapping.AUTHOR_LOGIN_KEY));
+        summary.setAuthorName(extractOptionalValue(source, IndexerMapping.AUTHOR_NAME_KEY));
+        summary.setCreationDate(extractDate(source, IndexerMapping.CREATION_DATE_KEY));
+        summary.setModificationDate(extractDate(source, IndexerMapping.MODIFICATION_DATE_KEY));
     }
 
     private DocumentIterationKey getDocumentIterationKey(Map<?, ?> source) {
@@ -169,6 +241,24 @@ public class IndexerResultsMapper {
         );
     }
 
+    private String extractOptionalValue(Map<?, ?> source, String key) {
+        Object ret = source.get(key);
+        return ret == null ? null : extractValue(source, key);
+    }
+
+    private Date extractDate(Map<?, ?> source, String key) {
+        String value = extractOptionalValue(source, key);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return DatatypeConverter.parseDateTime(value).getTime();
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.FINE, "Cannot parse date [" + value + "]", e);
+            return null;
+        }
+    }
+
     private String extractValue(Map<?, ?> source, String key) {
         Object ret = source.get(key);
         if (ret instanceof List) {
@@ -11,57 +11,82 @@
 
 package org.polarsys.eplmp.server.indexer;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.hslf.extractor.PowerPointExtractor;
-import org.apache.poi.hssf.extractor.ExcelExtractor;
-import org.apache.poi.hwpf.extractor.WordExtractor;
-import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
-import org.apache.poi.poifs.filesystem.POIFSFileSystem;
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.xslf.extractor.XSLFPowerPointExtractor;
-import org.apache.poi.xslf.usermodel.XMLSlideShow;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument;
-import org.apache.xmlbeans.XmlException;
 import org.polarsys.eplmp.core.common.BinaryResource;
 import org.polarsys.eplmp.core.exceptions.StorageException;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import org.polarsys.eplmp.core.util.HashUtils;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.extractors.BoundedInputStream;
+import org.polarsys.eplmp.server.indexer.extractors.BoundedWriter;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
 import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.inject.Any;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /** *
  * Class responsible for document to string conversion
  *
+ * Text is extracted by the {@link TextExtractor} plugins. Extractions run on the managed executor, at most
+ * {@link IndexerConfig#getExtractionParallelism()} at the same time, and are bounded in input size, text length
+ * and duration.
+ *
  * @author Morgan Guimard
  */
 @Singleton(name = "IndexerTextExtractor")
+@Lock(LockType.READ)
 public class IndexerTextExtractor {
 
     @Inject
     private IBinaryStorageManagerLocal storageManager;
 
+    @Inject
+    private ExtractedTextCacheBean extractedTextCache;
+
+    @Inject
+    @Any
+    private Instance<TextExtractor> textExtractors;
+
+    @Inject
+    private IndexerConfig config;
+
+    @Resource
+    private ManagedExecutorService executorService;
+
+    private Semaphore extractionPermits;
+
     private static final Logger LOGGER = Logger.getLogger(IndexerTextExtractor.class.getName());
 
+    /**
+     * Version of the extraction, to be incremented when the extracted text changes so that stored texts are ignored
+     */
+    static final int EXTRACTOR_VERSION = 2;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    @PostConstruct
+    void init() {
+        extractionPermits = new Semaphore(config.getExtractionParallelism(), true);
+    }
+
     /**
      * Parse attached files and create a map filename => content
      *
@@ -70,180 +95,210 @@ public class IndexerTextExtractor {
      */
     public Map<String, String> getContentInputs(Set<BinaryResource> attachedFiles) {
         Map<String, String> contentInputs = new HashMap<>();
+        List<Extraction> extractions = new ArrayList<>();
+
         for (BinaryResource bin : attachedFiles) {
-            try (InputStream in = storageManager.getBinaryResourceInputStream(bin)) {
-                contentInputs.put(bin.getName(), streamToString(bin.getFullName(), in));
+            String extension = getExtension(bin.getFullName());
+            TextExtractor textExtractor = selectTextExtractor(extension);
+            if (textExtractor == null) {
+                contentInputs.put(bin.getName(), "");
+                continue;
+            }
+            try {
+                String contentDigest = getContentDigest(bin, extension, textExtractor);
+                String text = extractedTextCache.getText(contentDigest, EXTRACTOR_VERSION);
+                if (text != null) {
+                    contentInputs.put(bin.getName(), text);
+                } else {
+                    Extraction extraction = startExtraction(bin, extension, textExtractor, contentDigest);
+                    if (extraction != null) {
+                        extractions.add(extraction);
+                    } else {
+                        contentInputs.put(bin.getName(), "");
+                    }
+                }
             } catch (StorageException | IOException e) {
                 LOGGER.log(Level.WARNING, "Cannot read file " + bin.getFullName(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.WARNING, "Interrupted while reading file " + bin.getFullName(), e);
+                break;
             }
         }
-        return contentInputs;
-    }
-
-    private String streamToString(String fullName, InputStream inputStream) {
-        String strRet = "";
-        String extension = "";
-
-        int lastDotIndex = fullName.lastIndexOf('.');
 
-        if (lastDotIndex != -1) {
-            extension = fullName.substring(lastDotIndex);
-        }
-
-        try {
-            switch (extension) {
-                case ".odt":
-                case ".ods":
-                case ".odp":
-                case ".odg":
-                case ".odc":
-                case ".odf":
-                case ".odb":
-                case ".odi":
-                case ".odm":
-                    strRet = openOfficeDocumentToString(inputStream);
-                    break;
-                case ".doc":
-                case ".docx":
-                    strRet = microsoftWordDocumentToString(inputStream);
-                    break;
-                case ".ppt":
-                case ".pps":
-                case ".pptx":
-                    strRet = microsoftPowerPointDocumentToString(inputStream);
-                    break;
-                case ".txt":
-                case ".csv":
-                    strRet = rawTextDocumentToString(inputStream);
-                    break;
-                case ".xls":
-                case ".xlsx":
-                    strRet = microsoftExcelDocumentToString(inputStream);
-                    break;
-                case ".pdf":
-                    strRet = pdfDocumentToString(inputStream);
-                    break;
-                case ".html":
-                case ".htm":
-                case ".xml":
-                case ".rtf":
-                case ".msg":
-                    break;
-                default:
-                    break;
+        for (Extraction extraction : extractions) {
+            String text = awaitText(extraction);
+            if (text != null) {
+                extractedTextCache.storeText(extraction.contentDigest, EXTRACTOR_VERSION, text);
+                contentInputs.put(extraction.bin.getName(), text);
+            } else {
+                contentInputs.put(extraction.bin.getName(), "");
             }
-        } catch (Exception ex) {
-            LOGGER.log(Level.WARNING, "The file " + fullName + " can't be indexed.", ex);
         }
 
-        return strRet;
+        return contentInputs;
     }
 
-    private String rawTextDocumentToString(InputStream inputStream) {
-        return new Scanner(inputStream, "UTF-8").useDelimiter("\\A").next();
+    /**
+     * Parse the attached files of several items in the background
+     *
+     * @param attachedFilesList files to parse, one set per item
+     * @return the content inputs of each item, in the same order
+     */
+    @Asynchronous
+    public Future<List<Map<String, String>>> getContentInputs(List<Set<BinaryResource>> attachedFilesList) {
+        List<Map<String, String>> contentInputsList = new ArrayList<>(attachedFilesList.size());
+        for (Set<BinaryResource> attachedFiles : attachedFilesList) {
+            contentInputsList.add(getContentInputs(attachedFiles));
+        }
+        return new AsyncResult<>(contentInputsList);
     }
 
-    private String openOfficeDocumentToString(InputStream inputStream) throws IOException, SAXException, ParserConfigurationException {
-        final StringBuilder text = new StringBuilder();
-
-        try (ZipInputStream zipOpenDoc = new ZipInputStream(new BufferedInputStream(inputStream))) {
-            ZipEntry zipEntry;
-
-            while ((zipEntry = zipOpenDoc.getNextEntry()) != null) {
-                if ("content.xml".equals(zipEntry.getName())) {
-                    SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
-                    SAXParser parser = saxParserFactory.newSAXParser();
-                    parser.parse(zipOpenDoc, new DefaultHandler() {
-                        @Override
-                        public void characters(char[] ch, int start, int length) throws SAXException {
-                            for (int i = start; i < start + length; i++) {
-                                text.append(ch[i]);
-                            }
-                            text.append("\r\n");
-                        }
-                    });
-                    break;
-                }
+    private TextExtractor selectTextExtractor(String extension) {
+        for (TextExtractor textExtractor : textExtractors) {
+            if (textExtractor.canExtract(extension)) {
+                return textExtractor;
             }
+        }
+        return null;
+    }
 
+    /**
+     * Start the extraction of a file once an extraction permit is available
+     *
+     * @return the started extraction, or null if no permit has been released within the extraction timeout
+     */
+    private Extraction startExtraction(BinaryResource bin, String extension, TextExtractor textExtractor, String contentDigest)
+            throws StorageException, InterruptedException {
+        if (!extractionPermits.tryAcquire(config.getExtractionTimeout(), TimeUnit.SECONDS)) {
+            LOGGER.log(Level.WARNING, "No extraction slot available in time, the file " + bin.getFullName() + " is not indexed");
+            return null;
+        }
+        Extraction extraction;
+        try {
+            InputStream in = new BoundedInputStream(storageManager.getBinaryResourceInputStream(bin), config.getExtractionMaxBytes());
+            extraction = new Extraction(bin, contentDigest, in, new BoundedWriter(config.getMaxIndexedLength()));
+        } catch (StorageException | RuntimeException e) {
+            extractionPermits.release();
+            throw e;
         }
 
-        return text.toString();
+        try {
+            extraction.future = executorService.submit(() -> {
+                try (InputStream in = extraction.in) {
+                    textExtractor.extract(extension, in, extraction.out);
+                } finally {
+                    extraction.release();
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            extraction.abort();
+            throw e;
+        }
+        return extraction;
     }
 
-    private String microsoftWordDocumentToString(InputStream inputStream) throws IOException {
-        String strRet;
+    /**
+     * Wait for the end of an extraction
+     *
+     * @return the extracted text, possibly truncated if a size limit has been reached, or null if the extraction failed
+     */
+    private String awaitText(Extraction extraction) {
+        String fullName = extraction.bin.getFullName();
+        try {
+            long remaining = extraction.deadline - System.currentTimeMillis();
+            extraction.future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+            return extraction.out.getText();
+        } catch (ExecutionException e) {
+            if (extraction.isLimitReached()) {
+                LOGGER.log(Level.FINE, "The text of " + fullName + " is truncated: " + e.getCause().getMessage());
+                return extraction.out.getText();
+            }
+            LOGGER.log(Level.WARNING, "The file " + fullName + " can't be indexed.", e.getCause());
+        } catch (TimeoutException e) {
+            LOGGER.log(Level.WARNING, "The text extraction of " + fullName + " timed out");
+            extraction.abort();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            extraction.abort();
+        }
+        return null;
+    }
 
-        try (InputStream wordStream = new BufferedInputStream(inputStream)) {
-            if (POIFSFileSystem.hasPOIFSHeader(wordStream)) {
-                WordExtractor wordExtractor = new WordExtractor(wordStream);
-                strRet = wordExtractor.getText();
-                wordExtractor.close();
-            } else {
-                XWPFWordExtractor wordXExtractor = new XWPFWordExtractor(new XWPFDocument(wordStream));
-                strRet = wordXExtractor.getText();
-                wordXExtractor.close();
+    /**
+     * Compute the digest of the file type, of the extractor and of the content
+     *
+     * @return the hex encoded SHA-256 digest
+     */
+    private String getContentDigest(BinaryResource bin, String extension, TextExtractor textExtractor) throws StorageException, IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        messageDigest.update((extension + "@" + textExtractor.getExtractorVersion()).getBytes(StandardCharsets.UTF_8));
+        byte[] buffer = new byte[8192];
+        try (InputStream in = storageManager.getBinaryResourceInputStream(bin)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                messageDigest.update(buffer, 0, read);
             }
         }
+        return HashUtils.toHex(messageDigest.digest());
+    }
 
-        return strRet;
+    private String getExtension(String fullName) {
+        int lastDotIndex = fullName.lastIndexOf('.');
+        return lastDotIndex != -1 ? fullName.substring(lastDotIndex).toLowerCase(Locale.ROOT) : "";
     }
 
-    private String microsoftPowerPointDocumentToString(InputStream inputStream) throws IOException {
-        String strRet;
+    /**
+     * State of a running extraction, which holds an extraction permit until it ends
+     */
+    private class Extraction {
 
-        try (InputStream pptStream = new BufferedInputStream(inputStream)) {
-            if (POIFSFileSystem.hasPOIFSHeader(pptStream)) {
-                PowerPointExtractor pptExtractor = new PowerPointExtractor(pptStream);
-                strRet = pptExtractor.getText(true, true);
-                pptExtractor.close();
-            } else {
-                XSLFPowerPointExtractor pptExtractor = new XSLFPowerPointExtractor(new XMLSlideShow(pptStream));
-                strRet = pptExtractor.getText(true, true, true);
-                pptExtractor.close();
-            }
+        private final BinaryResource bin;
+        private final String contentDigest;
+        private final InputStream in;
+        private final BoundedWriter out;
+        private final long deadline;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private Future<?> future;
+
+        private Extraction(BinaryResource bin, String contentDigest, InputStream in, BoundedWriter out) {
+            this.bin = bin;
+            this.contentDigest = contentDigest;
+            this.in = in;
+            this.out = out;
+            this.deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(config.getExtractionTimeout());
         }
 
-        return strRet;
-    }
+        private boolean isLimitReached() {
+            return out.isLimitReached() || ((BoundedInputStream) in).isLimitReached();
+        }
 
-    private String microsoftExcelDocumentToString(InputStream inputStream) throws IOException, OpenXML4JException, XmlException {
-        StringBuilder sb = new StringBuilder();
-
-        try (InputStream excelStream = new BufferedInputStream(inputStream)) {
-            if (POIFSFileSystem.hasPOIFSHeader(excelStream)) { // Before 2007 format files
-                POIFSFileSystem excelFS = new POIFSFileSystem(excelStream);
-                ExcelExtractor excelExtractor = new ExcelExtractor(excelFS);
-                sb.append(excelExtractor.getText());
-                excelExtractor.close();
-            } else { // New format
-                XSSFWorkbook workBook = new XSSFWorkbook(excelStream);
-                int numberOfSheets = workBook.getNumberOfSheets();
-                for (int i = 0; i < numberOfSheets; i++) {
-                    XSSFSheet sheet = workBook.getSheetAt(0);
-                    Iterator<Row> rowIterator = sheet.rowIterator();
-                    while (rowIterator.hasNext()) {
-                        XSSFRow row = (XSSFRow) rowIterator.next();
-                        Iterator<Cell> cellIterator = row.cellIterator();
-                        while (cellIterator.hasNext()) {
-                            XSSFCell cell = (XSSFCell) cellIterator.next();
-                            sb.append(cell.toString());
-                            sb.append(" ");
-                        }
-                        sb.append("\n");
-                    }
-                    sb.append("\n");
-                }
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                extractionPermits.release();
             }
         }
 
-        return sb.toString();
-    }
-
-    private String pdfDocumentToString(InputStream inputStream) throws IOException {
-        PDDocument pdf = PDDocument.load(inputStream);
-        String documentAsString = new PDFTextStripper().getText(pdf);
-        pdf.close();
-        return documentAsString;
+        /**
+         * Interrupt the extraction and close its input, so that a parser ignoring the interruption fails on its next read.
+         * The permit is released here: a parser which still runs on its own does not hold back the other extractions.
+         */
+        private void abort() {
+            if (future != null) {
+                future.cancel(true);
+            }
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINEST, null, e);
+            }
+            release();
+        }
     }
 }
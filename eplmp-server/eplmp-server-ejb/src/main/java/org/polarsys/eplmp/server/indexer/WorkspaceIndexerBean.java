@@ -0,0 +1,264 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import io.searchbox.action.BulkableAction;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.exceptions.IndexerNotAvailableException;
+import org.polarsys.eplmp.core.exceptions.IndexerRequestException;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.server.dao.DocumentMasterDAO;
+import org.polarsys.eplmp.server.dao.DocumentRevisionDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
+import org.polarsys.eplmp.server.indexer.util.IndicesUtils;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends all the document and part iterations of a workspace to the indexer.
+ *
+ * Masters are read page by page, seeking on their primary key. The text of the attached files of a page
+ * is extracted by a bounded number of concurrent tasks, and the index requests are grouped in bulk
+ * requests limited by payload size.
+ */
+@Stateless(name = "WorkspaceIndexerBean")
+public class WorkspaceIndexerBean {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkspaceIndexerBean.class.getName());
+
+    /**
+     * Number of masters read at once
+     */
+    private static final int PAGE_SIZE = 500;
+
+    @Inject
+    private DocumentMasterDAO documentMasterDAO;
+
+    @Inject
+    private DocumentRevisionDAO documentRevisionDAO;
+
+    @Inject
+    private PartMasterDAO partMasterDAO;
+
+    @Inject
+    private PartIterationDAO partIterationDAO;
+
+    @Inject
+    private IndexerQueryBuilder indexerQueryBuilder;
+
+    @Inject
+    private IndexerTextExtractor textExtractor;
+
+    @Inject
+    private IndexManagerBean indexManager;
+
+    @Inject
+    private IndexerConfig config;
+
+    /**
+     * Index all the document and part iterations of the given workspace into the given indices.
+     * Runs outside of any transaction, so that nothing is kept in the persistence context between pages.
+     * Entries already written by concurrent updates are left untouched.
+     *
+     * @param workspaceId workspace to index
+     * @param indices the physical indices to fill, by type
+     * @return the errors reported by the indexer, empty if everything was indexed
+     * @throws IndexerNotAvailableException
+     * @throws IndexerRequestException
+     */
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public List<String> indexWorkspace(String workspaceId, Map<String, String> indices)
+            throws IndexerNotAvailableException, IndexerRequestException {
+        long start = System.currentTimeMillis();
+        List<String> errors = new ArrayList<>();
+
+        int documentIterations = indexDocuments(workspaceId, indices.get(IndexerMapping.INDEX_DOCUMENTS), errors);
+        int partIterations = indexParts(workspaceId, indices.get(IndexerMapping.INDEX_PARTS), errors);
+
+        LOGGER.log(Level.INFO, String.format("Workspace [%s] indexed: %d document iterations, %d part iterations, %d errors in %d ms",
+                workspaceId, documentIterations, partIterations, errors.size(), System.currentTimeMillis() - start));
+
+        return errors;
+    }
+
+    private int indexDocuments(String workspaceId, String indexName, List<String> errors) throws IndexerNotAvailableException, IndexerRequestException {
+        long total = documentMasterDAO.getCountByWorkspace(workspaceId);
+        BulkSender sender = new BulkSender(errors);
+        long masters = 0;
+        int iterations = 0;
+        String lastId = null;
+        List<String> ids;
+
+        while (!(ids = documentMasterDAO.getIdsByWorkspace(workspaceId, lastId, PAGE_SIZE)).isEmpty()) {
+            lastId = ids.get(ids.size() - 1);
+            List<DocumentIteration> documentIterations = documentRevisionDAO.findDocIsByDocumentMasterIds(workspaceId, ids);
+
+            List<Set<BinaryResource>> attachedFiles = new ArrayList<>(documentIterations.size());
+            for (DocumentIteration documentIteration : documentIterations) {
+                attachedFiles.add(new HashSet<>(documentIteration.getAttachedFiles()));
+            }
+            List<Map<String, String>> contentInputs = extractContentInputs(attachedFiles);
+
+            for (int i = 0; i < documentIterations.size(); i++) {
+                DocumentIteration documentIteration = documentIterations.get(i);
+                try {
+                    sender.add(indexerQueryBuilder.insertRequest(documentIteration, contentInputs.get(i), indexName).build());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to construct update query for document: " + documentIteration.getKey() + " \n " + e.getMessage());
+                    LOGGER.log(Level.FINE, null, e);
+                }
+            }
+
+            masters += ids.size();
+            iterations += documentIterations.size();
+            LOGGER.log(Level.INFO, String.format("Indexing workspace [%s]: %d/%d document masters", workspaceId, masters, total));
+        }
+
+        sender.flush();
+        return iterations;
+    }
+
+    private int indexParts(String workspaceId, String indexName, List<String> errors) throws IndexerNotAvailableException, IndexerRequestException {
+        long total = partMasterDAO.getCountByWorkspace(workspaceId);
+        BulkSender sender = new BulkSender(errors);
+        long masters = 0;
+        int iterations = 0;
+        String lastNumber = null;
+        List<String> numbers;
+
+        while (!(numbers = partMasterDAO.getNumbersByWorkspace(workspaceId, lastNumber, PAGE_SIZE)).isEmpty()) {
+            lastNumber = numbers.get(numbers.size() - 1);
+            List<PartIteration> partIterations = partIterationDAO.findByPartMasterNumbers(workspaceId, numbers);
+
+            List<Set<BinaryResource>> attachedFiles = new ArrayList<>(partIterations.size());
+            for (PartIteration partIteration : partIterations) {
+                attachedFiles.add(new HashSet<>(partIteration.getAttachedFiles()));
+            }
+            List<Map<String, String>> contentInputs = extractContentInputs(attachedFiles);
+
+            for (int i = 0; i < partIterations.size(); i++) {
+                PartIteration partIteration = partIterations.get(i);
+                try {
+                    sender.add(indexerQueryBuilder.insertRequest(partIteration, contentInputs.get(i), indexName).build());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to construct update query for part: " + partIteration.getKey() + " \n " + e.getMessage());
+                    LOGGER.log(Level.FINE, null, e);
+                }
+            }
+
+            masters += numbers.size();
+            iterations += partIterations.size();
+            LOGGER.log(Level.INFO, String.format("Indexing workspace [%s]: %d/%d part masters", workspaceId, masters, total));
+        }
+
+        sender.flush();
+        return iterations;
+    }
+
+    /**
+     * Split the extraction in at most {@link IndexerConfig#getReindexParallelism()} concurrent tasks.
+     * Items of a failed task are indexed without the content of their files.
+     */
+    private List<Map<String, String>> extractContentInputs(List<Set<BinaryResource>> attachedFiles) {
+        int size = attachedFiles.size();
+        List<Map<String, String>> contentInputs = new ArrayList<>(size);
+        if (size == 0) {
+            return contentInputs;
+        }
+
+        int parallelism = Math.min(config.getReindexParallelism(), size);
+        int chunkSize = (size + parallelism - 1) / parallelism;
+
+        List<Future<List<Map<String, String>>>> futures = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            futures.add(textExtractor.getContentInputs(new ArrayList<>(attachedFiles.subList(from, Math.min(from + chunkSize, size)))));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            int expected = Math.min(chunkSize, size - i * chunkSize);
+            try {
+                contentInputs.addAll(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.WARNING, "Interrupted while extracting file contents", e);
+                fillEmpty(contentInputs, expected);
+            } catch (ExecutionException e) {
+                LOGGER.log(Level.WARNING, "Cannot extract file contents", e);
+                fillEmpty(contentInputs, expected);
+            }
+        }
+        return contentInputs;
+    }
+
+    private void fillEmpty(List<Map<String, String>> contentInputs, int count) {
+        for (int i = 0; i < count; i++) {
+            contentInputs.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Accumulates actions and sends them when the bulk payload limit is reached
+     */
+    private class BulkSender {
+
+        private final List<String> errors;
+        private Bulk.Builder bulk = new Bulk.Builder();
+        private int actions;
+        private int bytes;
+
+        BulkSender(List<String> errors) {
+            this.errors = errors;
+        }
+
+        void add(BulkableAction<?> action) throws IndexerNotAvailableException, IndexerRequestException {
+            int actionBytes = IndicesUtils.getBulkActionSize(action);
+            if (actions > 0 && bytes + actionBytes > config.getBulkMaxBytes()) {
+                flush();
+            }
+            bulk.addAction(action);
+            actions++;
+            bytes += actionBytes;
+        }
+
+        void flush() throws IndexerNotAvailableException, IndexerRequestException {
+            if (actions == 0) {
+                return;
+            }
+            BulkResult result = indexManager.sendBulk(bulk);
+            if (result.getErrorMessage() != null) {
+                errors.add(result.getErrorMessage());
+            } else {
+                for (BulkResult.BulkResultItem item : result.getFailedItems()) {
+                    errors.add(item.id + ": " + item.error);
+                }
+            }
+            bulk = new Bulk.Builder();
+            actions = 0;
+            bytes = 0;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import io.searchbox.client.config.HttpClientConfig;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.embedded.EmbeddedIndexClient;
 import vc.inreach.aws.request.AWSSigner;
 import vc.inreach.aws.request.AWSSigningRequestInterceptor;
 
@@ -28,17 +29,20 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.ejb.Lock;
 import javax.ejb.LockType;
+import javax.ejb.Schedule;
 import javax.ejb.Singleton;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * Produces a Jest client with elasticsearch config
+ * Produces a Jest client with elasticsearch config, or an embedded indexer client when configured so
  *
  * @author Morgan Guimard
  */
@@ -54,6 +58,11 @@ public class IndexerClientProducer {
 
     @PostConstruct
     public void open() {
+        if (config.isEmbedded()) {
+            openEmbedded();
+            return;
+        }
+
         LOGGER.log(Level.INFO, "Create Elasticsearch client");
 
         String serverUri = config.getServerUri();
@@ -111,10 +120,36 @@ public class IndexerClientProducer {
 
     }
 
+    private void openEmbedded() {
+        String path = config.getEmbeddedIndexPath();
+        LOGGER.log(Level.INFO, "Create embedded indexer client in " + path);
+        try {
+            client = new EmbeddedIndexClient(Paths.get(path));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Cannot open embedded indices in " + path, e);
+        }
+    }
+
     @PreDestroy
     public void close() {
-        // todo => deprecated fallback ?
-        //client.shutdownClient();
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot close indexer client", e);
+            }
+        }
+    }
+
+    /**
+     * Embedded indices are only flushed to disk periodically, committing on each request is too slow
+     */
+    @Lock(LockType.READ)
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    public void commitEmbeddedIndices() {
+        if (client instanceof EmbeddedIndexClient) {
+            ((EmbeddedIndexClient) client).commit();
+        }
     }
 
     @Lock(LockType.READ)
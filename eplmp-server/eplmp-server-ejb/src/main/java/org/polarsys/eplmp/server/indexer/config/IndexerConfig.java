@@ -12,7 +12,10 @@ package org.polarsys.eplmp.server.indexer.config;
 
 import javax.annotation.Resource;
 import javax.enterprise.context.ApplicationScoped;
+import java.io.File;
 import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Retrieves Elasticsearch config from custom jndi resource
@@ -26,9 +29,27 @@ public class IndexerConfig {
     public static final String NUMBER_OF_REPLICAS = "number_of_replicas";
     public static final String AUTO_EXPAND_REPLICAS = "auto_expand_replicas";
 
+    private static final Logger LOGGER = Logger.getLogger(IndexerConfig.class.getName());
+
     @Resource(name = "elasticsearch.config")
     private Properties properties;
 
+    /**
+     * Run the indexer on embedded Lucene indices instead of an Elasticsearch cluster, for single node deployments
+     */
+    public boolean isEmbedded() {
+        return "embedded".equalsIgnoreCase(properties.getProperty("backend"));
+    }
+
+    /**
+     * Directory of the embedded indices
+     */
+    public String getEmbeddedIndexPath() {
+        String property = properties.getProperty("embeddedIndexPath");
+        return (property != null && !property.trim().isEmpty())
+                ? property.trim() : System.getProperty("user.home") + File.separator + "eplmp-indices";
+    }
+
     public String getServerUri() {
         return properties.getProperty("serverUri");
     }
@@ -51,4 +72,66 @@ public class IndexerConfig {
         return ( property != null ) ? property : "localhost" ;
     }
 
+    /**
+     * Maximum number of index operations read from the outbox in one transaction
+     */
+    public int getOutboxBatchSize() {
+        return getIntProperty("outboxBatchSize", 500);
+    }
+
+    /**
+     * Maximum size of the payload of a bulk request, bigger batches are split
+     */
+    public int getBulkMaxBytes() {
+        return getIntProperty("bulkMaxBytes", 5 * 1024 * 1024);
+    }
+
+    /**
+     * Number of concurrent text extraction tasks when reindexing a workspace
+     */
+    public int getReindexParallelism() {
+        return getIntProperty("reindexParallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Maximum number of attached files parsed at the same time
+     */
+    public int getExtractionParallelism() {
+        return getIntProperty("extractionParallelism", Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Maximum number of bytes read from an attached file, the text of bigger files is truncated
+     */
+    public int getExtractionMaxBytes() {
+        return getIntProperty("extractionMaxBytes", 50 * 1024 * 1024);
+    }
+
+    /**
+     * Maximum duration of the extraction of an attached file, in seconds
+     */
+    public int getExtractionTimeout() {
+        return getIntProperty("extractionTimeout", 120);
+    }
+
+    /**
+     * Maximum number of characters indexed for an attached file
+     */
+    public int getMaxIndexedLength() {
+        return getIntProperty("maxIndexedLength", 1024 * 1024);
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String property = properties.getProperty(key);
+        if (property == null || property.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(property.trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.WARNING, "Invalid value for " + key + ", using " + defaultValue, e);
+            return defaultValue;
+        }
+    }
+
 }
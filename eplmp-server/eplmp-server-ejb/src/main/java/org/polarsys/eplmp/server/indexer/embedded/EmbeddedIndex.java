@@ -0,0 +1,173 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.embedded;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One physical index stored on disk, in its own directory.
+ *
+ * Documents are identified by the "_id" field and keep their JSON source in the "_source" stored field.
+ * Writes are visible to searches once {@link #refresh()} is called, which the client does after each request,
+ * and durable once {@link #commit()} is called, which is done periodically and on close.
+ * Writes not yet refreshed are kept in memory so that read-modify-write operations always see them.
+ */
+class EmbeddedIndex implements Closeable {
+
+    private final String name;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+    private final Map<String, JsonObject> pendingSources = new HashMap<>();
+    private volatile EmbeddedMapping mapping;
+
+    EmbeddedIndex(String name, Path path, EmbeddedMapping mapping) throws IOException {
+        this.name = name;
+        this.mapping = mapping;
+        directory = FSDirectory.open(path);
+        writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer())
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        searcherManager = new SearcherManager(writer, null);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    EmbeddedMapping getMapping() {
+        return mapping;
+    }
+
+    void setMapping(EmbeddedMapping mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return the source of the given document, null if it does not exist
+     */
+    synchronized JsonObject get(String id) throws IOException {
+        if (pendingSources.containsKey(id)) {
+            return pendingSources.get(id);
+        }
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(new TermQuery(new Term(EmbeddedMapping.ID_FIELD, id)), 1);
+            if (topDocs.scoreDocs.length == 0) {
+                return null;
+            }
+            return toSource(searcher.doc(topDocs.scoreDocs[0].doc));
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    synchronized void put(String id, JsonObject source) throws IOException {
+        writer.updateDocument(new Term(EmbeddedMapping.ID_FIELD, id), mapping.toDocument(id, source));
+        pendingSources.put(id, source);
+    }
+
+    synchronized void delete(String id) throws IOException {
+        writer.deleteDocuments(new Term(EmbeddedMapping.ID_FIELD, id));
+        pendingSources.put(id, null);
+    }
+
+    /**
+     * Make the pending writes visible to searches, without flushing them to disk
+     */
+    synchronized void refresh() throws IOException {
+        if (searcherManager.maybeRefresh()) {
+            pendingSources.clear();
+        }
+    }
+
+    /**
+     * Flush the writes to disk, so that they survive a crash
+     */
+    void commit() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            writer.commit();
+        }
+    }
+
+    /**
+     * @return the matching documents sorted by score, from the given offset
+     */
+    SearchHits search(Query query, int from, int size) throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query, Math.max(from + size, 1));
+            SearchHits hits = new SearchHits(topDocs.totalHits);
+            for (int i = from; i < topDocs.scoreDocs.length; i++) {
+                ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                Document document = searcher.doc(scoreDoc.doc);
+                hits.hits.add(new SearchHit(name, document.get(EmbeddedMapping.ID_FIELD), scoreDoc.score, toSource(document)));
+            }
+            return hits;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            searcherManager.close();
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    private JsonObject toSource(Document document) {
+        return new JsonParser().parse(document.get(EmbeddedMapping.SOURCE_FIELD)).getAsJsonObject();
+    }
+
+    static class SearchHits {
+        final long total;
+        final List<SearchHit> hits = new ArrayList<>();
+
+        SearchHits(long total) {
+            this.total = total;
+        }
+    }
+
+    static class SearchHit {
+        final String index;
+        final String id;
+        final float score;
+        final JsonObject source;
+
+        SearchHit(String index, String id, float score, JsonObject source) {
+            this.index = index;
+            this.id = id;
+            this.score = score;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.embedded;
+
+import com.google.gson.*;
+import io.searchbox.action.Action;
+import io.searchbox.client.JestClient;
+import io.searchbox.client.JestResult;
+import io.searchbox.client.JestResultHandler;
+import io.searchbox.client.config.ElasticsearchVersion;
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.search.Query;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Jest client running the indexer requests against in-process Lucene indices, for single node deployments
+ * without an Elasticsearch cluster.
+ *
+ * The client answers the Elasticsearch REST calls made by the platform (templates, indices, aliases, updates,
+ * bulks and searches) with Elasticsearch shaped responses, so that the indexer beans work unchanged.
+ * Each physical index is stored in its own directory under the root path, aliases and templates are persisted
+ * in files next to them. Writes are visible to searches when a request completes, and flushed to disk by
+ * {@link #commit()} and on close: the writes of the last period are lost if the server crashes, until a reindex.
+ */
+public class EmbeddedIndexClient implements JestClient {
+
+    private static final Logger LOGGER = Logger.getLogger(EmbeddedIndexClient.class.getName());
+
+    private static final String ALIASES_FILE = "aliases.json";
+    private static final String TEMPLATES_FILE = "templates.json";
+    private static final String NOOP_SCRIPT = "ctx.op = 'none'";
+
+    private final Gson gson = new Gson();
+    private final Path root;
+    private final Map<String, EmbeddedIndex> indices = new ConcurrentHashMap<>();
+    private final Map<String, JsonObject> templates = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> aliases = new HashMap<>();
+
+    public EmbeddedIndexClient(Path root) throws IOException {
+        this.root = root;
+        Files.createDirectories(root);
+        loadAliases();
+        loadTemplates();
+    }
+
+    @Override
+    public <T extends JestResult> T execute(Action<T> action) throws IOException {
+        String method = action.getRestMethodName();
+        String uri = action.getURI(ElasticsearchVersion.UNKNOWN);
+        Response response;
+        try {
+            response = dispatch(method, uri, action.getData(gson));
+        } catch (IllegalArgumentException | JsonParseException | IllegalStateException e) {
+            LOGGER.log(Level.FINE, null, e);
+            response = Response.error(400, "illegal_argument_exception", e.getMessage());
+        }
+        return action.createNewElasticSearchResult(response.body.toString(), response.status, response.reason, gson);
+    }
+
+    @Override
+    public <T extends JestResult> void executeAsync(Action<T> action, JestResultHandler<? super T> handler) {
+        T result;
+        try {
+            result = execute(action);
+        } catch (IOException | RuntimeException e) {
+            handler.failed(e);
+            return;
+        }
+        handler.completed(result);
+    }
+
+    /**
+     * @deprecated use {@link #close()}
+     */
+    @Deprecated
+    @Override
+    public void shutdownClient() {
+        try {
+            close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot close embedded indices", e);
+        }
+    }
+
+    @Override
+    public void setServers(Set<String> servers) {
+        // No server to connect to
+    }
+
+    /**
+     * Flush the writes of all the open indices to disk
+     */
+    public void commit() {
+        for (EmbeddedIndex index : indices.values()) {
+            try {
+                index.commit();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Cannot commit embedded index " + index.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (EmbeddedIndex index : indices.values()) {
+            try {
+                index.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        indices.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private Response dispatch(String method, String uri, String data) throws IOException {
+        String path = uri;
+        int queryStart = path.indexOf('?');
+        if (queryStart >= 0) {
+            path = path.substring(0, queryStart);
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment, StandardCharsets.UTF_8.name()));
+            }
+        }
+
+        String first = segments.isEmpty() ? "" : segments.get(0);
+        String last = segments.isEmpty() ? "" : segments.get(segments.size() - 1);
+
+        switch (method) {
+            case "GET":
+                if ("_cluster".equals(first)) {
+                    return health();
+                }
+                if ("_alias".equals(last) && segments.size() == 2) {
+                    return getAliases(first);
+                }
+                break;
+            case "HEAD":
+                if (segments.size() == 1) {
+                    return resolve(first).isEmpty() ? Response.notFound() : Response.ok(new JsonObject());
+                }
+                break;
+            case "PUT":
+                if ("_template".equals(first) && segments.size() == 2) {
+                    return putTemplate(segments.get(1), parse(data));
+                }
+                if (segments.size() == 1) {
+                    return createIndex(first, parse(data));
+                }
+                break;
+            case "POST":
+                if ("_aliases".equals(first)) {
+                    return modifyAliases(parse(data));
+                }
+                if ("_bulk".equals(first)) {
+                    return bulk(data);
+                }
+                if ("_search".equals(last)) {
+                    return search(first, parse(data));
+                }
+                if ("_update".equals(last) && segments.size() == 4) {
+                    return single(update(first, segments.get(2), parse(data)));
+                }
+                break;
+            case "DELETE":
+                if (segments.size() == 1) {
+                    return deleteIndex(first);
+                }
+                if (segments.size() == 3) {
+                    return single(delete(first, segments.get(2)));
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Unsupported request [" + method + " " + uri + "]");
+    }
+
+    private Response health() {
+        JsonObject body = new JsonObject();
+        body.addProperty("cluster_name", "embedded");
+        body.addProperty("status", "green");
+        body.addProperty("number_of_nodes", 1);
+        return Response.ok(body);
+    }
+
+    private synchronized Response putTemplate(String name, JsonObject source) throws IOException {
+        templates.put(name, source);
+        write(TEMPLATES_FILE, gson.toJson(templates));
+        for (EmbeddedIndex index : indices.values()) {
+            index.setMapping(EmbeddedMapping.fromTemplates(index.getName(), templates.values()));
+        }
+        return acknowledged();
+    }
+
+    private Response createIndex(String indexName, JsonObject body) throws IOException {
+        if (Files.exists(root.resolve(indexName))) {
+            return Response.error(400, "resource_already_exists_exception", "index [" + indexName + "] already exists");
+        }
+        getOrCreateIndex(indexName);
+        if (body.has("aliases")) {
+            synchronized (aliases) {
+                for (Map.Entry<String, JsonElement> alias : body.getAsJsonObject("aliases").entrySet()) {
+                    aliases.computeIfAbsent(alias.getKey(), k -> new TreeSet<>()).add(indexName);
+                }
+                saveAliases();
+            }
+        }
+        return acknowledged();
+    }
+
+    private Response deleteIndex(String indexName) throws IOException {
+        EmbeddedIndex index = getIndex(indexName);
+        if (index == null) {
+            return Response.error(404, "index_not_found_exception", "no such index [" + indexName + "]");
+        }
+        indices.remove(indexName);
+        index.close();
+        FileUtils.deleteDirectory(root.resolve(indexName).toFile());
+        synchronized (aliases) {
+            removeFromAliases(indexName);
+            saveAliases();
+        }
+        return acknowledged();
+    }
+
+    private Response getAliases(String name) {
+        JsonObject body = new JsonObject();
+        for (String indexName : resolve(name)) {
+            JsonObject indexAliases = new JsonObject();
+            synchronized (aliases) {
+                for (Map.Entry<String, Set<String>> entry : aliases.entrySet()) {
+                    if (entry.getValue().contains(indexName)) {
+                        indexAliases.add(entry.getKey(), new JsonObject());
+                    }
+                }
+            }
+            JsonObject indexBody = new JsonObject();
+            indexBody.add("aliases", indexAliases);
+            body.add(indexName, indexBody);
+        }
+        if (body.size() == 0) {
+            return Response.error(404, "aliases_not_found_exception", "alias [" + name + "] missing");
+        }
+        return Response.ok(body);
+    }
+
+    /**
+     * Apply all the alias actions at once, as Elasticsearch does
+     */
+    private Response modifyAliases(JsonObject body) throws IOException {
+        List<String> removedIndices = new ArrayList<>();
+        synchronized (aliases) {
+            Map<String, Set<String>> modified = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : aliases.entrySet()) {
+                modified.put(entry.getKey(), new TreeSet<>(entry.getValue()));
+            }
+            for (JsonElement element : body.getAsJsonArray("actions")) {
+                Map.Entry<String, JsonElement> action = element.getAsJsonObject().entrySet().iterator().next();
+                JsonObject options = action.getValue().getAsJsonObject();
+                String indexName = options.get("index").getAsString();
+                if (getIndex(indexName) == null) {
+                    return Response.error(404, "index_not_found_exception", "no such index [" + indexName + "]");
+                }
+                switch (action.getKey()) {
+                    case "add":
+                        modified.computeIfAbsent(options.get("alias").getAsString(), k -> new TreeSet<>()).add(indexName);
+                        break;
+                    case "remove":
+                        Set<String> aliasIndices = modified.get(options.get("alias").getAsString());
+                        if (aliasIndices != null) {
+                            aliasIndices.remove(indexName);
+                        }
+                        break;
+                    case "remove_index":
+                        removedIndices.add(indexName);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unsupported alias action [" + action.getKey() + "]");
+                }
+            }
+            aliases.clear();
+            aliases.putAll(modified);
+            for (String indexName : removedIndices) {
+                removeFromAliases(indexName);
+            }
+            aliases.values().removeIf(Set::isEmpty);
+            saveAliases();
+        }
+        for (String indexName : removedIndices) {
+            deleteIndex(indexName);
+        }
+        return acknowledged();
+    }
+
+    private Response bulk(String data) throws IOException {
+        JsonArray items = new JsonArray();
+        boolean errors = false;
+        Set<EmbeddedIndex> written = new HashSet<>();
+        JsonParser parser = new JsonParser();
+
+        Iterator<String> lines = Arrays.asList(data.split("\n")).iterator();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            Map.Entry<String, JsonElement> action = parser.parse(line).getAsJsonObject().entrySet().iterator().next();
+            JsonObject metadata = action.getValue().getAsJsonObject();
+            String indexName = metadata.get("_index").getAsString();
+            String id = metadata.get("_id").getAsString();
+
+            ItemResult result;
+            switch (action.getKey()) {
+                case "update":
+                    result = update(indexName, id, parser.parse(lines.next()).getAsJsonObject());
+                    break;
+                case "delete":
+                    result = delete(indexName, id);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported bulk action [" + action.getKey() + "]");
+            }
+            errors |= result.error != null;
+            written.addAll(result.indices);
+
+            JsonObject item = new JsonObject();
+            item.add(action.getKey(), result.toJson(metadata));
+            items.add(item);
+        }
+
+        for (EmbeddedIndex index : written) {
+            index.refresh();
+        }
+
+        JsonObject body = new JsonObject();
+        body.addProperty("errors", errors);
+        body.add("items", items);
+        return Response.ok(body);
+    }
+
+    private ItemResult update(String name, String id, JsonObject body) throws IOException {
+        ItemResult result = new ItemResult(name, id);
+        for (EmbeddedIndex index : getWriteIndices(name)) {
+            result.indices.add(index);
+            synchronized (index) {
+                JsonObject existing = index.get(id);
+                if (existing != null) {
+                    if (body.has("doc")) {
+                        for (Map.Entry<String, JsonElement> field : body.getAsJsonObject("doc").entrySet()) {
+                            existing.add(field.getKey(), field.getValue());
+                        }
+                        index.put(id, existing);
+                        result.result = "updated";
+                    } else if (isNoopScript(body)) {
+                        result.result = "noop";
+                    } else {
+                        throw new IllegalArgumentException("Unsupported update of document [" + id + "]");
+                    }
+                } else if (body.has("upsert")) {
+                    index.put(id, body.getAsJsonObject("upsert"));
+                    result.result = "created";
+                } else if (body.has("doc") && body.has("doc_as_upsert") && body.get("doc_as_upsert").getAsBoolean()) {
+                    index.put(id, body.getAsJsonObject("doc"));
+                    result.result = "created";
+                } else {
+                    result.status = 404;
+                    result.error = Response.error(404, "document_missing_exception", "[_doc][" + id + "]: document missing").body;
+                }
+            }
+        }
+        return result;
+    }
+
+    private ItemResult delete(String name, String id) throws IOException {
+        ItemResult result = new ItemResult(name, id);
+        result.status = 404;
+        result.result = "not_found";
+        for (EmbeddedIndex index : getIndices(name)) {
+            result.indices.add(index);
+            synchronized (index) {
+                if (index.get(id) != null) {
+                    index.delete(id);
+                    result.status = 200;
+                    result.result = "deleted";
+                }
+            }
+        }
+        return result;
+    }
+
+    private Response single(ItemResult result) throws IOException {
+        for (EmbeddedIndex index : result.indices) {
+            index.refresh();
+        }
+        if (result.error != null) {
+            return new Response(result.status, result.error);
+        }
+        return new Response(result.status, result.toJson(new JsonObject()));
+    }
+
+    private Response search(String name, JsonObject body) throws IOException {
+        List<EmbeddedIndex> targets = getIndices(name);
+        if (targets.isEmpty()) {
+            return Response.error(404, "index_not_found_exception", "no such index [" + name + "]");
+        }
+        int from = body.has("from") ? body.get("from").getAsInt() : 0;
+        int size = body.has("size") ? body.get("size").getAsInt() : 10;
+
+        long total = 0;
+        List<EmbeddedIndex.SearchHit> hits = new ArrayList<>();
+        for (EmbeddedIndex index : targets) {
+            Query query = new EmbeddedQueryParser(index.getMapping()).parse(body.getAsJsonObject("query"));
+            EmbeddedIndex.SearchHits indexHits = index.search(query, 0, from + size);
+            total += indexHits.total;
+            hits.addAll(indexHits.hits);
+        }
+        hits.sort((a, b) -> Float.compare(b.score, a.score));
+
+        JsonArray hitsArray = new JsonArray();
+        float maxScore = 0;
+        for (int i = from; i < Math.min(hits.size(), from + size); i++) {
+            EmbeddedIndex.SearchHit hit = hits.get(i);
+            maxScore = Math.max(maxScore, hit.score);
+            JsonObject hitObject = new JsonObject();
+            hitObject.addProperty("_index", hit.index);
+            hitObject.addProperty("_type", "_doc");
+            hitObject.addProperty("_id", hit.id);
+            hitObject.addProperty("_score", hit.score);
+            hitObject.add("_source", hit.source);
+            hitsArray.add(hitObject);
+        }
+
+        JsonObject hitsObject = new JsonObject();
+        hitsObject.addProperty("total", total);
+        hitsObject.addProperty("max_score", maxScore);
+        hitsObject.add("hits", hitsArray);
+        JsonObject response = new JsonObject();
+        response.addProperty("timed_out", false);
+        response.add("hits", hitsObject);
+        return Response.ok(response);
+    }
+
+    /**
+     * @return the indices designated by the given index or alias name
+     */
+    private List<EmbeddedIndex> getIndices(String name) throws IOException {
+        List<EmbeddedIndex> result = new ArrayList<>();
+        for (String indexName : resolve(name)) {
+            EmbeddedIndex index = getIndex(indexName);
+            if (index != null) {
+                result.add(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Like {@link #getIndices(String)}, creating the index on the first write as Elasticsearch does
+     */
+    private List<EmbeddedIndex> getWriteIndices(String name) throws IOException {
+        List<EmbeddedIndex> result = getIndices(name);
+        if (result.isEmpty()) {
+            result.add(getOrCreateIndex(name));
+        }
+        return result;
+    }
+
+    private Set<String> resolve(String name) {
+        synchronized (aliases) {
+            Set<String> aliasIndices = aliases.get(name);
+            if (aliasIndices != null) {
+                return new TreeSet<>(aliasIndices);
+            }
+        }
+        return Files.isDirectory(root.resolve(name)) ? Collections.singleton(name) : Collections.emptySet();
+    }
+
+    private EmbeddedIndex getIndex(String indexName) throws IOException {
+        if (!indices.containsKey(indexName) && !Files.isDirectory(root.resolve(indexName))) {
+            return null;
+        }
+        return getOrCreateIndex(indexName);
+    }
+
+    private EmbeddedIndex getOrCreateIndex(String indexName) throws IOException {
+        if (indexName.isEmpty() || indexName.startsWith("_") || indexName.startsWith(".") || indexName.contains("/")) {
+            throw new IllegalArgumentException("Invalid index name [" + indexName + "]");
+        }
+        try {
+            return indices.computeIfAbsent(indexName, name -> {
+                try {
+                    return new EmbeddedIndex(name, root.resolve(name), EmbeddedMapping.fromTemplates(name, templates.values()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void removeFromAliases(String indexName) {
+        for (Set<String> aliasIndices : aliases.values()) {
+            aliasIndices.remove(indexName);
+        }
+        aliases.values().removeIf(Set::isEmpty);
+    }
+
+    private void loadAliases() throws IOException {
+        for (Map.Entry<String, JsonElement> entry : read(ALIASES_FILE).entrySet()) {
+            Set<String> aliasIndices = new TreeSet<>();
+            for (JsonElement indexName : entry.getValue().getAsJsonArray()) {
+                aliasIndices.add(indexName.getAsString());
+            }
+            aliases.put(entry.getKey(), aliasIndices);
+        }
+    }
+
+    private void loadTemplates() throws IOException {
+        for (Map.Entry<String, JsonElement> entry : read(TEMPLATES_FILE).entrySet()) {
+            templates.put(entry.getKey(), entry.getValue().getAsJsonObject());
+        }
+    }
+
+    private void saveAliases() throws IOException {
+        write(ALIASES_FILE, gson.toJson(aliases));
+    }
+
+    private JsonObject read(String fileName) throws IOException {
+        Path file = root.resolve(fileName);
+        if (!Files.exists(file)) {
+            return new JsonObject();
+        }
+        return new JsonParser().parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    /**
+     * Replace the file atomically, so that a crash never leaves a partial alias swap
+     */
+    private void write(String fileName, String content) throws IOException {
+        Path temporary = root.resolve(fileName + ".tmp");
+        Files.write(temporary, content.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, root.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean isNoopScript(JsonObject body) {
+        if (!body.has("script")) {
+            return false;
+        }
+        JsonElement script = body.get("script");
+        String source = script.isJsonObject() ? script.getAsJsonObject().get("source").getAsString() : script.getAsString();
+        return NOOP_SCRIPT.equals(source.trim());
+    }
+
+    private JsonObject parse(String data) {
+        if (data == null || data.trim().isEmpty()) {
+            return new JsonObject();
+        }
+        return new JsonParser().parse(data).getAsJsonObject();
+    }
+
+    private Response acknowledged() {
+        JsonObject body = new JsonObject();
+        body.addProperty("acknowledged", true);
+        return Response.ok(body);
+    }
+
+    private static class ItemResult {
+        final String index;
+        final String id;
+        final List<EmbeddedIndex> indices = new ArrayList<>();
+        int status = 200;
+        String result;
+        JsonObject error;
+
+        ItemResult(String index, String id) {
+            this.index = index;
+            this.id = id;
+        }
+
+        JsonObject toJson(JsonObject metadata) {
+            JsonObject item = new JsonObject();
+            item.addProperty("_index", indices.isEmpty() ? index : indices.get(0).getName());
+            item.addProperty("_type", metadata.has("_type") ? metadata.get("_type").getAsString() : "_doc");
+            item.addProperty("_id", id);
+            item.addProperty("status", status);
+            if (error != null) {
+                item.add("error", error.get("error"));
+            } else {
+                item.addProperty("result", result);
+            }
+            return item;
+        }
+    }
+
+    private static class Response {
+        final int status;
+        final String reason;
+        final JsonObject body;
+
+        Response(int status, JsonObject body) {
+            this.status = status;
+            this.body = body;
+            this.reason = status == 200 ? "OK" : status == 404 ? "Not Found" : "Bad Request";
+        }
+
+        static Response ok(JsonObject body) {
+            return new Response(200, body);
+        }
+
+        static Response notFound() {
+            return new Response(404, new JsonObject());
+        }
+
+        static Response error(int status, String type, String reason) {
+            JsonObject error = new JsonObject();
+            error.addProperty("type", type);
+            error.addProperty("reason", reason);
+            JsonObject body = new JsonObject();
+            body.add("error", error);
+            body.addProperty("status", status);
+            return new Response(status, body);
+        }
+    }
+}
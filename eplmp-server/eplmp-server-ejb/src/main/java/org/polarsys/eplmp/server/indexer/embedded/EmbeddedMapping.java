@@ -0,0 +1,248 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.embedded;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.*;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Field types of an embedded index, read from the index templates like Elasticsearch does,
+ * and conversion of the indexed sources to Lucene documents.
+ *
+ * Nested objects are flattened: each field of a nested object is indexed with its dotted path.
+ * Strings of unmapped fields are indexed as text, and as keyword under the ".keyword" sub field.
+ */
+class EmbeddedMapping {
+
+    static final String ID_FIELD = "_id";
+    static final String SOURCE_FIELD = "_source";
+    static final String ALL_FIELD = "_all";
+    static final String FIELD_NAMES_FIELD = "_field_names";
+
+    private static final String KEYWORD_SUB_FIELD = ".keyword";
+
+    enum FieldType {TEXT, KEYWORD, DATE, NUMBER, BOOLEAN}
+
+    private final Map<String, FieldType> fieldTypes;
+    private final Analyzer analyzer;
+
+    EmbeddedMapping(Map<String, FieldType> fieldTypes) {
+        this.fieldTypes = fieldTypes;
+        Map<String, Analyzer> keywordAnalyzers = new HashMap<>();
+        for (Map.Entry<String, FieldType> entry : fieldTypes.entrySet()) {
+            if (entry.getValue() == FieldType.KEYWORD || entry.getValue() == FieldType.BOOLEAN) {
+                keywordAnalyzers.put(entry.getKey(), new KeywordAnalyzer());
+            }
+        }
+        analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(), keywordAnalyzers);
+    }
+
+    /**
+     * Build the mapping of an index from the templates whose patterns match its name
+     *
+     * @param indexName the physical index name
+     * @param templates the template sources, as sent to the _template endpoint
+     * @return the mapping of the index
+     */
+    static EmbeddedMapping fromTemplates(String indexName, Collection<JsonObject> templates) {
+        Map<String, FieldType> fieldTypes = new HashMap<>();
+        for (JsonObject template : templates) {
+            if (matches(template.get("index_patterns"), indexName) && template.has("mappings")) {
+                for (Map.Entry<String, JsonElement> type : template.getAsJsonObject("mappings").entrySet()) {
+                    JsonObject typeMapping = type.getValue().getAsJsonObject();
+                    if (typeMapping.has("properties")) {
+                        collectFieldTypes("", typeMapping.getAsJsonObject("properties"), fieldTypes);
+                    }
+                }
+            }
+        }
+        return new EmbeddedMapping(fieldTypes);
+    }
+
+    /**
+     * @return the type of the given field, null if the field is not mapped
+     */
+    FieldType getFieldType(String field) {
+        return fieldTypes.get(field);
+    }
+
+    /**
+     * @return the analyzer to use for queries, keyword fields are not tokenized
+     */
+    Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    Document toDocument(String id, JsonObject source) {
+        Document document = new Document();
+        document.add(new StringField(ID_FIELD, id, Field.Store.YES));
+        document.add(new StoredField(SOURCE_FIELD, source.toString()));
+        addObject(document, "", source);
+        return document;
+    }
+
+    /**
+     * Parse a date the way Elasticsearch default format does: epoch milliseconds or ISO 8601
+     *
+     * @return the epoch milliseconds, null if the value is malformed
+     */
+    static Long parseDate(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            try {
+                return DatatypeConverter.parseDateTime(value).getTimeInMillis();
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+        }
+    }
+
+    private void addObject(Document document, String prefix, JsonObject object) {
+        for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+            addValue(document, prefix.isEmpty() ? entry.getKey() : prefix + "." + entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void addValue(Document document, String field, JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            return;
+        }
+        if (value.isJsonArray()) {
+            for (JsonElement item : (JsonArray) value) {
+                addValue(document, field, item);
+            }
+        } else if (value.isJsonObject()) {
+            addObject(document, field, value.getAsJsonObject());
+        } else {
+            addPrimitive(document, field, value.getAsJsonPrimitive());
+        }
+    }
+
+    private void addPrimitive(Document document, String field, JsonPrimitive value) {
+        String text = value.getAsString();
+        FieldType type = fieldTypes.get(field);
+        // Indexed once per value, which is enough for exists queries
+        document.add(new StringField(FIELD_NAMES_FIELD, field, Field.Store.NO));
+
+        if (type == null) {
+            // Dynamic mapping
+            if (value.isNumber()) {
+                document.add(new DoublePoint(field, value.getAsDouble()));
+            } else if (value.isBoolean()) {
+                document.add(new StringField(field, text, Field.Store.NO));
+            } else {
+                document.add(new TextField(field, text, Field.Store.NO));
+                document.add(new StringField(field + KEYWORD_SUB_FIELD, text, Field.Store.NO));
+                document.add(new TextField(ALL_FIELD, text, Field.Store.NO));
+            }
+            return;
+        }
+
+        switch (type) {
+            case TEXT:
+                document.add(new TextField(field, text, Field.Store.NO));
+                document.add(new TextField(ALL_FIELD, text, Field.Store.NO));
+                break;
+            case DATE:
+                Long date = parseDate(text);
+                if (date != null) {
+                    document.add(new LongPoint(field, date));
+                }
+                break;
+            case NUMBER:
+                try {
+                    document.add(new DoublePoint(field, Double.parseDouble(text)));
+                } catch (NumberFormatException e) {
+                    // ignored like a malformed value
+                }
+                break;
+            default:
+                document.add(new StringField(field, text, Field.Store.NO));
+                document.add(new TextField(ALL_FIELD, text, Field.Store.NO));
+                break;
+        }
+    }
+
+    private static void collectFieldTypes(String prefix, JsonObject properties, Map<String, FieldType> fieldTypes) {
+        for (Map.Entry<String, JsonElement> entry : properties.entrySet()) {
+            String field = prefix + entry.getKey();
+            JsonObject fieldMapping = entry.getValue().getAsJsonObject();
+
+            if (fieldMapping.has("properties")) {
+                collectFieldTypes(field + ".", fieldMapping.getAsJsonObject("properties"), fieldTypes);
+            } else if (fieldMapping.has("type")) {
+                FieldType type = toFieldType(fieldMapping.get("type").getAsString());
+                if (type != null) {
+                    fieldTypes.put(field, type);
+                }
+            }
+        }
+    }
+
+    private static FieldType toFieldType(String type) {
+        switch (type) {
+            case "text":
+                return FieldType.TEXT;
+            case "keyword":
+                return FieldType.KEYWORD;
+            case "date":
+                return FieldType.DATE;
+            case "boolean":
+                return FieldType.BOOLEAN;
+            case "integer":
+            case "long":
+            case "short":
+            case "byte":
+            case "float":
+            case "double":
+                return FieldType.NUMBER;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matches(JsonElement patterns, String indexName) {
+        if (patterns == null || patterns.isJsonNull()) {
+            return false;
+        }
+        if (patterns.isJsonArray()) {
+            for (JsonElement pattern : patterns.getAsJsonArray()) {
+                if (matches(pattern, indexName)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        StringBuilder regex = new StringBuilder();
+        for (String part : patterns.getAsString().split("\\*", -1)) {
+            if (regex.length() > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
+        }
+        return indexName.matches(regex.toString());
+    }
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.embedded;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Translates the subset of the Elasticsearch query DSL built by
+ * {@link org.polarsys.eplmp.server.indexer.IndexerQueryBuilder} to Lucene queries.
+ *
+ * Nested queries are evaluated on the flattened fields of the nested objects, so the conditions of
+ * a nested query may be met by different objects of the same array.
+ * Unsupported queries are rejected with an {@link IllegalArgumentException}.
+ */
+class EmbeddedQueryParser {
+
+    private static final int FUZZY_MAX_EXPANSIONS = 50;
+
+    private final EmbeddedMapping mapping;
+
+    EmbeddedQueryParser(EmbeddedMapping mapping) {
+        this.mapping = mapping;
+    }
+
+    Query parse(JsonObject query) {
+        if (query == null || query.size() == 0) {
+            return new MatchAllDocsQuery();
+        }
+        if (query.size() != 1) {
+            throw new IllegalArgumentException("A query must contain a single clause: " + query);
+        }
+
+        Map.Entry<String, JsonElement> clause = query.entrySet().iterator().next();
+        JsonObject body = clause.getValue().getAsJsonObject();
+        switch (clause.getKey()) {
+            case "match_all":
+                return new MatchAllDocsQuery();
+            case "bool":
+                return parseBool(body);
+            case "nested":
+                return parse(body.getAsJsonObject("query"));
+            case "multi_match":
+                return parseMultiMatch(body);
+            case "match":
+                return parseMatch(body);
+            case "term":
+                return parseTerm(body);
+            case "terms":
+                return parseTerms(body);
+            case "range":
+                return parseRange(body);
+            case "prefix":
+                return parsePrefix(body);
+            case "exists":
+                return new TermQuery(new Term(EmbeddedMapping.FIELD_NAMES_FIELD, body.get("field").getAsString()));
+            case "query_string":
+                return parseQueryString(body);
+            default:
+                throw new IllegalArgumentException("Unsupported query [" + clause.getKey() + "]");
+        }
+    }
+
+    private Query parseBool(JsonObject body) {
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        int required = addClauses(builder, body.get("must"), BooleanClause.Occur.MUST)
+                + addClauses(builder, body.get("filter"), BooleanClause.Occur.FILTER);
+        int optional = addClauses(builder, body.get("should"), BooleanClause.Occur.SHOULD);
+        addClauses(builder, body.get("must_not"), BooleanClause.Occur.MUST_NOT);
+
+        if (body.has("minimum_should_match")) {
+            builder.setMinimumNumberShouldMatch(getMinimumShouldMatch(body.get("minimum_should_match").getAsString(), optional));
+        } else if (optional > 0 && required == 0) {
+            builder.setMinimumNumberShouldMatch(1);
+        }
+        if (required == 0 && optional == 0) {
+            // Purely negative queries match everything but the excluded documents
+            builder.add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Number of optional clauses to match, given as a count or a percentage, negative values tell how many may be missing
+     */
+    private int getMinimumShouldMatch(String value, int optional) {
+        String spec = value.trim();
+        int minimum;
+        try {
+            if (spec.endsWith("%")) {
+                int percent = Integer.parseInt(spec.substring(0, spec.length() - 1).trim());
+                // Rounded down like Elasticsearch does
+                minimum = percent < 0 ? optional - (-percent * optional / 100) : percent * optional / 100;
+            } else {
+                int count = Integer.parseInt(spec);
+                minimum = count < 0 ? optional + count : count;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unsupported minimum_should_match [" + value + "]", e);
+        }
+        return Math.max(0, Math.min(minimum, optional));
+    }
+
+    private int addClauses(BooleanQuery.Builder builder, JsonElement clauses, BooleanClause.Occur occur) {
+        if (clauses == null || clauses.isJsonNull()) {
+            return 0;
+        }
+        if (clauses.isJsonObject()) {
+            builder.add(parse(clauses.getAsJsonObject()), occur);
+            return 1;
+        }
+        JsonArray array = clauses.getAsJsonArray();
+        for (JsonElement clause : array) {
+            builder.add(parse(clause.getAsJsonObject()), occur);
+        }
+        return array.size();
+    }
+
+    private Query parseMultiMatch(JsonObject body) {
+        String text = body.get("query").getAsString();
+        String fuzziness = getString(body, "fuzziness");
+        boolean and = "and".equalsIgnoreCase(getString(body, "operator"));
+
+        List<Query> disjuncts = new ArrayList<>();
+        for (JsonElement element : body.getAsJsonArray("fields")) {
+            String field = element.getAsString();
+            float boost = 1f;
+            int caret = field.indexOf('^');
+            if (caret >= 0) {
+                boost = Float.parseFloat(field.substring(caret + 1));
+                field = field.substring(0, caret);
+            }
+            Query query = matchQuery(field, text, fuzziness, and);
+            disjuncts.add(boost == 1f ? query : new BoostQuery(query, boost));
+        }
+        return disjuncts.size() == 1 ? disjuncts.get(0) : new DisjunctionMaxQuery(disjuncts, 0f);
+    }
+
+    private Query parseMatch(JsonObject body) {
+        Map.Entry<String, JsonElement> entry = body.entrySet().iterator().next();
+        JsonElement value = entry.getValue();
+        if (value.isJsonObject()) {
+            JsonObject options = value.getAsJsonObject();
+            return matchQuery(entry.getKey(), options.get("query").getAsString(),
+                    getString(options, "fuzziness"), "and".equalsIgnoreCase(getString(options, "operator")));
+        }
+        return matchQuery(entry.getKey(), value.getAsString(), null, false);
+    }
+
+    private Query parseTerm(JsonObject body) {
+        Map.Entry<String, JsonElement> entry = body.entrySet().iterator().next();
+        JsonElement value = entry.getValue();
+        if (value.isJsonObject()) {
+            value = value.getAsJsonObject().get("value");
+        }
+        return termQuery(entry.getKey(), value.getAsString());
+    }
+
+    private Query parseTerms(JsonObject body) {
+        for (Map.Entry<String, JsonElement> entry : body.entrySet()) {
+            if (entry.getValue().isJsonArray()) {
+                BooleanQuery.Builder builder = new BooleanQuery.Builder();
+                for (JsonElement value : entry.getValue().getAsJsonArray()) {
+                    builder.add(termQuery(entry.getKey(), value.getAsString()), BooleanClause.Occur.SHOULD);
+                }
+                return new ConstantScoreQuery(builder.build());
+            }
+        }
+        throw new IllegalArgumentException("Terms query without values: " + body);
+    }
+
+    private Query parsePrefix(JsonObject body) {
+        Map.Entry<String, JsonElement> entry = body.entrySet().iterator().next();
+        JsonElement value = entry.getValue();
+        if (value.isJsonObject()) {
+            value = value.getAsJsonObject().get("value");
+        }
+        return new PrefixQuery(new Term(entry.getKey(), value.getAsString()));
+    }
+
+    private Query parseRange(JsonObject body) {
+        Map.Entry<String, JsonElement> entry = body.entrySet().iterator().next();
+        String field = entry.getKey();
+        JsonObject options = entry.getValue().getAsJsonObject();
+
+        String from = getString(options, "from");
+        String to = getString(options, "to");
+        boolean includeLower = !options.has("include_lower") || options.get("include_lower").getAsBoolean();
+        boolean includeUpper = !options.has("include_upper") || options.get("include_upper").getAsBoolean();
+        if (options.has("gte") || options.has("gt")) {
+            includeLower = options.has("gte");
+            from = getString(options, includeLower ? "gte" : "gt");
+        }
+        if (options.has("lte") || options.has("lt")) {
+            includeUpper = options.has("lte");
+            to = getString(options, includeUpper ? "lte" : "lt");
+        }
+
+        EmbeddedMapping.FieldType type = mapping.getFieldType(field);
+        if (type == EmbeddedMapping.FieldType.DATE) {
+            long lower = from == null ? Long.MIN_VALUE : parseDate(from);
+            long upper = to == null ? Long.MAX_VALUE : parseDate(to);
+            if (!includeLower && lower != Long.MAX_VALUE) {
+                lower++;
+            }
+            if (!includeUpper && upper != Long.MIN_VALUE) {
+                upper--;
+            }
+            return LongPoint.newRangeQuery(field, lower, upper);
+        }
+        if (type == EmbeddedMapping.FieldType.NUMBER) {
+            double lower = from == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(from);
+            double upper = to == null ? Double.POSITIVE_INFINITY : Double.parseDouble(to);
+            return DoublePoint.newRangeQuery(field,
+                    includeLower ? lower : DoublePoint.nextUp(lower),
+                    includeUpper ? upper : DoublePoint.nextDown(upper));
+        }
+        return TermRangeQuery.newStringRange(field, from, to, includeLower, includeUpper);
+    }
+
+    private Query parseQueryString(JsonObject body) {
+        List<String> fields = new ArrayList<>();
+        if (body.has("fields")) {
+            for (JsonElement field : body.getAsJsonArray("fields")) {
+                fields.add(field.getAsString());
+            }
+        }
+        QueryParser parser = fields.isEmpty()
+                ? new QueryParser(EmbeddedMapping.ALL_FIELD, mapping.getAnalyzer())
+                : new MultiFieldQueryParser(fields.toArray(new String[0]), mapping.getAnalyzer());
+        parser.setAllowLeadingWildcard(true);
+        if ("and".equalsIgnoreCase(getString(body, "default_operator"))) {
+            parser.setDefaultOperator(QueryParser.Operator.AND);
+        }
+        try {
+            return parser.parse(body.get("query").getAsString());
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Cannot parse query string: " + e.getMessage(), e);
+        }
+    }
+
+    private Query matchQuery(String field, String text, String fuzziness, boolean and) {
+        EmbeddedMapping.FieldType type = mapping.getFieldType(field);
+        if (type != null && type != EmbeddedMapping.FieldType.TEXT) {
+            // Match queries are not analyzed on fields other than text
+            return type == EmbeddedMapping.FieldType.KEYWORD ? fuzzyTermQuery(field, text, fuzziness) : termQuery(field, text);
+        }
+
+        List<String> tokens = analyze(field, text);
+        if (tokens.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+        if (tokens.size() == 1) {
+            return fuzzyTermQuery(field, tokens.get(0), fuzziness);
+        }
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (String token : tokens) {
+            builder.add(fuzzyTermQuery(field, token, fuzziness), and ? BooleanClause.Occur.MUST : BooleanClause.Occur.SHOULD);
+        }
+        return builder.build();
+    }
+
+    private Query termQuery(String field, String value) {
+        EmbeddedMapping.FieldType type = mapping.getFieldType(field);
+        if (type == EmbeddedMapping.FieldType.DATE) {
+            return LongPoint.newExactQuery(field, parseDate(value));
+        }
+        if (type == EmbeddedMapping.FieldType.NUMBER) {
+            try {
+                return DoublePoint.newExactQuery(field, Double.parseDouble(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number [" + value + "] for field [" + field + "]", e);
+            }
+        }
+        return new TermQuery(new Term(field, value));
+    }
+
+    private Query fuzzyTermQuery(String field, String value, String fuzziness) {
+        int edits = getMaxEdits(value, fuzziness);
+        Term term = new Term(field, value);
+        return edits == 0 ? new TermQuery(term) : new FuzzyQuery(term, edits, 0, FUZZY_MAX_EXPANSIONS, true);
+    }
+
+    /**
+     * Maximum edit distance for the given term, "AUTO" follows Elasticsearch defaults
+     */
+    private int getMaxEdits(String term, String fuzziness) {
+        if (fuzziness == null) {
+            return 0;
+        }
+        if (fuzziness.toUpperCase().startsWith("AUTO")) {
+            int length = term.codePointCount(0, term.length());
+            return length <= 2 ? 0 : length <= 5 ? 1 : 2;
+        }
+        try {
+            return Math.min(Integer.parseInt(fuzziness), FuzzyQuery.defaultMaxEdits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid fuzziness [" + fuzziness + "]", e);
+        }
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream stream = mapping.getAnalyzer().tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tokens;
+    }
+
+    private long parseDate(String value) {
+        Long date = EmbeddedMapping.parseDate(value);
+        if (date == null) {
+            throw new IllegalArgumentException("Invalid date [" + value + "]");
+        }
+        return date;
+    }
+
+    private static String getString(JsonObject object, String member) {
+        JsonElement element = object.get(member);
+        return element == null || element.isJsonNull() ? null : element.getAsString();
+    }
+}
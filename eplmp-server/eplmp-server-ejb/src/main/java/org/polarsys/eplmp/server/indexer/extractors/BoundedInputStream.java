@@ -0,0 +1,85 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream ending once the given number of bytes has been read, and failing when the reading thread is interrupted
+ */
+public class BoundedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+    private boolean limitReached;
+
+    public BoundedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (isExhausted(1)) {
+            return -1;
+        }
+        int b = super.read();
+        if (b != -1) {
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (isExhausted(len)) {
+            return -1;
+        }
+        int read = super.read(b, off, (int) Math.min(len, maxBytes - count));
+        if (read > 0) {
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (isExhausted(n)) {
+            return 0;
+        }
+        long skipped = super.skip(Math.min(n, maxBytes - count));
+        count += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    private boolean isExhausted(long requested) throws ExtractionLimitException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ExtractionLimitException("Extraction interrupted");
+        }
+        if (requested > 0 && count >= maxBytes) {
+            limitReached = true;
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,56 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import java.io.Writer;
+
+/**
+ * Collects the extracted text, up to the given length. Further writes fail, which stops the extraction.
+ */
+public class BoundedWriter extends Writer {
+
+    private final StringBuilder text = new StringBuilder();
+    private final int maxLength;
+    private boolean limitReached;
+
+    public BoundedWriter(int maxLength) {
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws ExtractionLimitException {
+        int remaining = maxLength - text.length();
+        text.append(cbuf, off, Math.min(len, remaining));
+        if (len > remaining) {
+            limitReached = true;
+            throw new ExtractionLimitException("Text length limit of " + maxLength + " characters reached");
+        }
+    }
+
+    @Override
+    public void flush() {
+        // Nothing to flush
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+
+    public boolean isLimitReached() {
+        return limitReached;
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the text length allowed for an extraction has been reached, or when the extraction has been interrupted
+ */
+public class ExtractionLimitException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ExtractionLimitException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import javax.swing.text.html.HTMLEditorKit;
+import javax.swing.text.html.parser.ParserDelegator;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extracts the text of HTML files, read as UTF-8, markup is dropped
+ */
+public class HtmlTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return ".html".equals(fileExtension) || ".htm".equals(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        try {
+            new ParserDelegator().parse(reader, new HTMLEditorKit.ParserCallback() {
+                @Override
+                public void handleText(char[] data, int pos) {
+                    try {
+                        out.write(data);
+                        out.write(" ");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.apache.poi.hssf.extractor.ExcelExtractor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * Extracts the cell values of Microsoft Excel files, both binary and OOXML formats
+ */
+public class MicrosoftExcelTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return ".xls".equals(fileExtension) || ".xlsx".equals(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        InputStream excelStream = new BufferedInputStream(in);
+        if (POIFSFileSystem.hasPOIFSHeader(excelStream)) { // Before 2007 format files
+            try (ExcelExtractor excelExtractor = new ExcelExtractor(new POIFSFileSystem(excelStream))) {
+                out.write(excelExtractor.getText());
+            }
+        } else { // New format
+            try (XSSFWorkbook workBook = new XSSFWorkbook(excelStream)) {
+                for (int i = 0; i < workBook.getNumberOfSheets(); i++) {
+                    XSSFSheet sheet = workBook.getSheetAt(i);
+                    for (Row row : sheet) {
+                        for (Cell cell : row) {
+                            out.write(cell.toString());
+                            out.write(" ");
+                        }
+                        out.write("\n");
+                    }
+                    out.write("\n");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.apache.poi.hslf.extractor.PowerPointExtractor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xslf.extractor.XSLFPowerPointExtractor;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Extracts the text and notes of Microsoft PowerPoint files, both binary and OOXML formats
+ */
+public class MicrosoftPowerPointTextExtractor implements TextExtractor {
+
+    private static final Set<String> EXTENSIONS = new HashSet<>(Arrays.asList(".ppt", ".pps", ".pptx"));
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return EXTENSIONS.contains(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        InputStream pptStream = new BufferedInputStream(in);
+        if (POIFSFileSystem.hasPOIFSHeader(pptStream)) {
+            try (PowerPointExtractor pptExtractor = new PowerPointExtractor(pptStream)) {
+                out.write(pptExtractor.getText(true, true));
+            }
+        } else {
+            try (XSLFPowerPointExtractor pptExtractor = new XSLFPowerPointExtractor(new XMLSlideShow(pptStream))) {
+                out.write(pptExtractor.getText(true, true, true));
+            }
+        }
+    }
+}
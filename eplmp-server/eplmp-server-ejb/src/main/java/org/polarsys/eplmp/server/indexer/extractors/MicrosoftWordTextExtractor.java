@@ -0,0 +1,48 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.apache.poi.hwpf.extractor.WordExtractor;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * Extracts the text of Microsoft Word files, both binary and OOXML formats
+ */
+public class MicrosoftWordTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return ".doc".equals(fileExtension) || ".docx".equals(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        InputStream wordStream = new BufferedInputStream(in);
+        if (POIFSFileSystem.hasPOIFSHeader(wordStream)) {
+            try (WordExtractor wordExtractor = new WordExtractor(wordStream)) {
+                out.write(wordExtractor.getText());
+            }
+        } else {
+            try (XWPFWordExtractor wordXExtractor = new XWPFWordExtractor(new XWPFDocument(wordStream))) {
+                out.write(wordXExtractor.getText());
+            }
+        }
+    }
+}
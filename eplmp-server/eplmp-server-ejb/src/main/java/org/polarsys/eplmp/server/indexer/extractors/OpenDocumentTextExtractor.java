@@ -0,0 +1,50 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Extracts the text of OpenDocument files, from their content.xml entry
+ */
+public class OpenDocumentTextExtractor implements TextExtractor {
+
+    private static final Set<String> EXTENSIONS = new HashSet<>(Arrays.asList(
+            ".odt", ".ods", ".odp", ".odg", ".odc", ".odf", ".odb", ".odi", ".odm"));
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return EXTENSIONS.contains(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        ZipInputStream zipOpenDoc = new ZipInputStream(new BufferedInputStream(in));
+        ZipEntry zipEntry;
+        while ((zipEntry = zipOpenDoc.getNextEntry()) != null) {
+            if ("content.xml".equals(zipEntry.getName())) {
+                SaxTextHandler.extract(zipOpenDoc, out, "\r\n");
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * Extracts the text of PDF files, page by page. The document is buffered in a temporary file rather than in memory.
+ */
+public class PdfTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return ".pdf".equals(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        try (PDDocument pdf = PDDocument.load(in, MemoryUsageSetting.setupTempFileOnly())) {
+            new PDFTextStripper().writeText(pdf, out);
+        }
+    }
+}
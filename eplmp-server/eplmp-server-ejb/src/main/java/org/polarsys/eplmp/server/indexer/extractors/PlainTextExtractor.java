@@ -0,0 +1,43 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Extracts the text of plain text files, read as UTF-8
+ */
+public class PlainTextExtractor implements TextExtractor {
+
+    private static final Set<String> EXTENSIONS = new HashSet<>(Arrays.asList(".txt", ".csv"));
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return EXTENSIONS.contains(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        char[] buffer = new char[8192];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
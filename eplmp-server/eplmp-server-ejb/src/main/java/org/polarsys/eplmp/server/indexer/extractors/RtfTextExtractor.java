@@ -0,0 +1,44 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
+import javax.swing.text.rtf.RTFEditorKit;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * Extracts the text of RTF files. The document model is built in memory, its size is bounded by the input size limit.
+ */
+public class RtfTextExtractor implements TextExtractor {
+
+    @Override
+    public boolean canExtract(String fileExtension) {
+        return ".rtf".equals(fileExtension);
+    }
+
+    @Override
+    public void extract(String fileExtension, InputStream in, Writer out) throws IOException {
+        Document document = new DefaultStyledDocument();
+        try {
+            new RTFEditorKit().read(in, document, 0);
+            out.write(document.getText(0, document.getLength()));
+        } catch (BadLocationException e) {
+            throw new IOException(e);
+        }
+    }
+}
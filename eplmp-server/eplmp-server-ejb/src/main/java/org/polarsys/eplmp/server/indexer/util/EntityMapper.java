@@ -55,6 +55,7 @@ public class EntityMapper {
         setField(xcb, IndexerMapping.MODIFICATION_DATE_KEY, documentIteration.getModificationDate());
         setField(xcb, IndexerMapping.REVISION_NOTE_KEY, documentIteration.getRevisionNote());
         setField(xcb, IndexerMapping.FOLDER_KEY, documentRevision.getLocation().getShortName());
+        setField(xcb, IndexerMapping.FOLDER_OWNER_KEY, documentRevision.getLocation().isPrivate() ? documentRevision.getLocation().getOwner() : "");
 
         addCommonJSONFields(xcb, author, tags, instanceAttributes, contentInputs, workflow);
     }
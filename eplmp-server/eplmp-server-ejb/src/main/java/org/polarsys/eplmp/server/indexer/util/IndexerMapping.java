@@ -17,6 +17,9 @@ public class IndexerMapping {
     public static final String INDEX_DOCUMENTS = "documents";
     public static final String INDEX_PARTS = "parts";
     public static final String TYPE = "_doc";
+    // never produced by the formatting of workspace ids, see IndicesUtils
+    public static final String VERSION_SEPARATOR = "~";
+    public static final String PENDING_ALIAS_SUFFIX = VERSION_SEPARATOR + "pending";
 
     // patterns: ["eplmp-*"]
     public static final String EPLMP_COMMON = INDEX_PREFIX + INDEX_SEPARATOR + "common";
@@ -47,6 +50,7 @@ public class IndexerMapping {
     public static final String REVISION_NOTE_KEY = "revisionNote";
     public static final String WORKFLOW_KEY = "workflow";
     public static final String FOLDER_KEY = "folder";
+    public static final String FOLDER_OWNER_KEY = "folderOwner";
     public static final String TAGS_KEY = "tags";
     public static final String ATTRIBUTES_KEY = "attributes";
     public static final String ATTRIBUTE_NAME = "attr_name";
@@ -11,6 +11,8 @@
 
 package org.polarsys.eplmp.server.indexer.util;
 
+import com.google.gson.Gson;
+import io.searchbox.action.BulkableAction;
 import org.polarsys.eplmp.core.util.Tools;
 import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
 import javax.ejb.Stateless;
@@ -34,12 +36,52 @@ public class IndicesUtils{
 
     private static final Logger LOGGER = Logger.getLogger(IndicesUtils.class.getName());
 
+    /**
+     * Rough size of the bulk metadata line of an action
+     */
+    private static final int ACTION_METADATA_BYTES = 128;
+
+    private static final Gson GSON = new Gson();
+
+    /**
+     * Get the name of the alias used to read and write the given type of items of a workspace
+     *
+     * @param indexName the workspace id
+     * @param type the type of items
+     * @return the alias name
+     */
     public String getIndexName(String indexName, String type){
         return config.getPrefixIndex() + IndexerMapping.INDEX_SEPARATOR +
                IndexerMapping.INDEX_PREFIX + IndexerMapping.INDEX_SEPARATOR +
                 formatIndexName(indexName) + IndexerMapping. INDEX_SEPARATOR + type;
     }
 
+    /**
+     * Get the name of a physical index, behind the alias returned by {@link #getIndexName(String, String)}.
+     * The version separator is escaped in workspace ids, so a versioned name never collides with an alias.
+     *
+     * @param workspaceId the workspace id
+     * @param type the type of items
+     * @param version the version of the index
+     * @return the physical index name
+     */
+    public String getVersionedIndexName(String workspaceId, String type, String version){
+        return config.getPrefixIndex() + IndexerMapping.INDEX_SEPARATOR +
+                IndexerMapping.INDEX_PREFIX + IndexerMapping.INDEX_SEPARATOR +
+                formatIndexName(workspaceId) + IndexerMapping.VERSION_SEPARATOR + version +
+                IndexerMapping.INDEX_SEPARATOR + type;
+    }
+
+    /**
+     * Get the name of the alias of an index being rebuilt, which receives the writes sent to the given alias
+     *
+     * @param indexName the alias name
+     * @return the pending alias name
+     */
+    public String getPendingAliasName(String indexName){
+        return indexName + IndexerMapping.PENDING_ALIAS_SUFFIX;
+    }
+
     /**
      * Convert the workspaceId to a Elastic Search index name
      *
@@ -69,4 +111,15 @@ public class IndicesUtils{
             return null;
         }
     }
+
+    /**
+     * Estimate the payload size of an action in a bulk request
+     *
+     * @param action the bulk action
+     * @return the approximate size in bytes
+     */
+    public static int getBulkActionSize(BulkableAction<?> action) {
+        Object data = action.getData(GSON);
+        return ACTION_METADATA_BYTES + (data == null ? 0 : data.toString().length());
+    }
 }
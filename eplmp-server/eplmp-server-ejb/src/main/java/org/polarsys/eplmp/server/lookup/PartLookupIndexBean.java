@@ -0,0 +1,132 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.lookup;
+
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.events.Created;
+import org.polarsys.eplmp.server.events.PartMasterEvent;
+import org.polarsys.eplmp.server.events.Removed;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import javax.inject.Inject;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps an in memory index of the part numbers and names of each workspace, for type-ahead lookups.
+ *
+ * The index of a workspace is loaded on its first lookup, then maintained from the part master
+ * creation and removal events once their transaction is committed. The part masters created or removed
+ * on other nodes of a cluster are only seen once the index expires and is loaded again.
+ */
+@Singleton(name = "PartLookupIndexBean")
+@Lock(LockType.READ)
+public class PartLookupIndexBean {
+
+    private static final Logger LOGGER = Logger.getLogger(PartLookupIndexBean.class.getName());
+
+    private static final long MAX_AGE = 5 * 60 * 1000;
+
+    private final ConcurrentMap<String, PartLookupTable> tables = new ConcurrentHashMap<>();
+
+    @Inject
+    private PartMasterDAO partMasterDAO;
+
+    /**
+     * Find the part masters whose number or name contains the given text, ignoring case
+     *
+     * @param workspaceId the workspace of the parts
+     * @param text the text to search
+     * @param maxResults maximum number of part numbers to return
+     * @return the matching part numbers, sorted, or null if the index is not available
+     */
+    public List<String> findPartNumbers(String workspaceId, String text, int maxResults) {
+        PartLookupTable table = getTable(workspaceId);
+        return table == null ? null : table.find(text == null ? "" : text, maxResults);
+    }
+
+    /**
+     * Forget the index of a workspace, it is reloaded on the next lookup
+     *
+     * @param workspaceId the workspace id
+     */
+    public void dropWorkspace(String workspaceId) {
+        tables.remove(workspaceId);
+    }
+
+    public void onPartMasterCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Created PartMasterEvent event) {
+        PartMaster partMaster = event.getObservedPartMaster();
+        PartLookupTable table = tables.get(partMaster.getWorkspaceId());
+        if (table != null) {
+            table.add(partMaster.getNumber(), partMaster.getName());
+        }
+    }
+
+    public void onPartMasterRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed PartMasterEvent event) {
+        PartMaster partMaster = event.getObservedPartMaster();
+        PartLookupTable table = tables.get(partMaster.getWorkspaceId());
+        if (table != null) {
+            table.remove(partMaster.getNumber());
+        }
+    }
+
+    public void onWorkspaceRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed WorkspaceEvent event) {
+        dropWorkspace(event.getObservedWorkspace().getId());
+    }
+
+    private PartLookupTable getTable(String workspaceId) {
+        PartLookupTable table = tables.get(workspaceId);
+        if (table != null && System.currentTimeMillis() - table.getCreationTime() > MAX_AGE) {
+            tables.remove(workspaceId, table);
+            table = null;
+        }
+        if (table == null) {
+            PartLookupTable created = new PartLookupTable();
+            table = tables.putIfAbsent(workspaceId, created);
+            if (table == null) {
+                table = created;
+                // Forget the expired indexes of the workspaces no longer looked up
+                tables.values().removeIf(other -> System.currentTimeMillis() - other.getCreationTime() > MAX_AGE);
+                load(workspaceId, created);
+            }
+        }
+
+        try {
+            return table.awaitLoaded() ? table : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void load(String workspaceId, PartLookupTable table) {
+        long start = System.currentTimeMillis();
+        try {
+            table.load(partMasterDAO.getNamesByNumber(workspaceId));
+            LOGGER.log(Level.FINE, String.format("Part lookup index of workspace [%s] loaded in %d ms",
+                    workspaceId, System.currentTimeMillis() - start));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot load the part lookup index of workspace " + workspaceId, e);
+            tables.remove(workspaceId, table);
+            table.fail();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.lookup;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory trigram index of the part numbers and names of a workspace.
+ *
+ * A lookup intersects the numbers of the least frequent trigram of the searched text, then checks that
+ * the text is really contained in their number or name. Texts shorter than a trigram are searched
+ * by scanning the numbers in order. Matching is case insensitive.
+ *
+ * The table is filled once from the database, changes received while it loads are not lost.
+ */
+class PartLookupTable {
+
+    private static final int GRAM_LENGTH = 3;
+
+    /**
+     * Separates the number and the name in the searched text, so that no match spans both
+     */
+    private static final char SEPARATOR = '\n';
+
+    private final NavigableMap<String, String> searchTexts = new TreeMap<>();
+    private final Map<String, Set<String>> grams = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private final long creationTime = System.currentTimeMillis();
+
+    private Set<String> removedWhileLoading = new HashSet<>();
+    private volatile boolean failed;
+
+    /**
+     * Fill the table with the part masters read from the database
+     *
+     * @param namesByNumber the part names by number
+     */
+    void load(Map<String, String> namesByNumber) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, String> entry : namesByNumber.entrySet()) {
+                if (!removedWhileLoading.contains(entry.getKey()) && !searchTexts.containsKey(entry.getKey())) {
+                    doAdd(entry.getKey(), entry.getValue());
+                }
+            }
+            removedWhileLoading = null;
+        } finally {
+            lock.writeLock().unlock();
+            loaded.countDown();
+        }
+    }
+
+    /**
+     * Mark the table as unusable, lookups waiting for it have to fall back to the database
+     */
+    void fail() {
+        failed = true;
+        loaded.countDown();
+    }
+
+    /**
+     * Wait for the table to be loaded
+     *
+     * @return false if the table could not be loaded
+     */
+    boolean awaitLoaded() throws InterruptedException {
+        loaded.await();
+        return !failed;
+    }
+
+    /**
+     * @return the time the table was created, before it was loaded
+     */
+    long getCreationTime() {
+        return creationTime;
+    }
+
+    void add(String number, String name) {
+        lock.writeLock().lock();
+        try {
+            doRemove(number);
+            doAdd(number, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(String number) {
+        lock.writeLock().lock();
+        try {
+            if (removedWhileLoading != null) {
+                removedWhileLoading.add(number);
+            }
+            doRemove(number);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param text the text to search in numbers and names
+     * @param maxResults maximum number of numbers to return
+     * @return the numbers of the matching parts, sorted
+     */
+    List<String> find(String text, int maxResults) {
+        String needle = text.toLowerCase(Locale.ROOT);
+        List<String> numbers = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            if (needle.length() < GRAM_LENGTH) {
+                for (Map.Entry<String, String> entry : searchTexts.entrySet()) {
+                    if (numbers.size() >= maxResults) {
+                        break;
+                    }
+                    if (entry.getValue().contains(needle)) {
+                        numbers.add(entry.getKey());
+                    }
+                }
+                return numbers;
+            }
+
+            Set<String> candidates = null;
+            for (String gram : getGrams(needle)) {
+                Set<String> gramNumbers = grams.get(gram);
+                if (gramNumbers == null) {
+                    return numbers;
+                }
+                if (candidates == null || gramNumbers.size() < candidates.size()) {
+                    candidates = gramNumbers;
+                }
+            }
+            for (String number : candidates) {
+                if (searchTexts.get(number).contains(needle)) {
+                    numbers.add(number);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort(numbers);
+        return numbers.size() > maxResults ? new ArrayList<>(numbers.subList(0, maxResults)) : numbers;
+    }
+
+    private void doAdd(String number, String name) {
+        String searchText = number.toLowerCase(Locale.ROOT) + SEPARATOR + (name == null ? "" : name.toLowerCase(Locale.ROOT));
+        searchTexts.put(number, searchText);
+        for (String gram : getGrams(searchText)) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(number);
+        }
+    }
+
+    private void doRemove(String number) {
+        String searchText = searchTexts.remove(number);
+        if (searchText == null) {
+            return;
+        }
+        for (String gram : getGrams(searchText)) {
+            Set<String> gramNumbers = grams.get(gram);
+            if (gramNumbers != null) {
+                gramNumbers.remove(number);
+                if (gramNumbers.isEmpty()) {
+                    grams.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> getGrams(String text) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            String gram = text.substring(i, i + GRAM_LENGTH);
+            if (gram.indexOf(SEPARATOR) < 0) {
+                result.add(gram);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.polarsys.eplmp.core.meta.*;
+import org.polarsys.eplmp.core.product.InstancePartNumberAttribute;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartMaster;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Copy of an instance attribute of a checked in part iteration, with its value in a column of its type.
+ *
+ * The rows are written when the iteration is checked in, they are never updated since the attributes
+ * of a checked in iteration don't change. The queries filter the attributes on the indexed value
+ * columns instead of joining the polymorphic instance attributes of the iterations.
+ * Long text attributes are not copied, see {@link #isCopied(InstanceAttribute)}.
+ */
+@Table(name = "PARTATTRIBUTEVALUE", indexes = {
+        @Index(name = "INDEX_PARTATTRVAL_ITERATION", columnList = "WORKSPACEID, PARTNUMBER, VERSION, ITERATION, NAME"),
+        @Index(name = "INDEX_PARTATTRVAL_TEXT", columnList = "WORKSPACEID, NAME, TEXTVALUE"),
+        @Index(name = "INDEX_PARTATTRVAL_NUMBER", columnList = "WORKSPACEID, NAME, NUMBERVALUE"),
+        @Index(name = "INDEX_PARTATTRVAL_DATE", columnList = "WORKSPACEID, NAME, DATEVALUE")
+})
+@Entity
+@NamedQueries({
+        @NamedQuery(name = "PartAttributeValue.removeByRevision", query = "DELETE FROM PartAttributeValue v WHERE v.workspaceId = :workspaceId AND v.partNumber = :partNumber AND v.version = :version"),
+        @NamedQuery(name = "PartAttributeValue.removeByWorkspace", query = "DELETE FROM PartAttributeValue v WHERE v.workspaceId = :workspaceId"),
+        @NamedQuery(name = "PartAttributeValue.findIterationsToCopy", query = "SELECT pi FROM PartIteration pi WHERE pi.checkInDate IS NOT NULL AND EXISTS (SELECT a FROM InstanceAttribute a WHERE a MEMBER OF pi.instanceAttributes AND TYPE(a) <> InstanceLongTextAttribute) AND NOT EXISTS (SELECT v FROM PartAttributeValue v WHERE v.workspaceId = pi.partRevision.partMasterWorkspaceId AND v.partNumber = pi.partRevision.partMasterNumber AND v.version = pi.partRevision.version AND v.iteration = pi.iteration)")
+})
+public class PartAttributeValue implements Serializable {
+
+    /**
+     * Attribute types, as named in the query rules
+     */
+    public enum Type {TEXT, LONG_TEXT, NUMBER, DATE, BOOLEAN, URL, LOV, PART_NUMBER}
+
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Id
+    private long id;
+
+    @Column(name = "WORKSPACEID", nullable = false)
+    private String workspaceId;
+
+    @Column(name = "PARTNUMBER", nullable = false)
+    private String partNumber;
+
+    @Column(name = "VERSION", nullable = false)
+    private String version;
+
+    @Column(name = "ITERATION")
+    private int iteration;
+
+    @Column(name = "NAME")
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    private Type attributeType;
+
+    /**
+     * Value of the text, URL and part number attributes
+     */
+    @Column(name = "TEXTVALUE")
+    private String textValue;
+
+    @Column(name = "NUMBERVALUE")
+    private Float numberValue;
+
+    @Column(name = "DATEVALUE")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date dateValue;
+
+    private Boolean booleanValue;
+
+    /**
+     * Index of the value of the list of values attributes
+     */
+    private Integer indexValue;
+
+    public PartAttributeValue() {
+    }
+
+    public PartAttributeValue(PartIterationKey key, InstanceAttribute attribute) {
+        this.workspaceId = key.getWorkspaceId();
+        this.partNumber = key.getPartMasterNumber();
+        this.version = key.getPartRevisionVersion();
+        this.iteration = key.getIteration();
+        this.name = attribute.getName();
+
+        if (attribute instanceof InstanceTextAttribute) {
+            attributeType = Type.TEXT;
+            textValue = ((InstanceTextAttribute) attribute).getTextValue();
+        } else if (attribute instanceof InstanceURLAttribute) {
+            attributeType = Type.URL;
+            textValue = ((InstanceURLAttribute) attribute).getUrlValue();
+        } else if (attribute instanceof InstancePartNumberAttribute) {
+            attributeType = Type.PART_NUMBER;
+            PartMaster partMaster = ((InstancePartNumberAttribute) attribute).getPartMasterValue();
+            textValue = partMaster == null ? null : partMaster.getNumber();
+        } else if (attribute instanceof InstanceNumberAttribute) {
+            attributeType = Type.NUMBER;
+            numberValue = ((InstanceNumberAttribute) attribute).getNumberValue();
+        } else if (attribute instanceof InstanceDateAttribute) {
+            attributeType = Type.DATE;
+            dateValue = ((InstanceDateAttribute) attribute).getDateValue();
+        } else if (attribute instanceof InstanceBooleanAttribute) {
+            attributeType = Type.BOOLEAN;
+            booleanValue = ((InstanceBooleanAttribute) attribute).isBooleanValue();
+        } else if (attribute instanceof InstanceListOfValuesAttribute) {
+            attributeType = Type.LOV;
+            indexValue = ((InstanceListOfValuesAttribute) attribute).getIndexValue();
+        } else {
+            attributeType = Type.LONG_TEXT;
+        }
+    }
+
+    /**
+     * Tell if an attribute is copied, the long text attributes are not since their values have no column
+     *
+     * @param attribute an instance attribute of a checked in iteration
+     * @return false for the long text attributes
+     */
+    public static boolean isCopied(InstanceAttribute attribute) {
+        return !(attribute instanceof InstanceLongTextAttribute);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String getPartNumber() {
+        return partNumber;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getAttributeType() {
+        return attributeType;
+    }
+
+    public String getTextValue() {
+        return textValue;
+    }
+
+    public Float getNumberValue() {
+        return numberValue;
+    }
+
+    public Date getDateValue() {
+        return dateValue;
+    }
+
+    public Boolean getBooleanValue() {
+        return booleanValue;
+    }
+
+    public Integer getIndexValue() {
+        return indexValue;
+    }
+}
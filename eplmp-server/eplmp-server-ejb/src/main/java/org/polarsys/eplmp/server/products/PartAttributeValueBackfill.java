@@ -0,0 +1,51 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Marker written once the attributes of all the iterations checked in before the attribute values were
+ * maintained have been copied, so that the nodes starting afterwards don't wait for the {@link PartAttributeValueWorker}
+ * before reading the attribute values.
+ *
+ * There is at most one row.
+ */
+@Table(name = "PARTATTRIBUTEVALUE_BACKFILL")
+@Entity
+public class PartAttributeValueBackfill implements Serializable {
+
+    public static final int ID = 1;
+
+    @Id
+    private int id = ID;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date completionDate;
+
+    public PartAttributeValueBackfill() {
+    }
+
+    public PartAttributeValueBackfill(Date completionDate) {
+        this.completionDate = completionDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Date getCompletionDate() {
+        return completionDate;
+    }
+}
@@ -0,0 +1,65 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.server.dao.PartAttributeValueDAO;
+
+import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.inject.Inject;
+import java.util.List;
+
+/**
+ * Copies the attributes of the iterations checked in before the attribute values were maintained
+ *
+ * @see PartAttributeValueWorker
+ */
+@Stateless(name = "PartAttributeValueProcessor")
+public class PartAttributeValueProcessor {
+
+    private static final int BATCH_SIZE = 200;
+
+    @Inject
+    private PartAttributeValueDAO partAttributeValueDAO;
+
+    /**
+     * Copy the attributes of a batch of iterations in its own transaction
+     *
+     * @return the number of iterations copied, 0 when all the iterations are copied
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public int processBatch() {
+        List<PartIteration> partIterations = partAttributeValueDAO.findIterationsToCopy(BATCH_SIZE);
+        for (PartIteration partIteration : partIterations) {
+            partAttributeValueDAO.createValues(partIteration);
+        }
+        return partIterations.size();
+    }
+
+    /**
+     * @return true if the copy of the attributes has been recorded as complete, by this node or by another one
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public boolean isComplete() {
+        return partAttributeValueDAO.isBackfillComplete();
+    }
+
+    /**
+     * Record that all the iterations are copied, so that the copy is not run again on the next starts
+     */
+    @TransactionAttribute(TransactionAttributeType.REQUIRES_NEW)
+    public void setComplete() {
+        partAttributeValueDAO.setBackfillComplete();
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import javax.annotation.PostConstruct;
+import javax.ejb.*;
+import javax.inject.Inject;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fills the attribute values of the iterations checked in before they were maintained, once after the start.
+ * The queries read the attribute values only when they are complete.
+ *
+ * The completion is recorded in the database, see {@link PartAttributeValueBackfill}, and read when the worker
+ * is created: the nodes started afterwards read the attribute values at once.
+ *
+ * @see PartAttributeValueProcessor
+ */
+@Singleton(name = "PartAttributeValueWorker")
+@Lock(LockType.READ)
+public class PartAttributeValueWorker {
+
+    private static final Logger LOGGER = Logger.getLogger(PartAttributeValueWorker.class.getName());
+
+    @Inject
+    private PartAttributeValueProcessor partAttributeValueProcessor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile boolean complete;
+
+    @PostConstruct
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    private void init() {
+        try {
+            complete = partAttributeValueProcessor.isComplete();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Cannot read the completion of the part attribute values copy", e);
+        }
+    }
+
+    /**
+     * @return true if the attributes of all the checked in iterations have been copied
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    @Schedule(hour = "*", minute = "*", persistent = false)
+    @TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+    public void fill() {
+        if (complete || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int copied = 0;
+            int processed;
+            do {
+                processed = partAttributeValueProcessor.processBatch();
+                copied += processed;
+            } while (processed > 0);
+            partAttributeValueProcessor.setComplete();
+            complete = true;
+            LOGGER.log(Level.INFO, String.format("Attribute values of %d part iterations copied in %d ms",
+                    copied, System.currentTimeMillis() - start));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Error while copying the part attribute values", e);
+        } finally {
+            running.set(false);
+        }
+    }
+}
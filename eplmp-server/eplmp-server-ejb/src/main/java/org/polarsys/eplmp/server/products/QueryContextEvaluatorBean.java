@@ -0,0 +1,219 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.polarsys.eplmp.core.configuration.*;
+import org.polarsys.eplmp.core.exceptions.*;
+import org.polarsys.eplmp.core.product.*;
+import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryContext;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.core.security.UserGroupMapping;
+import org.polarsys.eplmp.core.services.IPSFilterManagerLocal;
+import org.polarsys.eplmp.core.services.IProductManagerLocal;
+import org.polarsys.eplmp.core.util.Tools;
+import org.polarsys.eplmp.server.configuration.PSFilterVisitor;
+import org.polarsys.eplmp.server.configuration.PSFilterVisitorCallbacks;
+import org.polarsys.eplmp.server.configuration.filter.CachedPSFilter;
+import org.polarsys.eplmp.server.dao.ConfigurationItemDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+import org.polarsys.eplmp.server.dao.PathDataIterationDAO;
+import org.polarsys.eplmp.server.dao.PathDataQueryDAO;
+import org.polarsys.eplmp.server.dao.ProductInstanceMasterDAO;
+
+import javax.annotation.security.DeclareRoles;
+import javax.annotation.security.RolesAllowed;
+import javax.ejb.AsyncResult;
+import javax.ejb.Asynchronous;
+import javax.ejb.Stateless;
+import javax.inject.Inject;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Evaluates the contexts of a query: walks the structure of the context product, filtered on the
+ * latest checked in iterations or on the product instance, and returns a row for each path.
+ *
+ * Contexts can be evaluated in the background, each one in its own transaction. The keys of the iterations
+ * selected for a part are shared through the given cache by the contexts using the same filter, each context
+ * loads them in its own persistence context.
+ */
+@DeclareRoles({UserGroupMapping.REGULAR_USER_ROLE_ID, UserGroupMapping.ADMIN_ROLE_ID})
+@Stateless(name = "QueryContextEvaluatorBean")
+public class QueryContextEvaluatorBean {
+
+    @Inject
+    private ConfigurationItemDAO configurationItemDAO;
+
+    @Inject
+    private PartIterationDAO partIterationDAO;
+
+    @Inject
+    private PathDataIterationDAO pathDataIterationDAO;
+
+    @Inject
+    private PathDataQueryDAO pathDataQueryDAO;
+
+    @Inject
+    private ProductInstanceMasterDAO productInstanceMasterDAO;
+
+    @Inject
+    private IPSFilterManagerLocal psFilterManager;
+
+    @Inject
+    private IProductManagerLocal productService;
+
+    @Inject
+    private PSFilterVisitor psFilterVisitor;
+
+    private static final Logger LOGGER = Logger.getLogger(QueryContextEvaluatorBean.class.getName());
+
+    /**
+     * Evaluate a query context in the background
+     *
+     * @see #evaluate(String, Query, QueryContext, String, ConcurrentMap)
+     */
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    @Asynchronous
+    public Future<List<QueryResultRow>> evaluateAsync(String workspaceId, Query query, QueryContext queryContext, String timeZone, ConcurrentMap<String, List<PartIterationKey>> resolvedIterations) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, WorkspaceNotEnabledException {
+        return new AsyncResult<>(evaluate(workspaceId, query, queryContext, timeZone, resolvedIterations));
+    }
+
+    /**
+     * Evaluate a query context
+     *
+     * @param workspaceId the workspace of the product
+     * @param query the query, only its path data rule is applied
+     * @param queryContext the product and the optional serial number of the product instance
+     * @param timeZone the time zone of the user, for the date path data rules
+     * @param resolvedIterations the keys of the iterations already selected for each part, shared with the other contexts of the query
+     * @return a row for each path of the product whose part has a selected iteration
+     */
+    @RolesAllowed(UserGroupMapping.REGULAR_USER_ROLE_ID)
+    public List<QueryResultRow> evaluate(String workspaceId, Query query, QueryContext queryContext, String timeZone, ConcurrentMap<String, List<PartIterationKey>> resolvedIterations) throws UserNotFoundException, WorkspaceNotFoundException, UserNotActiveException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, ConfigurationItemNotFoundException, NotAllowedException, EntityConstraintException, PartMasterNotFoundException, WorkspaceNotEnabledException {
+
+        String configurationItemId = queryContext.getConfigurationItemId();
+        String serialNumber = queryContext.getSerialNumber();
+
+        ConfigurationItemKey ciKey = new ConfigurationItemKey(workspaceId, configurationItemId);
+
+
+        List<QueryResultRow> rows = new ArrayList<>();
+
+        // The latest checked in iteration of a part does not depend on the product
+        ProductStructureFilter filter = serialNumber != null ?
+                new CachedPSFilter(psFilterManager.getPSFilter(ciKey, "pi-" + serialNumber, false), configurationItemId + "/pi-" + serialNumber, resolvedIterations, this::findPartIteration) :
+                new CachedPSFilter(psFilterManager.getPSFilter(ciKey, "latest", false), "latest", resolvedIterations, this::findPartIteration);
+
+        ProductInstanceIteration productInstanceIteration = null;
+        if (serialNumber != null) {
+            ProductInstanceMaster productIM = productInstanceMasterDAO.loadProductInstanceMaster(new ProductInstanceMasterKey(serialNumber, ciKey));
+            productInstanceIteration = productIM.getLastIteration();
+        }
+
+        ConfigurationItem ci = configurationItemDAO.loadConfigurationItem(ciKey);
+        PartMaster root = ci.getDesignItem();
+
+        List<PathToPathLink> pathToPathLinks = ci.getPathToPathLinks();
+
+        List<PathDataIteration> lastPathDataIterations = pathDataIterationDAO.getLastPathDataIterations(productInstanceIteration);
+        Map<String, PathDataIteration> lastPathDataIterationsMap = new HashMap<>();
+
+        for (PathDataIteration iteration : lastPathDataIterations) {
+            lastPathDataIterationsMap.put(iteration.getPathDataMaster().getPath(), iteration);
+        }
+
+        final ProductInstanceIteration finalProductInstanceIteration = productInstanceIteration;
+
+        List<String> filteredPathsFromQuery = null;
+        QueryRule pathDataQueryRule = query.getPathDataQueryRule();
+
+        boolean shouldFilterPathDataWithCriteriaBuilder = finalProductInstanceIteration != null && pathDataQueryRule != null;
+
+        if (shouldFilterPathDataWithCriteriaBuilder) {
+            filteredPathsFromQuery = pathDataQueryDAO.runQuery(timeZone, finalProductInstanceIteration, query);
+        }
+
+        final List<String> finalFilteredPathsFromQuery = filteredPathsFromQuery;
+
+        PSFilterVisitorCallbacks callbacks = new PSFilterVisitorCallbacks() {
+
+            @Override
+            public boolean onPathWalk(List<PartLink> path, List<PartMaster> parts) {
+                QueryResultRow row = new QueryResultRow();
+                double totalAmount = 1;
+                for (PartLink pl : path) {
+                    if (pl.getUnit() == null) {
+                        totalAmount *= pl.getAmount();
+                    }
+                }
+                String pathAsString = Tools.getPathAsString(path);
+                row.setPath(pathAsString);
+                int depth = parts.size() - 1;
+                PartMaster part = parts.get(parts.size() - 1);
+                List<PartIteration> partIterations = filter.filter(part);
+                if (!partIterations.isEmpty()) {
+                    PartRevision partRevision = partIterations.get(0).getPartRevision();
+                    row.setPartRevision(partRevision);
+                    row.setDepth(depth);
+                    row.setContext(queryContext);
+                    row.setAmount(totalAmount);
+
+                    // try block and decodePath method are time consuming (db access) May need refactor
+                    for (PathToPathLink pathToPathLink : pathToPathLinks) {
+                        try {
+                            if (pathToPathLink.getSourcePath().equals(pathAsString)) {
+                                row.addSource(pathToPathLink.getType(), productService.decodePath(ciKey, pathToPathLink.getTargetPath()));
+                            }
+                            if (pathToPathLink.getTargetPath().equals(pathAsString)) {
+                                row.addTarget(pathToPathLink.getType(), productService.decodePath(ciKey, pathToPathLink.getTargetPath()));
+                            }
+                        } catch (WorkspaceNotFoundException | WorkspaceNotEnabledException | UserNotFoundException | ConfigurationItemNotFoundException | PartUsageLinkNotFoundException | UserNotActiveException e) {
+                            LOGGER.log(Level.SEVERE, null, e);
+                        }
+                    }
+
+                    if (finalProductInstanceIteration != null) {
+                        row.setPathDataIteration(lastPathDataIterationsMap.get(pathAsString));
+                    }
+
+                    if (shouldFilterPathDataWithCriteriaBuilder) {
+                        if (finalFilteredPathsFromQuery.contains(pathAsString)) {
+                            rows.add(row);
+                        }
+                    } else {
+                        rows.add(row);
+                    }
+                }
+                return true;
+            }
+        };
+
+        psFilterVisitor.visit(workspaceId, filter, root, -1, callbacks);
+
+        return rows;
+    }
+
+    private PartIteration findPartIteration(PartIterationKey partIterationKey) {
+        try {
+            return partIterationDAO.loadPartI(partIterationKey);
+        } catch (PartIterationNotFoundException e) {
+            LOGGER.log(Level.FINEST, null, e);
+            return null;
+        }
+    }
+
+}
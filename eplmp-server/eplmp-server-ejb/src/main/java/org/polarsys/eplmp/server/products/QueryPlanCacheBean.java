@@ -0,0 +1,57 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.server.dao.PartRevisionQueryPlan;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the compiled rules of the last executed queries, so that a saved query is compiled once
+ * and then run with the same plan until its rules change.
+ *
+ * Plans are kept by rules, values included, and by time zone since the dates of the rules are parsed
+ * in the time zone of the user.
+ */
+@Singleton(name = "QueryPlanCacheBean")
+@Lock(LockType.READ)
+public class QueryPlanCacheBean {
+
+    private static final int MAX_ENTRIES = 500;
+
+    private final Map<String, PartRevisionQueryPlan> plans = Collections.synchronizedMap(
+            new LinkedHashMap<String, PartRevisionQueryPlan>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PartRevisionQueryPlan> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    /**
+     * Get the plan of the rules of a query, compiling them if they have not been compiled yet
+     *
+     * @see PartRevisionQueryPlan#compile
+     */
+    public PartRevisionQueryPlan getPlan(QueryRule queryRule, String timeZone, boolean attributeValues) {
+        StringBuilder key = new StringBuilder();
+        key.append(timeZone).append('\n').append(attributeValues).append('\n');
+        QueryResultCacheBean.appendRule(key, queryRule);
+
+        return plans.computeIfAbsent(key.toString(), k -> PartRevisionQueryPlan.compile(queryRule, timeZone, attributeValues));
+    }
+}
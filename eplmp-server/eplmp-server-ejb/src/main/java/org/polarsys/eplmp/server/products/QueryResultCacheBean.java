@@ -0,0 +1,275 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.polarsys.eplmp.core.meta.InstanceAttribute;
+import org.polarsys.eplmp.core.meta.InstanceListOfValuesAttribute;
+import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryContext;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.server.dao.PartRevisionQueryDAO;
+import org.polarsys.eplmp.server.events.*;
+
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.TransactionPhase;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the rows of the last executed queries, so that queries run again and again, by dashboards for instance,
+ * are served without reading the parts.
+ *
+ * Only the queries run as projections are kept, see {@link #isCacheable(Query)}: their rows hold the selected
+ * values, copied from the entities of the request which read them, and depend on the parts and on the access
+ * rights only. The queries evaluated in contexts, which depend on the product instances, baselines and path data,
+ * are always run.
+ *
+ * Rows are kept by user, since the access rights are applied to them, and by query definition. Each workspace
+ * has a change counter which is incremented once a transaction creating, checking in, updating, releasing,
+ * tagging or removing a part, or changing the memberships of the workspace, is committed: rows computed before
+ * the last change of their workspace are not served. Changes which are not notified, like the workflow state
+ * changes, are only seen once the rows expire.
+ */
+@Singleton(name = "QueryResultCacheBean")
+@Lock(LockType.READ)
+public class QueryResultCacheBean {
+
+    /**
+     * Larger results are not kept
+     */
+    public static final int MAX_CACHED_ROWS = 5000;
+
+    private static final int MAX_ENTRIES = 100;
+
+    private static final long MAX_AGE = 10 * 60 * 1000;
+
+    private final ConcurrentMap<String, AtomicLong> workspaceVersions = new ConcurrentHashMap<>();
+
+    private final Map<String, CachedRows> entries = Collections.synchronizedMap(
+            new LinkedHashMap<String, CachedRows>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedRows> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            });
+
+    /**
+     * Tell if the rows of a query can be kept
+     *
+     * @param query the query
+     * @return true if the query is run as a projection, without context
+     */
+    public static boolean isCacheable(Query query) {
+        return !query.hasContext() && PartRevisionQueryDAO.isProjectable(query.getSelects());
+    }
+
+    /**
+     * Copy a projected row, so that it can be kept after the request which read it: the instance attributes
+     * are cloned with their list of values, which is read while the row's persistence context is still open
+     *
+     * @param row a projected row
+     * @return a row holding copies of the values and of the attributes of the row
+     */
+    public static QueryResultRow copyRow(QueryResultRow row) {
+        QueryResultRow copy = new QueryResultRow(Collections.unmodifiableMap(new HashMap<>(row.getValues())));
+        List<InstanceAttribute> attributes = new ArrayList<>();
+        for (InstanceAttribute attribute : row.getInstanceAttributes()) {
+            InstanceAttribute attributeCopy = attribute.clone();
+            if (attributeCopy instanceof InstanceListOfValuesAttribute) {
+                ((InstanceListOfValuesAttribute) attributeCopy).setItems(
+                        new ArrayList<>(((InstanceListOfValuesAttribute) attribute).getItems()));
+            }
+            attributes.add(attributeCopy);
+        }
+        copy.setInstanceAttributes(Collections.unmodifiableList(attributes));
+        return copy;
+    }
+
+    /**
+     * Get the change counter of a workspace, to be read before running a query whose rows are to be kept
+     *
+     * @param workspaceId the workspace id
+     * @return the number of changes of the workspace since the start of the server
+     */
+    public long getVersion(String workspaceId) {
+        return getCounter(workspaceId).get();
+    }
+
+    /**
+     * Get the rows kept for a query
+     *
+     * @param workspaceId the workspace of the query
+     * @param login the user running the query
+     * @param query the query
+     * @return the rows, or null if they are not kept or out of date
+     */
+    public List<QueryResultRow> getRows(String workspaceId, String login, Query query) {
+        String key = getKey(workspaceId, login, query);
+        CachedRows cachedRows = entries.get(key);
+        if (cachedRows == null) {
+            return null;
+        }
+        if (cachedRows.version != getVersion(workspaceId) || System.currentTimeMillis() - cachedRows.creationTime > MAX_AGE) {
+            entries.remove(key, cachedRows);
+            return null;
+        }
+        return cachedRows.rows;
+    }
+
+    /**
+     * Keep the rows of a query, unless the workspace has changed since the query started
+     *
+     * @param workspaceId the workspace of the query
+     * @param login the user running the query
+     * @param query the query
+     * @param version the change counter of the workspace read before running the query
+     * @param rows the copies of the projected rows of the query, see {@link #copyRow(QueryResultRow)},
+     *             not kept if there are more than {@link #MAX_CACHED_ROWS}
+     */
+    public void putRows(String workspaceId, String login, Query query, long version, List<QueryResultRow> rows) {
+        if (!isCacheable(query) || rows.size() > MAX_CACHED_ROWS || version != getVersion(workspaceId)
+                || !rows.stream().allMatch(QueryResultRow::isProjected)) {
+            return;
+        }
+        entries.put(getKey(workspaceId, login, query),
+                new CachedRows(version, System.currentTimeMillis(), Collections.unmodifiableList(new ArrayList<>(rows))));
+    }
+
+    /**
+     * Mark the rows of all the queries of a workspace as out of date
+     *
+     * @param workspaceId the workspace id
+     */
+    public void invalidate(String workspaceId) {
+        getCounter(workspaceId).incrementAndGet();
+    }
+
+    public void onPartMasterCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Created PartMasterEvent event) {
+        invalidate(event.getObservedPartMaster().getWorkspaceId());
+    }
+
+    public void onPartMasterRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed PartMasterEvent event) {
+        invalidate(event.getObservedPartMaster().getWorkspaceId());
+    }
+
+    public void onPartRevisionWritten(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Write PartRevisionEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    public void onPartRevisionRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed PartRevisionEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    public void onPartIterationCheckedIn(@Observes(during = TransactionPhase.AFTER_SUCCESS) @CheckedIn PartIterationEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    public void onPartIterationWritten(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Write PartIterationEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    public void onPartIterationRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed PartIterationEvent event) {
+        invalidate(event.getObservedPart().getWorkspaceId());
+    }
+
+    public void onPartTagged(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Tagged TagEvent event) {
+        if (event.getTaggablePart() != null) {
+            invalidate(event.getTaggablePart().getWorkspaceId());
+        }
+    }
+
+    public void onPartUntagged(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Untagged TagEvent event) {
+        if (event.getTaggablePart() != null) {
+            invalidate(event.getTaggablePart().getWorkspaceId());
+        }
+    }
+
+    /**
+     * The memberships of the users and groups grant the access to the parts
+     */
+    public void onWorkspaceChanged(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Write WorkspaceEvent event) {
+        invalidate(event.getObservedWorkspace().getId());
+    }
+
+    public void onWorkspaceRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed WorkspaceEvent event) {
+        invalidate(event.getObservedWorkspace().getId());
+    }
+
+    public void onUserRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserEvent event) {
+        invalidate(event.getObservedUser().getWorkspaceId());
+    }
+
+    public void onUserGroupRemoved(@Observes(during = TransactionPhase.AFTER_SUCCESS) @Removed UserGroupEvent event) {
+        invalidate(event.getObservedUserGroup().getWorkspaceId());
+    }
+
+    private AtomicLong getCounter(String workspaceId) {
+        return workspaceVersions.computeIfAbsent(workspaceId, k -> new AtomicLong());
+    }
+
+    /**
+     * Build a key from everything the rows depend on: the queries saved with the same definition share their rows
+     */
+    static String getKey(String workspaceId, String login, Query query) {
+        StringBuilder key = new StringBuilder();
+        key.append(workspaceId).append('\n').append(login).append('\n');
+        appendRule(key, query.getQueryRule());
+        key.append('\n');
+        appendRule(key, query.getPathDataQueryRule());
+        key.append('\n').append(query.getSelects())
+                .append('\n').append(query.getOrderByList())
+                .append('\n').append(query.getGroupedByList())
+                .append('\n');
+        for (QueryContext context : query.getContexts()) {
+            key.append('[').append(context.getConfigurationItemId()).append(',').append(context.getSerialNumber()).append(']');
+        }
+        return key.toString();
+    }
+
+    static void appendRule(StringBuilder key, QueryRule rule) {
+        if (rule == null) {
+            key.append("null");
+            return;
+        }
+        key.append('(').append(rule.getCondition())
+                .append(',').append(rule.getField())
+                .append(',').append(rule.getOperator())
+                .append(',').append(rule.getType())
+                .append(',').append(rule.getValues());
+        if (rule.hasSubRules()) {
+            for (QueryRule subRule : rule.getSubQueryRules()) {
+                key.append(',');
+                appendRule(key, subRule);
+            }
+        }
+        key.append(')');
+    }
+
+    private static class CachedRows {
+
+        private final long version;
+        private final long creationTime;
+        private final List<QueryResultRow> rows;
+
+        private CachedRows(long version, long creationTime, List<QueryResultRow> rows) {
+            this.version = version;
+            this.creationTime = creationTime;
+            this.rows = rows;
+        }
+    }
+}
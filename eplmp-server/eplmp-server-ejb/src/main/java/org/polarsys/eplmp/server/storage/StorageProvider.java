@@ -19,6 +19,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Date;
+import java.util.List;
 
 public interface StorageProvider {
     InputStream getBinaryResourceInputStream(BinaryResource pBinaryResource) throws StorageException, FileNotFoundException;
@@ -35,4 +36,6 @@ public interface StorageProvider {
     Date getLastModified(BinaryResource binaryResource, String generatedFileName) throws FileNotFoundException;
     InputStream getGeneratedFileInputStream(BinaryResource pBinaryResource, String generatedFileName) throws StorageException, FileNotFoundException;
     OutputStream getGeneratedFileOutputStream(BinaryResource binaryResource, String generatedFileName) throws StorageException;
+    List<String> getGeneratedFileNames(BinaryResource binaryResource);
+    void delGeneratedFile(BinaryResource binaryResource, String generatedFileName);
 }
@@ -20,7 +20,9 @@ import org.polarsys.eplmp.core.util.Tools;
 import org.polarsys.eplmp.server.storage.StorageProvider;
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.logging.Logger;
 
 
@@ -117,6 +119,24 @@ public class FileStorageProvider implements StorageProvider {
         }
     }
 
+    @Override
+    public List<String> getGeneratedFileNames(BinaryResource binaryResource) {
+        List<String> generatedFileNames = new ArrayList<>();
+        File[] generatedFiles = getGeneratedFilesFolder(binaryResource).listFiles(File::isFile);
+        if (generatedFiles != null) {
+            for (File generatedFile : generatedFiles) {
+                generatedFileNames.add(generatedFile.getName());
+            }
+        }
+        return generatedFileNames;
+    }
+
+    @Override
+    public void delGeneratedFile(BinaryResource binaryResource, String generatedFileName) {
+        File generatedFile = new File(getGeneratedFilesFolder(binaryResource), Tools.unAccent(generatedFileName));
+        generatedFile.delete();
+    }
+
     @Override
     public File copyFile(File source, BinaryResource pTargetBinaryResource) throws StorageException, FileNotFoundException {
         if (source.exists()) {
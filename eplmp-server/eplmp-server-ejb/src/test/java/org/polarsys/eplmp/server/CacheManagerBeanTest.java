@@ -0,0 +1,111 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.polarsys.eplmp.core.admin.CacheRegionStatistics;
+import org.polarsys.eplmp.core.common.Account;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.common.UserKey;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.core.security.WorkspaceUserMembership;
+import org.polarsys.eplmp.core.security.WorkspaceUserMembershipKey;
+import org.polarsys.eplmp.server.events.UserEvent;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CacheManagerBeanTest {
+
+    private static final String WORKSPACE_ID = "wks";
+
+    @InjectMocks
+    private CacheManagerBean cacheManager;
+
+    @Mock
+    private EntityManagerFactory emf;
+
+    @Mock
+    private EntityManager em;
+
+    @Mock
+    private Cache cache;
+
+    private Workspace workspace;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        Mockito.when(emf.getCache()).thenReturn(cache);
+        workspace = new Workspace(WORKSPACE_ID, new Account(), "", false);
+    }
+
+    @Test
+    public void countHitsAndMissesTest() {
+        Mockito.when(cache.contains(Workspace.class, WORKSPACE_ID)).thenReturn(false, true, true);
+        Mockito.when(em.find(Workspace.class, WORKSPACE_ID)).thenReturn(workspace);
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertSame(workspace, cacheManager.find(em, Workspace.class, WORKSPACE_ID));
+        }
+
+        CacheRegionStatistics statistics = getStatistics("Workspace");
+        Assert.assertEquals(2, statistics.getHits());
+        Assert.assertEquals(1, statistics.getMisses());
+    }
+
+    @Test
+    public void ignoreUncachedEntitiesTest() {
+        cacheManager.find(em, PartMaster.class, "PART-001");
+
+        Mockito.verify(cache, Mockito.never()).contains(Mockito.any(), Mockito.any());
+        Mockito.verify(em).find(PartMaster.class, "PART-001");
+        Assert.assertEquals(CacheManagerBean.REGIONS.size(), cacheManager.getCacheStatistics().size());
+    }
+
+    @Test
+    public void evictRemovedUserTest() {
+        Account account = new Account("user1");
+        User user = new User(workspace, account);
+
+        cacheManager.onUserRemoved(new UserEvent(user));
+
+        Mockito.verify(cache).evict(User.class, new UserKey(WORKSPACE_ID, "user1"));
+        Mockito.verify(cache).evict(WorkspaceUserMembership.class, new WorkspaceUserMembershipKey(WORKSPACE_ID, WORKSPACE_ID, "user1"));
+    }
+
+    @Test
+    public void evictAllRegionsOnWorkspaceRemovalTest() {
+        cacheManager.onWorkspaceRemoved(new WorkspaceEvent(workspace));
+
+        for (Class<?> region : CacheManagerBean.REGIONS) {
+            Mockito.verify(cache).evict(region);
+        }
+    }
+
+    private CacheRegionStatistics getStatistics(String region) {
+        return cacheManager.getCacheStatistics().stream()
+                .filter(statistics -> region.equals(statistics.getRegion()))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+    }
+}
@@ -10,28 +10,41 @@
   *******************************************************************************/
 package org.polarsys.eplmp.server;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.product.Conversion;
+import org.polarsys.eplmp.core.product.ConversionProgress;
 import org.polarsys.eplmp.core.product.Geometry;
 import org.polarsys.eplmp.core.product.PartIteration;
 import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartUsageLink;
 import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+import org.polarsys.eplmp.core.services.IContextManagerLocal;
+import org.polarsys.eplmp.core.services.IConversionProgressManagerLocal;
 import org.polarsys.eplmp.core.services.IProductManagerLocal;
 import org.polarsys.eplmp.server.converters.CADConverter;
 import org.polarsys.eplmp.server.converters.ConversionResult;
 import org.polarsys.eplmp.server.geometry.GeometryParser;
+import org.polarsys.eplmp.server.geometry.MeshEncoder;
 
+import javax.enterprise.concurrent.ManagedExecutorService;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.Mockito.*;
 
@@ -74,6 +87,18 @@ public class ConverterBeanTest {
     @Mock
     private GeometryParser geometryParser;
 
+    @Mock
+    private MeshEncoder meshEncoder;
+
+    @Mock
+    private IConversionProgressManagerLocal conversionProgressManager;
+
+    @Mock
+    private IContextManagerLocal contextManager;
+
+    @Mock
+    private ManagedExecutorService executorService;
+
     @Before
     public void setup() throws Exception {
         when(geometryParser.calculateBox(any(Path.class))).thenReturn(new double[6]);
@@ -101,6 +126,17 @@ public class ConverterBeanTest {
 
         when(locator.search(CADConverter.class)).thenReturn(Arrays.asList(conv));
 
+        // Run the converters in the calling thread
+        when(executorService.submit(Matchers.<Callable<Object>>any())).thenAnswer(invocation -> {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            try {
+                future.complete(((Callable<?>) invocation.getArguments()[0]).call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        });
+
         bean.init();
     }
 
@@ -117,6 +153,47 @@ public class ConverterBeanTest {
         verify(storage, times(2)).getBinaryResourceOutputStream(attachedFile);
     }
 
+    @Test
+    public void testReuseConversion() throws Exception {
+        // * setup *
+        PartIterationKey previousIpk = mock(PartIterationKey.class);
+        PartIteration previousIteration = mock(PartIteration.class);
+        Geometry previousLod = new Geometry(0, "wks/parts/part/A/1/foo.obj", 12, null);
+        BinaryResource previousMaterial = new BinaryResource("wks/parts/part/A/1/attachedfiles/foo.mtl", 4, null);
+        when(previousIteration.getKey()).thenReturn(previousIpk);
+        when(previousIteration.getGeometries()).thenReturn(Collections.singleton(previousLod));
+        when(previousIteration.getAttachedFiles()).thenReturn(Collections.singleton(previousMaterial));
+        Conversion previousConversion = new Conversion(previousIteration);
+        previousConversion.getMaterials().add("foo.mtl");
+        when(product.findReusableConversion(any(), anyString(), anyString())).thenReturn(previousConversion);
+
+        // * test *
+        bean.convertCADFileToOBJ(ipk, cadBinRes);
+
+        verify(conv, never()).convert(any(), any());
+        verify(product).saveGeometryInPartIteration(eq(ipk), eq("foo.obj"), eq(0), eq(12L), any(double[].class));
+        verify(storage).copyData(previousLod, lod);
+        verify(product).saveFileInPartIteration(ipk, "foo.mtl", PartIteration.ATTACHED_FILES_SUBTYPE, 4);
+        verify(storage).copyData(previousMaterial, attachedFile);
+        verify(product).endConversion(eq(ipk), eq(true), anyString(), anyString(), eq(Collections.singleton("foo.mtl")));
+    }
+
+    @Test
+    public void testAssemblyConversionIsNotReused() throws Exception {
+        // * setup *
+        PartIteration previousIteration = mock(PartIteration.class);
+        when(previousIteration.getKey()).thenReturn(mock(PartIterationKey.class));
+        when(previousIteration.getGeometries()).thenReturn(Collections.singleton(new Geometry(0, "wks/parts/part/A/1/foo.obj", 12, null)));
+        when(previousIteration.getComponents()).thenReturn(Collections.singletonList(new PartUsageLink()));
+        when(product.findReusableConversion(any(), anyString(), anyString())).thenReturn(new Conversion(previousIteration));
+
+        // * test *
+        bean.convertCADFileToOBJ(ipk, cadBinRes);
+
+        verify(conv).convert(any(URI.class), any(URI.class));
+        verify(storage, never()).copyData(any(), any());
+    }
+
     @Test
     public void testNoConverter() throws Exception {
         // * setup *
@@ -146,6 +223,13 @@ public class ConverterBeanTest {
         verify(product, never()).saveGeometryInPartIteration(any(), anyString(), anyInt(), anyLong(), any());
         verify(product, never()).saveFileInPartIteration(any(), anyString(), anyString(), anyLong());
         verify(storage, never()).getBinaryResourceOutputStream(any());
+
+        ArgumentCaptor<ConversionProgress> progress = ArgumentCaptor.forClass(ConversionProgress.class);
+        verify(conversionProgressManager, times(3)).publish(progress.capture());
+        Assert.assertEquals(ConversionProgress.Step.QUEUED, progress.getAllValues().get(0).getStep());
+        Assert.assertEquals(ConversionProgress.Step.STARTED, progress.getAllValues().get(1).getStep());
+        Assert.assertEquals(ConversionProgress.Step.FINISHED, progress.getAllValues().get(2).getStep());
+        Assert.assertFalse(progress.getAllValues().get(2).isSucceed());
     }
 
 }
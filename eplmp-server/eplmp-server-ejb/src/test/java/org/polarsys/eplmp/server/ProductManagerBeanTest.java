@@ -33,8 +33,10 @@ import org.polarsys.eplmp.core.services.IUserManagerLocal;
 import org.polarsys.eplmp.server.configuration.PSFilterVisitor;
 import org.polarsys.eplmp.server.configuration.PSFilterVisitorCallbacks;
 import org.polarsys.eplmp.server.dao.*;
+import org.polarsys.eplmp.server.events.PartIterationEvent;
 import org.polarsys.eplmp.server.events.PartRevisionEvent;
 import org.polarsys.eplmp.server.events.TagEvent;
+import org.polarsys.eplmp.server.lookup.PartLookupIndexBean;
 import org.polarsys.eplmp.server.util.CyclicAssemblyRule;
 import org.polarsys.eplmp.server.util.ProductUtil;
 
@@ -60,11 +62,17 @@ public class ProductManagerBeanTest {
     @Mock
     private PartUsageLinkDAO partUsageLinkDAO;
     @Mock
+    private PartMasterDAO partMasterDAO;
+    @Mock
+    private PartLookupIndexBean partLookupIndex;
+    @Mock
     private TagDAO tagDAO;
 
     @Mock
     private IUserManagerLocal userManager;
 
+    @Mock
+    private Event<PartIterationEvent> partIterationEvent;
     @Mock
     private Event<PartRevisionEvent> partRevisionEvent;
     @Mock
@@ -91,6 +99,8 @@ public class ProductManagerBeanTest {
     public void setup() {
         initMocks(this);
         Mockito.when(tagEvent.select(any())).thenReturn(tagEvent);
+        Mockito.when(partIterationEvent.select(any())).thenReturn(partIterationEvent);
+        Mockito.when(partRevisionEvent.select(any())).thenReturn(partRevisionEvent);
         Account account = new Account(ProductUtil.USER_2_LOGIN, ProductUtil.USER_2_NAME, ProductUtil.USER_1_MAIL, ProductUtil.USER_1_LANGUAGE, new Date(), null);
         workspace = new Workspace(ProductUtil.WORKSPACE_ID, account, "pDescription", false);
         user = new User(workspace, new Account(ProductUtil.USER_1_LOGIN, ProductUtil.USER_1_LOGIN, ProductUtil.USER_1_MAIL, ProductUtil.USER_1_LANGUAGE, new Date(), null));
@@ -239,7 +249,7 @@ public class ProductManagerBeanTest {
         Mockito.when(userManager.checkWorkspaceReadAccess(ProductUtil.WORKSPACE_ID)).thenReturn(user);
         Mockito.when(userManager.checkWorkspaceWriteAccess(ProductUtil.WORKSPACE_ID)).thenReturn(user);
         Mockito.when(partRevisionDAO.loadPartR(partRevision.getKey())).thenReturn((partRevision));
-        Mockito.when(partRevisionDAO.loadPartR(partRevision.getKey())).thenReturn((partRevision));
+        Mockito.when(partRevisionDAO.loadPartR(partRevision.getKey(), "PartRevision.detail")).thenReturn((partRevision));
 
         PartRevision partRevisionResult = productManagerBean.removeTag(partRevision.getKey(), "Important");
         Mockito.verify(indexerManager, Mockito.times(1)).indexPartIteration(partRevisionResult.getLastIteration());
@@ -281,7 +291,7 @@ public class ProductManagerBeanTest {
     @Test(expected = NotAllowedException.class)
     public void getPartIterationCheckedOutByOther() throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, PartRevisionNotFoundException, AccessRightException, PartIterationNotFoundException, NotAllowedException, WorkspaceNotEnabledException {
         Mockito.when(userManager.checkWorkspaceReadAccess(partRevision.getKey().getPartMaster().getWorkspace())).thenReturn(user2);
-        Mockito.when(partIterationDAO.loadPartI(partIteration.getKey())).thenReturn(partIteration);
+        Mockito.when(partIterationDAO.loadPartI(partIteration.getKey(), "PartIteration.detail")).thenReturn(partIteration);
 
         productManagerBean.getPartIteration(partIteration.getKey());
     }
@@ -294,4 +304,12 @@ public class ProductManagerBeanTest {
         productManagerBean.updatePartIteration(partIteration.getKey(), null, null, null, null, null, null, null, null);
     }
 
+    @Test
+    public void findPartMastersMatchesWildcardsLiterally() throws Exception {
+        Mockito.when(partLookupIndex.findPartNumbers(workspace.getId(), "PRT_1", 8)).thenReturn(null);
+
+        productManagerBean.findPartMasters(workspace.getId(), "PRT_1", 8);
+
+        Mockito.verify(partMasterDAO).findPartMasters(workspace.getId(), "%PRT\\_1%", "%PRT\\_1%", 8);
+    }
 }
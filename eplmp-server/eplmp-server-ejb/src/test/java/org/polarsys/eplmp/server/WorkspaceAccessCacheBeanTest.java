@@ -0,0 +1,86 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.polarsys.eplmp.core.common.Account;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.server.events.UserEvent;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+
+public class WorkspaceAccessCacheBeanTest {
+
+    private static final String WORKSPACE_ID = "wks";
+    private static final String LOGIN = "user1";
+
+    private WorkspaceAccessCacheBean cache;
+
+    @Before
+    public void setup() {
+        cache = new WorkspaceAccessCacheBean();
+    }
+
+    @Test
+    public void keepGrantedAccessTest() {
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+        Assert.assertNull(cache.getWriteAccess(WORKSPACE_ID, LOGIN));
+
+        long version = cache.getVersion(WORKSPACE_ID);
+        cache.putReadAccess(WORKSPACE_ID, LOGIN, version);
+        cache.putWriteAccess(WORKSPACE_ID, LOGIN, version, false);
+
+        Assert.assertTrue(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+        Assert.assertEquals(Boolean.FALSE, cache.getWriteAccess(WORKSPACE_ID, LOGIN));
+        Assert.assertFalse(cache.hasReadAccess("other", LOGIN));
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, "user2"));
+    }
+
+    @Test
+    public void writeAccessDoesNotGrantReadAccessTest() {
+        cache.putWriteAccess(WORKSPACE_ID, LOGIN, cache.getVersion(WORKSPACE_ID), false);
+
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+        Assert.assertEquals(Boolean.FALSE, cache.getWriteAccess(WORKSPACE_ID, LOGIN));
+    }
+
+    @Test
+    public void membershipChangeInvalidatesAccessTest() {
+        cache.putReadAccess(WORKSPACE_ID, LOGIN, cache.getVersion(WORKSPACE_ID));
+        cache.putReadAccess("other", LOGIN, cache.getVersion("other"));
+
+        cache.onWorkspaceChanged(new WorkspaceEvent(new Workspace(WORKSPACE_ID)));
+
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+        Assert.assertTrue(cache.hasReadAccess("other", LOGIN));
+    }
+
+    @Test
+    public void userRemovalInvalidatesAccessTest() {
+        cache.putReadAccess(WORKSPACE_ID, LOGIN, cache.getVersion(WORKSPACE_ID));
+
+        cache.onUserRemoved(new UserEvent(new User(new Workspace(WORKSPACE_ID), new Account(LOGIN))));
+
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+    }
+
+    @Test
+    public void accessResolvedBeforeChangeIsNotKeptTest() {
+        long version = cache.getVersion(WORKSPACE_ID);
+        cache.invalidate(WORKSPACE_ID);
+        cache.putReadAccess(WORKSPACE_ID, LOGIN, version);
+
+        Assert.assertFalse(cache.hasReadAccess(WORKSPACE_ID, LOGIN));
+    }
+}
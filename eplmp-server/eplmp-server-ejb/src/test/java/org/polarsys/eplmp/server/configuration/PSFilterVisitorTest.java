@@ -173,7 +173,7 @@ public class PSFilterVisitorTest {
 
         for(String partNumber :  defaultPartsNumber_list){
 
-            when(partMasterDAO.loadPartM(new PartMasterKey(WORKSPACE_ID,partNumber))).thenReturn(getPartMasterWith(partNumber));
+            when(partMasterDAO.loadPartM(new PartMasterKey(WORKSPACE_ID,partNumber), "PartMaster.structure")).thenReturn(getPartMasterWith(partNumber));
         }
     }
 
@@ -393,7 +393,7 @@ public class PSFilterVisitorTest {
 
     private PartUsageLink createPartUsageLink(ConfigurationItem configurationItem, String pNumber, ProductBaselineType productBaselineType) throws PartMasterNotFoundException {
         PartMaster partMaster = createPartMaster(configurationItem, pNumber, "B", false, productBaselineType);
-        Mockito.when(partMasterDAO.loadPartM(new PartMasterKey(configurationItem.getWorkspaceId(), pNumber))).thenReturn(partMaster);
+        Mockito.when(partMasterDAO.loadPartM(new PartMasterKey(configurationItem.getWorkspaceId(), pNumber), "PartMaster.structure")).thenReturn(partMaster);
         PartUsageLink partUsageLink = new PartUsageLink();
         partUsageLink.setComponent(partMaster);
         return partUsageLink;
@@ -410,7 +410,7 @@ public class PSFilterVisitorTest {
             add(partRevision);
         }});
         partUsageLink.setComponent(partMaster);
-        Mockito.when(partMasterDAO.loadPartM(new PartMasterKey(configurationItem.getWorkspaceId(), "2"))).thenReturn(partMaster);
+        Mockito.when(partMasterDAO.loadPartM(new PartMasterKey(configurationItem.getWorkspaceId(), "2"), "PartMaster.structure")).thenReturn(partMaster);
         return partUsageLink;
     }
 
@@ -0,0 +1,117 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.configuration.filter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.polarsys.eplmp.core.configuration.ProductStructureFilter;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartLink;
+import org.polarsys.eplmp.core.product.PartMaster;
+import org.polarsys.eplmp.core.product.PartRevision;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachedPSFilterTest {
+
+    @Mock
+    private ProductStructureFilter latestFilter;
+
+    @Mock
+    private ProductStructureFilter instanceFilter;
+
+    private ConcurrentMap<String, List<PartIterationKey>> resolvedIterations;
+    private PartMaster partMaster;
+    private PartIteration partIteration;
+
+    @Before
+    public void setup() {
+        resolvedIterations = new ConcurrentHashMap<>();
+        partMaster = new PartMaster();
+        partMaster.setNumber("PART-001");
+        partIteration = newPartIteration();
+        Mockito.when(latestFilter.filter(partMaster)).thenReturn(Collections.singletonList(partIteration));
+        Mockito.when(instanceFilter.filter(partMaster)).thenReturn(Collections.emptyList());
+    }
+
+    @Test
+    public void filterPartMasterOnceByKeyTest() {
+        CachedPSFilter filter = new CachedPSFilter(latestFilter, "latest", resolvedIterations, key -> null);
+        CachedPSFilter instance = new CachedPSFilter(instanceFilter, "PRODUCT/pi-SN1", resolvedIterations, key -> null);
+
+        assertSame(partIteration, filter.filter(partMaster).get(0));
+        assertSame(partIteration, filter.filter(partMaster).get(0));
+        assertEquals(0, instance.filter(partMaster).size());
+
+        Mockito.verify(latestFilter, Mockito.times(1)).filter(partMaster);
+        Mockito.verify(instanceFilter, Mockito.times(1)).filter(partMaster);
+        assertEquals(2, resolvedIterations.size());
+    }
+
+    @Test
+    public void loadSharedIterationsInOwnContextTest() {
+        PartIteration otherContextIteration = newPartIteration();
+        CachedPSFilter first = new CachedPSFilter(latestFilter, "latest", resolvedIterations, key -> null);
+        CachedPSFilter second = new CachedPSFilter(latestFilter, "latest", resolvedIterations,
+                key -> key.equals(partIteration.getKey()) ? otherContextIteration : null);
+
+        assertSame(partIteration, first.filter(partMaster).get(0));
+        PartIteration loaded = second.filter(partMaster).get(0);
+
+        // The second filter does not get the entity of the first one, it loads its own
+        assertNotSame(partIteration, loaded);
+        assertSame(otherContextIteration, loaded);
+        Mockito.verify(latestFilter, Mockito.times(1)).filter(partMaster);
+    }
+
+    @Test
+    public void filterAgainRemovedIterationsTest() {
+        new CachedPSFilter(latestFilter, "latest", resolvedIterations, key -> null).filter(partMaster);
+        CachedPSFilter second = new CachedPSFilter(latestFilter, "latest", resolvedIterations, key -> null);
+
+        assertSame(partIteration, second.filter(partMaster).get(0));
+        Mockito.verify(latestFilter, Mockito.times(2)).filter(partMaster);
+    }
+
+    @Test
+    public void filterPathIsNotCachedTest() {
+        List<PartLink> path = Collections.emptyList();
+        CachedPSFilter filter = new CachedPSFilter(latestFilter, "latest", resolvedIterations, key -> null);
+
+        filter.filter(path);
+        filter.filter(path);
+
+        Mockito.verify(latestFilter, Mockito.times(2)).filter(path);
+        assertEquals(0, resolvedIterations.size());
+    }
+
+    private PartIteration newPartIteration() {
+        PartRevision partRevision = new PartRevision(partMaster, "A", null);
+        PartIteration iteration = new PartIteration();
+        iteration.setPartRevision(partRevision);
+        iteration.setIteration(1);
+        return iteration;
+    }
+}
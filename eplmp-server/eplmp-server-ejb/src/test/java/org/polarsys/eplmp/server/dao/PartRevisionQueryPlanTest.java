@@ -0,0 +1,112 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.dao;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.server.products.PartAttributeValue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+public class PartRevisionQueryPlanTest {
+
+    @Test
+    public void valuesAreBoundTest() {
+        QueryRule rule = createGroup("AND",
+                createRule("pm.number", "begins_with", "string", "PART-"),
+                createRule("pr.version", "equal", "string", "A"));
+
+        PartRevisionQueryPlan plan = PartRevisionQueryPlan.compile(rule, "CET", false);
+
+        Assert.assertEquals("(pr.partMaster.number LIKE :p1 AND pr.version = :p2)", plan.getCondition());
+        Assert.assertEquals("PART-%", plan.getParameters().get("p1"));
+        Assert.assertEquals("A", plan.getParameters().get("p2"));
+    }
+
+    @Test
+    public void sameRulesShareConditionTest() {
+        PartRevisionQueryPlan plan1 = PartRevisionQueryPlan.compile(createRule("pm.name", "contains", "string", "screw"), "CET", false);
+        PartRevisionQueryPlan plan2 = PartRevisionQueryPlan.compile(createRule("pm.name", "contains", "string", "bolt"), "CET", false);
+
+        Assert.assertEquals(plan1.getCondition(), plan2.getCondition());
+        Assert.assertNotEquals(plan1.getParameters(), plan2.getParameters());
+    }
+
+    @Test
+    public void dateEqualityIsADayTest() {
+        PartRevisionQueryPlan plan = PartRevisionQueryPlan.compile(createRule("pr.creationDate", "equal", "date", "2019-01-15"), "UTC", false);
+
+        Assert.assertEquals("pr.creationDate BETWEEN :p1 AND :p2", plan.getCondition());
+        Date from = (Date) plan.getParameters().get("p1");
+        Date to = (Date) plan.getParameters().get("p2");
+        Assert.assertEquals(24 * 60 * 60 * 1000L, to.getTime() - from.getTime());
+    }
+
+    @Test
+    public void attributeRulesTest() {
+        QueryRule rule = createRule("attr-NUMBER.weight", "greater", "double", "2.5");
+
+        PartRevisionQueryPlan instancePlan = PartRevisionQueryPlan.compile(rule, "CET", false);
+        Assert.assertTrue(instancePlan.getCondition().startsWith("EXISTS (SELECT a FROM InstanceNumberAttribute a WHERE a MEMBER OF pi.instanceAttributes"));
+        Assert.assertTrue(instancePlan.getCondition().endsWith("a.numberValue > :p2)"));
+        Assert.assertEquals("weight", instancePlan.getParameters().get("p1"));
+        Assert.assertEquals(2.5, instancePlan.getParameters().get("p2"));
+
+        PartRevisionQueryPlan valuePlan = PartRevisionQueryPlan.compile(rule, "CET", true);
+        Assert.assertTrue(valuePlan.getCondition().startsWith("EXISTS (SELECT v FROM PartAttributeValue v"));
+        Assert.assertTrue(valuePlan.getCondition().endsWith("v.numberValue > :p3)"));
+        Assert.assertEquals(PartAttributeValue.Type.NUMBER, valuePlan.getParameters().get("p2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldTest() {
+        PartRevisionQueryPlan.compile(createRule("foo.bar", "equal", "string", "x"), "CET", false);
+    }
+
+    @Test
+    public void unmappedFieldsAreRejectedTest() {
+        for (String field : Arrays.asList("pm.number = 'x' OR 1", "pr.partMaster.workspace.id", "author.password", "pr.lifeCycleState")) {
+            try {
+                PartRevisionQueryPlan.compile(createRule(field, "equal", "string", "x"), "CET", false);
+                Assert.fail("Field accepted: " + field);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void noRuleTest() {
+        PartRevisionQueryPlan plan = PartRevisionQueryPlan.compile(null, "CET", false);
+        Assert.assertEquals("1 = 1", plan.getCondition());
+        Assert.assertTrue(plan.getParameters().isEmpty());
+    }
+
+    private QueryRule createRule(String field, String operator, String type, String value) {
+        QueryRule rule = new QueryRule();
+        rule.setField(field);
+        rule.setOperator(operator);
+        rule.setType(type);
+        rule.setValues(Collections.singletonList(value));
+        return rule;
+    }
+
+    private QueryRule createGroup(String condition, QueryRule... subRules) {
+        QueryRule rule = new QueryRule();
+        rule.setCondition(condition);
+        rule.setSubQueryRules(Arrays.asList(subRules));
+        return rule;
+    }
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.geometry;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class MeshEncoderTest {
+
+    private Path tempDir;
+
+    @Before
+    public void setup() throws IOException {
+        tempDir = Files.createTempDirectory("mesh-encoder");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        for (Path path : Files.newDirectoryStream(tempDir)) {
+            Files.delete(path);
+        }
+        Files.delete(tempDir);
+    }
+
+    @Test
+    public void encodeQuadTest() throws IOException {
+        Path obj = tempDir.resolve("quad100.obj");
+        Files.write(obj, Arrays.asList(
+                "v  0.0 0.0 0.0",
+                "v  2.0 0.0 0.0",
+                "v  2.0 1.0 0.0",
+                "v  0.0 1.0 0.0",
+                "vn 0.0 0.0 1.0",
+                "usemtl red",
+                "f 1//1 2//1 3//1 4//1"), StandardCharsets.UTF_8);
+
+        Path glb = new MeshEncoder().encode(obj);
+
+        Assert.assertEquals(tempDir.resolve("quad100.glb"), glb);
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(glb)).order(ByteOrder.LITTLE_ENDIAN);
+        Assert.assertEquals(0x46546C67, buffer.getInt());
+        Assert.assertEquals(2, buffer.getInt());
+        Assert.assertEquals(buffer.capacity(), buffer.getInt());
+
+        int jsonLength = buffer.getInt();
+        Assert.assertEquals(0, jsonLength % 4);
+        Assert.assertEquals(0x4E4F534A, buffer.getInt());
+        String json = new String(buffer.array(), 20, jsonLength, StandardCharsets.UTF_8);
+        Assert.assertTrue(json.contains("KHR_mesh_quantization"));
+        Assert.assertTrue(json.contains("\"material\":\"red\""));
+
+        buffer.position(20 + jsonLength);
+        int binLength = buffer.getInt();
+        Assert.assertEquals(0x004E4942, buffer.getInt());
+        // 4 vertices (8 bytes positions, 4 bytes normals), 2 triangles of short indices
+        Assert.assertEquals(4 * 8 + 4 * 4 + 12, binLength);
+
+        // Second vertex is at the end of the longest axis
+        buffer.position(28 + jsonLength + 8);
+        Assert.assertEquals(0xFFFF, buffer.getShort() & 0xFFFF);
+    }
+
+    @Test
+    public void encodeInvalidObjTest() throws IOException {
+        Path obj = tempDir.resolve("invalid.obj");
+        Files.write(obj, Arrays.asList("v  0.0 0.0 0.0", "f 1 2 3"), StandardCharsets.UTF_8);
+        Assert.assertNull(new MeshEncoder().encode(obj));
+    }
+
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Update;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.*;
+import org.polarsys.eplmp.core.exceptions.IndexerNotAvailableException;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.server.dao.IndexOutboxDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.util.IndicesUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.mockito.Mockito.times;
+
+public class IndexOutboxProcessorTest {
+
+    @InjectMocks
+    private IndexOutboxProcessor indexOutboxProcessor;
+
+    @Mock
+    private IndexOutboxDAO indexOutboxDAO;
+
+    @Mock
+    private PartIterationDAO partIterationDAO;
+
+    @Mock
+    private IndexerQueryBuilder indexerQueryBuilder;
+
+    @Mock
+    private IndexManagerBean indexManager;
+
+    @Mock
+    private IndicesUtils indicesUtils;
+
+    @Mock
+    private IndexerConfig config;
+
+    private PartIterationKey key = new PartIterationKey("wks", "part", "A", 1);
+
+    private List<IndexOutboxEntry> entries;
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(config.getOutboxBatchSize()).thenReturn(100);
+        Mockito.when(config.getBulkMaxBytes()).thenReturn(1024 * 1024);
+        Mockito.when(indicesUtils.formatDocId(Matchers.anyString())).thenReturn("part-a-1");
+
+        PartIteration partIteration = Mockito.mock(PartIteration.class);
+        Mockito.when(partIterationDAO.loadPartI(key, "PartIteration.indexing")).thenReturn(partIteration);
+        Mockito.when(indexerQueryBuilder.updateRequest(partIteration))
+                .thenReturn(new Update.Builder("{\"doc\":{}}").index("parts").type("_doc").id("part-a-1"));
+
+        // Three successive updates of the same part
+        entries = Arrays.asList(new IndexOutboxEntry(key, IndexOutboxEntry.Operation.INDEX),
+                new IndexOutboxEntry(key, IndexOutboxEntry.Operation.INDEX),
+                new IndexOutboxEntry(key, IndexOutboxEntry.Operation.INDEX));
+        Mockito.when(indexOutboxDAO.findReadyEntries(Matchers.any(Date.class), Matchers.eq(100))).thenReturn(entries);
+    }
+
+    @Test
+    public void coalesceEntriesTest() throws Exception {
+        BulkResult bulkResult = new BulkResult(new Gson());
+        bulkResult.setJsonObject(new JsonParser().parse("{\"items\":[]}").getAsJsonObject());
+        bulkResult.setSucceeded(true);
+        Mockito.when(indexManager.sendBulk(Matchers.any(Bulk.Builder.class))).thenReturn(bulkResult);
+
+        Assert.assertEquals(3, indexOutboxProcessor.processBatch());
+
+        Mockito.verify(indexerQueryBuilder, times(1)).updateRequest(Matchers.any(PartIteration.class));
+        Mockito.verify(indexManager, times(1)).sendBulk(Matchers.any(Bulk.Builder.class));
+        Mockito.verify(indexOutboxDAO, times(1)).removeEntries(entries);
+    }
+
+    @Test
+    public void writeToPendingIndicesTest() throws Exception {
+        BulkResult bulkResult = new BulkResult(new Gson());
+        bulkResult.setJsonObject(new JsonParser().parse("{\"items\":[]}").getAsJsonObject());
+        bulkResult.setSucceeded(true);
+        Mockito.when(indexManager.sendBulk(Matchers.any(Bulk.Builder.class))).thenReturn(bulkResult);
+        Mockito.when(indexManager.getPendingIndices("parts")).thenReturn(Collections.singletonList("eplmp-wks~2-parts"));
+
+        indexOutboxProcessor.processBatch();
+
+        // The update is sent to the index being rebuilt as well
+        ArgumentCaptor<Bulk.Builder> bulk = ArgumentCaptor.forClass(Bulk.Builder.class);
+        Mockito.verify(indexManager, times(1)).sendBulk(bulk.capture());
+        String payload = bulk.getValue().build().getData(new Gson());
+        Assert.assertTrue(payload.contains("\"_index\":\"parts\""));
+        Assert.assertTrue(payload.contains("\"_index\":\"eplmp-wks~2-parts\""));
+        Mockito.verify(indexOutboxDAO, times(1)).removeEntries(entries);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void retryWhenIndexerNotAvailableTest() throws Exception {
+        Mockito.when(indexManager.sendBulk(Matchers.any(Bulk.Builder.class))).thenThrow(new IndexerNotAvailableException());
+
+        long before = System.currentTimeMillis();
+        indexOutboxProcessor.processBatch();
+
+        // Only the last entry is kept, and postponed
+        ArgumentCaptor<Collection> removed = ArgumentCaptor.forClass(Collection.class);
+        Mockito.verify(indexOutboxDAO, times(1)).removeEntries(removed.capture());
+        Assert.assertEquals(2, removed.getValue().size());
+        IndexOutboxEntry last = entries.get(2);
+        Assert.assertEquals(1, last.getAttempts());
+        Assert.assertTrue(last.getNextAttemptDate().getTime() > before);
+    }
+}
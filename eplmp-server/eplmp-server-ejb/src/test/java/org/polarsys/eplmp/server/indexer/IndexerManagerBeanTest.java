@@ -14,9 +14,6 @@ import com.google.gson.Gson;
 import io.searchbox.client.JestClient;
 import io.searchbox.client.JestResult;
 import io.searchbox.cluster.Health;
-import io.searchbox.core.Bulk;
-import io.searchbox.core.DocumentResult;
-import io.searchbox.core.Update;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -24,13 +21,16 @@ import org.mockito.*;
 import org.mockito.Mock;
 import org.polarsys.eplmp.core.common.Account;
 import org.polarsys.eplmp.core.document.DocumentIteration;
+import org.polarsys.eplmp.core.document.DocumentIterationKey;
 import org.polarsys.eplmp.core.exceptions.AccountNotFoundException;
 import org.polarsys.eplmp.core.exceptions.IndexerNotAvailableException;
 import org.polarsys.eplmp.core.exceptions.IndexerRequestException;
 import org.polarsys.eplmp.core.exceptions.WorkspaceAlreadyExistsException;
 import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
 import org.polarsys.eplmp.core.services.IAccountManagerLocal;
 import org.polarsys.eplmp.core.services.INotifierLocal;
+import org.polarsys.eplmp.server.dao.IndexOutboxDAO;
 import org.powermock.core.classloader.annotations.*;
 
 import javax.inject.Inject;
@@ -63,6 +63,9 @@ public class IndexerManagerBeanTest {
     @Mock
     private IndexerQueryBuilder indexerQueryBuilder;
 
+    @Mock
+    private IndexOutboxDAO indexOutboxDAO;
+
     private String workspaceId = "wks";
 
     @Before
@@ -128,50 +131,75 @@ public class IndexerManagerBeanTest {
     }
 
     @Test
-    public void indexDocumentIterationTest() throws IndexerNotAvailableException, AccountNotFoundException, IndexerRequestException {
-        DocumentResult documentResult = new DocumentResult(new Gson());
-        DocumentIteration documentIteration = new DocumentIteration();
-        Mockito.when(indexManager.executeUpdate(Matchers.any(Update.Builder.class)))
-            .thenReturn(documentResult);
+    public void indexDocumentIterationTest() {
+        DocumentIteration documentIteration = Mockito.mock(DocumentIteration.class);
+        Mockito.when(documentIteration.getKey()).thenReturn(new DocumentIterationKey(workspaceId, "doc", "A", 1));
+
         indexerManagerBean.indexDocumentIteration(documentIteration);
-        Mockito.verify(indexManager,times(1)).executeUpdate(Matchers.any(Update.Builder.class));
 
+        ArgumentCaptor<IndexOutboxEntry> entry = ArgumentCaptor.forClass(IndexOutboxEntry.class);
+        Mockito.verify(indexOutboxDAO, times(1)).createEntry(entry.capture());
+        Assert.assertEquals(IndexOutboxEntry.ItemType.DOCUMENT, entry.getValue().getItemType());
+        Assert.assertEquals(IndexOutboxEntry.Operation.INDEX, entry.getValue().getOperation());
+        Assert.assertEquals(documentIteration.getKey(), entry.getValue().getDocumentIterationKey());
+        Mockito.verifyZeroInteractions(indexManager);
     }
 
     @Test
-    public void indexPartIterationTest() throws IndexerNotAvailableException, AccountNotFoundException, IndexerRequestException {
-        DocumentResult documentResult = new DocumentResult(new Gson());
-        PartIteration partIteration = new PartIteration();
-        Mockito.when(indexManager.executeUpdate(Matchers.any(Update.Builder.class)))
-                .thenReturn(documentResult);
+    public void indexPartIterationTest() {
+        PartIteration partIteration = Mockito.mock(PartIteration.class);
+        Mockito.when(partIteration.getKey()).thenReturn(new PartIterationKey(workspaceId, "part", "A", 1));
+
         indexerManagerBean.indexPartIteration(partIteration);
-        Mockito.verify(indexManager,times(1)).executeUpdate(Matchers.any(Update.Builder.class));
 
+        ArgumentCaptor<IndexOutboxEntry> entry = ArgumentCaptor.forClass(IndexOutboxEntry.class);
+        Mockito.verify(indexOutboxDAO, times(1)).createEntry(entry.capture());
+        Assert.assertEquals(IndexOutboxEntry.ItemType.PART, entry.getValue().getItemType());
+        Assert.assertEquals(IndexOutboxEntry.Operation.INDEX, entry.getValue().getOperation());
+        Assert.assertEquals(partIteration.getKey(), entry.getValue().getPartIterationKey());
+        Mockito.verifyZeroInteractions(indexManager);
     }
 
     @Test
-    public void indexDocumentIterationsTest() throws IndexerRequestException, IndexerNotAvailableException {
+    public void removePartIterationFromIndexTest() {
+        PartIteration partIteration = Mockito.mock(PartIteration.class);
+        Mockito.when(partIteration.getKey()).thenReturn(new PartIterationKey(workspaceId, "part", "A", 1));
+
+        indexerManagerBean.removePartIterationFromIndex(partIteration);
+
+        ArgumentCaptor<IndexOutboxEntry> entry = ArgumentCaptor.forClass(IndexOutboxEntry.class);
+        Mockito.verify(indexOutboxDAO, times(1)).createEntry(entry.capture());
+        Assert.assertEquals(IndexOutboxEntry.Operation.REMOVE, entry.getValue().getOperation());
+    }
+
+    @Test
+    public void indexDocumentIterationsTest() {
         List<DocumentIteration> documentIterations = new ArrayList<>();
-        documentIterations.add(new DocumentIteration());
-        documentIterations.add(new DocumentIteration());
+        for (int i = 1; i <= 3; i++) {
+            DocumentIteration documentIteration = Mockito.mock(DocumentIteration.class);
+            Mockito.when(documentIteration.getKey()).thenReturn(new DocumentIterationKey(workspaceId, "doc", "A", i));
+            Mockito.when(documentIteration.getCheckInDate()).thenReturn(i < 3 ? new Date() : null);
+            documentIterations.add(documentIteration);
+        }
 
         indexerManagerBean.indexDocumentIterations(documentIterations);
 
-        Mockito.verify(indexManager,times(1))
-                .sendBulk(Matchers.any(Bulk.Builder.class));
-
+        // Checked out iteration is not indexed
+        Mockito.verify(indexOutboxDAO, times(2)).createEntry(Matchers.any(IndexOutboxEntry.class));
     }
 
     @Test
-    public void indexPartIterationsTest() throws IndexerRequestException, IndexerNotAvailableException {
+    public void indexPartIterationsTest() {
         List<PartIteration> partIterations = new ArrayList<>();
-        partIterations.add(new PartIteration());
-        partIterations.add(new PartIteration());
+        for (int i = 1; i <= 3; i++) {
+            PartIteration partIteration = Mockito.mock(PartIteration.class);
+            Mockito.when(partIteration.getKey()).thenReturn(new PartIterationKey(workspaceId, "part", "A", i));
+            Mockito.when(partIteration.getCheckInDate()).thenReturn(i < 3 ? new Date() : null);
+            partIterations.add(partIteration);
+        }
 
         indexerManagerBean.indexPartIterations(partIterations);
 
-        Mockito.verify(indexManager,times(1))
-                .sendBulk(Matchers.any(Bulk.Builder.class));
-
+        Mockito.verify(indexOutboxDAO, times(2)).createEntry(Matchers.any(IndexOutboxEntry.class));
     }
 }
@@ -0,0 +1,129 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.core.SearchResult;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.*;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.product.PartRevisionKey;
+import org.polarsys.eplmp.core.query.PartSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
+import org.polarsys.eplmp.server.dao.DocumentRevisionDAO;
+import org.polarsys.eplmp.server.dao.PartRevisionDAO;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.mockito.Mockito.times;
+
+public class IndexerResultsMapperTest {
+
+    private static final String WORKSPACE_ID = "wks";
+
+    @InjectMocks
+    private IndexerResultsMapper indexerResultsMapper;
+
+    @Mock
+    private DocumentRevisionDAO documentRevisionDAO;
+
+    @Mock
+    private PartRevisionDAO partRevisionDAO;
+
+    private SearchResult searchResult;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        MockitoAnnotations.initMocks(this);
+
+        // Hits sorted by score: iteration 2 of part-b, then both iterations of part-a
+        searchResult = new SearchResult(new Gson());
+        searchResult.setJsonObject(new JsonParser().parse("{\"hits\":{\"total\":3,\"hits\":["
+                + hit("part-b", "Part B", 2, 3.0)
+                + "," + hit("part-a", "Part A", 1, 2.0)
+                + "," + hit("part-a", "Part A", 2, 1.0)
+                + "]}}").getAsJsonObject());
+        searchResult.setPathToResult("hits/hits/_source");
+        searchResult.setSucceeded(true);
+
+        PartRevision partA = mockPartRevision("part-a", 2);
+        PartRevision partB = mockPartRevision("part-b", 3);
+        Mockito.when(partRevisionDAO.findPartRsByKeys(Matchers.eq(WORKSPACE_ID), Matchers.any(Collection.class)))
+                .thenReturn(Arrays.asList(partA, partB));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void hydrateInOneQueryAndKeepHitsOrderTest() {
+        List<PartRevision> partRevisions = indexerResultsMapper.processSearchResult(searchResult, partSearchQuery(false));
+
+        Assert.assertEquals(2, partRevisions.size());
+        Assert.assertEquals("part-b", partRevisions.get(0).getPartNumber());
+        Assert.assertEquals("part-a", partRevisions.get(1).getPartNumber());
+        Mockito.verify(partRevisionDAO, times(1)).findPartRsByKeys(Matchers.eq(WORKSPACE_ID), Matchers.any(Collection.class));
+        Mockito.verify(partRevisionDAO, Mockito.never()).loadPartR(Matchers.any(PartRevisionKey.class));
+    }
+
+    @Test
+    public void fetchHeadOnlyTest() {
+        // part-b hit is not its last checked in iteration
+        List<PartRevision> partRevisions = indexerResultsMapper.processSearchResult(searchResult, partSearchQuery(true));
+
+        Assert.assertEquals(1, partRevisions.size());
+        Assert.assertEquals("part-a", partRevisions.get(0).getPartNumber());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void summariesFromIndexTest() {
+        List<SearchHitSummary> summaries = indexerResultsMapper.processPartSummaries(searchResult);
+
+        Assert.assertEquals(2, summaries.size());
+        SearchHitSummary partA = summaries.get(1);
+        Assert.assertEquals("part-a", partA.getId());
+        Assert.assertEquals("Part A", partA.getTitle());
+        Assert.assertEquals(1, partA.getIteration());
+        Assert.assertEquals("user1", partA.getAuthorLogin());
+        Assert.assertNotNull(partA.getCreationDate());
+        Mockito.verify(partRevisionDAO, Mockito.never()).findPartRsByKeys(Matchers.anyString(), Matchers.any(Collection.class));
+    }
+
+    private PartSearchQuery partSearchQuery(boolean fetchHeadOnly) {
+        return new PartSearchQuery(WORKSPACE_ID, null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, fetchHeadOnly);
+    }
+
+    private PartRevision mockPartRevision(String number, int lastCheckedInIteration) {
+        PartRevision partRevision = Mockito.mock(PartRevision.class);
+        PartIteration partIteration = Mockito.mock(PartIteration.class);
+        Mockito.when(partIteration.getKey()).thenReturn(new PartIterationKey(WORKSPACE_ID, number, "A", lastCheckedInIteration));
+        Mockito.when(partRevision.getKey()).thenReturn(new PartRevisionKey(WORKSPACE_ID, number, "A"));
+        Mockito.when(partRevision.getPartNumber()).thenReturn(number);
+        Mockito.when(partRevision.getLastCheckedInIteration()).thenReturn(partIteration);
+        return partRevision;
+    }
+
+    private String hit(String number, String name, int iteration, double score) {
+        return "{\"_index\":\"parts\",\"_type\":\"_doc\",\"_id\":\"" + number + "-A-" + iteration + "\",\"_score\":" + score
+                + ",\"_source\":{\"workspaceId\":\"" + WORKSPACE_ID + "\",\"partNumber\":\"" + number
+                + "\",\"partName\":\"" + name + "\",\"version\":\"A\",\"iteration\":" + iteration
+                + ",\"authorLogin\":\"user1\",\"creationDate\":\"2019-03-01T10:15:30.000Z\"}}";
+    }
+}
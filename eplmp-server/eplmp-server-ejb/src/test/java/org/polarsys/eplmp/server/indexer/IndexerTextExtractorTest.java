@@ -0,0 +1,144 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.*;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.extractors.PlainTextExtractor;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.inject.Instance;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+
+public class IndexerTextExtractorTest {
+
+    @InjectMocks
+    private IndexerTextExtractor textExtractor;
+
+    @Mock
+    private IBinaryStorageManagerLocal storageManager;
+
+    @Mock
+    private ExtractedTextCacheBean extractedTextCache;
+
+    @Mock
+    private Instance<TextExtractor> textExtractors;
+
+    @Mock
+    private IndexerConfig config;
+
+    @Mock
+    private ManagedExecutorService executorService;
+
+    private BinaryResource textFile = new BinaryResource("wks/documents/doc/A/1/notes.txt", 5, new Date());
+
+    private BinaryResource cadFile = new BinaryResource("wks/parts/part/A/1/nativecad/part.step", 5, new Date());
+
+    @Before
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(config.getExtractionParallelism()).thenReturn(2);
+        Mockito.when(config.getExtractionMaxBytes()).thenReturn(1024);
+        Mockito.when(config.getExtractionTimeout()).thenReturn(10);
+        Mockito.when(config.getMaxIndexedLength()).thenReturn(1024);
+        List<TextExtractor> extractors = Collections.singletonList(new PlainTextExtractor());
+        Mockito.when(textExtractors.iterator()).thenAnswer(invocation -> extractors.iterator());
+        // Run the extractions in the calling thread
+        Mockito.when(executorService.submit(Matchers.<Callable<Object>>any())).thenAnswer(invocation -> {
+            CompletableFuture<Object> future = new CompletableFuture<>();
+            try {
+                future.complete(((Callable<?>) invocation.getArguments()[0]).call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        });
+        textExtractor.init();
+        Mockito.when(storageManager.getBinaryResourceInputStream(Matchers.any(BinaryResource.class)))
+                .thenAnswer(invocation -> new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void extractAndStoreTextTest() throws Exception {
+        Map<String, String> contentInputs = textExtractor.getContentInputs(Collections.singleton(textFile));
+
+        Assert.assertEquals("hello", contentInputs.get("notes.txt"));
+        Mockito.verify(extractedTextCache, times(1))
+                .storeText(Matchers.anyString(), Matchers.eq(IndexerTextExtractor.EXTRACTOR_VERSION), Matchers.eq("hello"));
+    }
+
+    @Test
+    public void reuseStoredTextTest() throws Exception {
+        Mockito.when(extractedTextCache.getText(Matchers.anyString(), Matchers.eq(IndexerTextExtractor.EXTRACTOR_VERSION)))
+                .thenReturn("stored");
+
+        Map<String, String> contentInputs = textExtractor.getContentInputs(Collections.singleton(textFile));
+
+        Assert.assertEquals("stored", contentInputs.get("notes.txt"));
+        // Read once for the digest only
+        Mockito.verify(storageManager, times(1)).getBinaryResourceInputStream(textFile);
+        Mockito.verify(extractedTextCache, never()).storeText(Matchers.anyString(), Matchers.anyInt(), Matchers.anyString());
+    }
+
+    @Test
+    public void truncateTextTest() throws Exception {
+        Mockito.when(config.getMaxIndexedLength()).thenReturn(3);
+
+        Map<String, String> contentInputs = textExtractor.getContentInputs(Collections.singleton(textFile));
+
+        Assert.assertEquals("hel", contentInputs.get("notes.txt"));
+    }
+
+    @Test
+    public void skipUnsupportedFilesTest() throws Exception {
+        Map<String, String> contentInputs = textExtractor.getContentInputs(Collections.singleton(cadFile));
+
+        Assert.assertEquals("", contentInputs.get("part.step"));
+        Mockito.verify(storageManager, never()).getBinaryResourceInputStream(cadFile);
+    }
+
+    @Test
+    public void releasePermitOfTimedOutExtractionTest() throws Exception {
+        Mockito.when(config.getExtractionParallelism()).thenReturn(1);
+        Mockito.when(config.getExtractionTimeout()).thenReturn(0);
+        textExtractor.init();
+        // An extraction which never ends, as a parser ignoring the interruption
+        Mockito.when(executorService.submit(Matchers.<Callable<Object>>any())).thenReturn(new CompletableFuture<>());
+
+        Map<String, String> contentInputs = textExtractor.getContentInputs(Collections.singleton(textFile));
+        Assert.assertEquals("", contentInputs.get("notes.txt"));
+
+        // The only permit is available again for the next extraction
+        Mockito.when(executorService.submit(Matchers.<Callable<Object>>any())).thenAnswer(invocation -> {
+            ((Callable<?>) invocation.getArguments()[0]).call();
+            return CompletableFuture.completedFuture(null);
+        });
+        contentInputs = textExtractor.getContentInputs(Collections.singleton(textFile));
+        Assert.assertEquals("hello", contentInputs.get("notes.txt"));
+    }
+}
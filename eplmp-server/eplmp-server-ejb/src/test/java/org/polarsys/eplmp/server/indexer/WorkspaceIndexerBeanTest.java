@@ -0,0 +1,136 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import io.searchbox.core.Bulk;
+import io.searchbox.core.BulkResult;
+import io.searchbox.core.Update;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.*;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.server.dao.DocumentMasterDAO;
+import org.polarsys.eplmp.server.dao.DocumentRevisionDAO;
+import org.polarsys.eplmp.server.dao.PartIterationDAO;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.indexer.config.IndexerConfig;
+import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
+
+import javax.ejb.AsyncResult;
+import java.util.*;
+
+import static org.mockito.Mockito.times;
+
+public class WorkspaceIndexerBeanTest {
+
+    private static final String WORKSPACE_ID = "wks";
+    private static final String PARTS_INDEX = "eplmp-wks~1-parts";
+    private static final Map<String, String> INDICES = new HashMap<>();
+
+    static {
+        INDICES.put(IndexerMapping.INDEX_DOCUMENTS, "eplmp-wks~1-documents");
+        INDICES.put(IndexerMapping.INDEX_PARTS, PARTS_INDEX);
+    }
+
+    @InjectMocks
+    private WorkspaceIndexerBean workspaceIndexer;
+
+    @Mock
+    private DocumentMasterDAO documentMasterDAO;
+
+    @Mock
+    private DocumentRevisionDAO documentRevisionDAO;
+
+    @Mock
+    private PartMasterDAO partMasterDAO;
+
+    @Mock
+    private PartIterationDAO partIterationDAO;
+
+    @Mock
+    private IndexerQueryBuilder indexerQueryBuilder;
+
+    @Mock
+    private IndexerTextExtractor textExtractor;
+
+    @Mock
+    private IndexManagerBean indexManager;
+
+    @Mock
+    private IndexerConfig config;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        Mockito.when(config.getReindexParallelism()).thenReturn(2);
+        Mockito.when(documentMasterDAO.getIdsByWorkspace(Matchers.eq(WORKSPACE_ID), Matchers.anyString(), Matchers.anyInt()))
+                .thenReturn(new ArrayList<>());
+        Mockito.when(partMasterDAO.getCountByWorkspace(WORKSPACE_ID)).thenReturn(2L);
+
+        List<String> numbers = Arrays.asList("part-1", "part-2");
+        Mockito.when(partMasterDAO.getNumbersByWorkspace(Matchers.eq(WORKSPACE_ID), Matchers.isNull(String.class), Matchers.anyInt()))
+                .thenReturn(numbers);
+        Mockito.when(partMasterDAO.getNumbersByWorkspace(Matchers.eq(WORKSPACE_ID), Matchers.eq("part-2"), Matchers.anyInt()))
+                .thenReturn(new ArrayList<>());
+
+        List<PartIteration> partIterations = new ArrayList<>();
+        for (String number : numbers) {
+            PartIteration partIteration = Mockito.mock(PartIteration.class);
+            Mockito.when(partIteration.getAttachedFiles()).thenReturn(new HashSet<>());
+            Mockito.when(partIteration.getKey()).thenReturn(new PartIterationKey(WORKSPACE_ID, number, "A", 1));
+            Mockito.when(indexerQueryBuilder.insertRequest(Matchers.eq(partIteration), Matchers.anyMap(), Matchers.eq(PARTS_INDEX)))
+                    .thenReturn(new Update.Builder("{\"upsert\":{\"number\":\"" + number + "\"}}").index(PARTS_INDEX).type("_doc").id(number));
+            partIterations.add(partIteration);
+        }
+        Mockito.when(partIterationDAO.findByPartMasterNumbers(WORKSPACE_ID, numbers)).thenReturn(partIterations);
+
+        Mockito.when(textExtractor.getContentInputs(Matchers.<List<Set<BinaryResource>>>any())).thenAnswer(invocation -> {
+            List<Map<String, String>> contentInputs = new ArrayList<>();
+            for (Object ignored : (List) invocation.getArguments()[0]) {
+                contentInputs.add(new HashMap<>());
+            }
+            return new AsyncResult<>(contentInputs);
+        });
+
+        BulkResult bulkResult = new BulkResult(new Gson());
+        bulkResult.setJsonObject(new JsonParser().parse("{\"items\":[]}").getAsJsonObject());
+        bulkResult.setSucceeded(true);
+        Mockito.when(indexManager.sendBulk(Matchers.any(Bulk.Builder.class))).thenReturn(bulkResult);
+    }
+
+    @Test
+    public void seekPagesAndExtractInParallelTest() throws Exception {
+        Mockito.when(config.getBulkMaxBytes()).thenReturn(1024 * 1024);
+
+        Assert.assertTrue(workspaceIndexer.indexWorkspace(WORKSPACE_ID, INDICES).isEmpty());
+
+        Mockito.verify(partMasterDAO, times(1)).getNumbersByWorkspace(Matchers.eq(WORKSPACE_ID), Matchers.eq("part-2"), Matchers.anyInt());
+        Mockito.verify(textExtractor, times(2)).getContentInputs(Matchers.<List<Set<BinaryResource>>>any());
+        Mockito.verify(indexManager, times(1)).sendBulk(Matchers.any(Bulk.Builder.class));
+    }
+
+    @Test
+    public void splitBulkOnPayloadSizeTest() throws Exception {
+        // Room for a single action per bulk
+        Mockito.when(config.getBulkMaxBytes()).thenReturn(160);
+
+        workspaceIndexer.indexWorkspace(WORKSPACE_ID, INDICES);
+
+        Mockito.verify(indexManager, times(2)).sendBulk(Matchers.any(Bulk.Builder.class));
+    }
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.embedded;
+
+import io.searchbox.client.JestResult;
+import io.searchbox.core.*;
+import io.searchbox.indices.CreateIndex;
+import io.searchbox.indices.IndicesExists;
+import io.searchbox.indices.aliases.AddAliasMapping;
+import io.searchbox.indices.aliases.ModifyAliases;
+import io.searchbox.indices.aliases.RemoveAliasMapping;
+import io.searchbox.indices.template.PutTemplate;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.polarsys.eplmp.core.query.DocumentSearchQuery;
+import org.polarsys.eplmp.core.query.PartSearchQuery;
+import org.polarsys.eplmp.server.indexer.IndexerQueryBuilder;
+import org.polarsys.eplmp.server.indexer.util.IndexerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class EmbeddedIndexClientTest {
+
+    private static final String ALIAS = "localhost-eplmp-wks-parts";
+    private static final String INDEX = "localhost-eplmp-wks~1-parts";
+
+    private Path root;
+    private EmbeddedIndexClient client;
+
+    @Before
+    public void setup() throws Exception {
+        root = Files.createTempDirectory("eplmp-indices");
+        client = new EmbeddedIndexClient(root);
+        putTemplates();
+
+        Assert.assertTrue(client.execute(new CreateIndex.Builder(INDEX)
+                .payload("{\"aliases\":{\"" + ALIAS + "\":{}}}").build()).isSucceeded());
+
+        BulkResult result = client.execute(new Bulk.Builder()
+                .addAction(insert(ALIAS, "wheel-A-1", "wheel", "Front wheel"))
+                .addAction(insert(ALIAS, "engine-A-1", "engine", "Diesel engine"))
+                .addAction(insert(ALIAS, "seat-A-1", "seat", "Driver seat"))
+                .build());
+        Assert.assertTrue(result.isSucceeded());
+        Assert.assertTrue(result.getFailedItems().isEmpty());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.close();
+        FileUtils.deleteDirectory(root.toFile());
+    }
+
+    @Test
+    public void searchWithIndexerQueriesTest() throws Exception {
+        // Fuzzy match on a text field
+        Assert.assertEquals(Arrays.asList("wheel"), searchPartNumbers(partSearchQuery(null, "Frnt")));
+        // Exact match on a keyword field
+        Assert.assertEquals(Arrays.asList("engine"), searchPartNumbers(partSearchQuery("engine", null)));
+        Assert.assertTrue(searchPartNumbers(partSearchQuery("eng", null)).isEmpty());
+    }
+
+    @Test
+    public void insertDoesNotOverwriteUpdatesTest() throws Exception {
+        Update update = new Update.Builder("{\"doc_as_upsert\":true,\"doc\":{\"partNumber\":\"wheel\",\"partName\":\"Rear wheel\"}}")
+                .index(ALIAS).type(IndexerMapping.TYPE).id("wheel-A-1").build();
+        Assert.assertTrue(client.execute(update).isSucceeded());
+
+        client.execute(new Bulk.Builder().addAction(insert(ALIAS, "wheel-A-1", "wheel", "Front wheel")).build());
+
+        Assert.assertEquals(Arrays.asList("wheel"), searchPartNumbers(partSearchQuery(null, "rear")));
+        Assert.assertTrue(searchPartNumbers(partSearchQuery(null, "front")).isEmpty());
+    }
+
+    @Test
+    public void deleteTest() throws Exception {
+        BulkResult result = client.execute(new Bulk.Builder()
+                .addAction(new Delete.Builder("seat-A-1").index(ALIAS).type(IndexerMapping.TYPE).build())
+                .addAction(new Delete.Builder("unknown-A-1").index(ALIAS).type(IndexerMapping.TYPE).build())
+                .build());
+
+        Assert.assertTrue(result.getFailedItems().isEmpty());
+        Assert.assertTrue(searchPartNumbers(partSearchQuery("seat", null)).isEmpty());
+    }
+
+    @Test
+    public void swapAliasAndReopenTest() throws Exception {
+        String newIndex = "localhost-eplmp-wks~2-parts";
+        Assert.assertTrue(client.execute(new CreateIndex.Builder(newIndex).build()).isSucceeded());
+        client.execute(new Bulk.Builder().addAction(insert(newIndex, "gear-A-1", "gear", "Gear box")).build());
+
+        JestResult result = client.execute(new ModifyAliases.Builder(Arrays.asList(
+                new AddAliasMapping.Builder(newIndex, ALIAS).build(),
+                new RemoveAliasMapping.Builder(INDEX, ALIAS).build())).build());
+        Assert.assertTrue(result.getErrorMessage(), result.isSucceeded());
+
+        client.close();
+        client = new EmbeddedIndexClient(root);
+
+        Assert.assertEquals(Arrays.asList("gear"), searchPartNumbers(partSearchQuery(null, null)));
+        Assert.assertTrue(client.execute(new IndicesExists.Builder(INDEX).build()).isSucceeded());
+        Assert.assertFalse(client.execute(new IndicesExists.Builder("localhost-eplmp-wks~3-parts").build()).isSucceeded());
+    }
+
+    @Test
+    public void minimumShouldMatchPercentageTest() throws Exception {
+        String query = "{\"query\":{\"bool\":{\"should\":["
+                + "{\"term\":{\"partNumber\":\"wheel\"}},{\"term\":{\"partNumber\":\"engine\"}},"
+                + "{\"match\":{\"partName\":\"wheel\"}},{\"match\":{\"partName\":\"seat\"}}],"
+                + "\"minimum_should_match\":\"50%\"}}}";
+        SearchResult result = client.execute(new Search.Builder(query).addIndex(ALIAS).addType(IndexerMapping.TYPE).build());
+
+        Assert.assertTrue(result.getErrorMessage(), result.isSucceeded());
+        Assert.assertEquals(Arrays.asList("{\"workspaceId\":\"wks\",\"partNumber\":\"wheel\",\"partName\":\"Front wheel\"}"),
+                result.getSourceAsStringList());
+    }
+
+    @Test
+    public void hideHomeFoldersOfOtherUsersTest() throws Exception {
+        String index = "localhost-eplmp-wks~1-documents";
+        Assert.assertTrue(client.execute(new CreateIndex.Builder(index).build()).isSucceeded());
+        client.execute(new Bulk.Builder()
+                .addAction(upsert(index, "shared-A-1", "{\"docMId\":\"shared\",\"folder\":\"specs\",\"folderOwner\":\"\"}"))
+                .addAction(upsert(index, "mine-A-1", "{\"docMId\":\"mine\",\"folder\":\"~user1\",\"folderOwner\":\"user1\"}"))
+                .addAction(upsert(index, "other-A-1", "{\"docMId\":\"other\",\"folder\":\"~user2\",\"folderOwner\":\"user2\"}"))
+                // Indexed before the folder owner was mapped
+                .addAction(upsert(index, "legacy-A-1", "{\"docMId\":\"legacy\",\"folder\":\"specs\"}"))
+                .addAction(upsert(index, "legacy-home-A-1", "{\"docMId\":\"legacy-home\",\"folder\":\"~user2\"}"))
+                .build());
+
+        DocumentSearchQuery query = new DocumentSearchQuery("wks", null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, false);
+        QueryBuilder queryBuilder = new IndexerQueryBuilder().getSearchQueryBuilder(query, "user1");
+        SearchResult result = client.execute(new Search.Builder(new SearchSourceBuilder().query(queryBuilder).from(0).size(10).toString())
+                .addIndex(index)
+                .addType(IndexerMapping.TYPE)
+                .build());
+
+        Assert.assertTrue(result.getErrorMessage(), result.isSucceeded());
+        Assert.assertEquals(Arrays.asList("legacy", "mine", "shared"), result.getSourceAsStringList().stream()
+                .map(source -> source.replaceAll(".*\"docMId\":\"([^\"]*)\".*", "$1"))
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+
+    private List<String> searchPartNumbers(PartSearchQuery query) throws IOException {
+        QueryBuilder queryBuilder = new IndexerQueryBuilder().getSearchQueryBuilder(query);
+        SearchResult result = client.execute(new Search.Builder(new SearchSourceBuilder().query(queryBuilder).from(0).size(10).toString())
+                .addIndex(ALIAS)
+                .addType(IndexerMapping.TYPE)
+                .build());
+        Assert.assertTrue(result.getErrorMessage(), result.isSucceeded());
+        return result.getSourceAsStringList().stream()
+                .map(source -> source.replaceAll(".*\"partNumber\":\"([^\"]*)\".*", "$1"))
+                .collect(Collectors.toList());
+    }
+
+    private PartSearchQuery partSearchQuery(String partNumber, String name) {
+        return new PartSearchQuery("wks", null, partNumber, name, null, null, null, null, null, null,
+                null, null, null, null, null, false);
+    }
+
+    private Update insert(String index, String id, String partNumber, String partName) {
+        return new Update.Builder("{\"script\":{\"source\":\"ctx.op = 'none'\",\"lang\":\"painless\"},"
+                + "\"upsert\":{\"workspaceId\":\"wks\",\"partNumber\":\"" + partNumber + "\",\"partName\":\"" + partName + "\"}}")
+                .index(index).type(IndexerMapping.TYPE).id(id).build();
+    }
+
+    private Update upsert(String index, String id, String source) {
+        return new Update.Builder("{\"doc_as_upsert\":true,\"doc\":" + source + "}")
+                .index(index).type(IndexerMapping.TYPE).id(id).build();
+    }
+
+    private void putTemplates() throws IOException {
+        for (String template : Arrays.asList(IndexerMapping.COMMON_TEMPLATE, IndexerMapping.DOCUMENT_TEMPLATE, IndexerMapping.PART_TEMPLATE)) {
+            try (InputStream inputStream = getClass().getResourceAsStream(template)) {
+                String source = new String(IOUtils.toByteArray(inputStream), StandardCharsets.UTF_8);
+                Assert.assertTrue(client.execute(new PutTemplate.Builder(template.substring(template.lastIndexOf('/') + 1), source).build()).isSucceeded());
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.indexer.extractors;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.server.extractors.TextExtractor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+public class TextExtractorsTest {
+
+    @Test
+    public void extractHtmlTest() throws Exception {
+        String text = extract(new HtmlTextExtractor(), ".html", "<html><body><h1>Title</h1><p>Some <b>text</b></p></body></html>");
+        Assert.assertTrue(text.contains("Title"));
+        Assert.assertTrue(text.contains("text"));
+        Assert.assertFalse(text.contains("<"));
+    }
+
+    @Test
+    public void extractXmlTest() throws Exception {
+        String text = extract(new XmlTextExtractor(), ".xml", "<part><name>Wheel</name><material>Steel</material></part>");
+        Assert.assertEquals("Wheel Steel ", text);
+    }
+
+    @Test
+    public void extractRtfTest() throws Exception {
+        String text = extract(new RtfTextExtractor(), ".rtf", "{\\rtf1\\ansi Hello {\\b world}}");
+        Assert.assertTrue(text.contains("Hello world"));
+    }
+
+    @Test
+    public void stopOnInputLimitTest() throws Exception {
+        BoundedInputStream in = new BoundedInputStream(new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)), 4);
+        BoundedWriter out = new BoundedWriter(100);
+        new PlainTextExtractor().extract(".txt", in, out);
+        Assert.assertTrue(in.isLimitReached());
+        Assert.assertEquals("0123", out.getText());
+    }
+
+    @Test(expected = ExtractionLimitException.class)
+    public void stopOnTextLimitTest() throws Exception {
+        new PlainTextExtractor().extract(".txt", new ByteArrayInputStream("0123456789".getBytes(StandardCharsets.UTF_8)), new BoundedWriter(4));
+    }
+
+    private String extract(TextExtractor extractor, String extension, String content) throws IOException {
+        Assert.assertTrue(extractor.canExtract(extension));
+        BoundedWriter out = new BoundedWriter(1024);
+        try (InputStream in = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))) {
+            extractor.extract(extension, in, out);
+        }
+        return out.getText();
+    }
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.lookup;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.server.dao.PartMasterDAO;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+
+import java.util.Collections;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PartLookupIndexBeanTest {
+
+    private static final String WORKSPACE_ID = "wks";
+
+    @InjectMocks
+    private PartLookupIndexBean partLookupIndex;
+
+    @Mock
+    private PartMasterDAO partMasterDAO;
+
+    @Before
+    public void setup() {
+        Mockito.when(partMasterDAO.getNamesByNumber(WORKSPACE_ID))
+                .thenReturn(Collections.singletonMap("PRT-100", "Front wheel"));
+    }
+
+    @Test
+    public void loadIndexOnceTest() {
+        Assert.assertEquals(Collections.singletonList("PRT-100"), partLookupIndex.findPartNumbers(WORKSPACE_ID, "wheel", 10));
+        Assert.assertEquals(Collections.singletonList("PRT-100"), partLookupIndex.findPartNumbers(WORKSPACE_ID, "prt", 10));
+        Mockito.verify(partMasterDAO, Mockito.times(1)).getNamesByNumber(WORKSPACE_ID);
+    }
+
+    @Test
+    public void dropIndexOfRemovedWorkspaceTest() {
+        partLookupIndex.findPartNumbers(WORKSPACE_ID, "wheel", 10);
+        partLookupIndex.onWorkspaceRemoved(new WorkspaceEvent(new Workspace(WORKSPACE_ID)));
+
+        Mockito.when(partMasterDAO.getNamesByNumber(WORKSPACE_ID)).thenReturn(Collections.emptyMap());
+        Assert.assertEquals(Collections.emptyList(), partLookupIndex.findPartNumbers(WORKSPACE_ID, "wheel", 10));
+        Mockito.verify(partMasterDAO, Mockito.times(2)).getNamesByNumber(WORKSPACE_ID);
+    }
+}
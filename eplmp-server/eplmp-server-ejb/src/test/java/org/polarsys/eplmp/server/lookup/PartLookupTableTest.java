@@ -0,0 +1,77 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.lookup;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PartLookupTableTest {
+
+    private PartLookupTable table;
+
+    @Before
+    public void setup() {
+        table = new PartLookupTable();
+        Map<String, String> namesByNumber = new HashMap<>();
+        namesByNumber.put("PRT-100", "Front wheel");
+        namesByNumber.put("PRT-200", "Rear wheel");
+        namesByNumber.put("ENG-300", "Engine");
+        namesByNumber.put("BLT-400", null);
+        table.load(namesByNumber);
+    }
+
+    @Test
+    public void findInNumbersAndNamesTest() {
+        Assert.assertEquals(Arrays.asList("PRT-100", "PRT-200"), table.find("WHEEL", 10));
+        Assert.assertEquals(Arrays.asList("ENG-300"), table.find("eng", 10));
+        Assert.assertEquals(Arrays.asList("PRT-100", "PRT-200"), table.find("prt-", 10));
+        Assert.assertEquals(Collections.singletonList("PRT-100"), table.find("wheel", 1));
+        // No match across the number and the name
+        Assert.assertTrue(table.find("300engine", 10).isEmpty());
+    }
+
+    @Test
+    public void findShortTextTest() {
+        Assert.assertEquals(Arrays.asList("ENG-300", "PRT-100", "PRT-200"), table.find("e", 10));
+        Assert.assertEquals(Arrays.asList("BLT-400", "ENG-300"), table.find("", 2));
+    }
+
+    @Test
+    public void addAndRemoveTest() {
+        table.add("GR-500", "Gear wheel");
+        table.remove("PRT-200");
+
+        Assert.assertEquals(Arrays.asList("GR-500", "PRT-100"), table.find("wheel", 10));
+        Assert.assertTrue(table.find("rear", 10).isEmpty());
+    }
+
+    @Test
+    public void changesWhileLoadingTest() throws Exception {
+        PartLookupTable loading = new PartLookupTable();
+        loading.add("NEW-1", "New part");
+        loading.remove("OLD-1");
+
+        Map<String, String> namesByNumber = new HashMap<>();
+        namesByNumber.put("OLD-1", "Old part");
+        namesByNumber.put("KEPT-1", "Kept part");
+        loading.load(namesByNumber);
+
+        Assert.assertTrue(loading.awaitLoaded());
+        Assert.assertEquals(Arrays.asList("KEPT-1", "NEW-1"), loading.find("part", 10));
+    }
+}
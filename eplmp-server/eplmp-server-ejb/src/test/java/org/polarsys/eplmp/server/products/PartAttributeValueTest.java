@@ -0,0 +1,73 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.meta.*;
+import org.polarsys.eplmp.core.product.InstancePartNumberAttribute;
+import org.polarsys.eplmp.core.product.PartIterationKey;
+import org.polarsys.eplmp.core.product.PartMaster;
+
+import java.util.Date;
+
+public class PartAttributeValueTest {
+
+    private static final PartIterationKey KEY = new PartIterationKey("wks", "PART-001", "A", 2);
+
+    @Test
+    public void copyKeyAndNameTest() {
+        PartAttributeValue value = new PartAttributeValue(KEY, new InstanceTextAttribute("color", "red", false));
+
+        Assert.assertEquals("wks", value.getWorkspaceId());
+        Assert.assertEquals("PART-001", value.getPartNumber());
+        Assert.assertEquals("A", value.getVersion());
+        Assert.assertEquals(2, value.getIteration());
+        Assert.assertEquals("color", value.getName());
+        Assert.assertEquals(PartAttributeValue.Type.TEXT, value.getAttributeType());
+        Assert.assertEquals("red", value.getTextValue());
+    }
+
+    @Test
+    public void copyTypedValuesTest() {
+        Date date = new Date();
+
+        PartAttributeValue number = new PartAttributeValue(KEY, new InstanceNumberAttribute("weight", 1.5f, false));
+        Assert.assertEquals(PartAttributeValue.Type.NUMBER, number.getAttributeType());
+        Assert.assertEquals(Float.valueOf(1.5f), number.getNumberValue());
+        Assert.assertNull(number.getTextValue());
+
+        PartAttributeValue dateValue = new PartAttributeValue(KEY, new InstanceDateAttribute("due", date, false));
+        Assert.assertEquals(PartAttributeValue.Type.DATE, dateValue.getAttributeType());
+        Assert.assertEquals(date, dateValue.getDateValue());
+
+        PartAttributeValue booleanValue = new PartAttributeValue(KEY, new InstanceBooleanAttribute("valid", true, false));
+        Assert.assertEquals(PartAttributeValue.Type.BOOLEAN, booleanValue.getAttributeType());
+        Assert.assertEquals(Boolean.TRUE, booleanValue.getBooleanValue());
+
+        PartAttributeValue url = new PartAttributeValue(KEY, new InstanceURLAttribute("site", "http://example.org", false));
+        Assert.assertEquals(PartAttributeValue.Type.URL, url.getAttributeType());
+        Assert.assertEquals("http://example.org", url.getTextValue());
+
+        PartMaster partMaster = new PartMaster();
+        partMaster.setNumber("PART-002");
+        PartAttributeValue partNumber = new PartAttributeValue(KEY, new InstancePartNumberAttribute("spare", partMaster, false));
+        Assert.assertEquals(PartAttributeValue.Type.PART_NUMBER, partNumber.getAttributeType());
+        Assert.assertEquals("PART-002", partNumber.getTextValue());
+    }
+
+    @Test
+    public void longTextIsNotCopiedTest() {
+        Assert.assertFalse(PartAttributeValue.isCopied(new InstanceLongTextAttribute("notes", "long text", false)));
+        Assert.assertTrue(PartAttributeValue.isCopied(new InstanceTextAttribute("color", "red", false)));
+    }
+}
@@ -0,0 +1,142 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.products;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.polarsys.eplmp.core.common.Workspace;
+import org.polarsys.eplmp.core.meta.InstanceListOfValuesAttribute;
+import org.polarsys.eplmp.core.meta.NameValuePair;
+import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryContext;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.query.QueryRule;
+import org.polarsys.eplmp.server.events.WorkspaceEvent;
+
+import java.util.*;
+
+public class QueryResultCacheBeanTest {
+
+    private static final String WORKSPACE_ID = "wks";
+    private static final String LOGIN = "user1";
+
+    private QueryResultCacheBean cache;
+    private List<QueryResultRow> rows;
+
+    @Before
+    public void setup() {
+        cache = new QueryResultCacheBean();
+        rows = Collections.singletonList(createRow("PART-1"));
+    }
+
+    @Test
+    public void getRowsOfSameDefinitionTest() {
+        long version = cache.getVersion(WORKSPACE_ID);
+        cache.putRows(WORKSPACE_ID, LOGIN, createQuery("PART-1"), version, rows);
+
+        Assert.assertEquals(rows, cache.getRows(WORKSPACE_ID, LOGIN, createQuery("PART-1")));
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, createQuery("PART-2")));
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, "user2", createQuery("PART-1")));
+        Assert.assertNull(cache.getRows("other", LOGIN, createQuery("PART-1")));
+    }
+
+    @Test
+    public void changeInvalidatesRowsTest() {
+        Query query = createQuery("PART-1");
+        long version = cache.getVersion(WORKSPACE_ID);
+        cache.putRows(WORKSPACE_ID, LOGIN, query, version, rows);
+
+        cache.invalidate("other");
+        Assert.assertEquals(rows, cache.getRows(WORKSPACE_ID, LOGIN, query));
+
+        cache.invalidate(WORKSPACE_ID);
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, query));
+
+        // Rows read before the change are not kept
+        cache.putRows(WORKSPACE_ID, LOGIN, query, version, rows);
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, query));
+    }
+
+    @Test
+    public void largeResultsAreNotKeptTest() {
+        Query query = createQuery("PART-1");
+        List<QueryResultRow> largeRows = new ArrayList<>();
+        for (int i = 0; i <= QueryResultCacheBean.MAX_CACHED_ROWS; i++) {
+            largeRows.add(createRow("PART-1"));
+        }
+        cache.putRows(WORKSPACE_ID, LOGIN, query, cache.getVersion(WORKSPACE_ID), largeRows);
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, query));
+    }
+
+    @Test
+    public void membershipChangeInvalidatesRowsTest() {
+        Query query = createQuery("PART-1");
+        cache.putRows(WORKSPACE_ID, LOGIN, query, cache.getVersion(WORKSPACE_ID), rows);
+
+        cache.onWorkspaceChanged(new WorkspaceEvent(new Workspace(WORKSPACE_ID)));
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, query));
+    }
+
+    @Test
+    public void onlyProjectionsAreKeptTest() {
+        Query contextQuery = createQuery("PART-1");
+        QueryContext context = new QueryContext();
+        context.setConfigurationItemId("PRODUCT-1");
+        contextQuery.setContexts(Collections.singletonList(context));
+        Assert.assertFalse(QueryResultCacheBean.isCacheable(contextQuery));
+        cache.putRows(WORKSPACE_ID, LOGIN, contextQuery, cache.getVersion(WORKSPACE_ID), rows);
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, contextQuery));
+
+        Query query = createQuery("PART-1");
+        cache.putRows(WORKSPACE_ID, LOGIN, query, cache.getVersion(WORKSPACE_ID), Collections.singletonList(new QueryResultRow()));
+        Assert.assertNull(cache.getRows(WORKSPACE_ID, LOGIN, query));
+    }
+
+    @Test
+    public void copyRowTest() {
+        InstanceListOfValuesAttribute attribute = new InstanceListOfValuesAttribute();
+        attribute.setName("color");
+        attribute.setItems(new ArrayList<>(Arrays.asList(new NameValuePair("red", "1"), new NameValuePair("blue", "2"))));
+        attribute.setIndexValue(1);
+        QueryResultRow row = createRow("PART-1");
+        row.getInstanceAttributes().add(attribute);
+
+        QueryResultRow copy = QueryResultCacheBean.copyRow(row);
+        attribute.getItems().clear();
+        row.getValues().put("pm.number", "PART-2");
+
+        Assert.assertEquals("PART-1", copy.getValue("pm.number"));
+        InstanceListOfValuesAttribute attributeCopy = (InstanceListOfValuesAttribute) copy.getInstanceAttributes().get(0);
+        Assert.assertNotSame(attribute, attributeCopy);
+        Assert.assertEquals("blue", attributeCopy.getSelectedName());
+    }
+
+    private QueryResultRow createRow(String partNumber) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("pm.number", partNumber);
+        return new QueryResultRow(values);
+    }
+
+    private Query createQuery(String partNumber) {
+        QueryRule rule = new QueryRule();
+        rule.setField("pm.number");
+        rule.setOperator("equal");
+        rule.setType("string");
+        rule.setValues(Collections.singletonList(partNumber));
+
+        Query query = new Query();
+        query.setQueryRule(rule);
+        query.setSelects(Collections.singletonList("pm.number"));
+        return query;
+    }
+}
@@ -66,4 +66,15 @@ public interface CADConverter {
      * @return true if the converter can handle the conversion, false otherwise
      */
     boolean canConvertToOBJ(String cadFileExtension);
+
+    /**
+     * Identify the converter implementation and its version.
+     * A previous conversion result is reused for an identical CAD file only
+     * if it has been produced by the same converter version.
+     *
+     * @return the converter version identifier
+     */
+    default String getConverterVersion() {
+        return getClass().getName();
+    }
 }
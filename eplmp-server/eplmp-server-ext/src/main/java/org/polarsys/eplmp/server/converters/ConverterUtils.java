@@ -16,12 +16,21 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * This ConverterUtils class expose util methods around files conversion
  */
 public class ConverterUtils {
 
+    private static final Logger LOGGER = Logger.getLogger(ConverterUtils.class.getName());
+    private static final long KILL_CHILDREN_TIMEOUT = 5;
+
     private ConverterUtils() {
     }
 
@@ -43,4 +52,100 @@ public class ConverterUtils {
         return output.toString();
     }
 
+    /**
+     * Forcibly kill the given process and all its descendants.
+     * Converters and decimaters are often launched through shell scripts: destroying the
+     * script process only would leave the actual worker running.
+     *
+     * @param process the process to kill
+     */
+    public static void destroyProcessTree(Process process) {
+        Long pid = getPid(process);
+        if (pid != null) {
+            destroyProcessTrees(Collections.singletonList(pid));
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * Forcibly kill the processes whose command line refers to the given path, and all their descendants.
+     * Use it to stop the processes started by a converter working on the files of a scratch directory,
+     * when there is no handle on these processes.
+     *
+     * @param path the file or directory the processes work on
+     */
+    public static void destroyProcessesUsing(Path path) {
+        destroyProcessTrees(listPids("pgrep", "-f", quoteRegex(path.toAbsolutePath().toString())));
+    }
+
+    /**
+     * Escape the characters of a text which have a meaning in the extended regular expressions read by pgrep,
+     * so that the text is matched literally
+     */
+    static String quoteRegex(String text) {
+        return text.replaceAll("[\\\\^$.|?*+()\\[\\]{}]", "\\\\$0");
+    }
+
+    private static void destroyProcessTrees(List<Long> roots) {
+        Set<Long> tree = new LinkedHashSet<>();
+        Deque<Long> toVisit = new ArrayDeque<>(roots);
+        while (!toVisit.isEmpty()) {
+            Long pid = toVisit.poll();
+            if (tree.add(pid)) {
+                // Stop the process before listing its children, so that it can't start new ones
+                execute("kill", "-STOP", String.valueOf(pid));
+                toVisit.addAll(listPids("pgrep", "-P", String.valueOf(pid)));
+            }
+        }
+        if (!tree.isEmpty()) {
+            List<String> command = new ArrayList<>(Arrays.asList("kill", "-KILL"));
+            for (Long pid : tree) {
+                command.add(String.valueOf(pid));
+            }
+            execute(command.toArray(new String[command.size()]));
+        }
+    }
+
+    private static List<Long> listPids(String... command) {
+        List<Long> pids = new ArrayList<>();
+        for (String line : execute(command).split("\n")) {
+            try {
+                if (!line.trim().isEmpty()) {
+                    pids.add(Long.valueOf(line.trim()));
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.log(Level.FINE, "Not a process id: " + line, e);
+            }
+        }
+        return pids;
+    }
+
+    private static String execute(String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output = inputStreamToString(process.getInputStream());
+            if (!process.waitFor(KILL_CHILDREN_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+            return output;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot execute " + String.join(" ", command), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "";
+    }
+
+    private static Long getPid(Process process) {
+        // No public API to get a process id before Java 9, read it from the unix implementation
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getLong(process);
+        } catch (NoSuchFieldException | IllegalAccessException | RuntimeException e) {
+            LOGGER.log(Level.FINE, "Cannot get process id", e);
+            return null;
+        }
+    }
+
 }
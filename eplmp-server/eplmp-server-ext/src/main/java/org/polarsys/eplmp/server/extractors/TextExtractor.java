@@ -0,0 +1,55 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.extractors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+
+/**
+ * TextExtractor plugin interface
+ * Extension point for the extraction of the text of attached files, to be indexed.
+ *
+ * Extractors stream the text to the given writer. The input and the writer may be bounded: the input ends
+ * once the allowed size has been read, and writes beyond the allowed text length fail with an IOException
+ * which must not be swallowed, so that the extraction stops as soon as possible.
+ */
+public interface TextExtractor {
+
+    /**
+     * Determine if this extractor is able to extract the text of the given file format
+     *
+     * @param fileExtension the extension of the file, including the dot, in lower case
+     * @return true if the extractor can handle the file, false otherwise
+     */
+    boolean canExtract(String fileExtension);
+
+    /**
+     * Extract the text of the given file
+     *
+     * @param fileExtension the extension of the file, including the dot, in lower case
+     * @param in            the file content
+     * @param out           the destination of the text
+     * @throws IOException if the file cannot be read or parsed, or if a limit has been reached
+     */
+    void extract(String fileExtension, InputStream in, Writer out) throws IOException;
+
+    /**
+     * Identify the extractor implementation and its version.
+     * A previously extracted text is reused only if it has been produced by the same extractor version.
+     *
+     * @return the extractor version identifier
+     */
+    default String getExtractorVersion() {
+        return getClass().getName();
+    }
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+package org.polarsys.eplmp.server.converters;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConverterUtilsTest {
+
+    @Test
+    public void quoteRegexTest() {
+        String path = "/tmp/scratch/docdoku-1.2/part(A)+[1].stp";
+        String quoted = ConverterUtils.quoteRegex(path);
+
+        Assert.assertEquals("/tmp/scratch/docdoku-1\\.2/part\\(A\\)\\+\\[1\\]\\.stp", quoted);
+        Assert.assertTrue(("convert " + path).matches(".*" + quoted + ".*"));
+        Assert.assertFalse("/tmp/scratch/docdoku-102/partA+[1]xstp".matches(".*" + quoted + ".*"));
+    }
+}
@@ -12,8 +12,13 @@
 package org.polarsys.eplmp.server.extras;
 
 import org.polarsys.eplmp.core.meta.InstanceAttribute;
+import org.polarsys.eplmp.core.util.HashUtils;
+import org.polarsys.eplmp.core.workflow.Activity;
+import org.polarsys.eplmp.core.workflow.Task;
 import org.polarsys.eplmp.core.workflow.Workflow;
 
+import java.io.UnsupportedEncodingException;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -113,4 +118,45 @@ public abstract class TitleBlockData {
     public String getRevisionNote() {
         return revisionNote;
     }
+
+    /**
+     * Computes a digest of the data rendered in the title block.
+     * Two title blocks with the same fingerprint are identical.
+     */
+    public String getFingerprint() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(locale).append('\n')
+                .append(title).append('\n')
+                .append(subject).append('\n')
+                .append(authorName).append('\n')
+                .append(creationDate).append('\n')
+                .append(iterationDate).append('\n')
+                .append(currentIteration).append('\n')
+                .append(revisionNote).append('\n')
+                .append(description).append('\n')
+                .append(lifeCycleState).append('\n');
+
+        for (InstanceAttribute attr : instanceAttributes) {
+            sb.append(attr.getName()).append('=').append(attr.getValue()).append('\n');
+        }
+
+        if (workflow != null) {
+            for (Activity activity : workflow.getActivities()) {
+                sb.append(activity.getLifeCycleState()).append('\n');
+                for (Task task : activity.getTasks()) {
+                    sb.append(task.getTitle()).append('|')
+                            .append(task.getStatus()).append('|')
+                            .append(task.getClosureDate() != null ? task.getClosureDate().getTime() : "").append('|')
+                            .append(task.getClosureComment()).append('|')
+                            .append(task.getWorker() != null ? task.getWorker().getName() : "").append('\n');
+                }
+            }
+        }
+
+        try {
+            return HashUtils.sha256Sum(sb.toString());
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -17,9 +17,13 @@ import org.polarsys.eplmp.core.document.DocumentIteration;
 import org.polarsys.eplmp.core.product.PartIteration;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Locale;
 import java.util.logging.Logger;
 
@@ -27,6 +31,9 @@ import java.util.logging.Logger;
  * This class define the default pdf generation for both part and document.
  * This behaviour can be overridden.
  *
+ * Merging is done with temporary file backed buffers so that large PDFs are not
+ * loaded in memory.
+ *
  * @author Morgan Guimard
  *
  * @see PartTitleBlockData
@@ -54,9 +61,65 @@ public abstract class TitleBlockGenerator {
         return merge(pdfDocument, new TitleBlockWriter(data).createTitleBlock());
     }
 
+    /**
+     * Generate a block title pdf page, add it to the pdf given in the input stream
+     * and write the result to the given output stream
+     */
+    public static void addBlockTitleToPDF(InputStream pdfDocument, DocumentIteration docI, Locale pLocale, OutputStream out) throws IOException {
+        DocumentTitleBlockData data =
+                new DocumentTitleBlockData(docI, pLocale);
+        merge(pdfDocument, new TitleBlockWriter(data).createTitleBlock(), out);
+    }
+
+    /**
+     * Generate a block title pdf page, add it to the pdf given in the input stream
+     * and write the result to the given output stream
+     */
+    public static void addBlockTitleToPDF(InputStream pdfDocument, PartIteration partIteration, Locale pLocale, OutputStream out) throws IOException {
+        PartTitleBlockData data =
+                new PartTitleBlockData(partIteration, pLocale);
+        merge(pdfDocument, new TitleBlockWriter(data).createTitleBlock(), out);
+    }
+
+    /**
+     * Identify the title block content of the given document iteration, in the given locale
+     */
+    public static String getTitleBlockFingerprint(DocumentIteration docI, Locale pLocale) {
+        return new DocumentTitleBlockData(docI, pLocale).getFingerprint();
+    }
+
+    /**
+     * Identify the title block content of the given part iteration, in the given locale
+     */
+    public static String getTitleBlockFingerprint(PartIteration partIteration, Locale pLocale) {
+        return new PartTitleBlockData(partIteration, pLocale).getFingerprint();
+    }
+
     public static InputStream merge(InputStream originalPDF, byte[] titleBlock) throws IOException {
 
-        ByteArrayOutputStream tempOutStream = new ByteArrayOutputStream();
+        Path tempFile = Files.createTempFile("docdoku-", ".pdf");
+
+        try (OutputStream tempOutStream = Files.newOutputStream(tempFile)) {
+            merge(originalPDF, titleBlock, tempOutStream);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        return new FilterInputStream(new FileInputStream(tempFile.toFile())) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+        };
+    }
+
+    public static void merge(InputStream originalPDF, byte[] titleBlock, OutputStream out) throws IOException {
+
         PDFMergerUtility mergedDoc = new PDFMergerUtility();
 
         InputStream titleBlockStream = new ByteArrayInputStream(titleBlock);
@@ -64,11 +127,8 @@ public abstract class TitleBlockGenerator {
         mergedDoc.addSource(titleBlockStream);
         mergedDoc.addSource(originalPDF);
 
-        mergedDoc.setDestinationStream(tempOutStream);
-        mergedDoc.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
-
-        return new ByteArrayInputStream(tempOutStream.toByteArray());
-
+        mergedDoc.setDestinationStream(out);
+        mergedDoc.mergeDocuments(MemoryUsageSetting.setupTempFileOnly());
 
     }
 }
@@ -15,21 +15,36 @@ import org.jodconverter.OfficeDocumentConverter;
 import org.jodconverter.office.LocalOfficeManager;
 import org.jodconverter.office.OfficeException;
 import org.jodconverter.office.OfficeManager;
+import org.polarsys.eplmp.core.util.FileIO;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Converts office files to PDF using a pool of office processes.
+ * Conversions are dispatched to the first available process, office processes
+ * are restarted when they crash, time out or reach their maximum number of tasks.
+ *
+ * The metrics of the conversion queue are exposed through JMX, see {@link OfficeConversionStatisticsMXBean}.
+ */
 @Singleton
-public class FileConverter {
+public class FileConverter implements OfficeConversionStatisticsMXBean {
 
     private final OfficeConfig officeConfig;
     private static final Logger LOGGER = Logger.getLogger(FileConverter.class.getName());
@@ -41,18 +56,40 @@ public class FileConverter {
 
     private OfficeManager officeManager;
 
+    private int poolSize = 1;
+
+    private final AtomicInteger pendingConversions = new AtomicInteger();
+    private final AtomicLong completedConversions = new AtomicLong();
+    private final AtomicLong failedConversions = new AtomicLong();
+    private final AtomicLong totalConversionTime = new AtomicLong();
+
     @PostConstruct
     private void init() {
+        int[] ports = officeConfig.getOfficePorts();
+        poolSize = ports.length;
         officeManager = LocalOfficeManager.builder()
                 .officeHome(new File(officeConfig.getOfficeHome()))
-                .portNumbers(officeConfig.getOfficePort())
+                .portNumbers(ports)
+                .taskExecutionTimeout(officeConfig.getTaskExecutionTimeout())
+                .taskQueueTimeout(officeConfig.getTaskQueueTimeout())
+                .maxTasksPerProcess(officeConfig.getMaxTasksPerProcess())
                 .build();
         try {
             officeManager.start();
+            LOGGER.log(Level.INFO, "Office manager started with {0} process(es)", poolSize);
         } catch (OfficeException e) {
 
             LOGGER.log(Level.SEVERE, "Office manager not started : "+e);
         }
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(this, objectName);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Office conversion statistics not registered", e);
+        }
     }
 
     @PreDestroy
@@ -64,26 +101,94 @@ public class FileConverter {
 
             LOGGER.log(Level.SEVERE,"Office manager not stopped : "+e);
         }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOGGER.log(Level.FINE, "Office conversion statistics not unregistered", e);
+        }
     }
 
-    public synchronized InputStream convertToPDF(String sourceName, final InputStream streamToConvert) throws IOException, OfficeException {
+    /**
+     * Convert the given stream to PDF.
+     * The returned stream must be closed to release the temporary files.
+     */
+    public InputStream convertToPDF(String sourceName, final InputStream streamToConvert) throws IOException, OfficeException {
         File tmpDir = Files.createTempDirectory("docdoku-").toFile();
-        File fileToConvert = new File(tmpDir, sourceName);
-
-        Files.copy(streamToConvert, fileToConvert.toPath());
-
-        File pdfFile = convertToPDF(fileToConvert);
-
-        //clean-up
-        tmpDir.deleteOnExit();
-
-        return new FileInputStream(pdfFile);
+        try {
+            File fileToConvert = new File(tmpDir, sourceName);
+
+            Files.copy(streamToConvert, fileToConvert.toPath());
+
+            File pdfFile = convertToPDF(fileToConvert);
+
+            return new FilterInputStream(new FileInputStream(pdfFile)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        //clean-up
+                        FileIO.rmDir(tmpDir);
+                    }
+                }
+            };
+        } catch (IOException | OfficeException | RuntimeException e) {
+            FileIO.rmDir(tmpDir);
+            throw e;
+        }
     }
 
     private File convertToPDF(File fileToConvert) throws OfficeException {
         File pdfFile = new File(fileToConvert.getParentFile(), "converted.pdf");
         OfficeDocumentConverter converter = new OfficeDocumentConverter(officeManager);
-        converter.convert(fileToConvert, pdfFile);
+        int pending = pendingConversions.incrementAndGet();
+        LOGGER.log(Level.FINE, "Office conversion queued, {0} conversion(s) waiting for an office process",
+                Math.max(0, pending - poolSize));
+        long start = System.currentTimeMillis();
+        boolean succeed = false;
+        try {
+            converter.convert(fileToConvert, pdfFile);
+            succeed = true;
+        } finally {
+            pendingConversions.decrementAndGet();
+            totalConversionTime.addAndGet(System.currentTimeMillis() - start);
+            if (succeed) {
+                completedConversions.incrementAndGet();
+            } else {
+                failedConversions.incrementAndGet();
+            }
+        }
         return pdfFile;
     }
+
+    @Override
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public int getPendingConversions() {
+        return pendingConversions.get();
+    }
+
+    @Override
+    public int getQueuedConversions() {
+        return Math.max(0, pendingConversions.get() - poolSize);
+    }
+
+    @Override
+    public long getCompletedConversions() {
+        return completedConversions.get();
+    }
+
+    @Override
+    public long getFailedConversions() {
+        return failedConversions.get();
+    }
+
+    @Override
+    public long getAverageConversionTime() {
+        long count = completedConversions.get() + failedConversions.get();
+        return count == 0 ? 0 : totalConversionTime.get() / count;
+    }
 }
@@ -15,9 +15,11 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
+import java.util.Arrays;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 @ApplicationScoped
 public class OfficeConfig {
@@ -41,6 +43,47 @@ public class OfficeConfig {
     }
 
     public Integer getOfficePort() {
-        return Integer.parseInt(properties.getProperty("office_port"));
+        return getOfficePorts()[0];
+    }
+
+    /**
+     * Ports of the office processes pool.
+     * Either a comma separated list of ports, or a single port combined with an office_pool_size,
+     * in which case consecutive ports are used.
+     */
+    public int[] getOfficePorts() {
+        String[] values = properties.getProperty("office_port").split(",");
+        if (values.length == 1) {
+            int port = Integer.parseInt(values[0].trim());
+            int poolSize = getIntProperty("office_pool_size", 1);
+            return IntStream.range(port, port + poolSize).toArray();
+        }
+        return Arrays.stream(values).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    /**
+     * Maximum time in milliseconds a conversion can take before the office process is restarted
+     */
+    public long getTaskExecutionTimeout() {
+        return getIntProperty("office_task_execution_timeout", 120000);
+    }
+
+    /**
+     * Maximum time in milliseconds a conversion can wait for an available office process
+     */
+    public long getTaskQueueTimeout() {
+        return getIntProperty("office_task_queue_timeout", 30000);
+    }
+
+    /**
+     * Number of conversions after which an office process is restarted
+     */
+    public int getMaxTasksPerProcess() {
+        return getIntProperty("office_max_tasks_per_process", 200);
+    }
+
+    private int getIntProperty(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
     }
 }
@@ -0,0 +1,47 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+/**
+ * Metrics of the office conversion queue since the start of the server, registered
+ * in the platform MBean server under {@link #OBJECT_NAME}.
+ *
+ * @see FileConverter
+ */
+public interface OfficeConversionStatisticsMXBean {
+
+    String OBJECT_NAME = "org.polarsys.eplmp:type=OfficeConversions";
+
+    /**
+     * @return the number of office processes
+     */
+    int getPoolSize();
+
+    /**
+     * @return the number of conversions queued or running
+     */
+    int getPendingConversions();
+
+    /**
+     * @return the number of conversions waiting for an office process
+     */
+    int getQueuedConversions();
+
+    long getCompletedConversions();
+
+    long getFailedConversions();
+
+    /**
+     * @return the average time in milliseconds spent to wait for and run a conversion
+     */
+    long getAverageConversionTime();
+}
@@ -28,7 +28,10 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Locale;
+import java.util.regex.Pattern;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,6 +41,12 @@ import java.util.logging.Logger;
 public class OfficeOnDemandConverter implements OnDemandConverter {
 
     private static final Logger LOGGER = Logger.getLogger(OnDemandConverter.class.getName());
+    private static final int FINGERPRINT_LENGTH = 16;
+
+    @FunctionalInterface
+    private interface TitleBlockStamper {
+        void stamp(InputStream pdf, OutputStream out) throws IOException;
+    }
 
     @Inject
     private FileConverter fileConverter;
@@ -58,20 +67,17 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
     @Override
     public InputStream getConvertedResource(String outputFormat, BinaryResource binaryResource, DocumentIteration docI, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
         try {
-            // TODO check for resources to be closed
-            InputStream inputStream = null;
-
-            if ("pdf".equals(outputFormat)) {
-                inputStream = getPdfConvertedResource(binaryResource);
-            }
-
             if ("documents".equals(binaryResource.getHolderType()) && docI != null) {
                 LOGGER.log(Level.INFO, "Adding document information to first pages");
-                return TitleBlockGenerator.addBlockTitleToPDF(inputStream, docI, locale);
+                return getTitleBlockPdfResource(binaryResource, locale, TitleBlockGenerator.getTitleBlockFingerprint(docI, locale),
+                        (pdf, out) -> TitleBlockGenerator.addBlockTitleToPDF(pdf, docI, locale, out));
             }
 
-            return inputStream;
+            return getPdfConvertedResource(binaryResource);
         } catch (StorageException | IOException | OfficeException e) {
             throw new ConvertedResourceException(e);
         }
@@ -79,23 +85,74 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
     @Override
     public InputStream getConvertedResource(String outputFormat, BinaryResource binaryResource, PartIteration partIteration, Locale locale) throws ConvertedResourceException {
+        if (!outputSupported(outputFormat)) {
+            return null;
+        }
         try {
-            InputStream inputStream = null;
-
-            if ("pdf".equals(outputFormat)) {
-                inputStream = getPdfConvertedResource(binaryResource);
-            }
-
             if ("parts".equals(binaryResource.getHolderType()) && partIteration != null) {
-                return TitleBlockGenerator.addBlockTitleToPDF(inputStream, partIteration, locale);
+                return getTitleBlockPdfResource(binaryResource, locale, TitleBlockGenerator.getTitleBlockFingerprint(partIteration, locale),
+                        (pdf, out) -> TitleBlockGenerator.addBlockTitleToPDF(pdf, partIteration, locale, out));
             }
 
-            return inputStream;
+            return getPdfConvertedResource(binaryResource);
         } catch (StorageException | IOException | OfficeException e) {
             throw new ConvertedResourceException(e);
         }
     }
 
+    /**
+     * Get the PDF with its title block, from the generated files if the title block content did not change.
+     * The stamped PDF is named after the locale and the title block fingerprint (which covers the iteration data
+     * and the locale), and is regenerated when the binary resource has been modified. The PDF stamped with a
+     * previous title block in the same locale is deleted once the new one is written, the PDFs of the other
+     * locales are kept.
+     */
+    private InputStream getTitleBlockPdfResource(BinaryResource binaryResource, Locale locale, String fingerprint, TitleBlockStamper stamper) throws StorageException, IOException, OfficeException {
+
+        String stampedFilePrefix = FileIO.getFileNameWithoutExtension(binaryResource.getName()) + "-"
+                + (locale != null ? locale.toLanguageTag() : "default") + "-";
+        String stampedFileName = stampedFilePrefix + fingerprint.substring(0, FINGERPRINT_LENGTH) + ".pdf";
+
+        if (isUpToDate(binaryResource, stampedFileName)) {
+            LOGGER.log(Level.INFO, "File is already stamped with title block");
+            return storageManager.getGeneratedFileInputStream(binaryResource, stampedFileName);
+        }
+
+        // Merge into a temporary file first, so that a failure does not leave a partial file in the storage
+        Path tempFile = Files.createTempFile("docdoku-", ".pdf");
+        try {
+            try (InputStream pdf = getPdfConvertedResource(binaryResource);
+                 OutputStream out = Files.newOutputStream(tempFile)) {
+                stamper.stamp(pdf, out);
+            }
+            try (OutputStream outputStream = storageManager.getGeneratedFileOutputStream(binaryResource, stampedFileName)) {
+                Files.copy(tempFile, outputStream);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        deletePreviousStampedFiles(binaryResource, stampedFilePrefix, stampedFileName);
+
+        return storageManager.getGeneratedFileInputStream(binaryResource, stampedFileName);
+    }
+
+    private void deletePreviousStampedFiles(BinaryResource binaryResource, String stampedFilePrefix, String stampedFileName) throws StorageException {
+        // Generated files are stored with unaccented names
+        Pattern stampedFilePattern = Pattern.compile(Pattern.quote(Tools.unAccent(stampedFilePrefix)) + "[0-9a-f]{" + FINGERPRINT_LENGTH + "}\\.pdf");
+        String currentFileName = Tools.unAccent(stampedFileName);
+        for (String generatedFileName : storageManager.getGeneratedFileNames(binaryResource)) {
+            if (!generatedFileName.equals(currentFileName) && stampedFilePattern.matcher(generatedFileName).matches()) {
+                LOGGER.log(Level.FINE, "Deleting outdated title block PDF {0}", generatedFileName);
+                storageManager.deleteGeneratedFile(binaryResource, generatedFileName);
+            }
+        }
+    }
+
+    private boolean isUpToDate(BinaryResource binaryResource, String generatedFileName) throws StorageException {
+        return storageManager.exists(binaryResource, generatedFileName) &&
+                storageManager.getLastModified(binaryResource, generatedFileName).after(binaryResource.getLastModified());
+    }
+
     private InputStream getPdfConvertedResource(BinaryResource binaryResource) throws StorageException, IOException, OfficeException {
 
         InputStream inputStream;
@@ -109,8 +166,7 @@ public class OfficeOnDemandConverter implements OnDemandConverter {
 
         String pdfFileName = FileIO.getFileNameWithoutExtension(binaryResource.getName()) + ".pdf";
 
-        if (storageManager.exists(binaryResource, pdfFileName) &&
-                storageManager.getLastModified(binaryResource, pdfFileName).after(binaryResource.getLastModified())) {
+        if (isUpToDate(binaryResource, pdfFileName)) {
             LOGGER.log(Level.INFO, "File is already converted to pdf");
             inputStream = storageManager.getGeneratedFileInputStream(binaryResource, pdfFileName);
         } else {
@@ -66,4 +66,30 @@ public class FileConverterTest {
             Assert.fail("Resource not found: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void conversionCountsTest() throws IOException, OfficeException {
+
+        // The office manager mock writes no PDF: the conversion succeeds but the result can't be read
+        try (InputStream resourceAsStream = getClass().getResourceAsStream("/org/polarsys/eplmp/server/resourcegetters/sample.txt")) {
+            fileConverter.convertToPDF("sample.txt", resourceAsStream);
+            Assert.fail("Should have thrown an IOException");
+        } catch (IOException e) {
+            // expected
+        }
+
+        Mockito.doThrow(new OfficeException("office process crashed")).when(officeManager).execute(Matchers.any());
+        try (InputStream resourceAsStream = getClass().getResourceAsStream("/org/polarsys/eplmp/server/resourcegetters/sample.txt")) {
+            fileConverter.convertToPDF("sample.txt", resourceAsStream);
+            Assert.fail("Should have thrown an OfficeException");
+        } catch (OfficeException e) {
+            // expected
+        }
+
+        Assert.assertEquals(1, fileConverter.getCompletedConversions());
+        Assert.assertEquals(1, fileConverter.getFailedConversions());
+        Assert.assertEquals(0, fileConverter.getPendingConversions());
+        Assert.assertEquals(0, fileConverter.getQueuedConversions());
+        Assert.assertTrue(fileConverter.getAverageConversionTime() >= 0);
+    }
+}
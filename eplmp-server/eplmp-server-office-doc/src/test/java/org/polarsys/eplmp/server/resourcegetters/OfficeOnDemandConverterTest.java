@@ -0,0 +1,133 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.resourcegetters;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.polarsys.eplmp.core.common.BinaryResource;
+import org.polarsys.eplmp.core.common.User;
+import org.polarsys.eplmp.core.product.PartIteration;
+import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.services.IBinaryStorageManagerLocal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OfficeOnDemandConverterTest {
+
+    @InjectMocks
+    private OfficeOnDemandConverter converter;
+
+    @Mock
+    private FileConverter fileConverter;
+
+    @Mock
+    private IBinaryStorageManagerLocal storageManager;
+
+    @Mock
+    private BinaryResource binaryResource;
+
+    private final Map<String, byte[]> generatedFiles = new HashMap<>();
+
+    private PartIteration partIteration;
+
+    @Before
+    public void setup() throws Exception {
+        Mockito.when(binaryResource.getName()).thenReturn("sample.pdf");
+        Mockito.when(binaryResource.getHolderType()).thenReturn("parts");
+        Mockito.when(binaryResource.getLastModified()).thenReturn(new Date(0));
+        Mockito.when(storageManager.getBinaryResourceInputStream(binaryResource))
+                .thenAnswer(invocation -> getClass().getResourceAsStream("/org/polarsys/eplmp/server/extras/sample.pdf"));
+
+        // Generated files kept in memory
+        Mockito.when(storageManager.exists(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> generatedFiles.containsKey(invocation.getArguments()[1]));
+        Mockito.when(storageManager.getLastModified(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> new Date());
+        Mockito.when(storageManager.getGeneratedFileNames(binaryResource))
+                .thenAnswer(invocation -> new ArrayList<>(generatedFiles.keySet()));
+        Mockito.when(storageManager.getGeneratedFileInputStream(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(generatedFiles.get(invocation.getArguments()[1])));
+        Mockito.when(storageManager.getGeneratedFileOutputStream(Matchers.eq(binaryResource), Matchers.anyString()))
+                .thenAnswer(invocation -> new ByteArrayOutputStream() {
+                    @Override
+                    public void close() {
+                        generatedFiles.put((String) invocation.getArguments()[1], toByteArray());
+                    }
+                });
+        Mockito.doAnswer(invocation -> generatedFiles.remove(invocation.getArguments()[1]))
+                .when(storageManager).deleteGeneratedFile(Matchers.eq(binaryResource), Matchers.anyString());
+
+        User user = Mockito.mock(User.class);
+        Mockito.when(user.getLogin()).thenReturn("user1");
+        Mockito.when(user.getName()).thenReturn("User 1");
+
+        PartRevision partRevision = Mockito.spy(new PartRevision());
+        partRevision.setCreationDate(new Date());
+        partRevision.setAuthor(user);
+        Mockito.doReturn("Part").when(partRevision).getPartName();
+        partRevision.setTags(new HashSet<>());
+        partRevision.setDescription("Description");
+
+        partIteration = Mockito.spy(new PartIteration());
+        partIteration.setPartRevision(partRevision);
+        partIteration.setCreationDate(new Date());
+        Mockito.doReturn("PART-001").when(partIteration).getNumber();
+        Mockito.doReturn("A").when(partIteration).getVersion();
+        Mockito.when(partIteration.getInstanceAttributes()).thenReturn(new ArrayList<>());
+        partIteration.setAuthor(user);
+        partIteration.setIteration(1);
+    }
+
+    @Test
+    public void keepStampedFilesOfEachLocaleTest() throws Exception {
+        view(Locale.ENGLISH);
+        view(Locale.FRENCH);
+        view(Locale.ENGLISH);
+
+        Assert.assertEquals(2, generatedFiles.size());
+        Assert.assertTrue(generatedFiles.keySet().stream().anyMatch(name -> name.startsWith("sample-en-")));
+        Assert.assertTrue(generatedFiles.keySet().stream().anyMatch(name -> name.startsWith("sample-fr-")));
+        // The second view in English is served from the generated files
+        Mockito.verify(storageManager, Mockito.times(2)).getGeneratedFileOutputStream(Matchers.eq(binaryResource), Matchers.anyString());
+    }
+
+    @Test
+    public void deleteOutdatedStampedFileOfSameLocaleTest() throws Exception {
+        view(Locale.ENGLISH);
+        view(Locale.FRENCH);
+        String englishFile = generatedFiles.keySet().stream().filter(name -> name.startsWith("sample-en-")).findFirst().orElse(null);
+
+        partIteration.setIteration(2);
+        view(Locale.ENGLISH);
+
+        Assert.assertEquals(2, generatedFiles.size());
+        Assert.assertFalse(generatedFiles.containsKey(englishFile));
+        Assert.assertTrue(generatedFiles.keySet().stream().anyMatch(name -> name.startsWith("sample-fr-")));
+    }
+
+    private void view(Locale locale) throws Exception {
+        try (InputStream pdf = converter.getConvertedResource("pdf", binaryResource, partIteration, locale)) {
+            Assert.assertNotNull(pdf);
+        }
+    }
+}
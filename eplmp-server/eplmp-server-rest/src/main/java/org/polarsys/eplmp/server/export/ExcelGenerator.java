@@ -12,14 +12,14 @@
 package org.polarsys.eplmp.server.export;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
 import org.polarsys.eplmp.core.common.User;
 import org.polarsys.eplmp.core.configuration.PathDataIteration;
 import org.polarsys.eplmp.core.document.DocumentLink;
 import org.polarsys.eplmp.core.document.DocumentRevision;
+import org.polarsys.eplmp.core.exceptions.ApplicationException;
 import org.polarsys.eplmp.core.meta.InstanceAttribute;
 import org.polarsys.eplmp.core.meta.InstanceListOfValuesAttribute;
 import org.polarsys.eplmp.core.product.PartIteration;
@@ -35,132 +35,176 @@ import org.polarsys.eplmp.server.rest.collections.QueryResult;
 import org.polarsys.eplmp.server.rest.dto.InstanceAttributeDTO;
 import org.polarsys.eplmp.server.rest.dto.InstanceAttributeType;
 
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * @author Chadid Asmae
  */
 public class ExcelGenerator {
 
-    private static final Logger LOGGER = Logger.getLogger(ExcelGenerator.class.getName());
+    public static final String XLSX_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+    public static final String CSV_CONTENT_TYPE = "text/csv";
 
-    private Mapper mapper = DozerBeanMapperSingletonWrapper.getInstance();
-
-    public File generateXLSResponse(QueryResult queryResult, Locale locale, String baseURL) {
-        File excelFile = new File("export_parts.xls");
-        //Blank workbook
-        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+    private static final int ROW_WINDOW_SIZE = 100;
 
+    private Mapper mapper = DozerBeanMapperSingletonWrapper.getInstance();
 
-            //Create a blank sheet
-            XSSFSheet sheet = workbook.createSheet("Parts Data");
+    /**
+     * Write the query result as a XLSX workbook.
+     *
+     * Rows are written through a streaming workbook, only the last rows are kept in memory and the
+     * others are flushed to a temporary file, which is deleted once the workbook is written.
+     * Only the header cells get comments: the comments of a sheet are all kept in memory until it is written.
+     * The path of the serial number cells and the ids of the attribute cells are written in hidden columns
+     * following the selected ones, headed by the select they identify.
+     */
+    public void generateXLSXResponse(OutputStream outputStream, QueryResult queryResult, Locale locale, String baseURL) throws IOException, ApplicationException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW_SIZE);
+        try {
+            Sheet sheet = workbook.createSheet("Parts Data");
+            CreationHelper factory = workbook.getCreationHelper();
+            Drawing drawing = sheet.createDrawingPatriarch();
+            CellStyle headerStyle = createHeaderStyle(workbook);
 
-            String header = String.join(";", queryResult.getQuery().getSelects());
+            List<String> selects = queryResult.getQuery().getSelects();
+            String header = String.join(";", selects);
             String[] columns = header.split(";");
 
-            Map<Integer, String[]> data = new HashMap<>();
-            String[] headerFormatted = createXLSHeaderRow(header, columns, locale);
-            data.put(1, headerFormatted);
-
-            Map<Integer, String[]> commentsData = new HashMap<>();
             String[] headerComments = createXLSHeaderRowComments(header, columns);
-            commentsData.put(1, headerComments);
-
-            List<String> selects = queryResult.getQuery().getSelects();
-            int i = 1;
-            for (QueryResultRow row : queryResult.getRows()) {
-                i++;
-                data.put(i, createXLSRow(selects, row, baseURL));
-                commentsData.put(i, createXLSRowComments(selects, row));
+            // Key columns are highlighted as the header
+            boolean[] keyColumns = new boolean[headerComments.length];
+            for (int j = 0; j < headerComments.length; j++) {
+                String comment = headerComments[j];
+                keyColumns[j] = comment.equals(QueryField.CTX_PRODUCT_ID) || comment.equals(QueryField.CTX_SERIAL_NUMBER) || comment.equals(QueryField.PART_MASTER_NUMBER);
             }
 
-            //Iterate over data and write to sheet
-            Set<Integer> keySet = data.keySet();
-            int rowNum = 0;
+            List<String> identifiedSelects = getIdentifiedSelects(selects);
 
-            for (Integer key : keySet) {
+            Row headerRow = writeRow(sheet, 0, concat(createXLSHeaderRow(header, columns, locale), identifiedSelects.toArray(new String[0])));
+            addComments(headerRow, factory, drawing, headerComments);
+            for (int j = 0; j < columns.length; j++) {
+                Cell cell = headerRow.getCell(j) != null ? headerRow.getCell(j) : headerRow.createCell(j);
+                cell.setCellStyle(headerStyle);
+            }
+            for (int j = 0; j < identifiedSelects.size(); j++) {
+                sheet.setColumnHidden(columns.length + j, true);
+            }
 
-                Row row = sheet.createRow(rowNum++);
-                String[] objArr = data.get(key);
-                int cellNum = 0;
-                for (String obj : objArr) {
-                    Cell cell = row.createCell(cellNum++);
-                    cell.setCellValue(obj);
+            int[] rowNum = {1};
+            queryResult.forEachRow(queryResultRow -> {
+                Row row = writeRow(sheet, rowNum[0]++, concat(createXLSRow(selects, queryResultRow, baseURL),
+                        createXLSRowIdentifiers(identifiedSelects, queryResultRow)));
+                for (int j = 0; j < keyColumns.length; j++) {
+                    if (keyColumns[j]) {
+                        Cell cell = row.getCell(j) != null ? row.getCell(j) : row.createCell(j);
+                        cell.setCellStyle(headerStyle);
+                    }
                 }
+            });
 
-                CreationHelper factory = workbook.getCreationHelper();
-                Drawing drawing = sheet.createDrawingPatriarch();
-                String[] commentsObjArr = commentsData.get(key);
-                cellNum = 0;
-                for (String commentsObj : commentsObjArr) {
-                    if (commentsObj.length() > 0) {
-                        Cell cell = row.getCell(cellNum) != null ? row.getCell(cellNum) : row.createCell(cellNum);
-
-                        // When the comment box is visible, have it show in a 1x3 space
-                        ClientAnchor anchor = factory.createClientAnchor();
-                        anchor.setCol1(cell.getColumnIndex());
-                        anchor.setCol2(cell.getColumnIndex() + 1);
-                        anchor.setRow1(row.getRowNum());
-                        anchor.setRow2(row.getRowNum() + 1);
-
-                        Comment comment = drawing.createCellComment(anchor);
-                        RichTextString str = factory.createRichTextString(commentsObj);
-                        comment.setString(str);
-
-                        // Assign the comment to the cell
-                        cell.setCellComment(comment);
-                    }
-                    cellNum++;
+            workbook.write(outputStream);
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Write the query result as CSV, for exports too large to be opened as a workbook.
+     * Values are separated by commas and quoted when needed, the attribute ids are not exported.
+     */
+    public void generateCSVResponse(OutputStream outputStream, QueryResult queryResult, Locale locale, String baseURL) throws IOException, ApplicationException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        List<String> selects = queryResult.getQuery().getSelects();
+        String header = String.join(";", selects);
+        writeCSVLine(writer, createXLSHeaderRow(header, header.split(";"), locale));
+
+        try {
+            queryResult.forEachRow(row -> {
+                try {
+                    writeCSVLine(writer, createXLSRow(selects, row, baseURL));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
-            }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
 
-            // Define header style
-            Font headerFont = workbook.createFont();
-            headerFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
-            headerFont.setFontHeightInPoints((short) 10);
-            headerFont.setFontName("Courier New");
-            headerFont.setItalic(true);
-            headerFont.setColor(IndexedColors.WHITE.getIndex());
-            CellStyle headerStyle = workbook.createCellStyle();
-            headerStyle.setFont(headerFont);
-            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-            headerStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
-
-            // Set header style
-            for (int j = 0; j < columns.length; j++) {
-                Cell cell = sheet.getRow(0).getCell(j);
-                cell.setCellStyle(headerStyle);
+        writer.flush();
+    }
 
-                if (cell.getCellComment() != null) {
-                    String comment = cell.getCellComment().getString().toString();
+    private Row writeRow(Sheet sheet, int rowNum, String[] values) {
+        Row row = sheet.createRow(rowNum);
+        int cellNum = 0;
+        for (String value : values) {
+            Cell cell = row.createCell(cellNum++);
+            cell.setCellValue(value);
+        }
+        return row;
+    }
 
-                    if (comment.equals(QueryField.CTX_PRODUCT_ID) || comment.equals(QueryField.CTX_SERIAL_NUMBER) || comment.equals(QueryField.PART_MASTER_NUMBER)) {
-                        for (int k = 0; k < queryResult.getRows().size(); k++) {
-                            Cell grayCell = sheet.getRow(k + 1).getCell(j) != null ? sheet.getRow(k + 1).getCell(j) : sheet.getRow(k + 1).createCell(j);
-                            grayCell.setCellStyle(headerStyle);
-                        }
-                    }
-                }
-            }
+    private String[] concat(String[] values, String[] otherValues) {
+        String[] result = Arrays.copyOf(values, values.length + otherValues.length);
+        System.arraycopy(otherValues, 0, result, values.length, otherValues.length);
+        return result;
+    }
 
-            //Write the workbook in file system
-            try (FileOutputStream out = new FileOutputStream(excelFile)) {
-                workbook.write(out);
-            } catch (IOException e) {
-                LOGGER.log(Level.SEVERE, "Cannot write file to file system", e);
+    private void addComments(Row row, CreationHelper factory, Drawing drawing, String[] comments) {
+        int cellNum = 0;
+        for (String commentsObj : comments) {
+            if (commentsObj.length() > 0) {
+                Cell cell = row.getCell(cellNum) != null ? row.getCell(cellNum) : row.createCell(cellNum);
+
+                // When the comment box is visible, have it show in a 1x3 space
+                ClientAnchor anchor = factory.createClientAnchor();
+                anchor.setCol1(cell.getColumnIndex());
+                anchor.setCol2(cell.getColumnIndex() + 1);
+                anchor.setRow1(row.getRowNum());
+                anchor.setRow2(row.getRowNum() + 1);
+
+                Comment comment = drawing.createCellComment(anchor);
+                RichTextString str = factory.createRichTextString(commentsObj);
+                comment.setString(str);
+
+                // Assign the comment to the cell
+                cell.setCellComment(comment);
             }
-
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Cannot initialize workbook", e);
+            cellNum++;
         }
+    }
 
-        return excelFile;
+    private CellStyle createHeaderStyle(Workbook workbook) {
+        Font headerFont = workbook.createFont();
+        headerFont.setBoldweight(Font.BOLDWEIGHT_BOLD);
+        headerFont.setFontHeightInPoints((short) 10);
+        headerFont.setFontName("Courier New");
+        headerFont.setItalic(true);
+        headerFont.setColor(IndexedColors.WHITE.getIndex());
+        CellStyle headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(headerFont);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(CellStyle.SOLID_FOREGROUND);
+        return headerStyle;
+    }
 
+    private void writeCSVLine(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i] != null ? values[i] : "";
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write("\r\n");
     }
 
     private String[] createXLSHeaderRow(String header, String[] columns, Locale locale) {
@@ -204,6 +248,10 @@ public class ExcelGenerator {
     }
 
     private String[] createXLSRow(List<String> selects, QueryResultRow row, String baseURL) {
+        if (row.isProjected()) {
+            return createProjectedXLSRow(selects, row);
+        }
+
         List<String> data = new ArrayList<>();
         PartRevision part = row.getPartRevision();
         PartIteration lastCheckedInIteration = part.getLastCheckedInIteration();
@@ -304,150 +352,139 @@ public class ExcelGenerator {
                     if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
                         String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
                         String attributeSelectName = select.substring(select.indexOf(".") + 1);
-                        String attributeValue;
-                        StringBuilder stringBuilder = new StringBuilder();
-
-                        if (lastIteration != null) {
-                            List<InstanceAttribute> attributes = lastIteration.getInstanceAttributes();
-                            if (attributes != null) {
-                                for (InstanceAttribute attribute : attributes) {
-                                    InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
-                                    mapper.map(attribute, InstanceAttributeDTO.class);
-
-                                    if (attrDTO.getName().equals(attributeSelectName)
-                                            && attrDTO.getType().name().equals(attributeSelectType)) {
-
-                                        attributeValue = attribute.getValue() + "";
-                                        if (attrDTO.getType() == InstanceAttributeType.DATE) {
-                                            attributeValue = attribute.getValue() != null ?
-                                                    DateUtils.format((Date) attribute.getValue()) : "";
-                                        } else if (attribute instanceof InstanceListOfValuesAttribute) {
-                                            attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
-                                        }
-                                        stringBuilder.append(attributeValue).append("|");
-                                    }
-                                }
-                            }
-                        }
-                        String content = stringBuilder.toString().trim();
-                        if (content.length() > 0) {
-                            content = content.substring(0, content.lastIndexOf("|"));
-                        }
-                        data.add(content);
+                        List<InstanceAttribute> attributes = lastIteration != null ? lastIteration.getInstanceAttributes() : null;
+                        data.add(getAttributesContent(attributes, attributeSelectType, attributeSelectName));
                     }
                     if (select.startsWith(QueryField.PATH_DATA_ATTRIBUTES_PREFIX)) {
                         String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PATH_DATA_ATTRIBUTES_PREFIX.length());
                         String attributeSelectName = select.substring(select.indexOf(".") + 1);
-                        String attributeValue;
                         PathDataIteration pdi = row.getPathDataIteration();
-                        StringBuilder stringBuilder = new StringBuilder();
-
-                        if (pdi != null) {
-                            List<InstanceAttribute> attributes = pdi.getInstanceAttributes();
-                            if (attributes != null) {
-                                for (InstanceAttribute attribute : attributes) {
-                                    InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
-                                    if (attrDTO.getName().equals(attributeSelectName)
-                                            && attrDTO.getType().name().equals(attributeSelectType)) {
-
-                                        attributeValue = attribute.getValue() + "";
-                                        if (attrDTO.getType() == InstanceAttributeType.DATE) {
-                                            attributeValue = attribute.getValue() != null ?
-                                                    DateUtils.format((Date) attribute.getValue()) : "";
-                                        } else if (attribute instanceof InstanceListOfValuesAttribute) {
-                                            attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
-                                        }
-                                        stringBuilder.append(attributeValue).append("|");
-                                    }
-                                }
-                            }
-                        }
-                        String content = stringBuilder.toString().trim();
-                        if (content.length() > 0) {
-                            content = content.substring(0, content.lastIndexOf("|"));
-                        }
-                        data.add(content);
+                        List<InstanceAttribute> attributes = pdi != null ? pdi.getInstanceAttributes() : null;
+                        data.add(getAttributesContent(attributes, attributeSelectType, attributeSelectName));
                     }
             }
 
         }
 
-        String rowData = String.join(";", data);
-        return rowData.split(";");
+        return data.toArray(new String[0]);
     }
 
-    private String[] createXLSRowComments(List<String> selects, QueryResultRow row) {
-        List<String> commentsData = new ArrayList<>();
-        PartRevision part = row.getPartRevision();
-        PartIteration lastIteration = part.getLastIteration();
-
+    /**
+     * Get the selects whose cells are identified by a path or by attribute ids
+     */
+    private List<String> getIdentifiedSelects(List<String> selects) {
+        List<String> identifiedSelects = new ArrayList<>();
         for (String select : selects) {
+            if (select.equals(QueryField.CTX_SERIAL_NUMBER) || select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)
+                    || select.startsWith(QueryField.PATH_DATA_ATTRIBUTES_PREFIX)) {
+                identifiedSelects.add(select);
+            }
+        }
+        return identifiedSelects;
+    }
 
+    private String[] createXLSRowIdentifiers(List<String> identifiedSelects, QueryResultRow row) {
+        List<String> identifiers = new ArrayList<>();
+        List<InstanceAttribute> partAttributes;
+        if (row.isProjected()) {
+            partAttributes = row.getInstanceAttributes();
+        } else {
+            PartIteration lastIteration = row.getPartRevision().getLastIteration();
+            partAttributes = lastIteration != null ? lastIteration.getInstanceAttributes() : null;
+        }
+
+        for (String select : identifiedSelects) {
             if (select.equals(QueryField.CTX_SERIAL_NUMBER)) {
                 String path = row.getPath();
-                if (path != null && !path.isEmpty()) {
-                    commentsData.add(path);
-                }
+                identifiers.add(path != null ? path : "");
 
             } else if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
                 String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
                 String attributeSelectName = select.substring(select.indexOf(".") + 1);
-                StringBuilder stringBuilder = new StringBuilder();
-
-                if (lastIteration != null) {
-                    List<InstanceAttribute> attributes = lastIteration.getInstanceAttributes();
-                    if (attributes != null) {
-                        for (InstanceAttribute attribute : attributes) {
-                            InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
-
-                            if (attrDTO.getName().equals(attributeSelectName)
-                                    && attrDTO.getType().name().equals(attributeSelectType)) {
-                                stringBuilder.append(attribute.getId()).append("|");
-                            }
-                        }
-                    }
-                }
-
-                String commentsContent = stringBuilder.toString().trim();
-                if (commentsContent.length() > 0) {
-                    commentsContent = commentsContent.substring(0, commentsContent.lastIndexOf("|"));
-                }
-                commentsData.add(commentsContent);
+                identifiers.add(getAttributeIdsContent(partAttributes, attributeSelectType, attributeSelectName));
 
-            } else if (select.startsWith(QueryField.PATH_DATA_ATTRIBUTES_PREFIX)) {
+            } else {
                 String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PATH_DATA_ATTRIBUTES_PREFIX.length());
                 String attributeSelectName = select.substring(select.indexOf(".") + 1);
                 PathDataIteration pdi = row.getPathDataIteration();
-                StringBuilder stringBuilder = new StringBuilder();
-
-                if (pdi != null) {
-                    List<InstanceAttribute> attributes = pdi.getInstanceAttributes();
-                    if (attributes != null) {
-                        for (InstanceAttribute attribute : attributes) {
-                            InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
-
-                            if (attrDTO.getName().equals(attributeSelectName)
-                                    && attrDTO.getType().name().equals(attributeSelectType)) {
-                                stringBuilder.append(attribute.getId()).append("|");
-                            }
-                        }
-                    }
-                }
+                List<InstanceAttribute> attributes = pdi != null ? pdi.getInstanceAttributes() : null;
+                identifiers.add(getAttributeIdsContent(attributes, attributeSelectType, attributeSelectName));
+            }
+        }
 
-                String commentsContent = stringBuilder.toString().trim();
-                if (commentsContent.length() > 0) {
-                    commentsContent = commentsContent.substring(0, commentsContent.lastIndexOf("|"));
-                }
-                commentsData.add(commentsContent);
+        return identifiers.toArray(new String[0]);
+    }
 
+    /**
+     * Create the cells of a row read as a projection, which holds the selected values instead of a part revision
+     */
+    private String[] createProjectedXLSRow(List<String> selects, QueryResultRow row) {
+        List<String> data = new ArrayList<>();
+        for (String select : selects) {
+            if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
+                String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
+                String attributeSelectName = select.substring(select.indexOf(".") + 1);
+                data.add(getAttributesContent(row.getInstanceAttributes(), attributeSelectType, attributeSelectName));
             } else {
-                commentsData.add("");
+                Object value = row.getValue(select);
+                if (value instanceof Date) {
+                    data.add(DateUtils.format((Date) value));
+                } else {
+                    data.add(value != null ? value.toString() : "");
+                }
             }
+        }
+        return data.toArray(new String[0]);
+    }
+
+    private String getAttributesContent(List<InstanceAttribute> attributes, String attributeSelectType, String attributeSelectName) {
+        StringBuilder stringBuilder = new StringBuilder();
 
+        if (attributes != null) {
+            for (InstanceAttribute attribute : attributes) {
+                InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
+
+                if (attrDTO.getName().equals(attributeSelectName)
+                        && attrDTO.getType().name().equals(attributeSelectType)) {
+
+                    String attributeValue = attribute.getValue() + "";
+                    if (attrDTO.getType() == InstanceAttributeType.DATE) {
+                        attributeValue = attribute.getValue() != null ?
+                                DateUtils.format((Date) attribute.getValue()) : "";
+                    } else if (attribute instanceof InstanceListOfValuesAttribute) {
+                        attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
+                    }
+                    stringBuilder.append(attributeValue).append("|");
+                }
+            }
         }
 
-        String commentsRowData = String.join(";", commentsData);
-        return commentsRowData.split(";");
+        String content = stringBuilder.toString().trim();
+        if (content.length() > 0) {
+            content = content.substring(0, content.lastIndexOf("|"));
+        }
+        return content;
+    }
+
+    private String getAttributeIdsContent(List<InstanceAttribute> attributes, String attributeSelectType, String attributeSelectName) {
+        StringBuilder stringBuilder = new StringBuilder();
+
+        if (attributes != null) {
+            for (InstanceAttribute attribute : attributes) {
+                InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
+
+                if (attrDTO.getName().equals(attributeSelectName)
+                        && attrDTO.getType().name().equals(attributeSelectType)) {
+                    stringBuilder.append(attribute.getId()).append("|");
+                }
+            }
+        }
+
+        String idsContent = stringBuilder.toString().trim();
+        if (idsContent.length() > 0) {
+            idsContent = idsContent.substring(0, idsContent.lastIndexOf("|"));
+        }
+        return idsContent;
     }
 
 }
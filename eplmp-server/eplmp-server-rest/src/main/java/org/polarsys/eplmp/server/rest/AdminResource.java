@@ -14,6 +14,7 @@ package org.polarsys.eplmp.server.rest;
 import io.swagger.annotations.*;
 import org.dozer.DozerBeanMapperSingletonWrapper;
 import org.dozer.Mapper;
+import org.polarsys.eplmp.core.admin.CacheRegionStatistics;
 import org.polarsys.eplmp.core.common.Account;
 import org.polarsys.eplmp.core.common.OAuthProvider;
 import org.polarsys.eplmp.core.common.Workspace;
@@ -81,6 +82,9 @@ public class AdminResource implements Serializable {
     @Inject
     private IOAuthManagerLocal oAuthManager;
 
+    @Inject
+    private ICacheManagerLocal cacheManager;
+
     private Mapper mapper;
 
     public AdminResource() {
@@ -225,6 +229,30 @@ public class AdminResource implements Serializable {
         return partsStats.build();
     }
 
+    @GET
+    @Path("cache-stats")
+    @ApiOperation(value = "Get shared cache stats",
+            response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval of shared cache statistics"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Produces(MediaType.APPLICATION_JSON)
+    public JsonObject getCacheStats() {
+
+        JsonObjectBuilder cacheStats = Json.createObjectBuilder();
+
+        for (CacheRegionStatistics statistics : cacheManager.getCacheStatistics()) {
+            cacheStats.add(statistics.getRegion(), Json.createObjectBuilder()
+                    .add("hits", statistics.getHits())
+                    .add("misses", statistics.getMisses()));
+        }
+
+        return cacheStats.build();
+    }
+
 
     @PUT
     @ApiOperation(value = "Synchronize index for given workspace",
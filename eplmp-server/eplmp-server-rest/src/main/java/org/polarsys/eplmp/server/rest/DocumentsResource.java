@@ -18,11 +18,13 @@ import org.polarsys.eplmp.core.document.DocumentRevision;
 import org.polarsys.eplmp.core.exceptions.*;
 import org.polarsys.eplmp.core.exceptions.NotAllowedException;
 import org.polarsys.eplmp.core.query.DocumentSearchQuery;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.IDocumentManagerLocal;
 import org.polarsys.eplmp.core.services.IDocumentWorkflowManagerLocal;
 import org.polarsys.eplmp.server.rest.dto.CountDTO;
 import org.polarsys.eplmp.server.rest.dto.DocumentRevisionDTO;
+import org.polarsys.eplmp.server.rest.dto.SearchHitSummaryDTO;
 import org.polarsys.eplmp.server.rest.util.SearchQueryParser;
 
 import javax.annotation.PostConstruct;
@@ -133,6 +135,50 @@ public class DocumentsResource {
         return mapToDTOs(docRs);
     }
 
+    @GET
+    @ApiOperation(value = "Search document revisions, returning summaries for list views",
+            response = SearchHitSummaryDTO.class,
+            responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval of searched documents summaries. It can be an empty list."),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Path("search/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public SearchHitSummaryDTO[] searchDocumentRevisionSummaries(
+            @Context UriInfo uri,
+            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
+            @ApiParam(required = false, value = "Query") @QueryParam("q") String q,
+            @ApiParam(required = false, value = "Document id") @QueryParam("id") String id,
+            @ApiParam(required = false, value = "Document title") @QueryParam("title") String title,
+            @ApiParam(required = false, value = "Document type") @QueryParam("type") String type,
+            @ApiParam(required = false, value = "Document version") @QueryParam("version") String version,
+            @ApiParam(required = false, value = "Document author") @QueryParam("author") String author,
+            @ApiParam(required = false, value = "Document tags") @QueryParam("tags") String tags,
+            @ApiParam(required = false, value = "Document files content") @QueryParam("content") String content,
+            @ApiParam(required = false, value = "Document created from date") @QueryParam("createdFrom") String createdFrom,
+            @ApiParam(required = false, value = "Document creation to date") @QueryParam("createdTo") String createdTo,
+            @ApiParam(required = false, value = "Document modified from date") @QueryParam("modifiedFrom") String modifiedFrom,
+            @ApiParam(required = false, value = "Document modified to date") @QueryParam("modifiedTo") String modifiedTo,
+            @ApiParam(required = false, value = "Document attributes") @QueryParam("attributes") String attributes,
+            @ApiParam(required = false, value = "Folder") @QueryParam("folder") String folder,
+            @ApiParam(required = false, value = "Start offset", defaultValue = "0") @QueryParam("from") int from,
+            @ApiParam(required = false, value = "Max results", defaultValue = "10") @QueryParam("size") int size,
+            @ApiParam(required = false, value = "Search mode (false for history/ true for head only)") @QueryParam("fetchHeadOnly") boolean fetchHeadOnly
+    ) throws EntityNotFoundException, UserNotActiveException, NotAllowedException, WorkspaceNotEnabledException, IndexerRequestException, IndexerNotAvailableException {
+        // Set default search size
+        size = size == 0 ? 10 : size;
+
+        DocumentSearchQuery documentSearchQuery = SearchQueryParser.parseDocumentStringQuery(workspaceId, uri.getQueryParameters());
+        List<SearchHitSummaryDTO> summaryDTOs = new ArrayList<>();
+        for (SearchHitSummary summary : documentService.searchDocumentRevisionSummaries(documentSearchQuery, from, size)) {
+            summaryDTOs.add(mapper.map(summary, SearchHitSummaryDTO.class));
+        }
+        return summaryDTOs.toArray(new SearchHitSummaryDTO[summaryDTOs.size()]);
+    }
+
     @GET
     @ApiOperation(value = "Count document revisions",
             response = CountDTO.class)
@@ -22,7 +22,7 @@ import org.polarsys.eplmp.core.exceptions.NotAllowedException;
 import org.polarsys.eplmp.core.product.*;
 import org.polarsys.eplmp.core.query.PartSearchQuery;
 import org.polarsys.eplmp.core.query.Query;
-import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.core.query.SearchHitSummary;
 import org.polarsys.eplmp.core.security.UserGroupMapping;
 import org.polarsys.eplmp.core.services.IImporterManagerLocal;
 import org.polarsys.eplmp.core.services.IPSFilterManagerLocal;
@@ -132,6 +132,53 @@ public class PartsResource {
         }).build();
     }
 
+    @GET
+    @ApiOperation(value = "Search part revisions in workspace, returning summaries for list views",
+            response = SearchHitSummaryDTO.class,
+            responseContainer = "List")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "Successful retrieval of SearchHitSummaryDTOs. It can be an empty list."),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 403, message = "Forbidden"),
+            @ApiResponse(code = 500, message = "Internal server error")
+    })
+    @Path("search/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response searchPartRevisionSummaries(
+            @Context UriInfo uri,
+            @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
+            @ApiParam(required = false, value = "Query") @QueryParam("q") String q,
+            @ApiParam(required = false, value = "Part number") @QueryParam("number") String number,
+            @ApiParam(required = false, value = "Part name") @QueryParam("name") String name,
+            @ApiParam(required = false, value = "Part version") @QueryParam("version") String version,
+            @ApiParam(required = false, value = "Part author") @QueryParam("author") String author,
+            @ApiParam(required = false, value = "Part type") @QueryParam("type") String type,
+            @ApiParam(required = false, value = "Part created from date") @QueryParam("createdFrom") String createdFrom,
+            @ApiParam(required = false, value = "Part created to date") @QueryParam("createdTo") String createdTo,
+            @ApiParam(required = false, value = "Part modified from date") @QueryParam("modifiedFrom") String modifiedFrom,
+            @ApiParam(required = false, value = "Part modified to date") @QueryParam("modifiedTo") String modifiedTo,
+            @ApiParam(required = false, value = "Part tags") @QueryParam("tags") String tags,
+            @ApiParam(required = false, value = "Part files content") @QueryParam("content") String content,
+            @ApiParam(required = false, value = "Part files attributes") @QueryParam("attributes") String attributes,
+            @ApiParam(required = false, value = "Start offset", defaultValue = "0") @QueryParam("from") int from,
+            @ApiParam(required = false, value = "Max results", defaultValue = "10") @QueryParam("size") int size,
+            @ApiParam(required = false, value = "Search mode (false for history / true for head only)") @QueryParam("fetchHeadOnly") boolean fetchHeadOnly)
+            throws EntityNotFoundException, UserNotActiveException, AccessRightException, NotAllowedException, WorkspaceNotEnabledException, IndexerRequestException, IndexerNotAvailableException {
+
+        PartSearchQuery partSearchQuery = SearchQueryParser.parsePartStringQuery(workspaceId, uri.getQueryParameters());
+
+        // Set default size
+        size = size == 0 ? 10 : size;
+
+        List<SearchHitSummaryDTO> summaryDTOs = new ArrayList<>();
+        for (SearchHitSummary summary : productService.searchPartRevisionSummaries(partSearchQuery, from, size)) {
+            summaryDTOs.add(mapper.map(summary, SearchHitSummaryDTO.class));
+        }
+
+        return Response.ok(new GenericEntity<List<SearchHitSummaryDTO>>((List<SearchHitSummaryDTO>) summaryDTOs) {
+        }).build();
+    }
+
     @GET
     @ApiOperation(value = "Count part revisions in workspace",
             response = CountDTO.class)
@@ -283,7 +330,12 @@ public class PartsResource {
             EntityAlreadyExistsException, EntityConstraintException, NotAllowedException, WorkspaceNotEnabledException {
 
         Query query = mapper.map(queryDTO, Query.class);
-        QueryResult queryResult = getQueryResult(workspaceId, query, exportType);
+        productService.checkQuery(workspaceId, query);
+
+        // Rows are pulled from the database while the response is written
+        QueryResult queryResult = new QueryResult(query,
+                consumer -> productService.streamQueryResultRows(workspaceId, query, consumer));
+        queryResult.setExportType(getExportType(exportType));
 
         if (save) {
             productService.createQuery(workspaceId, query);
@@ -361,7 +413,7 @@ public class PartsResource {
     })
     @Path("query-export")
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces("application/vnd.ms-excel")
+    @Produces({ExcelGenerator.XLSX_CONTENT_TYPE, ExcelGenerator.CSV_CONTENT_TYPE})
     public Response exportCustomQuery(
             @Context HttpServletRequest request,
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
@@ -386,7 +438,7 @@ public class PartsResource {
     })
     @Path("queries/{queryId}/format/{export}")
     @Consumes(MediaType.APPLICATION_JSON)
-    @Produces("application/vnd.ms-excel")
+    @Produces({ExcelGenerator.XLSX_CONTENT_TYPE, ExcelGenerator.CSV_CONTENT_TYPE})
     public Response exportExistingQuery(
             @Context HttpServletRequest request,
             @ApiParam(required = true, value = "Workspace id") @PathParam("workspaceId") String workspaceId,
@@ -487,8 +539,7 @@ public class PartsResource {
             @ApiParam(required = true, value = "Query") @QueryParam("q") String q)
             throws EntityNotFoundException, AccessRightException, WorkspaceNotEnabledException {
 
-        String search = "%" + q + "%";
-        List<PartMaster> partMasters = productService.findPartMasters(Tools.stripTrailingSlash(workspaceId), search, search, 8);
+        List<PartMaster> partMasters = productService.findPartMasters(Tools.stripTrailingSlash(workspaceId), q, 8);
         List<LightPartMasterDTO> partsMastersDTO = new ArrayList<>();
         for (PartMaster p : partMasters) {
             LightPartMasterDTO lightPartMasterDTO = new LightPartMasterDTO(p.getNumber(), p.getName());
@@ -738,30 +789,39 @@ public class PartsResource {
 
 
     private Response export(String workspaceId, Query query, HttpServletRequest request, String exportType, Locale locale)
-            throws BaselineNotFoundException, ProductInstanceMasterNotFoundException, EntityConstraintException, WorkspaceNotFoundException, UserNotFoundException, NotAllowedException, PartMasterNotFoundException, ConfigurationItemNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
-        QueryResult queryResult = getQueryResult(workspaceId, query, exportType);
+            throws EntityNotFoundException, UserNotActiveException, WorkspaceNotEnabledException {
+        productService.checkQuery(workspaceId, query);
+
+        // Rows are pulled from the database while the export is written
+        QueryResult queryResult = new QueryResult(query,
+                consumer -> productService.streamQueryResultRows(workspaceId, query, consumer));
         String url = request.getRequestURL().toString();
         String baseURL = url.substring(0, url.length() - request.getRequestURI().length()) + request.getContextPath();
-        return makeQueryResponse(queryResult, locale, baseURL);
+        return makeQueryResponse(queryResult, "CSV".equals(exportType), locale, baseURL);
     }
 
-    private QueryResult getQueryResult(String workspaceId, Query query, String pExportType) throws UserNotFoundException, UserNotActiveException, WorkspaceNotFoundException, EntityConstraintException, BaselineNotFoundException, ProductInstanceMasterNotFoundException, NotAllowedException, ConfigurationItemNotFoundException, PartMasterNotFoundException, WorkspaceNotEnabledException {
-        List<PartRevision> partRevisions = productService.searchPartRevisions(workspaceId, query);
-        QueryResult queryResult = new QueryResult(partRevisions, query);
-        if (query.hasContext()) {
-            List<QueryResultRow> rows = productService.filterProductBreakdownStructure(workspaceId, query);
-            queryResult.mergeRows(rows);
-        }
+    private QueryResult.ExportType getExportType(String pExportType) {
         String exportType = pExportType != null ? pExportType : "JSON";
-        queryResult.setExportType(QueryResult.ExportType.valueOf(exportType));
-        return queryResult;
+        return QueryResult.ExportType.valueOf(exportType);
     }
 
-    private Response makeQueryResponse(QueryResult queryResult, Locale locale, String baseURL) {
+    private Response makeQueryResponse(QueryResult queryResult, boolean csv, Locale locale, String baseURL) {
         ExcelGenerator excelGenerator = new ExcelGenerator();
-        String contentType = "application/vnd.ms-excel";
-        String contentDisposition = "attachment; filename=export_parts.xls";
-        Response.ResponseBuilder responseBuilder = Response.ok(excelGenerator.generateXLSResponse(queryResult, locale, baseURL));
+        StreamingOutput output = outputStream -> {
+            try {
+                if (csv) {
+                    excelGenerator.generateCSVResponse(outputStream, queryResult, locale, baseURL);
+                } else {
+                    excelGenerator.generateXLSXResponse(outputStream, queryResult, locale, baseURL);
+                }
+            } catch (ApplicationException e) {
+                throw new WebApplicationException(e);
+            }
+        };
+
+        String contentType = csv ? ExcelGenerator.CSV_CONTENT_TYPE : ExcelGenerator.XLSX_CONTENT_TYPE;
+        String contentDisposition = "attachment; filename=export_parts." + (csv ? "csv" : "xlsx");
+        Response.ResponseBuilder responseBuilder = Response.ok(output);
         responseBuilder
                 .header("Content-Type", contentType)
                 .header("Content-Disposition", contentDisposition);
@@ -214,8 +214,9 @@ public class Tools {
         partIterationDTO.setNumber(partIteration.getPartRevision().getPartNumber());
         partIterationDTO.setVersion(partIteration.getPartRevision().getVersion());
 
-        if (!partIteration.getGeometries().isEmpty()) {
-            partIterationDTO.setGeometryFileURI("/api/files/" + partIteration.getSortedGeometries().get(0).getFullName());
+        List<Geometry> geometries = partIteration.getSortedGeometries();
+        if (!geometries.isEmpty()) {
+            partIterationDTO.setGeometryFileURI("/api/files/" + geometries.get(0).getFullName());
         }
 
         return partIterationDTO;
@@ -11,12 +11,13 @@
 
 package org.polarsys.eplmp.server.rest.collections;
 
-import org.polarsys.eplmp.core.product.PartRevision;
+import org.polarsys.eplmp.core.exceptions.ApplicationException;
 import org.polarsys.eplmp.core.query.Query;
 import org.polarsys.eplmp.core.query.QueryResultRow;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * @author Morgan Guimard
@@ -26,6 +27,7 @@ public class QueryResult {
 
     private Query query;
     private List<QueryResultRow> rows = new ArrayList<>();
+    private RowSource rowSource;
 
     private ExportType exportType = ExportType.JSON;
 
@@ -37,11 +39,12 @@ public class QueryResult {
         this.rows = rows;
     }
 
-    public QueryResult(List<PartRevision> partRevisions, Query query) {
+    /**
+     * Build a result whose rows are produced by the source when written, instead of being held in memory
+     */
+    public QueryResult(Query query, RowSource rowSource) {
         this.query = query;
-        for (PartRevision partRevision : partRevisions) {
-            rows.add(new QueryResultRow(partRevision));
-        }
+        this.rowSource = rowSource;
     }
 
     public ExportType getExportType() {
@@ -68,24 +71,25 @@ public class QueryResult {
         this.rows = rows;
     }
 
-    public void mergeRows(List<QueryResultRow> rows) {
-        List<QueryResultRow> mergedRows = new ArrayList<>();
-        if (rows != null && !rows.isEmpty()) {
-            for (QueryResultRow row : rows) {
-                for (QueryResultRow filteredRow : this.rows) {
-                    if (filteredRow.getPartRevision().equals(row.getPartRevision())) {
-                        mergedRows.add(row);
-                        break;
-                    }
-                }
-            }
+    /**
+     * Hand over each row of the result, from the row source if any
+     */
+    public void forEachRow(Consumer<QueryResultRow> consumer) throws ApplicationException {
+        if (rowSource != null) {
+            rowSource.forEachRow(consumer);
+        } else {
+            rows.forEach(consumer);
         }
-        this.rows = mergedRows;
     }
 
     public enum ExportType {
         JSON, CSV, XLS
     }
 
+    @FunctionalInterface
+    public interface RowSource {
+        void forEachRow(Consumer<QueryResultRow> consumer) throws ApplicationException;
+    }
+
 
 }
@@ -0,0 +1,137 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.rest.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+import java.util.Date;
+
+@XmlRootElement
+@ApiModel(value="SearchHitSummaryDTO", description="This class is the representation of a {@link org.polarsys.eplmp.core.query.SearchHitSummary} entity")
+public class SearchHitSummaryDTO implements Serializable {
+
+    @ApiModelProperty(value = "Workspace id")
+    private String workspaceId;
+
+    @ApiModelProperty(value = "Document id or part number")
+    private String id;
+
+    @ApiModelProperty(value = "Revision version")
+    private String version;
+
+    @ApiModelProperty(value = "Iteration number")
+    private int iteration;
+
+    @ApiModelProperty(value = "Document title or part name")
+    private String title;
+
+    @ApiModelProperty(value = "Document or part type")
+    private String type;
+
+    @ApiModelProperty(value = "Author login")
+    private String authorLogin;
+
+    @ApiModelProperty(value = "Author name")
+    private String authorName;
+
+    @ApiModelProperty(value = "Creation date")
+    private Date creationDate;
+
+    @ApiModelProperty(value = "Modification date")
+    private Date modificationDate;
+
+    public SearchHitSummaryDTO() {
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public void setWorkspaceId(String workspaceId) {
+        this.workspaceId = workspaceId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public void setIteration(int iteration) {
+        this.iteration = iteration;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public String getAuthorLogin() {
+        return authorLogin;
+    }
+
+    public void setAuthorLogin(String authorLogin) {
+        this.authorLogin = authorLogin;
+    }
+
+    public String getAuthorName() {
+        return authorName;
+    }
+
+    public void setAuthorName(String authorName) {
+        this.authorName = authorName;
+    }
+
+    public Date getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(Date creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public Date getModificationDate() {
+        return modificationDate;
+    }
+
+    public void setModificationDate(Date modificationDate) {
+        this.modificationDate = modificationDate;
+    }
+}
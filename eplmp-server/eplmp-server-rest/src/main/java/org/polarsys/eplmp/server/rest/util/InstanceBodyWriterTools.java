@@ -201,7 +201,7 @@ public class InstanceBodyWriterTools {
         jg.write("path", Tools.getPathAsString(currentPath));
 
         writeMatrix(combinedMatrix, jg);
-        writeGeometries(partI.getSortedGeometries(), jg);
+        writeGeometries(partI.getSortedGeometries(), partI.getSortedBinaryMeshes(), jg);
         writeAttributes(attributes, jg);
 
         jg.writeEnd();
@@ -218,7 +218,7 @@ public class InstanceBodyWriterTools {
         jg.writeEnd();
     }
 
-    private static void writeGeometries(List<Geometry> files, JsonGenerator jg) {
+    private static void writeGeometries(List<Geometry> files, List<Geometry> binaryMeshes, JsonGenerator jg) {
         jg.write("qualities", files.size());
 
         if (!files.isEmpty()) {
@@ -236,6 +236,12 @@ public class InstanceBodyWriterTools {
         for (Geometry g : files) {
             jg.writeStartObject();
             jg.write("fullName", "api/files/" + g.getFullName());
+            for (Geometry binaryMesh : binaryMeshes) {
+                if (binaryMesh.getQuality() == g.getQuality()) {
+                    jg.write("binaryMesh", "api/files/" + binaryMesh.getFullName());
+                    break;
+                }
+            }
             jg.writeEnd();
         }
         jg.writeEnd();
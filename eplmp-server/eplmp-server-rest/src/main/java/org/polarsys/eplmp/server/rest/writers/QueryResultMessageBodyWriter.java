@@ -62,6 +62,9 @@ import java.util.logging.Logger;
 public class QueryResultMessageBodyWriter implements MessageBodyWriter<QueryResult> {
 
     private static final Logger LOGGER = Logger.getLogger(QueryResultMessageBodyWriter.class.getName());
+    private static final int FLUSH_INTERVAL = 100;
+    private static final List<String> DATE_FIELDS = Arrays.asList(QueryField.PART_REVISION_MODIFICATION_DATE,
+            QueryField.PART_REVISION_CREATION_DATE, QueryField.PART_REVISION_CHECKOUT_DATE, QueryField.PART_REVISION_CHECKIN_DATE);
     private ExcelGenerator excelGenerator = new ExcelGenerator();
     @Inject
     private IProductInstanceManagerLocal productInstanceService;
@@ -91,16 +94,32 @@ public class QueryResultMessageBodyWriter implements MessageBodyWriter<QueryResu
             httpHeaders.putSingle("Content-Disposition", "inline");
             generateJSONResponse(outputStream, queryResult);
         } else if (queryResult.getExportType().equals(QueryResult.ExportType.XLS)) {
-            httpHeaders.putSingle("Content-Type", "application/octet-stream");
-            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"TSR.csv\"");
-            User author = queryResult.getQuery().getAuthor();
-            excelGenerator.generateXLSResponse(queryResult, author.getLocale(), "");
+            httpHeaders.putSingle("Content-Type", ExcelGenerator.XLSX_CONTENT_TYPE);
+            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"export_parts.xlsx\"");
+            try {
+                excelGenerator.generateXLSXResponse(outputStream, queryResult, getLocale(queryResult), "");
+            } catch (ApplicationException e) {
+                throw new WebApplicationException(e);
+            }
+        } else if (queryResult.getExportType().equals(QueryResult.ExportType.CSV)) {
+            httpHeaders.putSingle("Content-Type", ExcelGenerator.CSV_CONTENT_TYPE);
+            httpHeaders.putSingle("Content-Disposition", "attachment; filename=\"export_parts.csv\"");
+            try {
+                excelGenerator.generateCSVResponse(outputStream, queryResult, getLocale(queryResult), "");
+            } catch (ApplicationException e) {
+                throw new WebApplicationException(e);
+            }
         } else {
             throw new IllegalArgumentException();
         }
 
     }
 
+    private Locale getLocale(QueryResult queryResult) {
+        User author = queryResult.getQuery().getAuthor();
+        return author != null ? author.getLocale() : Locale.getDefault();
+    }
+
     private void generateJSONResponse(OutputStream outputStream, QueryResult queryResult) throws UnsupportedEncodingException {
 
         String charSet = "UTF-8";
@@ -111,253 +130,282 @@ public class QueryResultMessageBodyWriter implements MessageBodyWriter<QueryResu
         List<String> partIterationSelectedAttributes = getPartIterationSelectedAttributes(selects);
         List<String> pathDataSelectedAttributes = getPathDataSelectedAttributes(selects);
 
-        for (QueryResultRow row : queryResult.getRows()) {
+        int[] writtenRows = {0};
+        try {
+            queryResult.forEachRow(row -> {
+                writeRow(jg, row, selects, partIterationSelectedAttributes, pathDataSelectedAttributes);
+                // Flush by chunks rather than on each row
+                if (++writtenRows[0] % FLUSH_INTERVAL == 0) {
+                    jg.flush();
+                }
+            });
+        } catch (ApplicationException e) {
+            throw new WebApplicationException(e);
+        }
 
-            QueryContext queryContext = row.getContext();
+        jg.writeEnd();
+        jg.flush();
+    }
 
-            PartRevision part = row.getPartRevision();
-            PartIteration lastCheckedInIteration = part.getLastCheckedInIteration();
+    private void writeRow(JsonGenerator jg, QueryResultRow row, List<String> selects, List<String> partIterationSelectedAttributes, List<String> pathDataSelectedAttributes) {
 
-            jg.writeStartObject();
+        if (row.isProjected()) {
+            writeProjectedRow(jg, row, selects);
+            return;
+        }
 
-            jg.write(QueryField.PART_REVISION_PART_KEY, part.getPartNumber() + '-' + part.getVersion());
+        QueryContext queryContext = row.getContext();
 
-            // PartMaster data
+        PartRevision part = row.getPartRevision();
+        PartIteration lastCheckedInIteration = part.getLastCheckedInIteration();
 
-            if (selects.contains(QueryField.PART_MASTER_NUMBER)) {
-                jg.write(QueryField.PART_MASTER_NUMBER, part.getPartNumber());
-            }
+        jg.writeStartObject();
 
-            if (selects.contains(QueryField.PART_MASTER_NAME)) {
-                String sName = part.getPartName();
-                jg.write(QueryField.PART_MASTER_NAME, sName != null ? sName : "");
-            }
+        jg.write(QueryField.PART_REVISION_PART_KEY, part.getPartNumber() + '-' + part.getVersion());
 
-            if (selects.contains(QueryField.PART_MASTER_TYPE)) {
-                String sType = part.getType();
-                jg.write(QueryField.PART_MASTER_TYPE, sType != null ? sType : "");
-            }
+        // PartMaster data
 
-            // PartRevision data
+        if (selects.contains(QueryField.PART_MASTER_NUMBER)) {
+            jg.write(QueryField.PART_MASTER_NUMBER, part.getPartNumber());
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_MODIFICATION_DATE)) {
-                PartIteration pi = part.getLastIteration();
-                if (pi != null) {
-                    writeDate(jg, QueryField.PART_REVISION_MODIFICATION_DATE, pi.getModificationDate());
-                }
-            }
+        if (selects.contains(QueryField.PART_MASTER_NAME)) {
+            String sName = part.getPartName();
+            jg.write(QueryField.PART_MASTER_NAME, sName != null ? sName : "");
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_CREATION_DATE)) {
-                writeDate(jg, QueryField.PART_REVISION_CREATION_DATE, part.getCreationDate());
-            }
+        if (selects.contains(QueryField.PART_MASTER_TYPE)) {
+            String sType = part.getType();
+            jg.write(QueryField.PART_MASTER_TYPE, sType != null ? sType : "");
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_CHECKOUT_DATE)) {
-                writeDate(jg, QueryField.PART_REVISION_CHECKOUT_DATE, part.getCheckOutDate());
-            }
+        // PartRevision data
 
-            if (selects.contains(QueryField.PART_REVISION_CHECKIN_DATE)) {
-                writeDate(jg, QueryField.PART_REVISION_CHECKIN_DATE, lastCheckedInIteration != null ? lastCheckedInIteration.getCheckInDate() : null);
+        if (selects.contains(QueryField.PART_REVISION_MODIFICATION_DATE)) {
+            PartIteration pi = part.getLastIteration();
+            if (pi != null) {
+                writeDate(jg, QueryField.PART_REVISION_MODIFICATION_DATE, pi.getModificationDate());
             }
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_VERSION)) {
-                String version = part.getVersion();
-                jg.write(QueryField.PART_REVISION_VERSION, version);
-            }
+        if (selects.contains(QueryField.PART_REVISION_CREATION_DATE)) {
+            writeDate(jg, QueryField.PART_REVISION_CREATION_DATE, part.getCreationDate());
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_LIFECYCLE_STATE)) {
-                String lifeCycleState = part.getLifeCycleState();
-                jg.write(QueryField.PART_REVISION_LIFECYCLE_STATE, lifeCycleState != null ? lifeCycleState : "");
-            }
+        if (selects.contains(QueryField.PART_REVISION_CHECKOUT_DATE)) {
+            writeDate(jg, QueryField.PART_REVISION_CHECKOUT_DATE, part.getCheckOutDate());
+        }
 
-            if (selects.contains(QueryField.PART_REVISION_STATUS)) {
-                RevisionStatus status = part.getStatus();
-                jg.write(QueryField.PART_REVISION_STATUS, status.toString());
-            }
+        if (selects.contains(QueryField.PART_REVISION_CHECKIN_DATE)) {
+            writeDate(jg, QueryField.PART_REVISION_CHECKIN_DATE, lastCheckedInIteration != null ? lastCheckedInIteration.getCheckInDate() : null);
+        }
 
-            if (selects.contains(QueryField.AUTHOR_LOGIN)) {
-                User user = part.getAuthor();
-                jg.write(QueryField.AUTHOR_LOGIN, user.getLogin());
-            }
+        if (selects.contains(QueryField.PART_REVISION_VERSION)) {
+            String version = part.getVersion();
+            jg.write(QueryField.PART_REVISION_VERSION, version);
+        }
 
-            if (selects.contains(QueryField.AUTHOR_NAME)) {
-                User user = part.getAuthor();
-                jg.write(QueryField.AUTHOR_NAME, user.getName());
-            }
+        if (selects.contains(QueryField.PART_REVISION_LIFECYCLE_STATE)) {
+            String lifeCycleState = part.getLifeCycleState();
+            jg.write(QueryField.PART_REVISION_LIFECYCLE_STATE, lifeCycleState != null ? lifeCycleState : "");
+        }
 
-            if (selects.contains(QueryField.CTX_DEPTH)) {
-                jg.write(QueryField.CTX_DEPTH, row.getDepth());
-            }
+        if (selects.contains(QueryField.PART_REVISION_STATUS)) {
+            RevisionStatus status = part.getStatus();
+            jg.write(QueryField.PART_REVISION_STATUS, status.toString());
+        }
 
-            if (selects.contains(QueryField.PART_ITERATION_LINKED_DOCUMENTS)) {
-
-                StringBuilder sb = new StringBuilder();
-
-                if (null != queryContext && null != queryContext.getSerialNumber()) {
-                    try {
-                        ProductInstanceMaster productInstanceMaster = productInstanceService.getProductInstanceMaster(new ProductInstanceMasterKey(queryContext.getSerialNumber(), queryContext.getWorkspaceId(), queryContext.getConfigurationItemId()));
-                        ProductInstanceIteration lastIteration = productInstanceMaster.getLastIteration();
-                        PartCollection partCollection = lastIteration.getPartCollection();
-                        BaselinedPart baselinedPart = partCollection.getBaselinedPart(new BaselinedPartKey(partCollection.getId(), queryContext.getWorkspaceId(), part.getPartNumber()));
-                        PartIteration targetPart = baselinedPart.getTargetPart();
-                        Set<DocumentLink> linkedDocuments = targetPart.getLinkedDocuments();
-                        DocumentCollection documentCollection = lastIteration.getDocumentCollection();
-
-                        for (DocumentLink documentLink : linkedDocuments) {
-                            DocumentRevision targetDocument = documentLink.getTargetDocument();
-                            BaselinedDocument baselinedDocument = documentCollection.getBaselinedDocument(new BaselinedDocumentKey(documentCollection.getId(), queryContext.getWorkspaceId(), targetDocument.getDocumentMasterId(), targetDocument.getVersion()));
-                            if (null != baselinedDocument) {
-                                DocumentIteration targetDocumentIteration = baselinedDocument.getTargetDocument();
-                                sb.append(targetDocumentIteration.toString()).append(",");
-                            }
-                        }
+        if (selects.contains(QueryField.AUTHOR_LOGIN)) {
+            User user = part.getAuthor();
+            jg.write(QueryField.AUTHOR_LOGIN, user.getLogin());
+        }
+
+        if (selects.contains(QueryField.AUTHOR_NAME)) {
+            User user = part.getAuthor();
+            jg.write(QueryField.AUTHOR_NAME, user.getName());
+        }
 
-                    } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException | WorkspaceNotEnabledException | ProductInstanceMasterNotFoundException e) {
-                        LOGGER.log(Level.FINEST, null, e);
+        if (selects.contains(QueryField.CTX_DEPTH)) {
+            jg.write(QueryField.CTX_DEPTH, row.getDepth());
+        }
+
+        if (selects.contains(QueryField.PART_ITERATION_LINKED_DOCUMENTS)) {
+
+            StringBuilder sb = new StringBuilder();
+
+            if (null != queryContext && null != queryContext.getSerialNumber()) {
+                try {
+                    ProductInstanceMaster productInstanceMaster = productInstanceService.getProductInstanceMaster(new ProductInstanceMasterKey(queryContext.getSerialNumber(), queryContext.getWorkspaceId(), queryContext.getConfigurationItemId()));
+                    ProductInstanceIteration lastIteration = productInstanceMaster.getLastIteration();
+                    PartCollection partCollection = lastIteration.getPartCollection();
+                    BaselinedPart baselinedPart = partCollection.getBaselinedPart(new BaselinedPartKey(partCollection.getId(), queryContext.getWorkspaceId(), part.getPartNumber()));
+                    PartIteration targetPart = baselinedPart.getTargetPart();
+                    Set<DocumentLink> linkedDocuments = targetPart.getLinkedDocuments();
+                    DocumentCollection documentCollection = lastIteration.getDocumentCollection();
+
+                    for (DocumentLink documentLink : linkedDocuments) {
+                        DocumentRevision targetDocument = documentLink.getTargetDocument();
+                        BaselinedDocument baselinedDocument = documentCollection.getBaselinedDocument(new BaselinedDocumentKey(documentCollection.getId(), queryContext.getWorkspaceId(), targetDocument.getDocumentMasterId(), targetDocument.getVersion()));
+                        if (null != baselinedDocument) {
+                            DocumentIteration targetDocumentIteration = baselinedDocument.getTargetDocument();
+                            sb.append(targetDocumentIteration.toString()).append(",");
+                        }
                     }
-                } else {
-                    if (lastCheckedInIteration != null) {
-                        Set<DocumentLink> linkedDocuments = lastCheckedInIteration.getLinkedDocuments();
-
-                        for (DocumentLink documentLink : linkedDocuments) {
-                            DocumentRevision targetDocument = documentLink.getTargetDocument();
-                            DocumentIteration targetDocumentLastCheckedInIteration = targetDocument.getLastCheckedInIteration();
-                            if (targetDocumentLastCheckedInIteration != null) {
-                                sb.append(targetDocumentLastCheckedInIteration.toString()).append(",");
-                            }
+
+                } catch (UserNotFoundException | UserNotActiveException | WorkspaceNotFoundException | WorkspaceNotEnabledException | ProductInstanceMasterNotFoundException e) {
+                    LOGGER.log(Level.FINEST, null, e);
+                }
+            } else {
+                if (lastCheckedInIteration != null) {
+                    Set<DocumentLink> linkedDocuments = lastCheckedInIteration.getLinkedDocuments();
+
+                    for (DocumentLink documentLink : linkedDocuments) {
+                        DocumentRevision targetDocument = documentLink.getTargetDocument();
+                        DocumentIteration targetDocumentLastCheckedInIteration = targetDocument.getLastCheckedInIteration();
+                        if (targetDocumentLastCheckedInIteration != null) {
+                            sb.append(targetDocumentLastCheckedInIteration.toString()).append(",");
                         }
                     }
                 }
-
-                jg.write(QueryField.PART_ITERATION_LINKED_DOCUMENTS, sb.toString());
             }
 
-            for (String attributeSelect : partIterationSelectedAttributes) {
+            jg.write(QueryField.PART_ITERATION_LINKED_DOCUMENTS, sb.toString());
+        }
 
-                String attributeSelectType = attributeSelect.substring(0, attributeSelect.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
+        for (String attributeSelect : partIterationSelectedAttributes) {
 
-                String attributeSelectName = attributeSelect.substring(attributeSelect.indexOf(".") + 1);
+            String attributeSelectType = attributeSelect.substring(0, attributeSelect.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
 
-                String attributeValue = "";
+            String attributeSelectName = attributeSelect.substring(attributeSelect.indexOf(".") + 1);
 
-                PartIteration pi = part.getLastIteration();
+            String attributeValue = "";
 
-                if (pi != null) {
-                    List<InstanceAttribute> attributes = pi.getInstanceAttributes();
+            PartIteration pi = part.getLastIteration();
 
-                    if (attributes != null) {
-                        jg.writeStartArray(attributeSelect);
+            if (pi != null) {
+                List<InstanceAttribute> attributes = pi.getInstanceAttributes();
 
-                        for (InstanceAttribute attribute : attributes) {
-                            InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
+                if (attributes != null) {
+                    writeInstanceAttributes(jg, attributeSelect, attributeSelectType, attributeSelectName, attributes);
 
-                            if (attrDTO.getName().equals(attributeSelectName)
-                                    && attrDTO.getType().name().equals(attributeSelectType)) {
+                } else {
+                    jg.write(attributeSelect, attributeValue);
+                }
 
-                                attributeValue = attribute.getValue() + "";
+            } else {
+                // TODO: maybe this line is useless and should be removed
+                jg.write(attributeSelect, attributeValue);
+            }
+        }
 
-                                if (attribute instanceof InstanceDateAttribute) {
-                                    attributeValue = getFormattedDate(((InstanceDateAttribute) attribute).getDateValue());
-                                } else if (attribute instanceof InstanceListOfValuesAttribute) {
-                                    attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
-                                }
+        for (String attributeSelect : pathDataSelectedAttributes) {
 
-                                jg.write(attributeValue);
-                            }
-                        }
+            String attributeSelectType = attributeSelect.substring(0, attributeSelect.indexOf(".")).substring(QueryField.PATH_DATA_ATTRIBUTES_PREFIX.length());
 
-                        jg.writeEnd();
+            String attributeSelectName = attributeSelect.substring(attributeSelect.indexOf(".") + 1);
 
-                    } else {
-                        jg.write(attributeSelect, attributeValue);
-                    }
+            String attributeValue = "";
+
+            PathDataIteration pdi = row.getPathDataIteration();
+
+            if (pdi != null) {
+                List<InstanceAttribute> attributes = pdi.getInstanceAttributes();
+
+                if (attributes != null) {
+                    writeInstanceAttributes(jg, attributeSelect, attributeSelectType, attributeSelectName, attributes);
 
                 } else {
-                    // TODO: maybe this line is useless and should be removed
                     jg.write(attributeSelect, attributeValue);
                 }
             }
+        }
 
-            for (String attributeSelect : pathDataSelectedAttributes) {
-
-                String attributeSelectType = attributeSelect.substring(0, attributeSelect.indexOf(".")).substring(QueryField.PATH_DATA_ATTRIBUTES_PREFIX.length());
-
-                String attributeSelectName = attributeSelect.substring(attributeSelect.indexOf(".") + 1);
-
-                String attributeValue = "";
+        if (selects.contains(QueryField.CTX_PRODUCT_ID)) {
+            String configurationItemId = queryContext != null ? queryContext.getConfigurationItemId() : "";
+            jg.write(QueryField.CTX_PRODUCT_ID, configurationItemId);
+        }
+        if (selects.contains(QueryField.CTX_SERIAL_NUMBER)) {
+            String serialNumber = queryContext != null ? queryContext.getSerialNumber() : "";
+            jg.write(QueryField.CTX_SERIAL_NUMBER, serialNumber != null ? serialNumber : "");
+        }
+        if (selects.contains(QueryField.CTX_AMOUNT)) {
+            String amount = row.getAmount() + "";
+            jg.write(QueryField.CTX_AMOUNT, amount);
+        }
 
-                PathDataIteration pdi = row.getPathDataIteration();
+        if (selects.contains(QueryField.CTX_P2P_SOURCE)) {
+            Map<String, List<PartLinkList>> sources = row.getSources();
+            String partLinksAsString = Tools.getPartLinksAsHumanString(sources);
+            jg.write(QueryField.CTX_P2P_SOURCE, partLinksAsString);
+        }
 
-                if (pdi != null) {
-                    List<InstanceAttribute> attributes = pdi.getInstanceAttributes();
+        if (selects.contains(QueryField.CTX_P2P_TARGET)) {
+            Map<String, List<PartLinkList>> targets = row.getTargets();
+            String partLinksAsString = Tools.getPartLinksAsHumanString(targets);
+            jg.write(QueryField.CTX_P2P_TARGET, partLinksAsString);
+        }
 
-                    if (attributes != null) {
-                        jg.writeStartArray(attributeSelect);
+        if (selects.contains(QueryField.PART_MASTER_IS_STANDARD)) {
+            boolean isStandard = row.getPartRevision().getPartMaster().isStandardPart();
+            jg.write(QueryField.PART_MASTER_IS_STANDARD, isStandard);
+        }
 
-                        for (InstanceAttribute attribute : attributes) {
-                            InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
+        jg.writeEnd();
+    }
 
-                            if (attrDTO.getName().equals(attributeSelectName)
-                                    && attrDTO.getType().name().equals(attributeSelectType)) {
 
-                                attributeValue = attribute.getValue() + "";
+    private void writeInstanceAttributes(JsonGenerator jg, String attributeSelect, String attributeSelectType, String attributeSelectName, List<InstanceAttribute> attributes) {
+        jg.writeStartArray(attributeSelect);
 
-                                if (attribute instanceof InstanceDateAttribute) {
-                                    attributeValue = getFormattedDate(((InstanceDateAttribute) attribute).getDateValue());
-                                } else if (attribute instanceof InstanceListOfValuesAttribute) {
-                                    attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
-                                }
+        for (InstanceAttribute attribute : attributes) {
+            InstanceAttributeDTO attrDTO = mapper.map(attribute, InstanceAttributeDTO.class);
 
-                                jg.write(attributeValue);
-                            }
-                        }
+            if (attrDTO.getName().equals(attributeSelectName)
+                    && attrDTO.getType().name().equals(attributeSelectType)) {
 
-                        jg.writeEnd();
+                String attributeValue = attribute.getValue() + "";
 
-                    } else {
-                        jg.write(attributeSelect, attributeValue);
-                    }
+                if (attribute instanceof InstanceDateAttribute) {
+                    attributeValue = getFormattedDate(((InstanceDateAttribute) attribute).getDateValue());
+                } else if (attribute instanceof InstanceListOfValuesAttribute) {
+                    attributeValue = ((InstanceListOfValuesAttribute) attribute).getSelectedName();
                 }
-            }
 
-            if (selects.contains(QueryField.CTX_PRODUCT_ID)) {
-                String configurationItemId = queryContext != null ? queryContext.getConfigurationItemId() : "";
-                jg.write(QueryField.CTX_PRODUCT_ID, configurationItemId);
-            }
-            if (selects.contains(QueryField.CTX_SERIAL_NUMBER)) {
-                String serialNumber = queryContext != null ? queryContext.getSerialNumber() : "";
-                jg.write(QueryField.CTX_SERIAL_NUMBER, serialNumber != null ? serialNumber : "");
-            }
-            if (selects.contains(QueryField.CTX_AMOUNT)) {
-                String amount = row.getAmount() + "";
-                jg.write(QueryField.CTX_AMOUNT, amount);
+                jg.write(attributeValue);
             }
+        }
 
-            if (selects.contains(QueryField.CTX_P2P_SOURCE)) {
-                Map<String, List<PartLinkList>> sources = row.getSources();
-                String partLinksAsString = Tools.getPartLinksAsHumanString(sources);
-                jg.write(QueryField.CTX_P2P_SOURCE, partLinksAsString);
-            }
+        jg.writeEnd();
+    }
 
-            if (selects.contains(QueryField.CTX_P2P_TARGET)) {
-                Map<String, List<PartLinkList>> targets = row.getTargets();
-                String partLinksAsString = Tools.getPartLinksAsHumanString(targets);
-                jg.write(QueryField.CTX_P2P_TARGET, partLinksAsString);
-            }
+    /**
+     * Write a row read as a projection, which holds the selected values instead of a part revision
+     */
+    private void writeProjectedRow(JsonGenerator jg, QueryResultRow row, List<String> selects) {
+        jg.writeStartObject();
 
-            if (selects.contains(QueryField.PART_MASTER_IS_STANDARD)) {
-                boolean isStandard = row.getPartRevision().getPartMaster().isStandardPart();
-                jg.write(QueryField.PART_MASTER_IS_STANDARD, isStandard);
-            }
+        jg.write(QueryField.PART_REVISION_PART_KEY, (String) row.getValue(QueryField.PART_REVISION_PART_KEY));
 
-            jg.writeEnd();
-            jg.flush();
+        for (String select : selects) {
+            if (select.startsWith(QueryField.PART_REVISION_ATTRIBUTES_PREFIX)) {
+                String attributeSelectType = select.substring(0, select.indexOf(".")).substring(QueryField.PART_REVISION_ATTRIBUTES_PREFIX.length());
+                String attributeSelectName = select.substring(select.indexOf(".") + 1);
+                writeInstanceAttributes(jg, select, attributeSelectType, attributeSelectName, row.getInstanceAttributes());
+            } else {
+                Object value = row.getValue(select);
+                if (value instanceof Date || DATE_FIELDS.contains(select)) {
+                    writeDate(jg, select, (Date) value);
+                } else if (value instanceof Boolean) {
+                    jg.write(select, (Boolean) value);
+                } else {
+                    jg.write(select, value != null ? value.toString() : "");
+                }
+            }
         }
 
         jg.writeEnd();
-        jg.flush();
     }
 
-
     private void writeDate(JsonGenerator jg, String key, Date date) {
         if (date != null) {
             String formattedDate = getFormattedDate(date);
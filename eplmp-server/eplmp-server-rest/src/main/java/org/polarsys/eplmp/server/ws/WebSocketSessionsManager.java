@@ -11,10 +11,15 @@
 
 package org.polarsys.eplmp.server.ws;
 
+import org.polarsys.eplmp.core.product.ConversionProgress;
+import org.polarsys.eplmp.core.services.IConversionProgressManagerLocal;
 import org.polarsys.eplmp.core.services.IUserManagerLocal;
 import org.polarsys.eplmp.server.ws.chat.Room;
+import org.polarsys.eplmp.server.ws.status.StatusWebSocketModuleImpl;
 import org.polarsys.eplmp.server.ws.webrtc.WebSocketUtils;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.websocket.Session;
@@ -23,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 /**
  * The aim of this class is to maintain active sockets
@@ -35,11 +41,36 @@ public class WebSocketSessionsManager {
     @Inject
     private IUserManagerLocal userManager;
 
+    @Inject
+    private IConversionProgressManagerLocal conversionProgressManager;
+
     /**
      * Users WebSockets map, store a list af sessions for each user
      */
     private static final ConcurrentMap<String, List<Session>> CHANNELS = new ConcurrentHashMap<>();
 
+    private final Consumer<ConversionProgress> conversionProgressListener = this::onConversionProgress;
+
+    @PostConstruct
+    private void init() {
+        conversionProgressManager.addListener(conversionProgressListener);
+    }
+
+    @PreDestroy
+    private void destroy() {
+        conversionProgressManager.removeListener(conversionProgressListener);
+    }
+
+    /**
+     * Push conversion steps to the user who requested the conversion, so that clients don't poll the part
+     */
+    private void onConversionProgress(ConversionProgress conversionProgress) {
+        String login = conversionProgress.getUserLogin();
+        if (login != null && hasSessions(login)) {
+            broadcast(login, StatusWebSocketModuleImpl.createConversionMessage(conversionProgress));
+        }
+    }
+
     public boolean hasSessions(String login) {
         List<Session> sessions = getSessions(login);
         return sessions != null && !sessions.isEmpty();
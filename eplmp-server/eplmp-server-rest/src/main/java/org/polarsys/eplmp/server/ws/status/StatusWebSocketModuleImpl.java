@@ -12,6 +12,8 @@
 package org.polarsys.eplmp.server.ws.status;
 
 
+import org.polarsys.eplmp.core.product.ConversionProgress;
+import org.polarsys.eplmp.core.product.PartIterationKey;
 import org.polarsys.eplmp.server.ws.WebSocketMessage;
 import org.polarsys.eplmp.server.ws.WebSocketModule;
 import org.polarsys.eplmp.server.ws.WebSocketSessionsManager;
@@ -33,6 +35,8 @@ public class StatusWebSocketModuleImpl implements WebSocketModule {
     private static final String USER_STATUS = "USER_STATUS";
     private static final String USER_STATUS_OFFLINE = "USER_STATUS_OFFLINE";
     private static final String USER_STATUS_ONLINE = "USER_STATUS_ONLINE";
+    private static final String CONVERSION_STATUS = "CONVERSION_STATUS";
+
     @Inject
     private WebSocketSessionsManager webSocketSessionsManager;
 
@@ -69,4 +73,24 @@ public class StatusWebSocketModuleImpl implements WebSocketModule {
         return new WebSocketMessage(b.build());
     }
 
+    /**
+     * Creates the message pushed to the user for each step of a CAD conversion.
+     * Server to client only, this module does not decode it.
+     */
+    public static WebSocketMessage createConversionMessage(ConversionProgress conversionProgress) {
+
+        PartIterationKey partIterationKey = conversionProgress.getPartIterationKey();
+
+        JsonObjectBuilder b = Json.createObjectBuilder()
+                .add("type", CONVERSION_STATUS)
+                .add("workspaceId", partIterationKey.getWorkspaceId())
+                .add("partNumber", partIterationKey.getPartMasterNumber())
+                .add("version", partIterationKey.getPartRevisionVersion())
+                .add("iteration", partIterationKey.getIteration())
+                .add("step", conversionProgress.getStep().name())
+                .add("succeed", conversionProgress.isSucceed());
+
+        return new WebSocketMessage(b.build());
+    }
+
 }
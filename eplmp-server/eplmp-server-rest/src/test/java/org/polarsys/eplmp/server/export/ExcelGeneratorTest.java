@@ -0,0 +1,64 @@
+/*******************************************************************************
+  * Copyright (c) 2017-2019 DocDoku.
+  * All rights reserved. This program and the accompanying materials
+  * are made available under the terms of the Eclipse Public License v1.0
+  * which accompanies this distribution, and is available at
+  * http://www.eclipse.org/legal/epl-v10.html
+  *
+  * Contributors:
+  *    DocDoku - initial API and implementation
+  *******************************************************************************/
+
+package org.polarsys.eplmp.server.export;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Assert;
+import org.junit.Test;
+import org.polarsys.eplmp.core.meta.InstanceAttribute;
+import org.polarsys.eplmp.core.meta.InstanceTextAttribute;
+import org.polarsys.eplmp.core.query.Query;
+import org.polarsys.eplmp.core.query.QueryField;
+import org.polarsys.eplmp.core.query.QueryResultRow;
+import org.polarsys.eplmp.server.rest.collections.QueryResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+public class ExcelGeneratorTest {
+
+    private static final String COLOR_SELECT = QueryField.PART_REVISION_ATTRIBUTES_PREFIX + "TEXT.color";
+
+    @Test
+    public void writeAttributeIdsInHiddenColumnsTest() throws Exception {
+        Query query = new Query();
+        query.setSelects(Arrays.asList(QueryField.PART_MASTER_NUMBER, COLOR_SELECT));
+
+        InstanceAttribute color = new InstanceTextAttribute("color", "red", false);
+        color.setId(42);
+        QueryResultRow row = new QueryResultRow(Collections.singletonMap(QueryField.PART_MASTER_NUMBER, "PRT-001"));
+        row.setInstanceAttributes(Collections.singletonList(color));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ExcelGenerator().generateXLSXResponse(outputStream, new QueryResult(query, Collections.singletonList(row)), Locale.ENGLISH, "");
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(outputStream.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            Row headerRow = sheet.getRow(0);
+            Row dataRow = sheet.getRow(1);
+
+            Assert.assertEquals("color", headerRow.getCell(1).getStringCellValue());
+            Assert.assertEquals("red", dataRow.getCell(1).getStringCellValue());
+            Assert.assertFalse(sheet.isColumnHidden(1));
+
+            Assert.assertEquals(COLOR_SELECT, headerRow.getCell(2).getStringCellValue());
+            Assert.assertEquals("42", dataRow.getCell(2).getStringCellValue());
+            Assert.assertTrue(sheet.isColumnHidden(2));
+            Assert.assertNull(dataRow.getCell(1).getCellComment());
+        }
+    }
+}